@@ -0,0 +1,221 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gamesalutes.utils.Disposable;
+
+/**
+ * {@link AsyncHttpSupport} that runs the requests of an {@link HttpSupport} on an <code>ExecutorService</code>.
+ * Requests go through the blocking methods of the <code>HttpSupport</code> so the marshallers, unmarshallers, 
+ * global headers and {@link HttpBadStatusInterceptor} chain all apply unchanged.
+ * <p>
+ * A request only holds a thread while it is executing and requests beyond the number of threads wait in the 
+ * executor queue.  Since {@link HttpConnection} pools 20 connections by default, the default of 
+ * {@link #DEFAULT_THREADS} threads is enough to keep every connection busy, so thousands of requests can be 
+ * submitted at once without a thread for each.  Use as many threads as {@link ConnectionPoolConfig#getMaxTotal()}
+ * when the pool is configured larger.
+ * <p>
+ * Cancelling a request that has not started prevents it from running.  A request that is already executing 
+ * is not interrupted and runs until it completes or times out.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class AsyncHttpConnection implements AsyncHttpSupport,Disposable {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncHttpConnection.class);
+	
+	/**
+	 * Number of threads used when no executor is given.
+	 */
+	public static final int DEFAULT_THREADS = 20;
+	
+	private static final AtomicInteger poolCount = new AtomicInteger();
+	
+	private enum Method { GET, POST, PUT, DELETE }
+	
+	private final HttpSupport connection;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	
+	/**
+	 * Constructor.  Uses {@link #DEFAULT_THREADS} daemon threads.
+	 * 
+	 * @param connection the {@link HttpSupport} that executes the requests
+	 */
+	public AsyncHttpConnection(HttpSupport connection) {
+		this(connection,DEFAULT_THREADS);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param connection the {@link HttpSupport} that executes the requests
+	 * @param threads the number of daemon threads that execute requests
+	 */
+	public AsyncHttpConnection(HttpSupport connection,int threads) {
+		if(connection == null) {
+			throw new NullPointerException("connection");
+		}
+		if(threads <= 0) {
+			throw new IllegalArgumentException("threads=" + threads);
+		}
+		this.connection = connection;
+		this.executor = Executors.newFixedThreadPool(threads,new DaemonThreadFactory());
+		this.ownsExecutor = true;
+	}
+	
+	/**
+	 * Constructor.  <code>executor</code> is not shut down by {@link #dispose()}.
+	 * 
+	 * @param connection the {@link HttpSupport} that executes the requests
+	 * @param executor the <code>ExecutorService</code> that runs the requests
+	 */
+	public AsyncHttpConnection(HttpSupport connection,ExecutorService executor) {
+		if(connection == null) {
+			throw new NullPointerException("connection");
+		}
+		if(executor == null) {
+			throw new NullPointerException("executor");
+		}
+		this.connection = connection;
+		this.executor = executor;
+		this.ownsExecutor = false;
+	}
+	
+	public HttpSupport getHttpSupport() {
+		return connection;
+	}
+	
+	public <S,T> Future<T> get(HttpConnectionRequest<S,T> request) {
+		return submit(Method.GET,request,null);
+	}
+	
+	public <S,T> Future<T> post(HttpConnectionRequest<S,T> request) {
+		return submit(Method.POST,request,null);
+	}
+	
+	public <S,T> Future<T> put(HttpConnectionRequest<S,T> request) {
+		return submit(Method.PUT,request,null);
+	}
+	
+	public <S,T> Future<T> delete(HttpConnectionRequest<S,T> request) {
+		return submit(Method.DELETE,request,null);
+	}
+	
+	public <S,T> Future<T> get(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback) {
+		return submit(Method.GET,request,callback);
+	}
+	
+	public <S,T> Future<T> post(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback) {
+		return submit(Method.POST,request,callback);
+	}
+	
+	public <S,T> Future<T> put(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback) {
+		return submit(Method.PUT,request,callback);
+	}
+	
+	public <S,T> Future<T> delete(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback) {
+		return submit(Method.DELETE,request,callback);
+	}
+	
+	/**
+	 * Shuts down the executor if it was created by this <code>AsyncHttpConnection</code>.  Requests
+	 * that were already submitted still run.  The underlying {@link HttpSupport} is not disposed.
+	 */
+	public void dispose() {
+		if(ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+	
+	private <S,T> Future<T> submit(final Method method,final HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback) {
+		if(request == null) {
+			throw new NullPointerException("request");
+		}
+		ResponseFuture<T> future = new ResponseFuture<T>(new Callable<T>() {
+			public T call() throws Exception {
+				switch(method) {
+					case GET:
+						return connection.get(request);
+					case POST:
+						return connection.post(request);
+					case PUT:
+						return connection.put(request);
+					case DELETE:
+						return connection.delete(request);
+					default:
+						throw new AssertionError(method);
+				}
+			}
+		},callback);
+		executor.execute(future);
+		return future;
+	}
+	
+	/**
+	 * <code>FutureTask</code> that notifies a callback when done.
+	 * 
+	 */
+	private static final class ResponseFuture<T> extends FutureTask<T> {
+		
+		private final HttpCallback<? super T> callback;
+		
+		ResponseFuture(Callable<T> task,HttpCallback<? super T> callback) {
+			super(task);
+			this.callback = callback;
+		}
+		
+		@Override
+		protected void done() {
+			if(callback == null) {
+				return;
+			}
+			try {
+				if(isCancelled()) {
+					callback.cancelled();
+					return;
+				}
+				T response;
+				try {
+					response = get();
+				}
+				catch(ExecutionException e) {
+					Throwable cause = e.getCause();
+					callback.failed(cause instanceof Exception ? (Exception)cause : e);
+					return;
+				}
+				callback.completed(response);
+			}
+			catch(InterruptedException e) {
+				// cannot happen since the task is done
+				Thread.currentThread().interrupt();
+			}
+			catch(RuntimeException e) {
+				logger.warn("Callback=" + callback + " threw exception",e);
+			}
+		}
+	}
+	
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		
+		private final int pool = poolCount.incrementAndGet();
+		private final AtomicInteger threadCount = new AtomicInteger();
+		
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r,"AsyncHttpConnection-" + pool + "-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
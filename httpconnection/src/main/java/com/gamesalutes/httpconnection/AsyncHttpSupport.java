@@ -0,0 +1,64 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart of {@link HttpSupport}.  Each method returns immediately with a <code>Future</code> 
+ * for the unmarshalled response.  The <code>Future</code> throws an <code>ExecutionException</code> whose cause 
+ * is the exception that the corresponding {@link HttpSupport} method would have thrown.
+ * <p>
+ * Global headers, bad status interceptors and the proxy are configured on the underlying {@link #getHttpSupport()}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public interface AsyncHttpSupport {
+
+	<S,T> Future<T> get(HttpConnectionRequest<S,T> request);
+	<S,T> Future<T> post(HttpConnectionRequest<S,T> request);
+	<S,T> Future<T> put(HttpConnectionRequest<S,T> request);
+	<S,T> Future<T> delete(HttpConnectionRequest<S,T> request);
+	
+	/**
+	 * Executes an HTTP GET and notifies <code>callback</code> of the result.
+	 * 
+	 * @param request the request
+	 * @param callback the {@link HttpCallback} or <code>null</code> for none
+	 * @return the <code>Future</code> response
+	 */
+	<S,T> Future<T> get(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback);
+	
+	/**
+	 * Executes an HTTP POST and notifies <code>callback</code> of the result.
+	 * 
+	 * @param request the request
+	 * @param callback the {@link HttpCallback} or <code>null</code> for none
+	 * @return the <code>Future</code> response
+	 */
+	<S,T> Future<T> post(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback);
+	
+	/**
+	 * Executes an HTTP PUT and notifies <code>callback</code> of the result.
+	 * 
+	 * @param request the request
+	 * @param callback the {@link HttpCallback} or <code>null</code> for none
+	 * @return the <code>Future</code> response
+	 */
+	<S,T> Future<T> put(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback);
+	
+	/**
+	 * Executes an HTTP DELETE and notifies <code>callback</code> of the result.
+	 * 
+	 * @param request the request
+	 * @param callback the {@link HttpCallback} or <code>null</code> for none
+	 * @return the <code>Future</code> response
+	 */
+	<S,T> Future<T> delete(HttpConnectionRequest<S,T> request,HttpCallback<? super T> callback);
+	
+	/**
+	 * Returns the {@link HttpSupport} that executes the requests.
+	 * 
+	 * @return the <code>HttpSupport</code>
+	 */
+	HttpSupport getHttpSupport();
+}
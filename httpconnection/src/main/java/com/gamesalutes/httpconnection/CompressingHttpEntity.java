@@ -0,0 +1,84 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * Entity that compresses a wrapped entity as it is written with chunked transfer encoding.  Repeatable if
+ * the wrapped entity is.
+ * 
+ * @author jmontgomery
+ *
+ */
+final class CompressingHttpEntity extends HttpEntityWrapper {
+
+	private final ContentEncoding encoding;
+	private final int level;
+	
+	public CompressingHttpEntity(HttpEntity wrapped,ContentEncoding encoding,int level) {
+		super(wrapped);
+		this.encoding = encoding;
+		this.level = level;
+	}
+	
+	@Override
+	public Header getContentEncoding() {
+		return new BasicHeader(HTTP.CONTENT_ENCODING,encoding.getName());
+	}
+	
+	@Override
+	public long getContentLength() {
+		return -1;
+	}
+	
+	@Override
+	public boolean isChunked() {
+		return true;
+	}
+	
+	@Override
+	public InputStream getContent() throws IOException {
+		throw new UnsupportedOperationException("Entity is only available by writeTo");
+	}
+	
+	@Override
+	public void writeTo(OutputStream outstream) throws IOException {
+		OutputStream out = ZipStreams.encode(new NonClosingOutputStream(outstream),encoding,level);
+		try {
+			super.writeTo(out);
+		}
+		finally {
+			// finishes the encoding and returns the deflater to the pool
+			out.close();
+		}
+		outstream.flush();
+	}
+	
+	/**
+	 * The connection stream is closed by HttpClient once the entity is written.
+	 */
+	private static final class NonClosingOutputStream extends FilterOutputStream {
+		
+		NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+		
+		@Override
+		public void write(byte [] b,int off,int len) throws IOException {
+			out.write(b,off,len);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Builder of a {@link CompressionConfig}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public class CompressionBuilder {
+
+	/**
+	 * Default smallest request body that is compressed since smaller bodies rarely fit fewer packets.
+	 */
+	public static final long DEFAULT_REQUEST_THRESHOLD = 1024;
+	
+	public CompressionBuilder() {
+	}
+	
+	private ContentEncoding requestEncoding;
+	private long requestThreshold = DEFAULT_REQUEST_THRESHOLD;
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private List<ContentEncoding> acceptEncodings = Arrays.asList(ContentEncoding.GZIP,ContentEncoding.DEFLATE);
+	
+	public CompressionConfig build() {
+		return new CompressionConfig(
+				this.requestEncoding,
+				this.requestThreshold,
+				this.level,
+				new ArrayList<ContentEncoding>(this.acceptEncodings));
+	}
+	
+	/**
+	 * Compresses request bodies of at least <code>threshold</code> bytes with <code>encoding</code>.  The server
+	 * must support the encoding since HTTP has no way to discover it before sending a request.
+	 * 
+	 * @param encoding the <code>ContentEncoding</code> or <code>null</code> to not compress requests
+	 * @param threshold the smallest body in bytes that is compressed
+	 * @return <code>this</code> for chaining
+	 */
+	public CompressionBuilder setRequestCompression(ContentEncoding encoding,long threshold) {
+		if(threshold < 0) {
+			throw new IllegalArgumentException("threshold=" + threshold);
+		}
+		this.requestEncoding = encoding;
+		this.requestThreshold = threshold;
+		return this;
+	}
+	
+	/**
+	 * Sets the compression level of request bodies.
+	 * 
+	 * @param level <code>Deflater.DEFAULT_COMPRESSION</code> or a level from <code>Deflater.BEST_SPEED</code> 
+	 *        to <code>Deflater.BEST_COMPRESSION</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public CompressionBuilder setLevel(int level) {
+		if(level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException("level=" + level);
+		}
+		this.level = level;
+		return this;
+	}
+	
+	/**
+	 * Sets the encodings advertised in the <code>Accept-Encoding</code> header in order of preference.  No
+	 * encodings requests uncompressed responses.  The header is not changed on requests that set it explicitly.
+	 * 
+	 * @param encodings the accepted encodings
+	 * @return <code>this</code> for chaining
+	 */
+	public CompressionBuilder setAcceptEncodings(ContentEncoding...encodings) {
+		for(ContentEncoding encoding : encodings) {
+			if(encoding == null) {
+				throw new NullPointerException("encodings");
+			}
+		}
+		this.acceptEncodings = Arrays.asList(encodings.clone());
+		return this;
+	}
+}
@@ -0,0 +1,117 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable configuration of the content compression of an {@link HttpConnection}.  Created with a
+ * {@link CompressionBuilder}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class CompressionConfig {
+
+	/**
+	 * The configuration used when none is set: gzip and deflate responses are accepted and request
+	 * bodies are not compressed.
+	 */
+	public static final CompressionConfig DEFAULT = new CompressionBuilder().build();
+	
+	private final ContentEncoding requestEncoding;
+	private final long requestThreshold;
+	private final int level;
+	private final List<ContentEncoding> acceptEncodings;
+	private final String acceptEncodingHeader;
+	
+	CompressionConfig(
+			ContentEncoding requestEncoding,
+			long requestThreshold,
+			int level,
+			List<ContentEncoding> acceptEncodings) {
+		this.requestEncoding = requestEncoding;
+		this.requestThreshold = requestThreshold;
+		this.level = level;
+		this.acceptEncodings = Collections.unmodifiableList(acceptEncodings);
+		
+		StringBuilder header = new StringBuilder();
+		for(ContentEncoding encoding : acceptEncodings) {
+			if(header.length() > 0) {
+				header.append(", ");
+			}
+			header.append(encoding.getName());
+		}
+		this.acceptEncodingHeader = header.length() > 0 ? header.toString() : null;
+	}
+	
+	/**
+	 * Returns the encoding request bodies are compressed with.
+	 * 
+	 * @return the request <code>ContentEncoding</code> or <code>null</code> if requests are not compressed
+	 */
+	public ContentEncoding getRequestEncoding() {
+		return requestEncoding;
+	}
+	
+	/**
+	 * Returns the smallest request body in bytes that is compressed.  Bodies of unknown length are 
+	 * always compressed.
+	 * 
+	 * @return the request threshold
+	 */
+	public long getRequestThreshold() {
+		return requestThreshold;
+	}
+	
+	/**
+	 * Returns the <code>Deflater</code> compression level of request bodies.
+	 * 
+	 * @return the compression level
+	 */
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * Returns the encodings advertised in the <code>Accept-Encoding</code> header of requests in order of preference.
+	 * 
+	 * @return the accepted encodings
+	 */
+	public List<ContentEncoding> getAcceptEncodings() {
+		return acceptEncodings;
+	}
+	
+	/**
+	 * Returns the value of the <code>Accept-Encoding</code> header.
+	 * 
+	 * @return the header value or <code>null</code> if no encoding is accepted
+	 */
+	String getAcceptEncodingHeader() {
+		return acceptEncodingHeader;
+	}
+	
+	/**
+	 * Returns whether a request body of <code>length</code> bytes is compressed.
+	 * 
+	 * @param length the content length or negative if unknown
+	 * @return <code>true</code> to compress the body
+	 */
+	boolean isCompressed(long length) {
+		return requestEncoding != null && (length < 0 || length >= requestThreshold);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CompressionConfig [requestEncoding=");
+		builder.append(requestEncoding);
+		builder.append(", requestThreshold=");
+		builder.append(requestThreshold);
+		builder.append(", level=");
+		builder.append(level);
+		builder.append(", acceptEncodings=");
+		builder.append(acceptEncodings);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,139 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder of a {@link ConnectionPoolConfig}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public class ConnectionPoolBuilder {
+
+	public ConnectionPoolBuilder() {
+	}
+	
+	private int maxTotal = 20;
+	private int defaultMaxPerRoute = 20;
+	private final Map<String,Integer> maxPerRoute = new HashMap<String,Integer>();
+	private long idleTimeout;
+	private long validateAfterInactivity;
+	private long keepAlive;
+	private long timeToLive;
+	
+	public ConnectionPoolConfig build() {
+		return new ConnectionPoolConfig(
+				this.maxTotal,
+				this.defaultMaxPerRoute,
+				this.maxPerRoute,
+				this.idleTimeout,
+				this.validateAfterInactivity,
+				this.keepAlive,
+				this.timeToLive);
+	}
+	
+	/**
+	 * Sets the maximum number of connections in the pool.
+	 * 
+	 * @param maxTotal the maximum total connections
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setMaxTotal(int maxTotal) {
+		if(maxTotal <= 0) {
+			throw new IllegalArgumentException("maxTotal=" + maxTotal);
+		}
+		this.maxTotal = maxTotal;
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of connections to a route without an override.
+	 * 
+	 * @param max the maximum connections per route
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setDefaultMaxPerRoute(int max) {
+		if(max <= 0) {
+			throw new IllegalArgumentException("max=" + max);
+		}
+		this.defaultMaxPerRoute = max;
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of connections to the target host of <code>url</code>.
+	 * 
+	 * @param url an absolute url such as <code>https://api.example.com</code>
+	 * @param max the maximum connections to the host
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setMaxPerRoute(String url,int max) {
+		if(max <= 0) {
+			throw new IllegalArgumentException("max=" + max);
+		}
+		this.maxPerRoute.put(ConnectionPoolConfig.routeKey(url),max);
+		return this;
+	}
+	
+	/**
+	 * Sets the time after which idle connections are closed and removed from the pool by a background thread.
+	 * 
+	 * @param timeout the idle timeout or <code>0</code> to not evict idle connections
+	 * @param unit the <code>TimeUnit</code> of <code>timeout</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setIdleTimeout(long timeout,TimeUnit unit) {
+		if(timeout < 0) {
+			throw new IllegalArgumentException("timeout=" + timeout);
+		}
+		this.idleTimeout = unit.toMillis(timeout);
+		return this;
+	}
+	
+	/**
+	 * Sets the time a pooled connection may be idle before it is checked for staleness when leased.  Checking
+	 * for staleness costs a blocking read on the socket so checking only after a period of inactivity avoids 
+	 * the cost for connections that were just used.
+	 * 
+	 * @param period the inactivity period, <code>0</code> to check on every lease and negative to never check
+	 * @param unit the <code>TimeUnit</code> of <code>period</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setValidateAfterInactivity(long period,TimeUnit unit) {
+		this.validateAfterInactivity = period >= 0 ? unit.toMillis(period) : -1;
+		return this;
+	}
+	
+	/**
+	 * Sets the longest time an idle connection is kept alive for reuse.  Shorter timeouts in the 
+	 * <code>Keep-Alive</code> header of a response are honored.
+	 * 
+	 * @param keepAlive the keep alive or <code>0</code> to keep connections alive as long as the server allows
+	 * @param unit the <code>TimeUnit</code> of <code>keepAlive</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setKeepAlive(long keepAlive,TimeUnit unit) {
+		if(keepAlive < 0) {
+			throw new IllegalArgumentException("keepAlive=" + keepAlive);
+		}
+		this.keepAlive = unit.toMillis(keepAlive);
+		return this;
+	}
+	
+	/**
+	 * Sets the total lifetime of a connection after which it is not reused.
+	 * 
+	 * @param timeToLive the time to live or <code>0</code> for no limit
+	 * @param unit the <code>TimeUnit</code> of <code>timeToLive</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public ConnectionPoolBuilder setTimeToLive(long timeToLive,TimeUnit unit) {
+		if(timeToLive < 0) {
+			throw new IllegalArgumentException("timeToLive=" + timeToLive);
+		}
+		this.timeToLive = unit.toMillis(timeToLive);
+		return this;
+	}
+}
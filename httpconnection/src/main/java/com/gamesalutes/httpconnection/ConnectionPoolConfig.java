@@ -0,0 +1,181 @@
+package com.gamesalutes.httpconnection;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable configuration of the connection pool of an {@link HttpConnection}.  Created with a
+ * {@link ConnectionPoolBuilder}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class ConnectionPoolConfig {
+
+	/**
+	 * The configuration used when none is set: 20 connections in total and per route with no 
+	 * idle eviction, a stale check on every lease and no limit on keep alive.
+	 */
+	public static final ConnectionPoolConfig DEFAULT = new ConnectionPoolBuilder().build();
+	
+	private final int maxTotal;
+	private final int defaultMaxPerRoute;
+	private final Map<String,Integer> maxPerRoute;
+	private final long idleTimeout;
+	private final long validateAfterInactivity;
+	private final long keepAlive;
+	private final long timeToLive;
+	
+	ConnectionPoolConfig(
+			int maxTotal,
+			int defaultMaxPerRoute,
+			Map<String,Integer> maxPerRoute,
+			long idleTimeout,
+			long validateAfterInactivity,
+			long keepAlive,
+			long timeToLive) {
+		this.maxTotal = maxTotal;
+		this.defaultMaxPerRoute = defaultMaxPerRoute;
+		this.maxPerRoute = Collections.unmodifiableMap(new HashMap<String,Integer>(maxPerRoute));
+		this.idleTimeout = idleTimeout;
+		this.validateAfterInactivity = validateAfterInactivity;
+		this.keepAlive = keepAlive;
+		this.timeToLive = timeToLive;
+	}
+	
+	/**
+	 * Returns the maximum number of connections in the pool.
+	 * 
+	 * @return the maximum total connections
+	 */
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+	
+	/**
+	 * Returns the maximum number of connections to a route without an override.
+	 * 
+	 * @return the default maximum connections per route
+	 */
+	public int getDefaultMaxPerRoute() {
+		return defaultMaxPerRoute;
+	}
+	
+	/**
+	 * Returns the maximum connections of the routes with overrides keyed by target host url of the form
+	 * <code>scheme://host:port</code>.
+	 * 
+	 * @return the per route overrides
+	 */
+	public Map<String,Integer> getMaxPerRoute() {
+		return maxPerRoute;
+	}
+	
+	/**
+	 * Returns the maximum number of connections to the target host of <code>url</code>.
+	 * 
+	 * @param url an absolute url
+	 * @return the maximum connections to the host
+	 */
+	public int getMaxPerRoute(String url) {
+		Integer max = maxPerRoute.get(routeKey(url));
+		return max != null ? max : defaultMaxPerRoute;
+	}
+	
+	/**
+	 * Returns the time after which idle connections are evicted from the pool.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the idle timeout or <code>0</code> if idle connections are not evicted
+	 */
+	public long getIdleTimeout(TimeUnit unit) {
+		return unit.convert(idleTimeout,TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Returns the time a pooled connection may be idle before it is checked for staleness when leased.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the inactivity period, <code>0</code> if connections are checked on every lease and negative if they
+	 *         are never checked
+	 */
+	public long getValidateAfterInactivity(TimeUnit unit) {
+		return validateAfterInactivity >= 0 ? unit.convert(validateAfterInactivity,TimeUnit.MILLISECONDS) : -1;
+	}
+	
+	/**
+	 * Returns the longest time an idle connection is kept alive for reuse.  Shorter timeouts in the
+	 * <code>Keep-Alive</code> header of a response are honored.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the keep alive or <code>0</code> to keep connections alive as long as the server allows
+	 */
+	public long getKeepAlive(TimeUnit unit) {
+		return unit.convert(keepAlive,TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Returns the total lifetime of a connection after which it is not reused.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the time to live or <code>0</code> for no limit
+	 */
+	public long getTimeToLive(TimeUnit unit) {
+		return unit.convert(timeToLive,TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Normalizes the target host of an absolute url to <code>scheme://host:port</code>.
+	 * 
+	 */
+	static String routeKey(String url) {
+		if(url == null) {
+			throw new NullPointerException("url");
+		}
+		URI u;
+		try {
+			u = new URI(url);
+		}
+		catch(URISyntaxException e) {
+			throw new IllegalArgumentException("url=" + url,e);
+		}
+		if(u.getScheme() == null || u.getHost() == null) {
+			throw new IllegalArgumentException("url=" + url + " is not absolute");
+		}
+		String scheme = u.getScheme().toLowerCase();
+		int port = u.getPort();
+		if(port == -1) {
+			port = "https".equals(scheme) ? 443 : 80;
+		}
+		return routeKey(scheme,u.getHost(),port);
+	}
+	
+	static String routeKey(String scheme,String host,int port) {
+		return scheme.toLowerCase() + "://" + host.toLowerCase() + ":" + port;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ConnectionPoolConfig [maxTotal=");
+		builder.append(maxTotal);
+		builder.append(", defaultMaxPerRoute=");
+		builder.append(defaultMaxPerRoute);
+		builder.append(", maxPerRoute=");
+		builder.append(maxPerRoute);
+		builder.append(", idleTimeout=");
+		builder.append(idleTimeout);
+		builder.append(", validateAfterInactivity=");
+		builder.append(validateAfterInactivity);
+		builder.append(", keepAlive=");
+		builder.append(keepAlive);
+		builder.append(", timeToLive=");
+		builder.append(timeToLive);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,129 @@
+package com.gamesalutes.httpconnection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the state of a connection pool or of a single route in the pool.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class ConnectionPoolStats {
+
+	private final int leased;
+	private final int available;
+	private final int pending;
+	private final int max;
+	private final long leases;
+	private final long leaseTimeouts;
+	private final long totalLeaseWait;
+	private final long maxLeaseWait;
+	
+	ConnectionPoolStats(int leased,int available,int pending,int max,long leases,long leaseTimeouts,long totalLeaseWait,long maxLeaseWait) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.max = max;
+		this.leases = leases;
+		this.leaseTimeouts = leaseTimeouts;
+		this.totalLeaseWait = totalLeaseWait;
+		this.maxLeaseWait = maxLeaseWait;
+	}
+	
+	/**
+	 * Returns the number of connections currently in use.
+	 * 
+	 * @return the leased connections
+	 */
+	public int getLeased() {
+		return leased;
+	}
+	
+	/**
+	 * Returns the number of idle connections available for reuse.
+	 * 
+	 * @return the available connections
+	 */
+	public int getAvailable() {
+		return available;
+	}
+	
+	/**
+	 * Returns the number of requests waiting for a connection.
+	 * 
+	 * @return the pending requests
+	 */
+	public int getPending() {
+		return pending;
+	}
+	
+	/**
+	 * Returns the maximum number of connections.
+	 * 
+	 * @return the maximum connections
+	 */
+	public int getMax() {
+		return max;
+	}
+	
+	/**
+	 * Returns the number of connections leased since the pool was created.
+	 * 
+	 * @return the lease count
+	 */
+	public long getLeaseCount() {
+		return leases;
+	}
+	
+	/**
+	 * Returns the number of requests that timed out waiting for a connection.
+	 * 
+	 * @return the lease timeout count
+	 */
+	public long getLeaseTimeoutCount() {
+		return leaseTimeouts;
+	}
+	
+	/**
+	 * Returns the average time waited for a connection by the leases.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the average lease wait
+	 */
+	public long getAverageLeaseWait(TimeUnit unit) {
+		return leases != 0 ? unit.convert(totalLeaseWait / leases,TimeUnit.NANOSECONDS) : 0;
+	}
+	
+	/**
+	 * Returns the longest time waited for a connection by a lease.
+	 * 
+	 * @param unit the <code>TimeUnit</code> of the result
+	 * @return the maximum lease wait
+	 */
+	public long getMaxLeaseWait(TimeUnit unit) {
+		return unit.convert(maxLeaseWait,TimeUnit.NANOSECONDS);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ConnectionPoolStats [leased=");
+		builder.append(leased);
+		builder.append(", available=");
+		builder.append(available);
+		builder.append(", pending=");
+		builder.append(pending);
+		builder.append(", max=");
+		builder.append(max);
+		builder.append(", leases=");
+		builder.append(leases);
+		builder.append(", leaseTimeouts=");
+		builder.append(leaseTimeouts);
+		builder.append(", averageLeaseWaitMicros=");
+		builder.append(getAverageLeaseWait(TimeUnit.MICROSECONDS));
+		builder.append(", maxLeaseWaitMicros=");
+		builder.append(getMaxLeaseWait(TimeUnit.MICROSECONDS));
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,28 @@
+package com.gamesalutes.httpconnection;
+
+/**
+ * Content codings that {@link HttpConnection} can compress request bodies with and decode responses from.
+ * 
+ * @author jmontgomery
+ *
+ */
+public enum ContentEncoding {
+	
+	GZIP("gzip"),
+	DEFLATE("deflate");
+	
+	private final String name;
+	
+	private ContentEncoding(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Returns the token used in the <code>Content-Encoding</code> and <code>Accept-Encoding</code> headers.
+	 * 
+	 * @return the encoding name
+	 */
+	public String getName() {
+		return name;
+	}
+}
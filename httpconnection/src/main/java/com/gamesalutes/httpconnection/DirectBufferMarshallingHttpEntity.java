@@ -0,0 +1,105 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.gamesalutes.utils.ByteBufferInputStream;
+
+/**
+ * Repeatable non-streaming entity that uses <code>RequestMarshaller</code> to create the entity in a 
+ * list of fixed size direct buffers.  The buffers are never copied as the entity grows and are kept off 
+ * the java heap.
+ * 
+ * @author jmontgomery
+ *
+ */
+final class DirectBufferMarshallingHttpEntity<S> extends AbstractHttpEntity {
+
+	static final int CHUNK_SIZE = 64 * 1024;
+	
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+	private final byte [] transfer = new byte[8 * 1024];
+	private long length;
+	
+	public DirectBufferMarshallingHttpEntity(RequestMarshaller<S> marshaller,S request) throws IOException {
+		marshaller.marshall(request,new ChunkOutputStream());
+		
+		// prepare for reading or writing
+		for(ByteBuffer chunk : chunks) {
+			chunk.flip();
+			length += chunk.limit();
+		}
+	}
+	
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	public long getContentLength() {
+		return length;
+	}
+
+	public InputStream getContent() throws IOException, IllegalStateException {
+		List<InputStream> streams = new ArrayList<InputStream>(chunks.size());
+		for(ByteBuffer chunk : chunks) {
+			streams.add(new ByteBufferInputStream(chunk.duplicate()));
+		}
+		return new SequenceInputStream(Collections.enumeration(streams));
+	}
+
+	public void writeTo(OutputStream outstream) throws IOException {
+		synchronized(transfer) {
+			for(ByteBuffer chunk : chunks) {
+				ByteBuffer src = chunk.duplicate();
+				while(src.hasRemaining()) {
+					int len = Math.min(src.remaining(),transfer.length);
+					src.get(transfer,0,len);
+					outstream.write(transfer,0,len);
+				}
+			}
+		}
+		outstream.flush();
+	}
+
+	public boolean isStreaming() {
+		return false;
+	}
+	
+	private final class ChunkOutputStream extends OutputStream {
+		
+		private ByteBuffer current;
+		
+		private ByteBuffer current() {
+			if(current == null || !current.hasRemaining()) {
+				current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+				chunks.add(current);
+			}
+			return current;
+		}
+		
+		@Override
+		public void write(int b) {
+			current().put((byte)b);
+		}
+		
+		@Override
+		public void write(byte [] b,int off,int len) {
+			while(len > 0) {
+				ByteBuffer buf = current();
+				int n = Math.min(len,buf.remaining());
+				buf.put(b,off,n);
+				off += n;
+				len -= n;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.gamesalutes.utils.FileProxyRetriever;
+import com.gamesalutes.utils.Pair;
+
+/**
+ * <code>HttpCacheStorage</code> that keeps entries on disk in a {@link FileProxyRetriever} so that large or
+ * numerous responses do not occupy the heap and, optionally, survive restarts.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class FileHttpCacheStorage implements HttpCacheStorage {
+
+	private final FileProxyRetriever<String,HttpCacheEntry> retriever;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param dir directory of the cache files
+	 * @param prefix the prefix name of the cache files
+	 * @param persist <code>true</code> to keep the entries between instances
+	 * @throws IOException if the cache files cannot be created
+	 */
+	public FileHttpCacheStorage(File dir,String prefix,boolean persist) throws IOException {
+		this.retriever = new FileProxyRetriever<String,HttpCacheEntry>(dir,prefix,persist);
+	}
+	
+	public HttpCacheEntry get(String key) {
+		Pair<Boolean,HttpCacheEntry> result = retriever.lookup(key);
+		return result.first ? result.second : null;
+	}
+
+	public void put(String key,HttpCacheEntry entry) {
+		retriever.put(key,entry);
+	}
+
+	public void remove(String key) {
+		retriever.remove(key);
+	}
+
+	public void clear() {
+		retriever.clear();
+	}
+
+	public void dispose() {
+		retriever.dispose();
+	}
+}
@@ -0,0 +1,430 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+import com.gamesalutes.utils.ByteUtils;
+import com.gamesalutes.utils.Disposable;
+import com.gamesalutes.utils.MiscUtils;
+
+/**
+ * Client side cache of <code>GET</code> responses for {@link HttpConnection}.  Successful responses are stored
+ * according to their <code>Cache-Control</code>, <code>Expires</code>, <code>ETag</code> and <code>Last-Modified</code> 
+ * headers and served without contacting the server while fresh.  Stale entries with a validator are revalidated 
+ * with a conditional request and served from the cache if the server responds <code>304 Not Modified</code>.
+ * <p>
+ * Responses are keyed by the request uri together with its <code>Authorization</code>, <code>Accept</code> and
+ * <code>Accept-Language</code> headers, so a cache shared by connections with different credentials never serves 
+ * one user's response to another.  Credentials are only kept as a digest in the key.  Responses that vary on any
+ * other request header, except <code>Accept-Encoding</code>, are not stored.  A request with
+ * <code>Cache-Control: no-store</code> bypasses the cache and one with <code>no-cache</code> or 
+ * <code>max-age=0</code> is always revalidated.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class HttpCache implements Disposable {
+
+	/**
+	 * Largest response body stored when no maximum is given.
+	 */
+	public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+	
+	/**
+	 * Longest heuristic freshness given to responses with only a <code>Last-Modified</code> date.
+	 */
+	static final long MAX_HEURISTIC_LIFETIME = TimeUnit.DAYS.toMillis(1);
+	
+	/**
+	 * Request headers that select the response in addition to the uri.
+	 */
+	private static final String [] KEY_HEADERS = {
+		HttpHeaders.AUTHORIZATION,
+		HttpHeaders.ACCEPT,
+		HttpHeaders.ACCEPT_LANGUAGE
+	};
+	
+	private final HttpCacheStorage storage;
+	private final int maxEntrySize;
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong validated = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong stores = new AtomicLong();
+	
+	/**
+	 * Constructor.  Stores bodies up to {@link #DEFAULT_MAX_ENTRY_SIZE} bytes.
+	 * 
+	 * @param storage the <code>HttpCacheStorage</code>
+	 */
+	public HttpCache(HttpCacheStorage storage) {
+		this(storage,DEFAULT_MAX_ENTRY_SIZE);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param storage the <code>HttpCacheStorage</code>
+	 * @param maxEntrySize the largest response body in bytes that is stored
+	 */
+	public HttpCache(HttpCacheStorage storage,int maxEntrySize) {
+		if(storage == null) {
+			throw new NullPointerException("storage");
+		}
+		if(maxEntrySize <= 0) {
+			throw new IllegalArgumentException("maxEntrySize=" + maxEntrySize);
+		}
+		this.storage = storage;
+		this.maxEntrySize = maxEntrySize;
+	}
+	
+	public HttpCacheStorage getStorage() {
+		return storage;
+	}
+	
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+	
+	/**
+	 * Returns the current hit and miss counts.
+	 * 
+	 * @return the <code>HttpCacheStats</code>
+	 */
+	public HttpCacheStats getStats() {
+		return new HttpCacheStats(hits.get(),validated.get(),misses.get(),stores.get());
+	}
+	
+	public void resetStats() {
+		hits.set(0);
+		validated.set(0);
+		misses.set(0);
+		stores.set(0);
+	}
+	
+	/**
+	 * Removes all stored responses.
+	 */
+	public void clear() {
+		storage.clear();
+	}
+	
+	public void dispose() {
+		storage.dispose();
+	}
+	
+	/**
+	 * Executes a <code>GET</code> through the cache.
+	 * 
+	 * @param uri the request uri
+	 * @param request the request with its headers set
+	 * @param exchange sends <code>request</code> to the server after any validators are added
+	 * @return the response
+	 * @throws IOException if the request fails
+	 */
+	HttpResponse execute(String uri,HttpRequest request,Exchange exchange) throws IOException {
+		String cacheControl = getHeader(request,HttpHeaders.CACHE_CONTROL);
+		// caller is handling validation or does not want the response cached
+		if(hasDirective(cacheControl,"no-store") || 
+				request.containsHeader(HttpHeaders.IF_NONE_MATCH) || request.containsHeader(HttpHeaders.IF_MODIFIED_SINCE)) {
+			return exchange.execute();
+		}
+		
+		String key = createKey(uri,request);
+		HttpCacheEntry entry = storage.get(key);
+		long now = System.currentTimeMillis();
+		boolean revalidate = hasDirective(cacheControl,"no-cache") || getMaxAge(cacheControl) == 0 ||
+				MiscUtils.safeEquals("no-cache",getHeader(request,HttpHeaders.PRAGMA));
+		
+		if(entry != null && !revalidate && entry.isFresh(now)) {
+			hits.incrementAndGet();
+			return entry.toResponse();
+		}
+		if(entry != null && entry.hasValidator()) {
+			if(entry.getETag() != null) {
+				request.setHeader(HttpHeaders.IF_NONE_MATCH,entry.getETag());
+			}
+			if(entry.getLastModified() != null) {
+				request.setHeader(HttpHeaders.IF_MODIFIED_SINCE,entry.getLastModified());
+			}
+		}
+		
+		HttpResponse response = exchange.execute();
+		long responseTime = System.currentTimeMillis();
+		
+		if(entry != null && response.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+			response.close();
+			entry = revalidate(entry,response,responseTime);
+			storage.put(key,entry);
+			validated.incrementAndGet();
+			return entry.toResponse();
+		}
+		
+		misses.incrementAndGet();
+		return store(key,response,responseTime);
+	}
+	
+	/**
+	 * Reads and stores the body of a cacheable response.
+	 */
+	private HttpResponse store(String key,HttpResponse response,long responseTime) throws IOException {
+		if(response.getCode() != HttpStatus.SC_OK) {
+			if(response.getCode() == HttpStatus.SC_NOT_FOUND || response.getCode() == HttpStatus.SC_GONE) {
+				storage.remove(key);
+			}
+			return response;
+		}
+		
+		String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+		String vary = response.getHeader("Vary");
+		String etag = response.getHeader(HttpHeaders.ETAG);
+		String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+		long lifetime = getFreshnessLifetime(response,responseTime);
+		
+		// responses varying on headers outside the key cannot be told apart
+		if(hasDirective(cacheControl,"no-store") || !isKeyedVary(vary) ||
+				(lifetime <= 0 && etag == null && lastModified == null)) {
+			storage.remove(key);
+			return response;
+		}
+		
+		// no body, e.g. the content could not be decoded
+		if(!response.hasInputStream()) {
+			return response;
+		}
+		
+		InputStream in = response.getInputStream();
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(4096);
+		boolean passThrough = false;
+		try {
+			byte [] bytes = new byte[4096];
+			int len;
+			while((len = in.read(bytes)) != -1) {
+				buf.write(bytes,0,len);
+				if(buf.size() > maxEntrySize) {
+					// too large so pass the rest of the stream through
+					storage.remove(key);
+					passThrough = true;
+					return new HttpResponse(response.getCode(),response.getStatus(),
+							new SequenceInputStream(new ByteArrayInputStream(buf.toByteArray()),in),response.getHeaders());
+				}
+			}
+		}
+		finally {
+			// closing releases the connection
+			if(!passThrough) {
+				MiscUtils.closeStream(in);
+			}
+		}
+		
+		HttpCacheEntry entry = new HttpCacheEntry(
+				response.getCode(),
+				response.getStatus(),
+				buf.toByteArray(),
+				etag,
+				lastModified,
+				responseTime,
+				lifetime,
+				hasDirective(cacheControl,"no-cache"));
+		storage.put(key,entry);
+		stores.incrementAndGet();
+		
+		return new HttpResponse(response.getCode(),response.getStatus(),
+				new ByteArrayInputStream(buf.toByteArray()),response.getHeaders());
+	}
+	
+	/**
+	 * Updates <code>entry</code> with the headers of a <code>304</code> response.  The previous freshness lifetime
+	 * is kept if the response does not give a new one.
+	 */
+	private HttpCacheEntry revalidate(HttpCacheEntry entry,HttpResponse response,long responseTime) {
+		String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+		String etag = response.getHeader(HttpHeaders.ETAG);
+		String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+		
+		long lifetime = entry.getFreshnessLifetime();
+		if(getMaxAge(cacheControl) >= 0 || response.getHeader(HttpHeaders.EXPIRES) != null) {
+			lifetime = getFreshnessLifetime(response,responseTime);
+		}
+		
+		return new HttpCacheEntry(
+				entry.getCode(),
+				entry.getStatus(),
+				entry.getBody(),
+				etag != null ? etag : entry.getETag(),
+				lastModified != null ? lastModified : entry.getLastModified(),
+				responseTime,
+				lifetime,
+				cacheControl != null ? hasDirective(cacheControl,"no-cache") : entry.isNoCache());
+	}
+	
+	/**
+	 * Returns the freshness lifetime of a response from <code>max-age</code>, <code>Expires</code> or
+	 * a heuristic of 10% of the time since <code>Last-Modified</code> less the <code>Age</code>.
+	 */
+	static long getFreshnessLifetime(HttpResponse response,long responseTime) {
+		String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+		long date = parseDate(response.getHeader(HttpHeaders.DATE),responseTime);
+		
+		long lifetime;
+		long maxAge = getMaxAge(cacheControl);
+		String expires = response.getHeader(HttpHeaders.EXPIRES);
+		String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+		if(maxAge >= 0) {
+			lifetime = TimeUnit.SECONDS.toMillis(maxAge);
+		}
+		else if(expires != null) {
+			// an invalid date means already expired
+			lifetime = parseDate(expires,date) - date;
+		}
+		else if(lastModified != null) {
+			lifetime = Math.min((date - parseDate(lastModified,date)) / 10,MAX_HEURISTIC_LIFETIME);
+		}
+		else {
+			lifetime = 0;
+		}
+		
+		String age = response.getHeader(HttpHeaders.AGE);
+		if(age != null) {
+			try {
+				lifetime -= TimeUnit.SECONDS.toMillis(Long.parseLong(age.trim()));
+			}
+			catch(NumberFormatException e) {
+				// ignore
+			}
+		}
+		return Math.max(lifetime,0);
+	}
+	
+	/**
+	 * Returns the key of <code>request</code> from its uri and the values of the {@link #KEY_HEADERS}.
+	 */
+	static String createKey(String uri,HttpRequest request) {
+		StringBuilder key = new StringBuilder(uri);
+		for(String name : KEY_HEADERS) {
+			String value = getHeader(request,name);
+			if(value != null) {
+				if(name.equals(HttpHeaders.AUTHORIZATION)) {
+					value = digest(value);
+				}
+				key.append('\n').append(name).append(':').append(value);
+			}
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Returns whether a response with the <code>Vary</code> header <code>vary</code> is fully selected by 
+	 * the key.
+	 */
+	static boolean isKeyedVary(String vary) {
+		if(vary == null) {
+			return true;
+		}
+		for(String token : vary.split(",")) {
+			String name = token.trim();
+			if(name.length() == 0 || name.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)) {
+				continue;
+			}
+			boolean keyed = false;
+			for(String header : KEY_HEADERS) {
+				if(name.equalsIgnoreCase(header)) {
+					keyed = true;
+					break;
+				}
+			}
+			if(!keyed) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String digest(String value) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return ByteUtils.toHexString(md.digest(value.getBytes("UTF-8")));
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		catch(UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	private static long parseDate(String value,long defaultValue) {
+		if(value == null) {
+			return defaultValue;
+		}
+		Date date = DateUtils.parseDate(value);
+		return date != null ? date.getTime() : defaultValue;
+	}
+	
+	private static String getHeader(HttpRequest request,String name) {
+		return request.containsHeader(name) ? request.getFirstHeader(name).getValue() : null;
+	}
+	
+	static boolean hasDirective(String cacheControl,String directive) {
+		if(cacheControl == null) {
+			return false;
+		}
+		for(String token : cacheControl.split(",")) {
+			String name = token.trim();
+			int eq = name.indexOf('=');
+			if(eq != -1) {
+				name = name.substring(0,eq).trim();
+			}
+			if(name.equalsIgnoreCase(directive)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the <code>max-age</code> in seconds or <code>-1</code> if not present or invalid.
+	 */
+	static long getMaxAge(String cacheControl) {
+		if(cacheControl == null) {
+			return -1;
+		}
+		for(String token : cacheControl.split(",")) {
+			token = token.trim();
+			if(token.regionMatches(true,0,"max-age=",0,8)) {
+				String value = token.substring(8).trim();
+				if(value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+					value = value.substring(1,value.length() - 1);
+				}
+				try {
+					return Math.max(Long.parseLong(value),0);
+				}
+				catch(NumberFormatException e) {
+					return -1;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Sends the request to the server.
+	 */
+	interface Exchange {
+		HttpResponse execute() throws IOException;
+	}
+}
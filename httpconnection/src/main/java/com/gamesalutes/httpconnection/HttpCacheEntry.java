@@ -0,0 +1,166 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * A response stored by an {@link HttpCache} with its validators and freshness.  The body is stored decoded.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class HttpCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final int code;
+	private final String status;
+	private final byte [] body;
+	private final String etag;
+	private final String lastModified;
+	private final long responseTime;
+	private final long freshnessLifetime;
+	private final boolean noCache;
+	
+	HttpCacheEntry(
+			int code,
+			String status,
+			byte [] body,
+			String etag,
+			String lastModified,
+			long responseTime,
+			long freshnessLifetime,
+			boolean noCache) {
+		this.code = code;
+		this.status = status;
+		this.body = body;
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.responseTime = responseTime;
+		this.freshnessLifetime = freshnessLifetime;
+		this.noCache = noCache;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+	
+	byte [] getBody() {
+		return body;
+	}
+	
+	/**
+	 * Returns the size of the decoded body.
+	 * 
+	 * @return the body length in bytes
+	 */
+	public int getContentLength() {
+		return body.length;
+	}
+
+	/**
+	 * Returns the <code>ETag</code> validator.
+	 * 
+	 * @return the entity tag or <code>null</code> if the response had none
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	/**
+	 * Returns the <code>Last-Modified</code> validator.
+	 * 
+	 * @return the last modified date or <code>null</code> if the response had none
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Returns the time the response was received or last revalidated.
+	 * 
+	 * @return the response time in milliseconds since the epoch
+	 */
+	public long getResponseTime() {
+		return responseTime;
+	}
+
+	/**
+	 * Returns how long after the response time the entry may be used without revalidation.
+	 * 
+	 * @return the freshness lifetime in milliseconds
+	 */
+	public long getFreshnessLifetime() {
+		return freshnessLifetime;
+	}
+	
+	/**
+	 * Returns whether the entry must be revalidated before every use.
+	 * 
+	 * @return <code>true</code> if the response had <code>Cache-Control: no-cache</code>
+	 */
+	public boolean isNoCache() {
+		return noCache;
+	}
+	
+	/**
+	 * Returns whether the entry may be used without revalidation at <code>now</code>.
+	 * 
+	 * @param now the current time in milliseconds since the epoch
+	 * @return <code>true</code> if fresh
+	 */
+	public boolean isFresh(long now) {
+		return !noCache && now - responseTime < freshnessLifetime;
+	}
+	
+	/**
+	 * Returns whether the entry can be revalidated with a conditional request.
+	 * 
+	 * @return <code>true</code> if the entry has a validator
+	 */
+	public boolean hasValidator() {
+		return etag != null || lastModified != null;
+	}
+	
+	HttpResponse toResponse() {
+		List<Header> headers = new ArrayList<Header>(2);
+		if(etag != null) {
+			headers.add(new BasicHeader(HttpHeaders.ETAG,etag));
+		}
+		if(lastModified != null) {
+			headers.add(new BasicHeader(HttpHeaders.LAST_MODIFIED,lastModified));
+		}
+		return new HttpResponse(code,status,new ByteArrayInputStream(body),headers.toArray(new Header[headers.size()]));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HttpCacheEntry [code=");
+		builder.append(code);
+		builder.append(", contentLength=");
+		builder.append(body.length);
+		builder.append(", etag=");
+		builder.append(etag);
+		builder.append(", lastModified=");
+		builder.append(lastModified);
+		builder.append(", responseTime=");
+		builder.append(responseTime);
+		builder.append(", freshnessLifetime=");
+		builder.append(freshnessLifetime);
+		builder.append(", noCache=");
+		builder.append(noCache);
+		builder.append("]");
+		return builder.toString();
+	}
+}
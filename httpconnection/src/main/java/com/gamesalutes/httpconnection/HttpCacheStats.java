@@ -0,0 +1,84 @@
+package com.gamesalutes.httpconnection;
+
+/**
+ * Snapshot of the counters of an {@link HttpCache}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class HttpCacheStats {
+
+	private final long hits;
+	private final long validated;
+	private final long misses;
+	private final long stores;
+	
+	HttpCacheStats(long hits,long validated,long misses,long stores) {
+		this.hits = hits;
+		this.validated = validated;
+		this.misses = misses;
+		this.stores = stores;
+	}
+	
+	/**
+	 * Returns the number of requests served from the cache without contacting the server.
+	 * 
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of requests served from the cache after the server responded <code>304 Not Modified</code>
+	 * to a conditional request.
+	 * 
+	 * @return the validated count
+	 */
+	public long getValidatedCount() {
+		return validated;
+	}
+	
+	/**
+	 * Returns the number of requests whose response body was read from the server.
+	 * 
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of responses stored in the cache.
+	 * 
+	 * @return the store count
+	 */
+	public long getStoreCount() {
+		return stores;
+	}
+	
+	/**
+	 * Returns the fraction of requests whose body was served from the cache, including validated requests.
+	 * 
+	 * @return the hit ratio or <code>0</code> if there were no requests
+	 */
+	public double getHitRatio() {
+		long total = hits + validated + misses;
+		return total != 0 ? (double)(hits + validated) / total : 0;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HttpCacheStats [hits=");
+		builder.append(hits);
+		builder.append(", validated=");
+		builder.append(validated);
+		builder.append(", misses=");
+		builder.append(misses);
+		builder.append(", stores=");
+		builder.append(stores);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,41 @@
+package com.gamesalutes.httpconnection;
+
+import com.gamesalutes.utils.Disposable;
+
+/**
+ * Storage backend of an {@link HttpCache}.  Implementations must be thread safe.
+ * 
+ * @author jmontgomery
+ *
+ */
+public interface HttpCacheStorage extends Disposable {
+
+	/**
+	 * Returns the entry stored for <code>key</code>.
+	 * 
+	 * @param key the request uri
+	 * @return the <code>HttpCacheEntry</code> or <code>null</code> if none is stored
+	 */
+	HttpCacheEntry get(String key);
+	
+	/**
+	 * Stores <code>entry</code> for <code>key</code>, replacing any existing entry.  Implementations may evict
+	 * other entries to make room.
+	 * 
+	 * @param key the request uri
+	 * @param entry the <code>HttpCacheEntry</code>
+	 */
+	void put(String key,HttpCacheEntry entry);
+	
+	/**
+	 * Removes the entry stored for <code>key</code> if any.
+	 * 
+	 * @param key the request uri
+	 */
+	void remove(String key);
+	
+	/**
+	 * Removes all entries.
+	 */
+	void clear();
+}
@@ -0,0 +1,32 @@
+package com.gamesalutes.httpconnection;
+
+/**
+ * Callback for the result of an asynchronous request.  Exactly one method is invoked once the request
+ * finishes, on the thread that ran the request or, for a request cancelled before it ran, on the 
+ * thread that cancelled it.
+ * 
+ * @author jmontgomery
+ *
+ * @param <T> the response type
+ */
+public interface HttpCallback<T> {
+
+	/**
+	 * Invoked when the request completes with an ok status.
+	 * 
+	 * @param response the unmarshalled response
+	 */
+	void completed(T response);
+	
+	/**
+	 * Invoked when the request fails.
+	 * 
+	 * @param e the exception thrown by the request, which is a {@link HttpBadStatusException} for a non ok status
+	 */
+	void failed(Exception e);
+	
+	/**
+	 * Invoked when the request is cancelled.
+	 */
+	void cancelled();
+}
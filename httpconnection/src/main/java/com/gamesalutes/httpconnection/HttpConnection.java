@@ -22,14 +22,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
@@ -44,18 +42,20 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.SchemePortResolver;
 import org.apache.http.conn.UnsupportedSchemeException;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
 import org.apache.http.impl.conn.DefaultSchemePortResolver;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 
 import com.gamesalutes.utils.ByteCountingInputStream;
 import com.gamesalutes.utils.ChainedIOException;
@@ -79,6 +79,12 @@ public final class HttpConnection extends AbstractHttpConnection
     private final Object configLock = new Object();
     
     private HttpClientBuilder clientBuilder;
+    private RequestConfig requestConfig;
+    private SocketConfig socketConfig;
+    private SSLConnectionSocketFactory sslSocketFactory;
+    private SchemePortResolver schemePortResolver;
+    private ConnectionPoolConfig poolConfig = ConnectionPoolConfig.DEFAULT;
+    private volatile InstrumentedConnectionManager connManager;
     private String protocol;
     private String certFile;
     private String keyFile;
@@ -89,6 +95,9 @@ public final class HttpConnection extends AbstractHttpConnection
     private String password;
     private int numRetries;
     private AtomicLong totalBytes = new AtomicLong();
+    private AtomicLong totalUncompressedBytes = new AtomicLong();
+    private volatile CompressionConfig compressionConfig = CompressionConfig.DEFAULT;
+    private volatile HttpCache httpCache;
     private AtomicInteger openConnections = new AtomicInteger();
 
     private int timeout;
@@ -142,6 +151,15 @@ public final class HttpConnection extends AbstractHttpConnection
     	
     }
     
+    private class UncompressedStreamListener implements ByteCountingInputStream.StreamReadListener {
+    	
+		public void onReadComplete(int readCount) {
+			totalUncompressedBytes.addAndGet(readCount);
+		}
+		public void onReadBegin() {
+		}
+    }
+    
     /**
      * Constructor.
      * 
@@ -279,13 +297,111 @@ public final class HttpConnection extends AbstractHttpConnection
 
     }
     
+    /**
+     * Sets the configuration of the connection pool.  Must be called before the first request.
+     * 
+     * @param config the <code>ConnectionPoolConfig</code>
+     */
+    public void setConnectionPoolConfig(ConnectionPoolConfig config)
+    {
+    	if(config == null) {
+    		throw new NullPointerException("config");
+    	}
+    	synchronized(configLock) {
+	    	if(httpClient.get() != null) {
+	    		throw new IllegalStateException("Connection pool already created: set the config before the first request");
+	    	}
+	    	this.poolConfig = config;
+    	}
+    }
+    
+    /**
+     * Returns the configuration of the connection pool.
+     * 
+     * @return the <code>ConnectionPoolConfig</code>
+     */
+    public ConnectionPoolConfig getConnectionPoolConfig() {
+    	synchronized(configLock) {
+    		return poolConfig;
+    	}
+    }
+    
+    /**
+     * Sets the request compression and accepted response encodings.  Applies to subsequent requests.
+     * 
+     * @param config the <code>CompressionConfig</code>
+     */
+    public void setCompressionConfig(CompressionConfig config) {
+    	if(config == null) {
+    		throw new NullPointerException("config");
+    	}
+    	this.compressionConfig = config;
+    }
+    
+    /**
+     * Returns the request compression and accepted response encodings.
+     * 
+     * @return the <code>CompressionConfig</code>
+     */
+    public CompressionConfig getCompressionConfig() {
+    	return compressionConfig;
+    }
+    
+    /**
+     * Sets the cache of <code>GET</code> responses of {@link #get(HttpConnectionRequest)}.  The cache may be shared 
+     * with other connections, as responses are kept apart by their <code>Authorization</code> header.  Applies to subsequent requests.
+     * 
+     * @param cache the <code>HttpCache</code> or <code>null</code> to not cache responses
+     */
+    public void setHttpCache(HttpCache cache) {
+    	this.httpCache = cache;
+    }
+    
+    /**
+     * Returns the cache of <code>GET</code> responses.
+     * 
+     * @return the <code>HttpCache</code> or <code>null</code> if responses are not cached
+     */
+    public HttpCache getHttpCache() {
+    	return httpCache;
+    }
+    
+    /**
+     * Returns the hit and miss counts of the response cache.
+     * 
+     * @return the <code>HttpCacheStats</code> or <code>null</code> if responses are not cached
+     */
+    public HttpCacheStats getHttpCacheStats() {
+    	HttpCache cache = httpCache;
+    	return cache != null ? cache.getStats() : null;
+    }
+    
     private CloseableHttpClient getOrInitHttpClient() {
     	CloseableHttpClient client = httpClient.get();
     	if(client == null) {
     		synchronized(configLock) {
     			client = httpClient.get();
     			if(client == null) {
+    				InstrumentedConnectionManager manager = new InstrumentedConnectionManager(
+    						poolConfig,sslSocketFactory,schemePortResolver,socketConfig);
+    				clientBuilder.setConnectionManager(manager);
+    				clientBuilder.setDefaultRequestConfig(
+    						RequestConfig.copy(requestConfig)
+    						.setStaleConnectionCheckEnabled(manager.isStaleConnectionCheckEnabled())
+    						.build());
+    				
+    				final long keepAlive = poolConfig.getKeepAlive(TimeUnit.MILLISECONDS);
+    				if(keepAlive > 0) {
+    					clientBuilder.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+							@Override
+							public long getKeepAliveDuration(org.apache.http.HttpResponse response,HttpContext context) {
+								long duration = super.getKeepAliveDuration(response,context);
+								return duration > 0 && duration < keepAlive ? duration : keepAlive;
+							}
+    					});
+    				}
     				client = clientBuilder.build();
+    				connManager = manager;
     				httpClient.set(client);
     			}
     		}
@@ -396,6 +512,12 @@ public final class HttpConnection extends AbstractHttpConnection
 		        try
 		        {
 		        	messageStream = getResponseStream(response);
+		        	
+		        	// nothing to read so release the connection now
+		        	if(messageStream == null) {
+		        		open = openConnections.decrementAndGet();
+		        		MiscUtils.closeStream(response);
+		        	}
 		        }
 		        catch(Exception e)
 		        {
@@ -412,7 +534,7 @@ public final class HttpConnection extends AbstractHttpConnection
 	        	   }
 		        }
 		        
-		        return new HttpResponse(code,status,messageStream);
+		        return new HttpResponse(code,status,messageStream,response.getAllHeaders());
 
 	        }
 	        catch(Exception e) {
@@ -435,7 +557,7 @@ public final class HttpConnection extends AbstractHttpConnection
     }
     
     private InputStream getResponseStream(CloseableHttpResponse response) throws IOException {
-    	// TODO: use DecompressingHttpClient instead of DefaultHttpClient - but will obscure number of bytes read
+    	// decoded here instead of by HttpClient so that the number of bytes read off the wire is known
     	InputStream messageStream = null;
         HttpEntity entity = response.getEntity();
         if(entity != null) {
@@ -445,30 +567,21 @@ public final class HttpConnection extends AbstractHttpConnection
         			new BufferedInputStream(
         					new ByteCountingInputStream(entity.getContent(),new StreamListener(response)),4096);
         	
-        	Header header = response.getFirstHeader("Content-Encoding");
+        	Header header = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
         	String value = header != null ? header.getValue() : null;
         	
-        	if("gzip".equalsIgnoreCase(value)) {
-        		if(logger.isDebugEnabled()) {
-        			logger.debug("Reading response stream from gzip compression");
-        		}
-        		messageStream = new GZIPInputStream(rawStream,4096);
+        	ContentEncoding encoding = ZipStreams.parseEncoding(value);
+        	if(encoding == null && value != null && !"identity".equalsIgnoreCase(value.trim())) {
+        		logger.warn("Unsupported Content-Encoding=" + value + ": reading response as is");
         	}
-        	else if("deflate".equalsIgnoreCase(value)) {
-        		if(logger.isDebugEnabled()) {
-        			logger.debug("Reading response stream from deflate compression");
-        		}
-        		messageStream = new InflaterInputStream(rawStream, new Inflater(true),4096);
-        	}
-        	else {
-        		
-        		if(logger.isDebugEnabled()) {
-        			logger.debug("Reading uncompressed response stream");
-        		}
-            	messageStream = rawStream;
-
+        	if(logger.isDebugEnabled()) {
+        		logger.debug("Reading response stream from " + (encoding != null ? encoding.getName() + " compression" : "uncompressed"));
         	}
-        			
+        	
+        	// count the decoded bytes too
+        	messageStream = new ByteCountingInputStream(
+        			ZipStreams.decode(rawStream,value),new UncompressedStreamListener());
+        	
         }
         
         return messageStream;
@@ -616,9 +729,13 @@ public final class HttpConnection extends AbstractHttpConnection
                 method.setHeader(E.getKey(),E.getValue());
             }
         }
-        // support gzip and defalte compression schemes
-        // TODO: What if added encoding above?
-        method.setHeader("Accept-Encoding","gzip, deflate");
+        // negotiate compression unless the request chose its own encodings
+        if(!method.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+        	String acceptEncoding = compressionConfig.getAcceptEncodingHeader();
+        	if(acceptEncoding != null) {
+        		method.setHeader(HttpHeaders.ACCEPT_ENCODING,acceptEncoding);
+        	}
+        }
     }
     private void setFormParams(HttpPost method,Map<String,String> formParams)
     {
@@ -685,15 +802,13 @@ public final class HttpConnection extends AbstractHttpConnection
             // if protocol is "https" and the cert is not null
 
     	    // multi-threaded
-			PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
-			connManager.setDefaultMaxPerRoute(20);
-	    	connManager.setMaxTotal(20);
-	    
+	    	// connection manager is created on first request so that the pool can be configured
 	    	HttpClientBuilder builder = 
         		HttpClientBuilder.create()
         		// allow automatic redirects
                 .setRedirectStrategy(new LaxRedirectStrategy())
-                .setConnectionManager(connManager);
+                // responses are decoded in getResponseStream with pooled inflaters
+                .disableContentCompression();
             
 //            if(logger.isDebugEnabled()) {
 //            	httpClient.log.enableDebug(true);
@@ -717,11 +832,11 @@ public final class HttpConnection extends AbstractHttpConnection
                      }
                      
                      SSLContext sslContext = EncryptUtils.createSSLContext(TransportSecurityProtocol.SSL, key,certs);
-                     builder.setSSLSocketFactory(new SSLConnectionSocketFactory(
-                    		 sslContext,SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER));
+                     this.sslSocketFactory = new SSLConnectionSocketFactory(
+                    		 sslContext,SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
                      
      
-                     builder.setSchemePortResolver(new DefaultSchemePortResolver() {
+                     this.schemePortResolver = new DefaultSchemePortResolver() {
 
 						@Override
 						public int resolve(HttpHost host)
@@ -734,7 +849,8 @@ public final class HttpConnection extends AbstractHttpConnection
 							return super.resolve(host);
 						}
                     	 
-                     });
+                     };
+                     builder.setSchemePortResolver(schemePortResolver);
 //                     Scheme sch = new Scheme("https",port,socketFactory);
 //                     httpClient.getConnectionManager().getSchemeRegistry().register(sch);
 
@@ -745,17 +861,14 @@ public final class HttpConnection extends AbstractHttpConnection
             // TODO: Should be setting proxy here too! and not in separate method
             // This will cause an interface change in this class
             //builder.setProxy(proxy)
-            RequestConfig requestConfig = RequestConfig.custom()
+            this.requestConfig = RequestConfig.custom()
             		.setSocketTimeout(timeout)
             		.setConnectionRequestTimeout(timeout)
             		.setConnectTimeout(timeout)
             		.setRedirectsEnabled(true)
             		.setRelativeRedirectsAllowed(true)
             		.build();
-            builder.setDefaultRequestConfig(requestConfig);
-            
-            builder.setDefaultSocketConfig(
-            		SocketConfig.custom().setSoTimeout(timeout).build());
+            this.socketConfig = SocketConfig.custom().setSoTimeout(timeout).build();
             
             this.clientBuilder = builder;
             // TODO: Implement auto retry
@@ -774,14 +887,55 @@ public final class HttpConnection extends AbstractHttpConnection
     public long getTotalBytes() {
     	return totalBytes.get();
     }
+    /**
+     * Returns the number of response bytes read after decoding any compression.  Equal to {@link #getTotalBytes()} 
+     * when no response was compressed.
+     * 
+     * @return the total uncompressed bytes
+     */
+    public long getTotalUncompressedBytes() {
+    	return totalUncompressedBytes.get();
+    }
     public void resetTotalBytes() {
     	totalBytes.set(0);
+    	totalUncompressedBytes.set(0);
+    }
+    
+    /**
+     * Returns the current state of the whole connection pool.
+     * 
+     * @return the <code>ConnectionPoolStats</code> of the pool
+     */
+    public ConnectionPoolStats getConnectionPoolStats() {
+    	InstrumentedConnectionManager manager = connManager;
+    	if(manager == null) {
+    		return new ConnectionPoolStats(0,0,0,getConnectionPoolConfig().getMaxTotal(),0,0,0,0);
+    	}
+    	return manager.getTotalStats();
+    }
+    
+    /**
+     * Returns the current state of each route that has been requested keyed by target host url of the
+     * form <code>scheme://host:port</code>.
+     * 
+     * @return the <code>ConnectionPoolStats</code> of each route
+     */
+    public Map<String,ConnectionPoolStats> getRouteConnectionPoolStats() {
+    	InstrumentedConnectionManager manager = connManager;
+    	if(manager == null) {
+    		return new HashMap<String,ConnectionPoolStats>();
+    	}
+    	return manager.getRouteStats();
     }
     
     public <S,T> T get(HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
 		URI uri = createUri(request.getPath(),request.getQueryParameters());
         HttpGet http = new HttpGet(uri);
         
+        HttpCache cache = this.httpCache;
+        if(cache != null) {
+        	return cachedAction(cache,uri,http,request);
+        }
         return action(uri,http,request);
         
 	}
@@ -812,6 +966,7 @@ public final class HttpConnection extends AbstractHttpConnection
         if(method instanceof HttpEntityEnclosingRequestBase) {
         	marshallRequest((HttpEntityEnclosingRequestBase)method,
         			request.getMarshaller(),
+        			request.getEntityMode(),
         			request.getRequest());
         }
         
@@ -823,14 +978,45 @@ public final class HttpConnection extends AbstractHttpConnection
         
 	}
 	
-	private <S> void  marshallRequest(HttpEntityEnclosingRequestBase method,final RequestMarshaller<S> marshaller,final S request) throws IOException {
+	private <S,T> T cachedAction(HttpCache cache,final URI uri,final HttpUriRequest method,HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+		setHeaders(method,request.getHeaders());
+		
+		HttpResponse response = cache.execute(uri.toString(),method,new HttpCache.Exchange() {
+			public HttpResponse execute() throws IOException {
+				return getResponse(uri,method);
+			}
+		});
+		handleExceptions(uri,response,request.getErrorUnmarshaller());
+		
+		return unmarshallResponse(response,request.getUnmarshaller());
+	}
+	
+	private <S> void  marshallRequest(HttpEntityEnclosingRequestBase method,final RequestMarshaller<S> marshaller,RequestEntityMode mode,final S request) throws IOException {
 		if(marshaller == null) {
 			throw new IllegalArgumentException("No marshaller configured for entity enclosing request");
 		}
 		
-		AbstractHttpEntity entity = new MarshallingHttpEntity<S>(marshaller,request);
+		AbstractHttpEntity entity;
+		switch(mode) {
+			case STREAMING:
+				entity = new StreamingMarshallingHttpEntity<S>(marshaller,request);
+				break;
+			case REPEATABLE:
+				entity = new DirectBufferMarshallingHttpEntity<S>(marshaller,request);
+				break;
+			default:
+				entity = new MarshallingHttpEntity<S>(marshaller,request);
+				break;
+		}
 		entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE,marshaller.getContentType()));
-		method.setEntity(entity);
+		
+		CompressionConfig compression = compressionConfig;
+		if(compression.isCompressed(entity.getContentLength())) {
+			method.setEntity(new CompressingHttpEntity(entity,compression.getRequestEncoding(),compression.getLevel()));
+		}
+		else {
+			method.setEntity(entity);
+		}
 				
 	}
 
@@ -12,6 +12,7 @@ public final class HttpConnectionRequest<S,T> {
 	private final Map<String,String> queryParameters;
 	
 	private final RequestMarshaller<S> marshaller;
+	private final RequestEntityMode entityMode;
 	
 	
 	private final ResponseUnmarshaller<T> unmarshaller;
@@ -24,6 +25,7 @@ public final class HttpConnectionRequest<S,T> {
 			Map<String,String> headers,
 			Map<String,String> queryParameters,
 			RequestMarshaller<S> marshaller,
+			RequestEntityMode entityMode,
 			ResponseUnmarshaller<T> unmarshaller,
 			ResponseUnmarshaller<?> errorUnmarshaller,
 			S request) {
@@ -31,6 +33,7 @@ public final class HttpConnectionRequest<S,T> {
 		this.headers = copyMap(headers);
 		this.queryParameters = copyMap(queryParameters);
 		this.marshaller = marshaller;
+		this.entityMode = entityMode;
 		this.unmarshaller = unmarshaller;
 		this.errorUnmarshaller = errorUnmarshaller;
 		this.request = request;
@@ -56,6 +59,10 @@ public final class HttpConnectionRequest<S,T> {
 		return marshaller;
 	}
 
+	public RequestEntityMode getEntityMode() {
+		return entityMode;
+	}
+
 	public ResponseUnmarshaller<T> getUnmarshaller() {
 		return unmarshaller;
 	}
@@ -71,6 +78,8 @@ public final class HttpConnectionRequest<S,T> {
 		builder.append(queryParameters);
 		builder.append(", marshaller=");
 		builder.append(marshaller);
+		builder.append(", entityMode=");
+		builder.append(entityMode);
 		builder.append(", unmarshaller=");
 		builder.append(unmarshaller);
 		builder.append(", errorUnmarshaller=");
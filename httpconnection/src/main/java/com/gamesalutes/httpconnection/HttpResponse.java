@@ -8,7 +8,10 @@ package com.gamesalutes.httpconnection;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.http.Header;
+
 import com.gamesalutes.utils.FileUtils;
+import com.gamesalutes.utils.MiscUtils;
 
 /**
  *
@@ -20,17 +23,56 @@ public final class HttpResponse
     private final String status;
     private String content;
     private InputStream stream;
+    private final Header [] headers;
 
     HttpResponse(int code,String status,InputStream stream)
+    {
+        this(code,status,stream,new Header[0]);
+    }
+    
+    HttpResponse(int code,String status,InputStream stream,Header [] headers)
     {
         this.code = code;
         this.status = status;
         this.stream = stream;
+        this.headers = headers;
     }
 
     public int getCode() { return code; }
     public String getStatus() { return status; }
     
+    /**
+     * Returns the value of the response header <code>name</code>.  The values of a header that occurs more than 
+     * once are combined into a comma separated list.
+     * 
+     * @param name the case insensitive header name
+     * @return the header value or <code>null</code> if the header is not present
+     */
+    public String getHeader(String name) {
+    	String value = null;
+    	for(Header h : headers) {
+    		if(h.getName().equalsIgnoreCase(name)) {
+    			value = value == null ? h.getValue() : value + ", " + h.getValue();
+    		}
+    	}
+    	return value;
+    }
+    
+    Header [] getHeaders() {
+    	return headers;
+    }
+    
+    synchronized boolean hasInputStream() {
+    	return stream != null;
+    }
+    
+    /**
+     * Discards the response data if any.
+     */
+    synchronized void close() {
+    	MiscUtils.closeStream(stream);
+    }
+    
     /**
      * Consumes the <code>InputStream</code> by reading it as text.
      * 
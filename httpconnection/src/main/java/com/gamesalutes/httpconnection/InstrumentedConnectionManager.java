@@ -0,0 +1,286 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.SchemePortResolver;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection manager of {@link HttpConnection} that applies a {@link ConnectionPoolConfig} to a 
+ * <code>PoolingHttpClientConnectionManager</code> and records lease metrics per route.
+ * 
+ * Idle eviction and validation after inactivity are done here since the connection manager of 
+ * HttpClient 4.3 only supports checking every connection on lease.
+ * 
+ * @author jmontgomery
+ *
+ */
+final class InstrumentedConnectionManager implements HttpClientConnectionManager {
+
+	private static final long MAX_EVICTION_PERIOD = 5000;
+	private static final AtomicInteger evictorCount = new AtomicInteger();
+	
+	private final PoolingHttpClientConnectionManager pool;
+	private final ConnectionPoolConfig config;
+	private final SchemePortResolver schemePortResolver;
+	private final LeaseMetrics totalMetrics = new LeaseMetrics();
+	private final ConcurrentMap<HttpRoute,LeaseMetrics> routeMetrics = new ConcurrentHashMap<HttpRoute,LeaseMetrics>();
+	private final long validateAfterInactivity;
+	// release times of idle connections keyed by socket so that closed connections are collected
+	private final Map<Socket,Long> releaseTimes;
+	private final ScheduledExecutorService evictor;
+	
+	InstrumentedConnectionManager(
+			ConnectionPoolConfig config,
+			SSLConnectionSocketFactory sslSocketFactory,
+			SchemePortResolver schemePortResolver,
+			SocketConfig socketConfig) {
+		
+		this.config = config;
+		this.schemePortResolver = schemePortResolver != null ? schemePortResolver : DefaultSchemePortResolver.INSTANCE;
+		
+		Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http",PlainConnectionSocketFactory.getSocketFactory())
+				.register("https",sslSocketFactory != null ? sslSocketFactory : SSLConnectionSocketFactory.getSocketFactory())
+				.build();
+		
+		long timeToLive = config.getTimeToLive(TimeUnit.MILLISECONDS);
+		this.pool = new PoolingHttpClientConnectionManager(
+				registry,null,this.schemePortResolver,null,timeToLive > 0 ? timeToLive : -1,TimeUnit.MILLISECONDS);
+		this.pool.setMaxTotal(config.getMaxTotal());
+		this.pool.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+		if(socketConfig != null) {
+			this.pool.setDefaultSocketConfig(socketConfig);
+		}
+		
+		this.validateAfterInactivity = config.getValidateAfterInactivity(TimeUnit.MILLISECONDS);
+		this.releaseTimes = validateAfterInactivity > 0 ? new WeakHashMap<Socket,Long>() : null;
+		
+		final long idleTimeout = config.getIdleTimeout(TimeUnit.MILLISECONDS);
+		if(idleTimeout > 0) {
+			this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r,"HttpConnection-evictor-" + evictorCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			long period = Math.min(idleTimeout,MAX_EVICTION_PERIOD);
+			this.evictor.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					pool.closeExpiredConnections();
+					pool.closeIdleConnections(idleTimeout,TimeUnit.MILLISECONDS);
+				}
+			},period,period,TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.evictor = null;
+		}
+	}
+	
+	/**
+	 * Returns whether HttpClient should check every leased connection for staleness.
+	 * 
+	 */
+	boolean isStaleConnectionCheckEnabled() {
+		return validateAfterInactivity == 0;
+	}
+	
+	ConnectionPoolStats getTotalStats() {
+		return createStats(pool.getTotalStats(),totalMetrics);
+	}
+	
+	Map<String,ConnectionPoolStats> getRouteStats() {
+		Map<String,ConnectionPoolStats> stats = new HashMap<String,ConnectionPoolStats>();
+		for(Map.Entry<HttpRoute,LeaseMetrics> E : routeMetrics.entrySet()) {
+			HttpRoute route = E.getKey();
+			HttpHost target = route.getTargetHost();
+			int port;
+			try {
+				port = schemePortResolver.resolve(target);
+			}
+			catch(UnsupportedSchemeException e) {
+				port = target.getPort();
+			}
+			stats.put(ConnectionPoolConfig.routeKey(target.getSchemeName(),target.getHostName(),port),
+					createStats(pool.getStats(route),E.getValue()));
+		}
+		return stats;
+	}
+	
+	private static ConnectionPoolStats createStats(PoolStats poolStats,LeaseMetrics metrics) {
+		return new ConnectionPoolStats(
+				poolStats.getLeased(),
+				poolStats.getAvailable(),
+				poolStats.getPending(),
+				poolStats.getMax(),
+				metrics.leases.get(),
+				metrics.timeouts.get(),
+				metrics.totalWait.get(),
+				metrics.maxWait.get());
+	}
+	
+	private LeaseMetrics getRouteMetrics(HttpRoute route) {
+		LeaseMetrics metrics = routeMetrics.get(route);
+		if(metrics == null) {
+			// first request on the route so apply any override before the pool creates the route
+			HttpHost target = route.getTargetHost();
+			try {
+				String key = ConnectionPoolConfig.routeKey(
+						target.getSchemeName(),target.getHostName(),schemePortResolver.resolve(target));
+				Integer max = config.getMaxPerRoute().get(key);
+				if(max != null) {
+					pool.setMaxPerRoute(route,max);
+				}
+			}
+			catch(UnsupportedSchemeException e) {
+				// the pool rejects the route on connect
+			}
+			
+			LeaseMetrics existing = routeMetrics.putIfAbsent(route,metrics = new LeaseMetrics());
+			if(existing != null) {
+				metrics = existing;
+			}
+		}
+		return metrics;
+	}
+
+	public ConnectionRequest requestConnection(HttpRoute route,Object state) {
+		final LeaseMetrics metrics = getRouteMetrics(route);
+		final ConnectionRequest request = pool.requestConnection(route,state);
+		
+		return new ConnectionRequest() {
+			
+			public boolean cancel() {
+				return request.cancel();
+			}
+			
+			public HttpClientConnection get(long timeout,TimeUnit tunit)
+					throws InterruptedException,ExecutionException,ConnectionPoolTimeoutException {
+				long start = System.nanoTime();
+				HttpClientConnection conn;
+				try {
+					conn = request.get(timeout,tunit);
+				}
+				catch(ConnectionPoolTimeoutException e) {
+					metrics.timeouts.incrementAndGet();
+					totalMetrics.timeouts.incrementAndGet();
+					throw e;
+				}
+				long wait = System.nanoTime() - start;
+				metrics.record(wait);
+				totalMetrics.record(wait);
+				
+				validate(conn);
+				return conn;
+			}
+		};
+	}
+	
+	private void validate(HttpClientConnection conn) {
+		if(releaseTimes == null || !conn.isOpen() || !(conn instanceof ManagedHttpClientConnection)) {
+			return;
+		}
+		Socket socket = ((ManagedHttpClientConnection)conn).getSocket();
+		if(socket == null) {
+			return;
+		}
+		Long released;
+		synchronized(releaseTimes) {
+			released = releaseTimes.remove(socket);
+		}
+		
+		// the caller reopens the connection if it is closed here
+		if(released != null && System.currentTimeMillis() - released > validateAfterInactivity && conn.isStale()) {
+			try {
+				conn.close();
+			}
+			catch(IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	public void releaseConnection(HttpClientConnection conn,Object newState,long validDuration,TimeUnit timeUnit) {
+		if(releaseTimes != null && conn.isOpen() && conn instanceof ManagedHttpClientConnection) {
+			Socket socket = ((ManagedHttpClientConnection)conn).getSocket();
+			if(socket != null) {
+				synchronized(releaseTimes) {
+					releaseTimes.put(socket,System.currentTimeMillis());
+				}
+			}
+		}
+		pool.releaseConnection(conn,newState,validDuration,timeUnit);
+	}
+
+	public void connect(HttpClientConnection conn,HttpRoute route,int connectTimeout,HttpContext context) throws IOException {
+		pool.connect(conn,route,connectTimeout,context);
+	}
+
+	public void upgrade(HttpClientConnection conn,HttpRoute route,HttpContext context) throws IOException {
+		pool.upgrade(conn,route,context);
+	}
+
+	public void routeComplete(HttpClientConnection conn,HttpRoute route,HttpContext context) throws IOException {
+		pool.routeComplete(conn,route,context);
+	}
+
+	public void closeIdleConnections(long idletime,TimeUnit tunit) {
+		pool.closeIdleConnections(idletime,tunit);
+	}
+
+	public void closeExpiredConnections() {
+		pool.closeExpiredConnections();
+	}
+
+	public void shutdown() {
+		if(evictor != null) {
+			evictor.shutdownNow();
+		}
+		pool.shutdown();
+	}
+	
+	private static final class LeaseMetrics {
+		final AtomicLong leases = new AtomicLong();
+		final AtomicLong timeouts = new AtomicLong();
+		final AtomicLong totalWait = new AtomicLong();
+		final AtomicLong maxWait = new AtomicLong();
+		
+		void record(long wait) {
+			leases.incrementAndGet();
+			totalWait.addAndGet(wait);
+			long max;
+			while(wait > (max = maxWait.get()) && !maxWait.compareAndSet(max,wait));
+		}
+	}
+}
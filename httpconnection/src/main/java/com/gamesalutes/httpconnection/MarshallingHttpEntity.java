@@ -25,10 +25,12 @@ final class MarshallingHttpEntity<S> extends AbstractHttpEntity {
 	private final ByteBuffer buf;
 	
 	public MarshallingHttpEntity(RequestMarshaller<S> marshaller,S request) throws IOException {
-		buf = ByteBuffer.allocate(8 * 1024);
-		ByteBufferOutputStream out = new ByteBufferOutputStream(buf);
+		ByteBufferOutputStream out = new ByteBufferOutputStream(ByteBuffer.allocate(8 * 1024));
 		marshaller.marshall(request, out);
 		
+		// the stream replaces its buffer when it grows
+		buf = out.getByteBuffer();
+		
 		// prepare for reading or writing
 		buf.flip();
 	}
@@ -0,0 +1,69 @@
+package com.gamesalutes.httpconnection;
+
+import com.gamesalutes.utils.ConcurrentLruMap;
+
+/**
+ * <code>HttpCacheStorage</code> that keeps a bounded number of entries in memory, evicting the least recently 
+ * used entry when full.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class MemoryHttpCacheStorage implements HttpCacheStorage {
+
+	/**
+	 * Number of entries kept when no maximum is given.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+	
+	private final ConcurrentLruMap<String,HttpCacheEntry> entries;
+	
+	/**
+	 * Constructor.  Keeps at most {@link #DEFAULT_MAX_ENTRIES} entries.
+	 * 
+	 */
+	public MemoryHttpCacheStorage() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxEntries the maximum number of entries
+	 */
+	public MemoryHttpCacheStorage(int maxEntries) {
+		if(maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries=" + maxEntries);
+		}
+		this.entries = new ConcurrentLruMap<String,HttpCacheEntry>(maxEntries);
+	}
+	
+	public HttpCacheEntry get(String key) {
+		return entries.get(key);
+	}
+
+	public void put(String key,HttpCacheEntry entry) {
+		entries.put(key,entry);
+	}
+
+	public void remove(String key) {
+		entries.remove(key);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+	
+	/**
+	 * Returns the number of stored entries.
+	 * 
+	 * @return the number of entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	public void dispose() {
+		entries.clear();
+	}
+}
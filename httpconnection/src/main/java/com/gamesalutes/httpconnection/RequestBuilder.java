@@ -17,6 +17,8 @@ public class RequestBuilder<S,T> {
 	@SuppressWarnings("rawtypes")
 	private RequestMarshaller marshaller = new NullRequestMarshaller();
 	
+	private RequestEntityMode entityMode = RequestEntityMode.BUFFERED;
+	
 	
 	private ResponseUnmarshaller<T> unmarshaller;
 	
@@ -36,6 +38,7 @@ public class RequestBuilder<S,T> {
 				this.headers,
 				this.queryParameters,
 				this.marshaller,
+				this.entityMode,
 				this.unmarshaller,
 				this.errorUnmarshaller,
 				this.requestObject);
@@ -51,6 +54,20 @@ public class RequestBuilder<S,T> {
 		return this;
 	}
 	
+	/**
+	 * Sets how the request body is produced by the marshaller.  Defaults to {@link RequestEntityMode#BUFFERED}.
+	 * 
+	 * @param entityMode the <code>RequestEntityMode</code>
+	 * @return <code>this</code> for chaining
+	 */
+	public RequestBuilder<S,T> setEntityMode(RequestEntityMode entityMode) {
+		if(entityMode == null) {
+			throw new NullPointerException("entityMode");
+		}
+		this.entityMode = entityMode;
+		return this;
+	}
+	
 	public RequestBuilder<S,T> setUnmarshaller(ResponseUnmarshaller<T> unmarshaller) {
 		this.unmarshaller = unmarshaller;
 		return this;
@@ -0,0 +1,30 @@
+package com.gamesalutes.httpconnection;
+
+/**
+ * How the body of an entity enclosing request is produced by its {@link RequestMarshaller}.
+ * 
+ * @author jmontgomery
+ *
+ */
+public enum RequestEntityMode {
+	
+	/**
+	 * The request is marshalled into a heap buffer before it is sent with a <code>Content-Length</code>.  
+	 * Suitable for small bodies.
+	 */
+	BUFFERED,
+	
+	/**
+	 * The marshaller writes directly to the connection using chunked transfer encoding so the body is never held
+	 * in memory.  The request cannot be resent on a redirect or authentication challenge since the marshaller
+	 * is only invoked once.
+	 */
+	STREAMING,
+	
+	/**
+	 * The request is marshalled into off-heap buffers before it is sent with a <code>Content-Length</code> and
+	 * can be resent any number of times.  Large bodies do not copy on growth or add to the java heap but still
+	 * need as much direct memory as the size of the body.
+	 */
+	REPEATABLE
+}
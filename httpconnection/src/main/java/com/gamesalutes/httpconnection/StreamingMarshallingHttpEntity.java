@@ -0,0 +1,55 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Non-repeatable streaming entity that uses <code>RequestMarshaller</code> to write the entity directly
+ * to the connection with chunked transfer encoding.
+ * 
+ * @author jmontgomery
+ *
+ */
+final class StreamingMarshallingHttpEntity<S> extends AbstractHttpEntity {
+
+	private final RequestMarshaller<S> marshaller;
+	private final S request;
+	private boolean consumed;
+	
+	public StreamingMarshallingHttpEntity(RequestMarshaller<S> marshaller,S request) {
+		this.marshaller = marshaller;
+		this.request = request;
+		setChunked(true);
+	}
+	
+	public boolean isRepeatable() {
+		return false;
+	}
+
+	public long getContentLength() {
+		return -1;
+	}
+
+	public InputStream getContent() throws IOException, IllegalStateException {
+		throw new UnsupportedOperationException("Entity is only available by writeTo");
+	}
+
+	public void writeTo(OutputStream outstream) throws IOException {
+		synchronized(this) {
+			if(consumed) {
+				throw new IllegalStateException("Streaming entity already written");
+			}
+			consumed = true;
+		}
+		marshaller.marshall(request,outstream);
+		outstream.flush();
+	}
+
+	public boolean isStreaming() {
+		return true;
+	}
+
+}
@@ -0,0 +1,362 @@
+package com.gamesalutes.httpconnection;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * gzip and deflate streams backed by pooled <code>Inflater</code> and <code>Deflater</code> instances.  Each
+ * instance holds native zlib memory that is otherwise only freed by finalization, so reusing them avoids
+ * allocating and finalizing one per request.  The instances are returned to the pool when the stream is closed.
+ * 
+ * @author jmontgomery
+ *
+ */
+final class ZipStreams {
+
+	static final int BUFFER_SIZE = 4096;
+	static final int MAX_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+	
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+	
+	private static final byte [] GZIP_HEADER = {
+		(byte)GZIP_MAGIC, (byte)(GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+	};
+	
+	private static final Pool<Inflater> rawInflaters = new Pool<Inflater>();
+	private static final Pool<Inflater> zlibInflaters = new Pool<Inflater>();
+	private static final Pool<Deflater> rawDeflaters = new Pool<Deflater>();
+	private static final Pool<Deflater> zlibDeflaters = new Pool<Deflater>();
+	
+	private ZipStreams() {
+	}
+	
+	/**
+	 * Returns a stream that decodes <code>in</code> according to the <code>Content-Encoding</code>.
+	 * 
+	 * @param in the encoded stream
+	 * @param encoding the content encoding or <code>null</code> for identity
+	 * @return the decoded stream or <code>in</code> if the encoding is identity or unknown
+	 * @throws IOException if the gzip header cannot be read
+	 */
+	static InputStream decode(InputStream in,String encoding) throws IOException {
+		ContentEncoding e = parseEncoding(encoding);
+		if(e == ContentEncoding.GZIP) {
+			return new GzipInputStream(in);
+		}
+		else if(e == ContentEncoding.DEFLATE) {
+			return inflate(in);
+		}
+		return in;
+	}
+	
+	/**
+	 * Returns a stream that encodes to <code>out</code> with <code>encoding</code>.
+	 * 
+	 * @param out the target stream
+	 * @param encoding the <code>ContentEncoding</code>
+	 * @param level the <code>Deflater</code> compression level
+	 * @return the encoding stream
+	 * @throws IOException if the gzip header cannot be written
+	 */
+	static OutputStream encode(OutputStream out,ContentEncoding encoding,int level) throws IOException {
+		if(encoding == ContentEncoding.GZIP) {
+			return new GzipOutputStream(out,level);
+		}
+		return new PooledDeflaterOutputStream(out,zlibDeflaters,acquireDeflater(zlibDeflaters,level,false));
+	}
+	
+	static ContentEncoding parseEncoding(String encoding) {
+		if(encoding == null) {
+			return null;
+		}
+		encoding = encoding.trim();
+		if("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+			return ContentEncoding.GZIP;
+		}
+		if("deflate".equalsIgnoreCase(encoding)) {
+			return ContentEncoding.DEFLATE;
+		}
+		return null;
+	}
+	
+	/**
+	 * "deflate" is defined as zlib wrapped data but some servers send raw deflate data so the zlib
+	 * header is detected.
+	 */
+	private static InputStream inflate(InputStream in) throws IOException {
+		if(!in.markSupported()) {
+			in = new BufferedInputStream(in,BUFFER_SIZE);
+		}
+		in.mark(2);
+		int cmf = in.read();
+		int flg = in.read();
+		in.reset();
+		
+		boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0f) == Deflater.DEFLATED && ((cmf << 8) | flg) % 31 == 0;
+		Pool<Inflater> pool = zlib ? zlibInflaters : rawInflaters;
+		return new PooledInflaterInputStream(in,pool,acquireInflater(pool,!zlib));
+	}
+	
+	private static Inflater acquireInflater(Pool<Inflater> pool,boolean nowrap) {
+		Inflater inf = pool.poll();
+		return inf != null ? inf : new Inflater(nowrap);
+	}
+	
+	private static Deflater acquireDeflater(Pool<Deflater> pool,int level,boolean nowrap) {
+		Deflater def = pool.poll();
+		if(def == null) {
+			return new Deflater(level,nowrap);
+		}
+		def.setLevel(level);
+		return def;
+	}
+	
+	private static void release(Pool<Inflater> pool,Inflater inf) {
+		inf.reset();
+		if(!pool.offer(inf)) {
+			inf.end();
+		}
+	}
+	
+	private static void release(Pool<Deflater> pool,Deflater def) {
+		def.reset();
+		if(!pool.offer(def)) {
+			def.end();
+		}
+	}
+	
+	/**
+	 * Returns the number of pooled instances for testing.
+	 */
+	static int getPooledCount() {
+		return rawInflaters.size.get() + zlibInflaters.size.get() + rawDeflaters.size.get() + zlibDeflaters.size.get();
+	}
+	
+	private static final class Pool<T> {
+		private final Queue<T> queue = new ConcurrentLinkedQueue<T>();
+		private final AtomicInteger size = new AtomicInteger();
+		
+		T poll() {
+			T t = queue.poll();
+			if(t != null) {
+				size.decrementAndGet();
+			}
+			return t;
+		}
+		
+		boolean offer(T t) {
+			if(size.incrementAndGet() > MAX_POOLED) {
+				size.decrementAndGet();
+				return false;
+			}
+			queue.offer(t);
+			return true;
+		}
+	}
+	
+	private static class PooledInflaterInputStream extends InflaterInputStream {
+		
+		private final Pool<Inflater> pool;
+		private boolean released;
+		
+		PooledInflaterInputStream(InputStream in,Pool<Inflater> pool,Inflater inf) {
+			super(in,inf,BUFFER_SIZE);
+			this.pool = pool;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			}
+			finally {
+				if(!released) {
+					released = true;
+					release(pool,inf);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Decodes a single gzip member with a raw inflater, verifying the trailer at the end of the data.
+	 */
+	private static final class GzipInputStream extends PooledInflaterInputStream {
+		
+		private final CRC32 crc = new CRC32();
+		private boolean eof;
+		
+		GzipInputStream(InputStream in) throws IOException {
+			super(in,rawInflaters,acquireInflater(rawInflaters,true));
+			try {
+				readHeader();
+			}
+			catch(IOException e) {
+				close();
+				throw e;
+			}
+		}
+		
+		private void readHeader() throws IOException {
+			if(readUShort() != GZIP_MAGIC) {
+				throw new ZipException("Not in GZIP format");
+			}
+			if(readUByte() != Deflater.DEFLATED) {
+				throw new ZipException("Unsupported compression method");
+			}
+			int flg = readUByte();
+			// MTIME, XFL and OS
+			skipBytes(6);
+			if((flg & FEXTRA) != 0) {
+				skipBytes(readUShort());
+			}
+			if((flg & FNAME) != 0) {
+				while(readUByte() != 0);
+			}
+			if((flg & FCOMMENT) != 0) {
+				while(readUByte() != 0);
+			}
+			if((flg & FHCRC) != 0) {
+				skipBytes(2);
+			}
+		}
+		
+		@Override
+		public int read(byte [] b,int off,int len) throws IOException {
+			if(eof) {
+				return -1;
+			}
+			int n = super.read(b,off,len);
+			if(n > 0) {
+				crc.update(b,off,n);
+			}
+			else if(n == -1) {
+				eof = true;
+				readTrailer();
+			}
+			return n;
+		}
+		
+		private void readTrailer() throws IOException {
+			// the trailer starts in the unused input of the inflater
+			byte [] trailer = new byte[8];
+			int remaining = Math.min(inf.getRemaining(),trailer.length);
+			System.arraycopy(buf,len - inf.getRemaining(),trailer,0,remaining);
+			for(int i = remaining; i < trailer.length; ++i) {
+				trailer[i] = (byte)readUByte();
+			}
+			long expectedCrc = readUInt(trailer,0);
+			long expectedSize = readUInt(trailer,4);
+			if(expectedCrc != crc.getValue()) {
+				throw new ZipException("Corrupt GZIP trailer: crc mismatch");
+			}
+			if(expectedSize != (inf.getBytesWritten() & 0xffffffffL)) {
+				throw new ZipException("Corrupt GZIP trailer: size mismatch");
+			}
+		}
+		
+		private long readUInt(byte [] b,int off) {
+			return (b[off] & 0xffL) | ((b[off + 1] & 0xffL) << 8) | ((b[off + 2] & 0xffL) << 16) | ((b[off + 3] & 0xffL) << 24);
+		}
+		
+		private int readUShort() throws IOException {
+			return readUByte() | (readUByte() << 8);
+		}
+		
+		private int readUByte() throws IOException {
+			int b = in.read();
+			if(b == -1) {
+				throw new EOFException("Unexpected end of GZIP stream");
+			}
+			return b;
+		}
+		
+		private void skipBytes(int n) throws IOException {
+			for(int i = 0; i < n; ++i) {
+				readUByte();
+			}
+		}
+	}
+	
+	private static class PooledDeflaterOutputStream extends DeflaterOutputStream {
+		
+		private final Pool<Deflater> pool;
+		private boolean released;
+		
+		PooledDeflaterOutputStream(OutputStream out,Pool<Deflater> pool,Deflater def) {
+			super(out,def,BUFFER_SIZE);
+			this.pool = pool;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			}
+			finally {
+				if(!released) {
+					released = true;
+					release(pool,def);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Encodes a single gzip member with a raw deflater.
+	 */
+	private static final class GzipOutputStream extends PooledDeflaterOutputStream {
+		
+		private final CRC32 crc = new CRC32();
+		private boolean finished;
+		
+		GzipOutputStream(OutputStream out,int level) throws IOException {
+			super(out,rawDeflaters,acquireDeflater(rawDeflaters,level,true));
+			out.write(GZIP_HEADER);
+		}
+		
+		@Override
+		public void write(byte [] b,int off,int len) throws IOException {
+			super.write(b,off,len);
+			crc.update(b,off,len);
+		}
+		
+		@Override
+		public void finish() throws IOException {
+			if(finished) {
+				return;
+			}
+			finished = true;
+			super.finish();
+			
+			long size = def.getBytesRead();
+			byte [] trailer = new byte[8];
+			writeUInt(trailer,0,crc.getValue());
+			writeUInt(trailer,4,size);
+			out.write(trailer);
+		}
+		
+		private void writeUInt(byte [] b,int off,long value) {
+			b[off] = (byte)value;
+			b[off + 1] = (byte)(value >> 8);
+			b[off + 2] = (byte)(value >> 16);
+			b[off + 3] = (byte)(value >> 24);
+		}
+	}
+}
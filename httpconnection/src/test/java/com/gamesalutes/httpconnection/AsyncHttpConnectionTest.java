@@ -0,0 +1,244 @@
+package com.gamesalutes.httpconnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class AsyncHttpConnectionTest {
+
+	/**
+	 * Responds with the method, path and "X-Test" global header without any network access.  The path "/missing" 
+	 * responds with a 404.
+	 */
+	private static final class StubConnection extends AbstractHttpConnection {
+
+		volatile CountDownLatch gate;
+		
+		public HttpResponse get(String path,Map<String,String> headers,Map<String,String> queryParams) {
+			throw new UnsupportedOperationException();
+		}
+		public HttpResponse post(String path,Map<String,String> headers,Map<String,String> queryParams,Map<String,String> formParams) {
+			throw new UnsupportedOperationException();
+		}
+		public <S,T> T get(HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+			return respond("GET",request);
+		}
+		public <S,T> T post(HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+			return respond("POST",request);
+		}
+		public <S,T> T put(HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+			return respond("PUT",request);
+		}
+		public <S,T> T delete(HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+			return respond("DELETE",request);
+		}
+		public void setProxy(String proxy) {
+		}
+		public void dispose() {
+		}
+		
+		private <S,T> T respond(String method,HttpConnectionRequest<S,T> request) throws IOException,HttpBadStatusException {
+			CountDownLatch gate = this.gate;
+			if(gate != null) {
+				try {
+					gate.await();
+				}
+				catch(InterruptedException e) {
+					throw new AssertionError(e);
+				}
+			}
+			URI uri = URI.create("http://localhost" + request.getPath());
+			String body = method + " " + request.getPath() + " " + getDefaultHeaders(uri.toString()).get("X-Test");
+			int code = "/missing".equals(request.getPath()) ? 404 : 200;
+			HttpResponse response = new HttpResponse(code,"status",new ByteArrayInputStream(body.getBytes("UTF-8")));
+			handleExceptions(uri,response,request.getErrorUnmarshaller());
+			return unmarshallResponse(response,request.getUnmarshaller());
+		}
+	}
+	
+	private static final class RecordingCallback implements HttpCallback<String> {
+		
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<Object> result = new AtomicReference<Object>();
+		final AtomicInteger calls = new AtomicInteger();
+		
+		public void completed(String response) {
+			finish(response);
+		}
+		public void failed(Exception e) {
+			finish(e);
+		}
+		public void cancelled() {
+			finish("cancelled");
+		}
+		private void finish(Object o) {
+			calls.incrementAndGet();
+			result.set(o);
+			done.countDown();
+		}
+		Object await() throws InterruptedException {
+			assertTrue(done.await(10,TimeUnit.SECONDS));
+			return result.get();
+		}
+	}
+	
+	private static HttpConnectionRequest<Void,String> request(String path) {
+		return new RequestBuilder<Void,String>().setPath(path).setUnmarshaller(new StringResponseUnmarshaller()).build();
+	}
+	
+	@Test
+	public void testMethods() throws Exception {
+		StubConnection stub = new StubConnection();
+		AsyncHttpConnection conn = new AsyncHttpConnection(stub,2);
+		try {
+			assertSame(stub,conn.getHttpSupport());
+			conn.getHttpSupport().addGlobalHeader("X-Test","header");
+			
+			assertEquals("GET /a header",conn.get(request("/a")).get());
+			assertEquals("POST /b header",conn.post(request("/b")).get());
+			assertEquals("PUT /c header",conn.put(request("/c")).get());
+			assertEquals("DELETE /d header",conn.delete(request("/d")).get());
+			
+			RecordingCallback callback = new RecordingCallback();
+			Future<String> future = conn.get(request("/e"),callback);
+			assertEquals("GET /e header",callback.await());
+			assertEquals("GET /e header",future.get());
+			assertEquals(1,callback.calls.get());
+		}
+		finally {
+			conn.dispose();
+		}
+	}
+	
+	@Test
+	public void testBadStatus() throws Exception {
+		StubConnection stub = new StubConnection();
+		final List<URI> intercepted = new ArrayList<URI>();
+		stub.addBadStatusInterceptor(new HttpBadStatusInterceptor() {
+			public void onHttpException(URI uri,HttpBadStatusException e) {
+				synchronized(intercepted) {
+					intercepted.add(uri);
+				}
+			}
+		});
+		AsyncHttpConnection conn = new AsyncHttpConnection(stub,2);
+		try {
+			RecordingCallback callback = new RecordingCallback();
+			Future<String> future = conn.get(request("/missing"),callback);
+			assertTrue(callback.await() instanceof NotFoundException);
+			try {
+				future.get();
+				fail("Expected ExecutionException");
+			}
+			catch(ExecutionException e) {
+				assertSame(callback.result.get(),e.getCause());
+			}
+			synchronized(intercepted) {
+				assertEquals(1,intercepted.size());
+				assertEquals("/missing",intercepted.get(0).getPath());
+			}
+		}
+		finally {
+			conn.dispose();
+		}
+	}
+	
+	@Test
+	public void testCancel() throws Exception {
+		StubConnection stub = new StubConnection();
+		stub.gate = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		AsyncHttpConnection conn = new AsyncHttpConnection(stub,executor);
+		try {
+			RecordingCallback running = new RecordingCallback();
+			RecordingCallback queued = new RecordingCallback();
+			Future<String> first = conn.get(request("/first"),running);
+			Future<String> second = conn.get(request("/second"),queued);
+			
+			assertTrue(second.cancel(false));
+			assertEquals("cancelled",queued.await());
+			
+			stub.gate.countDown();
+			assertEquals("GET /first null",first.get());
+			assertEquals("GET /first null",running.await());
+			assertEquals(1,queued.calls.get());
+			
+			// executor passed in is not shut down
+			conn.dispose();
+			assertEquals("GET /third null",conn.get(request("/third")).get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testFanOut() throws Exception {
+		StubConnection stub = new StubConnection();
+		stub.gate = new CountDownLatch(1);
+		AsyncHttpConnection conn = new AsyncHttpConnection(stub,4);
+		try {
+			final int count = 2000;
+			final CountDownLatch done = new CountDownLatch(count);
+			final AtomicInteger failures = new AtomicInteger();
+			List<Future<String>> futures = new ArrayList<Future<String>>(count);
+			for(int i = 0; i < count; ++i) {
+				futures.add(conn.get(request("/" + i),new HttpCallback<Object>() {
+					public void completed(Object response) {
+						done.countDown();
+					}
+					public void failed(Exception e) {
+						failures.incrementAndGet();
+						done.countDown();
+					}
+					public void cancelled() {
+						failures.incrementAndGet();
+						done.countDown();
+					}
+				}));
+			}
+			// all submitted without blocking on the requests
+			stub.gate.countDown();
+			assertTrue(done.await(30,TimeUnit.SECONDS));
+			assertEquals(0,failures.get());
+			for(int i = 0; i < count; ++i) {
+				assertEquals("GET /" + i + " null",futures.get(i).get());
+			}
+		}
+		finally {
+			conn.dispose();
+		}
+	}
+	
+	@Test
+	public void testNullRequest() {
+		AsyncHttpConnection conn = new AsyncHttpConnection(new StubConnection(),1);
+		try {
+			conn.get(null);
+			fail("Expected NullPointerException");
+		}
+		catch(NullPointerException e) {
+		}
+		finally {
+			conn.dispose();
+		}
+	}
+}
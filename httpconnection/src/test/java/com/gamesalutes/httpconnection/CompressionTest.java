@@ -0,0 +1,234 @@
+package com.gamesalutes.httpconnection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class CompressionTest {
+
+	private static byte [] text(int size) {
+		StringBuilder buf = new StringBuilder(size);
+		for(int i = 0; buf.length() < size; ++i) {
+			buf.append("line ").append(i).append(" of compressible text\n");
+		}
+		return buf.substring(0,size).getBytes();
+	}
+	
+	private static byte [] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte [] buf = new byte[1000];
+		int len;
+		while((len = in.read(buf)) != -1) {
+			out.write(buf,0,len);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+	
+	private static byte [] encode(byte [] bytes,ContentEncoding encoding) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream zip = ZipStreams.encode(out,encoding,Deflater.DEFAULT_COMPRESSION);
+		zip.write(bytes);
+		zip.close();
+		return out.toByteArray();
+	}
+	
+	@Test
+	public void testGzip() throws IOException {
+		for(int size : new int [] { 0, 1, 100000 }) {
+			byte [] bytes = text(size);
+			byte [] gzip = encode(bytes,ContentEncoding.GZIP);
+			
+			// interoperates with the jdk streams in both directions
+			assertArrayEquals(bytes,readAll(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+			
+			ByteArrayOutputStream jdk = new ByteArrayOutputStream();
+			GZIPOutputStream out = new GZIPOutputStream(jdk);
+			out.write(bytes);
+			out.close();
+			assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(jdk.toByteArray()),"gzip")));
+			assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(gzip),"x-gzip")));
+		}
+	}
+	
+	@Test
+	public void testGzipCorrupt() throws IOException {
+		byte [] gzip = encode(text(1000),ContentEncoding.GZIP);
+		// flip a bit of the crc
+		gzip[gzip.length - 6] ^= 1;
+		try {
+			readAll(ZipStreams.decode(new ByteArrayInputStream(gzip),"gzip"));
+			fail();
+		}
+		catch(ZipException e) {
+		}
+		try {
+			ZipStreams.decode(new ByteArrayInputStream(text(100)),"gzip");
+			fail();
+		}
+		catch(ZipException e) {
+		}
+	}
+	
+	@Test
+	public void testDeflate() throws IOException {
+		byte [] bytes = text(50000);
+		byte [] zlib = encode(bytes,ContentEncoding.DEFLATE);
+		assertArrayEquals(bytes,readAll(new InflaterInputStream(new ByteArrayInputStream(zlib))));
+		assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(zlib),"deflate")));
+		
+		// raw deflate data without the zlib header
+		ByteArrayOutputStream raw = new ByteArrayOutputStream();
+		DeflaterOutputStream out = new DeflaterOutputStream(raw,new Deflater(Deflater.DEFAULT_COMPRESSION,true));
+		out.write(bytes);
+		out.close();
+		assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(raw.toByteArray()),"deflate")));
+		
+		assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(bytes),"identity")));
+		assertArrayEquals(bytes,readAll(ZipStreams.decode(new ByteArrayInputStream(bytes),null)));
+	}
+	
+	@Test
+	public void testPooling() throws IOException {
+		byte [] bytes = text(1000);
+		for(int i = 0; i < 10; ++i) {
+			readAll(ZipStreams.decode(new ByteArrayInputStream(encode(bytes,ContentEncoding.GZIP)),"gzip"));
+		}
+		int pooled = ZipStreams.getPooledCount();
+		assertTrue(pooled > 0 && pooled <= 4 * ZipStreams.MAX_POOLED);
+		
+		// reused instances produce the same output
+		assertArrayEquals(encode(bytes,ContentEncoding.GZIP),encode(bytes,ContentEncoding.GZIP));
+		assertEquals(pooled,ZipStreams.getPooledCount());
+	}
+	
+	@Test
+	public void testConfig() {
+		CompressionConfig config = CompressionConfig.DEFAULT;
+		assertEquals(null,config.getRequestEncoding());
+		assertEquals("gzip, deflate",config.getAcceptEncodingHeader());
+		assertTrue(!config.isCompressed(1 << 20));
+		
+		config = new CompressionBuilder()
+			.setRequestCompression(ContentEncoding.DEFLATE,100)
+			.setAcceptEncodings()
+			.build();
+		assertEquals(null,config.getAcceptEncodingHeader());
+		assertTrue(!config.isCompressed(99));
+		assertTrue(config.isCompressed(100));
+		assertTrue(config.isCompressed(-1));
+	}
+	
+	@Test
+	public void testConnection() throws Exception {
+		final byte [] body = text(200000);
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost",0),0);
+		// "/download" responds with a gzip body when accepted and "/upload" responds with the decoded request length
+		server.createContext("/",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				byte [] response;
+				if(exchange.getRequestURI().getPath().equals("/download")) {
+					String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+					if(accept != null && accept.contains("gzip")) {
+						exchange.getResponseHeaders().set("Content-Encoding","gzip");
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						GZIPOutputStream gzip = new GZIPOutputStream(out);
+						gzip.write(body);
+						gzip.close();
+						response = out.toByteArray();
+					}
+					else {
+						response = body;
+					}
+				}
+				else {
+					InputStream in = exchange.getRequestBody();
+					String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+					if("gzip".equals(encoding)) {
+						in = new GZIPInputStream(in);
+					}
+					else if("deflate".equals(encoding)) {
+						in = new InflaterInputStream(in,new Inflater());
+					}
+					response = (encoding + ":" + readAll(in).length).getBytes("UTF-8");
+				}
+				exchange.sendResponseHeaders(200,response.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(response);
+				out.close();
+			}
+		});
+		server.start();
+		
+		HttpConnection connection = new HttpConnection("http://localhost:" + server.getAddress().getPort());
+		try {
+			HttpConnectionRequest<Void,String> download = new RequestBuilder<Void,String>()
+				.setPath("/download").setUnmarshaller(new StringResponseUnmarshaller()).build();
+			
+			assertEquals(new String(body),connection.get(download));
+			assertTrue(connection.getTotalBytes() < body.length / 4);
+			assertEquals(body.length,connection.getTotalUncompressedBytes());
+			
+			connection.resetTotalBytes();
+			connection.setCompressionConfig(new CompressionBuilder().setAcceptEncodings().build());
+			assertEquals(new String(body),connection.get(download));
+			assertEquals(body.length,connection.getTotalBytes());
+			assertEquals(body.length,connection.getTotalUncompressedBytes());
+			
+			for(ContentEncoding encoding : ContentEncoding.values()) {
+				connection.setCompressionConfig(new CompressionBuilder().setRequestCompression(encoding,1000).build());
+				for(RequestEntityMode mode : RequestEntityMode.values()) {
+					for(int size : new int [] { 999, body.length }) {
+						byte [] request = new byte[size];
+						System.arraycopy(body,0,request,0,size);
+						String response = connection.post(new RequestBuilder<byte [],String>()
+							.setPath("/upload")
+							.setMarshaller(new BytesMarshaller())
+							.setEntityMode(mode)
+							.setRequest(request)
+							.setUnmarshaller(new StringResponseUnmarshaller())
+							.build());
+						
+						// streaming bodies have no length so are always compressed
+						boolean compressed = size >= 1000 || mode == RequestEntityMode.STREAMING;
+						assertEquals(mode + " " + size,(compressed ? encoding.getName() : "null") + ":" + size,response);
+					}
+				}
+			}
+		}
+		finally {
+			connection.dispose();
+			server.stop(0);
+		}
+	}
+	
+	private static final class BytesMarshaller implements RequestMarshaller<byte []> {
+		public void marshall(byte [] object,OutputStream out) throws IOException {
+			out.write(object);
+		}
+		public String getContentType() {
+			return "text/plain";
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.gamesalutes.httpconnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class ConnectionPoolTest {
+
+	private HttpServer server;
+	private String baseUrl;
+	
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost",0),0);
+		server.createContext("/",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				byte [] body = exchange.getRequestURI().getPath().getBytes("UTF-8");
+				exchange.sendResponseHeaders(200,body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.setExecutor(Executors.newFixedThreadPool(8));
+		server.start();
+		baseUrl = "http://localhost:" + server.getAddress().getPort();
+	}
+	
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+	
+	private static HttpConnectionRequest<Void,String> request(String path) {
+		return new RequestBuilder<Void,String>().setPath(path).setUnmarshaller(new StringResponseUnmarshaller()).build();
+	}
+	
+	@Test
+	public void testConfig() {
+		ConnectionPoolConfig config = new ConnectionPoolBuilder()
+			.setMaxTotal(50)
+			.setDefaultMaxPerRoute(10)
+			.setMaxPerRoute("https://API.example.com/v1",30)
+			.setMaxPerRoute("http://example.com:8080",5)
+			.setIdleTimeout(30,TimeUnit.SECONDS)
+			.setValidateAfterInactivity(2,TimeUnit.SECONDS)
+			.setKeepAlive(1,TimeUnit.MINUTES)
+			.build();
+		
+		assertEquals(50,config.getMaxTotal());
+		assertEquals(10,config.getDefaultMaxPerRoute());
+		assertEquals(30,config.getMaxPerRoute("https://api.example.com:443/other"));
+		assertEquals(5,config.getMaxPerRoute("http://example.com:8080/"));
+		assertEquals(10,config.getMaxPerRoute("http://example.com/"));
+		assertEquals(30000,config.getIdleTimeout(TimeUnit.MILLISECONDS));
+		assertEquals(2,config.getValidateAfterInactivity(TimeUnit.SECONDS));
+		assertEquals(60,config.getKeepAlive(TimeUnit.SECONDS));
+		assertEquals(0,config.getTimeToLive(TimeUnit.SECONDS));
+		
+		assertEquals(20,ConnectionPoolConfig.DEFAULT.getMaxTotal());
+		assertEquals(20,ConnectionPoolConfig.DEFAULT.getDefaultMaxPerRoute());
+		assertEquals(0,ConnectionPoolConfig.DEFAULT.getValidateAfterInactivity(TimeUnit.MILLISECONDS));
+		assertTrue(new ConnectionPoolBuilder().setValidateAfterInactivity(-1,TimeUnit.SECONDS).build()
+				.getValidateAfterInactivity(TimeUnit.MILLISECONDS) < 0);
+		
+		try {
+			new ConnectionPoolBuilder().setMaxPerRoute("/relative",1);
+			fail();
+		}
+		catch(IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testStats() throws Exception {
+		final HttpConnection connection = new HttpConnection(baseUrl);
+		connection.setConnectionPoolConfig(new ConnectionPoolBuilder()
+				.setMaxTotal(4)
+				.setMaxPerRoute(baseUrl,2)
+				.setValidateAfterInactivity(1,TimeUnit.MILLISECONDS)
+				.setIdleTimeout(1,TimeUnit.MINUTES)
+				.build());
+		
+		assertEquals(0,connection.getConnectionPoolStats().getLeaseCount());
+		assertTrue(connection.getRouteConnectionPoolStats().isEmpty());
+		
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for(int i = 0; i < 30; ++i) {
+				final String path = "/item" + i;
+				results.add(executor.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return connection.get(request(path));
+					}
+				}));
+			}
+			for(int i = 0; i < results.size(); ++i) {
+				assertEquals("/item" + i,results.get(i).get());
+			}
+			// reuses idle connections after the inactivity check
+			Thread.sleep(10);
+			assertEquals("/again",connection.get(request("/again")));
+		}
+		finally {
+			executor.shutdown();
+		}
+		
+		ConnectionPoolStats total = connection.getConnectionPoolStats();
+		assertEquals(31,total.getLeaseCount());
+		assertEquals(0,total.getLeased());
+		assertEquals(0,total.getPending());
+		assertEquals(4,total.getMax());
+		assertTrue(total.getAvailable() <= 2);
+		assertTrue(total.getMaxLeaseWait(TimeUnit.NANOSECONDS) >= total.getAverageLeaseWait(TimeUnit.NANOSECONDS));
+		
+		Map<String,ConnectionPoolStats> routes = connection.getRouteConnectionPoolStats();
+		assertEquals(1,routes.size());
+		ConnectionPoolStats route = routes.get(ConnectionPoolConfig.routeKey(baseUrl));
+		assertEquals(2,route.getMax());
+		assertEquals(31,route.getLeaseCount());
+		
+		connection.dispose();
+	}
+	
+	@Test
+	public void testConfigAfterFirstRequest() throws Exception {
+		HttpConnection connection = new HttpConnection(baseUrl);
+		try {
+			assertEquals("/",connection.get(request("/")));
+			connection.setConnectionPoolConfig(ConnectionPoolConfig.DEFAULT);
+			fail();
+		}
+		catch(IllegalStateException e) {
+		}
+		finally {
+			connection.dispose();
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.gamesalutes.httpconnection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gamesalutes.utils.FileUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpCacheTest {
+
+	private static final String LAST_MODIFIED = DateUtils.formatDate(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+	
+	private HttpServer server;
+	private HttpConnection connection;
+	private final Map<String,AtomicInteger> requests = new ConcurrentHashMap<String,AtomicInteger>();
+	private final AtomicInteger notModified = new AtomicInteger();
+	private volatile String version = "v1";
+	
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost",0),0);
+		// the path selects the caching headers of the response and the body is the path and version
+		server.createContext("/",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				String path = exchange.getRequestURI().getPath();
+				AtomicInteger count = requests.get(path);
+				if(count == null) {
+					requests.put(path,count = new AtomicInteger());
+				}
+				count.incrementAndGet();
+				
+				String etag = "\"" + version + "\"";
+				if(path.equals("/max-age")) {
+					exchange.getResponseHeaders().set("Cache-Control","max-age=60");
+				}
+				else if(path.equals("/etag")) {
+					exchange.getResponseHeaders().set("Cache-Control","no-cache");
+					exchange.getResponseHeaders().set("ETag",etag);
+					if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+						notModified.incrementAndGet();
+						exchange.sendResponseHeaders(304,-1);
+						exchange.close();
+						return;
+					}
+				}
+				else if(path.equals("/last-modified")) {
+					exchange.getResponseHeaders().set("Cache-Control","max-age=0");
+					exchange.getResponseHeaders().set("Last-Modified",LAST_MODIFIED);
+					if(LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+						notModified.incrementAndGet();
+						exchange.sendResponseHeaders(304,-1);
+						exchange.close();
+						return;
+					}
+				}
+				else if(path.equals("/no-store")) {
+					exchange.getResponseHeaders().set("Cache-Control","no-store, max-age=60");
+				}
+				else if(path.equals("/large")) {
+					exchange.getResponseHeaders().set("Cache-Control","max-age=60");
+				}
+				else if(path.equals("/vary-accept")) {
+					exchange.getResponseHeaders().set("Cache-Control","max-age=60");
+					exchange.getResponseHeaders().set("Vary","Accept, Accept-Encoding");
+				}
+				else if(path.equals("/vary-user-agent")) {
+					exchange.getResponseHeaders().set("Cache-Control","max-age=60");
+					exchange.getResponseHeaders().set("Vary","User-Agent");
+				}
+				
+				StringBuilder body = new StringBuilder(path + ":" + version);
+				String auth = exchange.getRequestHeaders().getFirst("Authorization");
+				if(auth != null) {
+					body.append(':').append(auth);
+				}
+				if(path.equals("/large")) {
+					while(body.length() < 10000) {
+						body.append('x');
+					}
+				}
+				byte [] bytes = body.toString().getBytes("UTF-8");
+				exchange.sendResponseHeaders(200,bytes.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(bytes);
+				out.close();
+			}
+		});
+		server.start();
+		connection = new HttpConnection("http://localhost:" + server.getAddress().getPort());
+	}
+	
+	@After
+	public void tearDown() {
+		connection.dispose();
+		server.stop(0);
+	}
+	
+	private String get(String path) throws Exception {
+		return connection.get(new RequestBuilder<Void,String>().setPath(path).setUnmarshaller(new StringResponseUnmarshaller()).build());
+	}
+	
+	private String get(HttpConnection connection,String path,String header,String value) throws Exception {
+		return connection.get(new RequestBuilder<Void,String>()
+				.setPath(path).addHeader(header,value).setUnmarshaller(new StringResponseUnmarshaller()).build());
+	}
+	
+	private int requests(String path) {
+		AtomicInteger count = requests.get(path);
+		return count != null ? count.get() : 0;
+	}
+	
+	private void assertCaching(HttpCache cache) throws Exception {
+		connection.setHttpCache(cache);
+		
+		// fresh responses are served without a request
+		for(int i = 0; i < 3; ++i) {
+			assertEquals("/max-age:v1",get("/max-age"));
+		}
+		assertEquals(1,requests("/max-age"));
+		
+		// always revalidated by etag
+		for(int i = 0; i < 3; ++i) {
+			assertEquals("/etag:v1",get("/etag"));
+		}
+		assertEquals(3,requests("/etag"));
+		assertEquals(2,notModified.get());
+		
+		// new version is fetched once the etag no longer matches
+		version = "v2";
+		assertEquals("/etag:v2",get("/etag"));
+		assertEquals(2,notModified.get());
+		
+		// stale immediately and revalidated by date
+		for(int i = 0; i < 3; ++i) {
+			assertEquals("/last-modified:v2",get("/last-modified"));
+		}
+		assertEquals(4,notModified.get());
+		
+		for(int i = 0; i < 2; ++i) {
+			get("/no-store");
+			get("/large");
+		}
+		assertEquals(2,requests("/no-store"));
+		assertEquals(2,requests("/large"));
+		
+		// request can force revalidation and sees the new version
+		assertEquals("/max-age:v2",connection.get(new RequestBuilder<Void,String>()
+				.setPath("/max-age").addHeader("Cache-Control","no-cache").setUnmarshaller(new StringResponseUnmarshaller()).build()));
+		assertEquals(2,requests("/max-age"));
+		
+		HttpCacheStats stats = connection.getHttpCacheStats();
+		assertEquals(2,stats.getHitCount());
+		assertEquals(4,stats.getValidatedCount());
+		assertEquals(9,stats.getMissCount());
+		assertEquals(5,stats.getStoreCount());
+		assertEquals(6.0 / 15,stats.getHitRatio(),1e-9);
+		
+		// connections are released by 304 responses
+		assertEquals(0,connection.getConnectionPoolStats().getLeased());
+	}
+	
+	@Test
+	public void testMemoryStorage() throws Exception {
+		MemoryHttpCacheStorage storage = new MemoryHttpCacheStorage(100);
+		assertCaching(new HttpCache(storage,1000));
+		assertEquals(3,storage.size());
+	}
+	
+	@Test
+	public void testFileStorage() throws Exception {
+		File dir = new File(System.getProperty("java.io.tmpdir"),"HttpCacheTest" + System.nanoTime());
+		HttpCache cache = new HttpCache(new FileHttpCacheStorage(dir,"cache",false),1000);
+		try {
+			assertCaching(cache);
+		}
+		finally {
+			cache.dispose();
+			FileUtils.deleteFile(dir);
+		}
+	}
+	
+	@Test
+	public void testNoCache() throws Exception {
+		assertNull(connection.getHttpCacheStats());
+		get("/max-age");
+		get("/max-age");
+		assertEquals(2,requests("/max-age"));
+	}
+	
+	@Test
+	public void testKeyHeaders() throws Exception {
+		HttpCache cache = new HttpCache(new MemoryHttpCacheStorage(100));
+		connection.setHttpCache(cache);
+		HttpConnection other = new HttpConnection("http://localhost:" + server.getAddress().getPort());
+		try {
+			other.setHttpCache(cache);
+			
+			// shared cache keeps the responses of different credentials apart
+			for(int i = 0; i < 2; ++i) {
+				assertEquals("/max-age:v1:Basic a",get(connection,"/max-age","Authorization","Basic a"));
+				assertEquals("/max-age:v1:Basic b",get(other,"/max-age","Authorization","Basic b"));
+			}
+			assertEquals(2,requests("/max-age"));
+			
+			for(int i = 0; i < 2; ++i) {
+				get(connection,"/vary-accept","Accept","text/plain");
+				get(connection,"/vary-accept","Accept","text/html");
+				get(connection,"/vary-user-agent","User-Agent","a");
+			}
+			assertEquals(2,requests("/vary-accept"));
+			assertEquals(2,requests("/vary-user-agent"));
+		}
+		finally {
+			other.dispose();
+		}
+		
+		HttpGet request = new HttpGet("http://localhost/");
+		request.setHeader("Authorization","Basic secret");
+		assertFalse(HttpCache.createKey("http://localhost/",request).contains("secret"));
+	}
+	
+	@Test
+	public void testStoreWithoutStream() throws Exception {
+		HttpCache cache = new HttpCache(new MemoryHttpCacheStorage(100));
+		final HttpResponse response = response("Cache-Control","max-age=60");
+		HttpResponse result = cache.execute("http://localhost/",new HttpGet("http://localhost/"),new HttpCache.Exchange() {
+			public HttpResponse execute() {
+				return response;
+			}
+		});
+		assertSame(response,result);
+		assertEquals(0,cache.getStats().getStoreCount());
+	}
+	
+	@Test
+	public void testStoreReadFailure() throws Exception {
+		HttpCache cache = new HttpCache(new MemoryHttpCacheStorage(100));
+		final AtomicInteger closed = new AtomicInteger();
+		final InputStream in = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("read failed");
+			}
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		};
+		try {
+			cache.execute("http://localhost/",new HttpGet("http://localhost/"),new HttpCache.Exchange() {
+				public HttpResponse execute() {
+					return new HttpResponse(200,"OK",in,new Header[] { new BasicHeader("Cache-Control","max-age=60") });
+				}
+			});
+			fail();
+		}
+		catch(IOException e) {
+			// expected
+		}
+		// closing the stream releases the connection
+		assertEquals(1,closed.get());
+		assertEquals(0,cache.getStats().getStoreCount());
+	}
+	
+	private static HttpResponse response(String...headers) {
+		Header [] h = new Header[headers.length / 2];
+		for(int i = 0; i < h.length; ++i) {
+			h[i] = new BasicHeader(headers[2 * i],headers[2 * i + 1]);
+		}
+		return new HttpResponse(200,"OK",(InputStream)null,h);
+	}
+	
+	@Test
+	public void testFreshnessLifetime() {
+		long now = System.currentTimeMillis();
+		String date = DateUtils.formatDate(new Date(now));
+		
+		assertEquals(60000,HttpCache.getFreshnessLifetime(response("Cache-Control","public, max-age=60"),now));
+		assertEquals(50000,HttpCache.getFreshnessLifetime(response("Cache-Control","max-age=\"60\"","Age","10"),now));
+		assertEquals(0,HttpCache.getFreshnessLifetime(response("Cache-Control","max-age=5","Age","10"),now));
+		// max-age has precedence over expires
+		assertEquals(60000,HttpCache.getFreshnessLifetime(response(
+				"Cache-Control","max-age=60","Expires",DateUtils.formatDate(new Date(now + 3600000))),now));
+		
+		long lifetime = HttpCache.getFreshnessLifetime(response("Date",date,"Expires",DateUtils.formatDate(new Date(now + 3600000))),now);
+		assertTrue(lifetime > 3598000 && lifetime <= 3600000);
+		assertEquals(0,HttpCache.getFreshnessLifetime(response("Date",date,"Expires","0"),now));
+		
+		lifetime = HttpCache.getFreshnessLifetime(response("Date",date,"Last-Modified",DateUtils.formatDate(new Date(now - 100000000))),now);
+		assertTrue(lifetime > 9990000 && lifetime <= 10000000);
+		assertEquals(HttpCache.MAX_HEURISTIC_LIFETIME,HttpCache.getFreshnessLifetime(response("Last-Modified",LAST_MODIFIED),now));
+		
+		assertEquals(0,HttpCache.getFreshnessLifetime(response(),now));
+		assertTrue(HttpCache.hasDirective("private, No-Cache=\"Set-Cookie\"","no-cache"));
+		assertEquals(-1,HttpCache.getMaxAge("s-maxage=5"));
+	}
+}
@@ -0,0 +1,159 @@
+package com.gamesalutes.httpconnection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RequestEntityTest {
+
+	/**
+	 * Writes the bytes in small pieces like a typical serializer.
+	 */
+	private static final class BytesMarshaller implements RequestMarshaller<byte []> {
+		
+		int calls;
+		
+		public void marshall(byte [] object,OutputStream out) throws IOException {
+			++calls;
+			for(int i = 0; i < object.length; i += 1000) {
+				out.write(object,i,Math.min(1000,object.length - i));
+			}
+		}
+		public String getContentType() {
+			return "application/octet-stream";
+		}
+	}
+	
+	private static byte [] randomBytes(int size) {
+		byte [] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+	
+	private static byte [] written(AbstractHttpEntity entity) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		return out.toByteArray();
+	}
+	
+	private static byte [] content(AbstractHttpEntity entity) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = entity.getContent();
+		byte [] buf = new byte[4096];
+		int len;
+		while((len = in.read(buf)) != -1) {
+			out.write(buf,0,len);
+		}
+		return out.toByteArray();
+	}
+	
+	@Test
+	public void testBufferedEntityGrows() throws IOException {
+		byte [] bytes = randomBytes(100 * 1024);
+		MarshallingHttpEntity<byte []> entity = new MarshallingHttpEntity<byte []>(new BytesMarshaller(),bytes);
+		
+		assertEquals(bytes.length,entity.getContentLength());
+		assertArrayEquals(bytes,written(entity));
+		assertArrayEquals(bytes,content(entity));
+	}
+	
+	@Test
+	public void testRepeatableEntity() throws IOException {
+		for(int size : new int [] { 0, 1, DirectBufferMarshallingHttpEntity.CHUNK_SIZE, 3 * DirectBufferMarshallingHttpEntity.CHUNK_SIZE + 17 }) {
+			byte [] bytes = randomBytes(size);
+			BytesMarshaller marshaller = new BytesMarshaller();
+			DirectBufferMarshallingHttpEntity<byte []> entity = new DirectBufferMarshallingHttpEntity<byte []>(marshaller,bytes);
+			
+			assertTrue(entity.isRepeatable());
+			assertFalse(entity.isChunked());
+			assertEquals(size,entity.getContentLength());
+			assertArrayEquals(bytes,written(entity));
+			assertArrayEquals(bytes,written(entity));
+			assertArrayEquals(bytes,content(entity));
+			assertEquals(1,marshaller.calls);
+		}
+	}
+	
+	@Test
+	public void testStreamingEntity() throws IOException {
+		byte [] bytes = randomBytes(50 * 1024);
+		BytesMarshaller marshaller = new BytesMarshaller();
+		StreamingMarshallingHttpEntity<byte []> entity = new StreamingMarshallingHttpEntity<byte []>(marshaller,bytes);
+		
+		assertFalse(entity.isRepeatable());
+		assertTrue(entity.isChunked());
+		assertEquals(-1,entity.getContentLength());
+		// nothing is marshalled until the entity is sent
+		assertEquals(0,marshaller.calls);
+		assertArrayEquals(bytes,written(entity));
+		assertEquals(1,marshaller.calls);
+		
+		try {
+			entity.writeTo(new ByteArrayOutputStream());
+			fail();
+		}
+		catch(IllegalStateException e) {
+		}
+	}
+	
+	@Test
+	public void testUpload() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost",0),0);
+		// responds with the transfer encoding and the number of bytes received
+		server.createContext("/",new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				InputStream in = exchange.getRequestBody();
+				byte [] buf = new byte[8192];
+				long count = 0;
+				int len;
+				while((len = in.read(buf)) != -1) {
+					count += len;
+				}
+				String encoding = exchange.getRequestHeaders().getFirst("Transfer-Encoding");
+				byte [] body = (encoding + ":" + count).getBytes("UTF-8");
+				exchange.sendResponseHeaders(200,body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		
+		HttpConnection connection = new HttpConnection("http://localhost:" + server.getAddress().getPort());
+		try {
+			byte [] bytes = randomBytes(1024 * 1024 + 5);
+			for(RequestEntityMode mode : RequestEntityMode.values()) {
+				String response = connection.post(new RequestBuilder<byte [],String>()
+					.setPath("/upload")
+					.setMarshaller(new BytesMarshaller())
+					.setEntityMode(mode)
+					.setRequest(bytes)
+					.setUnmarshaller(new StringResponseUnmarshaller())
+					.build());
+				
+				String encoding = mode == RequestEntityMode.STREAMING ? "chunked" : "null";
+				assertEquals(mode.toString(),encoding + ":" + bytes.length,response);
+			}
+		}
+		finally {
+			connection.dispose();
+			server.stop(0);
+		}
+	}
+}
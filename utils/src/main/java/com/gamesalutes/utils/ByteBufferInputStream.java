@@ -63,7 +63,7 @@ public final class ByteBufferInputStream extends InputStream
     {
         if (!buf.hasRemaining())
             return -1;
-        return buf.get();
+        return buf.get() & 0xFF;
     }
 
     public synchronized int read(byte[] bytes, int off, int len)
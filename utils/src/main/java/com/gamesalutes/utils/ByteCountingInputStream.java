@@ -32,6 +32,7 @@ import java.io.InputStream;
 public class ByteCountingInputStream extends InputStream {
 
 	private int readCount = 0;
+	private boolean closed;
 	
 	private InputStream wrapped;
 	private StreamReadListener listener;
@@ -51,7 +52,9 @@ public class ByteCountingInputStream extends InputStream {
 
 		notifyStart();
 		int read = wrapped.read();
-		++readCount;
+		if(read != -1) {
+			++readCount;
+		}
 		return read;
 	}
 	
@@ -69,6 +72,11 @@ public class ByteCountingInputStream extends InputStream {
 
 	@Override
 	public void close() throws IOException {
+		// report once however many times the stream is closed
+		if(closed) {
+			return;
+		}
+		closed = true;
 		try {
 			if(listener != null) {
 				listener.onReadComplete(readCount);
@@ -95,7 +103,9 @@ public class ByteCountingInputStream extends InputStream {
 		notifyStart();
 		int read = wrapped.read(bytes,off,len);
 
-		readCount += read;
+		if(read > 0) {
+			readCount += read;
+		}
 		return read;
 	}
 
@@ -104,7 +114,9 @@ public class ByteCountingInputStream extends InputStream {
 		
 		notifyStart();
 		int read = wrapped.read(bytes);
-		readCount += read;
+		if(read > 0) {
+			readCount += read;
+		}
 		return read;
 	}
 
@@ -116,7 +128,11 @@ public class ByteCountingInputStream extends InputStream {
 	@Override
 	public long skip(long arg0) throws IOException {
 		notifyStart();
-		return wrapped.skip(arg0);
+		long skipped = wrapped.skip(arg0);
+		if(skipped > 0) {
+			readCount += skipped;
+		}
+		return skipped;
 	}
 	
 	public int getReadCount() {
@@ -174,6 +174,30 @@ public final class ByteUtils
 		return returnBuf;
 	}
 	
+	/**
+	 * Returns a <code>ByteBuffer</code> containing the byte representation
+	 * of <code>obj</code> as written by <code>codec</code>.
+	 * 
+	 * @param obj the <code>Object</code> to convert to its byte representation
+	 * @param codec the <code>Codec</code> to use
+	 * @param buf an existing buffer to use for storage or <code>null</code> to create new buffer.
+	 *        If <code>buf</code> is not large enough it will be expanded using {@link #growBuffer(ByteBuffer, int)}
+	 * @return <code>ByteBuffer</code> containing the byte representation
+	 * of <code>obj</code>.
+	 * 
+	 * @throws IOException if error occurs while encoding <code>obj</code>
+	 */
+	public static <T> ByteBuffer getObjectBytes(T obj,Codec<? super T> codec,ByteBuffer buf)
+		throws IOException
+	{
+		if(codec == null) throw new NullPointerException("codec");
+		int startPos = buf != null ? buf.position() : 0;
+		buf = codec.encode(obj, buf);
+		buf.flip();
+		buf.position(startPos);
+		return buf;
+	}
+	
 	/**
 	 * Reads all the bytes from the <code>InputStream</code> and
 	 * then closes the stream even if exception occurs.
@@ -442,7 +466,26 @@ public final class ByteUtils
 	}
 	
 	/**
-	 * Clones an object using serialization.
+	 * Reads an object from the input <code>buf</code> using <code>codec</code>.
+	 * 
+	 * @param <T> type of the object
+	 * @param buf the input <code>ByteBuffer</code>
+	 * @param codec the <code>Codec</code> to use
+	 * @return the read object
+	 * @throws IOException if error occurs during reading
+	 */
+	public static <T> T readObject(ByteBuffer buf,Codec<T> codec)
+		throws IOException
+	{
+		if(buf == null) throw new NullPointerException("buf");
+		if(codec == null) throw new NullPointerException("codec");
+		return codec.decode(buf);
+	}
+	
+	/**
+	 * Clones an object by encoding and decoding it with {@link Codecs#OBJECT}.  Strings, boxed primitives
+	 * and primitive arrays are copied in their compact form, types with a registered {@link Codec} use that
+	 * codec and all other objects use serialization.
 	 * 
 	 * @param obj the input object
 	 * @param bufData the <code>ByteBuffer</code> in index 0 to use for temporary storage or <code>null</code> to create a new storage buffer.
@@ -450,8 +493,25 @@ public final class ByteUtils
 	 * @return the cloned object
 	 * @throws Exception 
 	 */
+	@SuppressWarnings("unchecked")
 	public static <T> T serializationClone(T obj,ByteBuffer[] bufData)
 		throws Exception
+	{
+		return serializationClone(obj,(Codec<T>)Codecs.OBJECT,bufData);
+	}
+	
+	/**
+	 * Clones an object by encoding and decoding it with <code>codec</code>.
+	 * 
+	 * @param obj the input object
+	 * @param codec the <code>Codec</code> to use
+	 * @param bufData the <code>ByteBuffer</code> in index 0 to use for temporary storage or <code>null</code> to create a new storage buffer.
+	 *            On output it will contain the final buffer used for encoding the object
+	 * @return the cloned object
+	 * @throws IOException if error occurs during encoding or decoding
+	 */
+	public static <T> T serializationClone(T obj,Codec<T> codec,ByteBuffer[] bufData)
+		throws IOException
 	{
 		if(obj == null) return null;
 		ByteBuffer buf = null;
@@ -461,18 +521,23 @@ public final class ByteUtils
 			buf = bufData[0];
 			if(buf != null) startPos = buf.position();
 		}
-		buf = ByteUtils.getObjectBytes(obj, buf);
-		T clone = ByteUtils.<T>readObject(buf);
+		if(buf == null) buf = ByteBuffer.allocate(NETWORK_BYTE_SIZE);
+		buf = ByteUtils.getObjectBytes(obj, codec, buf);
+		T clone = ByteUtils.readObject(buf, codec);
 		// copy new buffer over
+		buf.limit(buf.capacity());
 		buf.position(startPos);
-		bufData[0] = buf;
+		if(!MiscUtils.isEmpty(bufData))
+			bufData[0] = buf;
 		
 		return clone;
 		
 	}
 	
 	/**
-	 * Clones an object using serialization.
+	 * Clones an object by encoding and decoding it with {@link Codecs#OBJECT}.  Strings, boxed primitives
+	 * and primitive arrays are copied in their compact form, types with a registered {@link Codec} use that
+	 * codec and all other objects use serialization.
 	 * 
 	 * @param obj the input object
 	 * @throws Exception if <code>obj</code> is not serializable 
@@ -481,8 +546,7 @@ public final class ByteUtils
 	public static <T> T serializationClone(T obj)
 		throws Exception
 	{
-		byte [] data = ByteUtils.getObjectBytes(obj);
-		return ByteUtils.<T>readObject(data);
+		return serializationClone(obj,(ByteBuffer[])null);
 	}
 	
 	/**
@@ -39,18 +39,33 @@
  */
 package com.gamesalutes.utils;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * <a href="http://tools.ietf.org/html/rfc4180#page-2">RFC 4180</a> compliant csv parser 
+ * <a href="http://tools.ietf.org/html/rfc4180#page-2">RFC 4180</a> compliant csv parser.
+ * <p>
+ * Input is scanned directly out of a reusable character buffer.  Records may be read either as 
+ * <code>String</code> arrays with {@link #readLine()} or, to avoid allocating per record, with the cursor
+ * methods {@link #nextRecord()} and {@link #field(int)}, which exposes each field as a <code>CharSequence</code>
+ * view over an internal buffer that is reused by the next record.  Materialize a field with 
+ * {@link #fieldAsString(int)} only if it must outlive the current record.
+ * 
+ * <pre>
+ * while(parser.nextRecord())
+ * {
+ *     CharSequence id = parser.field(0);
+ *     ...
+ * }
+ * </pre>
+ * 
  * @author Justin Montgomery
  * @version $Id:$
  */
@@ -64,7 +79,9 @@ public final class CSVParser implements Closeable
 	public static final char DELIMINATOR = CSVPrinter.DELIMINATOR;
 	private static final char QUOTE_CHAR = CSVPrinter.QUOTE_CHAR;
 	
-	private final BufferedReader in;
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+	
+	private final Reader in;
 	private final char delim;
 	private final char quoteChar;
 	private final String lineTerminator;
@@ -72,6 +89,20 @@ public final class CSVParser implements Closeable
 	
 	private boolean readHeader = false;
 	
+	// unread input is between inputPos and inputLimit
+	private final char [] input = new char[INPUT_BUFFER_SIZE];
+	private int inputPos;
+	private int inputLimit;
+	private boolean eof;
+	// last line ended with '\r' so a following '\n' is part of the same terminator
+	private boolean skipLF;
+	
+	// unescaped characters of the current record and the end offset of each of its fields
+	private char [] record = new char[1024];
+	private int recordLength;
+	private int [] fieldEnds = new int[16];
+	private int fieldCount;
+	
 	private static final Logger logger = LoggerFactory.getLogger(CSVParser.class.getSimpleName());
 	
 	// TODO: allow this to be passed in?
@@ -133,7 +164,8 @@ public final class CSVParser implements Closeable
 		if(in == null)
 			throw new NullPointerException("in");
 		
-		this.in = new BufferedReader(in,1024);
+		// input is buffered directly
+		this.in = in;
 		this.hasHeader = hasHeader;
 		this.delim = delim;
                 this.quoteChar = quoteChar;
@@ -158,6 +190,20 @@ public final class CSVParser implements Closeable
 	 */
 	public char getDeliminator() { return delim; }
 	
+	/**
+	 * Returns the quote character being used by this reader.
+	 * 
+	 * @return the quote character
+	 */
+	public char getQuoteChar() { return quoteChar; }
+	
+	/**
+	 * Returns the terminator that joins the lines of a multi-line entry.
+	 * 
+	 * @return the line terminator
+	 */
+	public String getLineTerminator() { return lineTerminator; }
+	
 	/**
 	 * Reads one line of csv text or <code>null</code> if there are no more non-empty lines to read.
 	 * 
@@ -166,40 +212,9 @@ public final class CSVParser implements Closeable
 	 */
 	public String[] readLine() throws IOException
 	{
-		String line = null; 
-		boolean empty = true;
-		List<String> data = new ArrayList<String>();
-		StringBuilder buf = null;
-		boolean skipped = false;
-		
-		do
-		{
-			line = in.readLine();
-			empty = MiscUtils.isEmpty(line);
-			if(!empty || (buf != null && line != null))
-			{
-				if(this.hasHeader && !readHeader)
-				{
-					skipped = readHeader = true;
-					continue;
-				}
-				else
-					skipped = false;
-				
-				buf = readLine0(line,data,buf);
-				if(buf == null)
-					return data.toArray(new String[data.size()]);
-			}
-		}
-		// do while the line is only whitespace or we are parsing multi-line element
-		while(line != null && (skipped || (empty || buf != null)));
-		
-		// ran out of input before we finished quoting
-		if(buf != null)
-			logger.warn("Unexpected EOF: Unterminated quoted entry: " + buf);
-		
-		return null;
-			
+		if(!nextRecord())
+			return null;
+		return getRecord();
 	}
 	
 	/**
@@ -212,7 +227,7 @@ public final class CSVParser implements Closeable
 	 */
 	public List<String[]> readAll() throws IOException
 	{
-		List<String[]> lines = new ArrayList<String[]>(100 * 1024);
+		List<String[]> lines = new ArrayList<String[]>();
 		String [] line;
 		while((line = readLine()) != null)
 		{
@@ -223,92 +238,264 @@ public final class CSVParser implements Closeable
 	}
 	
 	/**
-	 * Closes the underlying stream
-	 * @throws IOException if an error occurs during the close operation
-	 */
-	public void close() throws IOException
-	{
-		in.close();
-	}
-	
-	/**
-	 * Reads a single "line" of csv input and returns whether the current "line"
-	 * is complete.    
-	 * @param entry the line
-	 * @param data the storage for the delimited input of this line
-	 * @param prev return result of last call to this method
-	 * @return current buffer if more input exists on next line and <code>null</code>
-	 *         otherwise
+	 * Advances to the next record.  Lines that are empty or only whitespace are skipped unless they are
+	 * part of a multi-line quoted entry.  The fields of the record are available from {@link #field(int)}
+	 * until the next call to this method.
+	 * 
+	 * @return <code>true</code> if a record was read and <code>false</code> if there are no more non-empty lines
+	 * @throws IOException if error occurs during a read operation
 	 */
-	private StringBuilder readLine0(String entry,List<String> data,StringBuilder prev)
+	public boolean nextRecord() throws IOException
 	{
-		boolean continued = prev != null;
+		recordLength = 0;
+		fieldCount = 0;
 		
-		StringBuilder str;
-		if(!continued)
-		{
-			str = new StringBuilder(1024);
-			data.clear();
-		}
-		else
-		{
-			str = prev;
-			str.append(lineTerminator);
-		}
-				
-		// denotes consecutive quotes
-		int quotes = continued ? 1 : 0;
+		// count of consecutive quotes: nonzero while inside a quoted entry
+		int quotes = 0;
+		// a quote that either closes the entry or is an escaped quote depending on the next character
+		boolean pendingQuote = false;
+		// the current line continues a quoted entry from the previous line
+		boolean continued = false;
+		boolean lineStart = true;
+		// no character after ' ' on the current line
+		boolean blank = true;
 		
-		// if we have just isolated 
-		for(int i = 0, len = entry.length(); i < len; ++i)
+		final char [] input = this.input;
+		final char delim = this.delim;
+		final char quoteChar = this.quoteChar;
+		
+		while(inputPos < inputLimit || fill())
 		{
-			char c = entry.charAt(i);
-
-			if(c == quoteChar)
+			int pos = inputPos;
+			final int limit = inputLimit;
+			while(pos < limit)
 			{
-				// since quotes are escaped with another quote only add the 
-				// even counted quotes
-				if(++quotes % 2 == 0)
+				char c = input[pos++];
+				if(skipLF)
+				{
+					skipLF = false;
+					if(c == '\n')
+						continue;
+				}
+				if(lineStart)
+				{
+					lineStart = false;
+					blank = true;
+					if(continued)
+					{
+						for(int i = 0, len = lineTerminator.length(); i < len; ++i)
+							append(lineTerminator.charAt(i));
+						quotes = 1;
+					}
+				}
+				if(c == '\n' || c == '\r')
 				{
-					// but don't add the final quote character that determines end
-					// of entry
-					if(i != len - 1 && entry.charAt(i + 1) != delim)
-						str.append(c);
+					skipLF = c == '\r';
+					lineStart = true;
+					// a quote at the end of the line closes the entry
+					if(pendingQuote)
+					{
+						pendingQuote = false;
+						quotes = 0;
+					}
+					if(!continued && (blank || (hasHeader && !readHeader)))
+					{
+						if(!blank)
+							readHeader = true;
+						// skip the line
+						recordLength = 0;
+						fieldCount = 0;
+						quotes = 0;
+					}
+					else if(quotes > 0)
+						continued = true;
 					else
+					{
+						endField();
+						inputPos = pos;
+						return true;
+					}
+					continue;
+				}
+				if(c > ' ')
+					blank = false;
+				if(pendingQuote)
+				{
+					pendingQuote = false;
+					// quote before a deliminator closes the entry, otherwise it was escaped
+					if(c == delim)
 						quotes = 0;
+					else
+						append(quoteChar);
+				}
+				if(c == quoteChar)
+				{
+					// since quotes are escaped with another quote only the 
+					// even counted quotes are considered
+					if(++quotes % 2 == 0)
+						pendingQuote = true;
 				}
+				else if(c == delim)
+				{
+					// we want the delim
+					if(quotes > 0)
+						append(c);
+					else // this is the deliminator, so end the field
+						endField();
+				}
+				else
+					append(c);
 			}
-			else if(c == delim)
+			inputPos = pos;
+		}
+		
+		// end of input terminates the last line
+		if(!lineStart)
+		{
+			if(pendingQuote)
+				quotes = 0;
+			if(!continued && (blank || (hasHeader && !readHeader)))
 			{
-				// we want the delim
-				if(quotes > 0)
-					str.append(c);
-				else // this is the deliminator, so add the input so far
-				{
-					data.add(str.toString());
-					// clear the current value for string builder
-					MiscUtils.clearStringBuilder(str);
-				}	
+				if(!blank)
+					readHeader = true;
+				recordLength = 0;
+				fieldCount = 0;
+				return false;
 			}
-			else
+			else if(quotes == 0)
 			{
-				str.append(c);
+				endField();
+				return true;
 			}
-		} //end for
-
-		
-		// return current buffer if more input for this logical line exists on 
-		if(quotes > 0)
+		}
+		// ran out of input before we finished quoting
+		if(continued || quotes > 0)
+			logger.warn("Unexpected EOF: Unterminated quoted entry: " + new String(record,0,recordLength));
+		recordLength = 0;
+		fieldCount = 0;
+		return false;
+	}
+	
+	/**
+	 * Returns the number of fields in the current record.
+	 * 
+	 * @return the number of fields or <code>0</code> if there is no current record
+	 */
+	public int getFieldCount()
+	{
+		return fieldCount;
+	}
+	
+	/**
+	 * Returns field <code>i</code> of the current record as a view over the internal record buffer.  
+	 * The contents of the view are only valid until the next call to {@link #nextRecord()}.
+	 * 
+	 * @param i the field index
+	 * @return the field
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not a field of the current record
+	 */
+	public CharSequence field(int i)
+	{
+		int start = fieldStart(i);
+		return new CharArraySequence(record,start,fieldEnds[i] - start);
+	}
+	
+	/**
+	 * Returns the length of field <code>i</code> of the current record.
+	 * 
+	 * @param i the field index
+	 * @return the field length
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not a field of the current record
+	 */
+	public int fieldLength(int i)
+	{
+		return fieldEnds[i] - fieldStart(i);
+	}
+	
+	/**
+	 * Returns field <code>i</code> of the current record as a <code>String</code>.
+	 * 
+	 * @param i the field index
+	 * @return the field
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not a field of the current record
+	 */
+	public String fieldAsString(int i)
+	{
+		int start = fieldStart(i);
+		return new String(record,start,fieldEnds[i] - start);
+	}
+	
+	/**
+	 * Returns the fields of the current record as <code>String</code>s.
+	 * 
+	 * @return the fields of the current record
+	 */
+	public String[] getRecord()
+	{
+		String [] fields = new String[fieldCount];
+		int start = 0;
+		for(int i = 0; i < fieldCount; ++i)
 		{
-			return str;
+			fields[i] = new String(record,start,fieldEnds[i] - start);
+			start = fieldEnds[i];
 		}
-		// next logical line
-		else
+		return fields;
+	}
+	
+	private int fieldStart(int i)
+	{
+		if(i < 0 || i >= fieldCount)
+			throw new IndexOutOfBoundsException("i=" + i + ";fieldCount=" + fieldCount);
+		return i == 0 ? 0 : fieldEnds[i - 1];
+	}
+	
+	private void append(char c)
+	{
+		if(recordLength == record.length)
+			record = Arrays.copyOf(record, recordLength * 2);
+		record[recordLength++] = c;
+	}
+	
+	private void endField()
+	{
+		if(fieldCount == fieldEnds.length)
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		fieldEnds[fieldCount++] = recordLength;
+	}
+	
+	/**
+	 * Refills the input buffer once all of it has been consumed.
+	 * 
+	 * @return <code>true</code> if input was read and <code>false</code> at end of input
+	 */
+	private boolean fill() throws IOException
+	{
+		if(eof)
+			return false;
+		int n;
+		do
 		{
-			// append last entry
-			data.add(str.toString());
-			return null;
+			n = in.read(input,0,input.length);
 		}
+		while(n == 0);
+		inputPos = 0;
+		if(n < 0)
+		{
+			inputLimit = 0;
+			eof = true;
+			return false;
+		}
+		inputLimit = n;
+		return true;
+	}
+	
+	/**
+	 * Closes the underlying stream
+	 * @throws IOException if an error occurs during the close operation
+	 */
+	public void close() throws IOException
+	{
+		in.close();
 	}
 
 }
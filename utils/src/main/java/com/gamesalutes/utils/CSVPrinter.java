@@ -39,7 +39,6 @@
  */
 package com.gamesalutes.utils;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
@@ -48,6 +47,13 @@ import java.io.Writer;
 import java.util.List;
 
 /**
+ * <a href="http://tools.ietf.org/html/rfc4180#page-2">RFC 4180</a> compliant csv printer.
+ * <p>
+ * Values are escaped directly into an internal buffer that is written to the underlying stream only when
+ * it fills or on {@link #flush()}.  Besides whole records with {@link #print(String[])}, a record may be written one
+ * field at a time with the <code>append</code> methods, which accept any <code>CharSequence</code> and
+ * primitive numbers without boxing, followed by {@link #endRecord()}.  This class is not thread-safe.
+ * 
  * @author Justin Montgomery
  * @version $Id:$
  */
@@ -66,7 +72,9 @@ public final class CSVPrinter implements Closeable, Flushable
 	 */
 	static final char QUOTE_CHAR = '"';
 	
-	private final BufferedWriter out;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final Writer out;
 	private final char delim;
 	private final String lineEnding;
 	private final boolean alwaysQuote;
@@ -76,6 +84,14 @@ public final class CSVPrinter implements Closeable, Flushable
 	private static final char CARRAGE_RETURN_CHAR = '\r';
 	private static final char TAB_CHAR = '\t';
 	
+	// output not yet written to out
+	private final char [] buf = new char[BUFFER_SIZE];
+	private int count;
+	// formats numbers without allocating
+	private final StringBuilder scratch = new StringBuilder(32);
+	// number of fields appended to the current record
+	private int recordFields;
+	
 	
 	/**
 	 * Constructor.
@@ -106,7 +122,7 @@ public final class CSVPrinter implements Closeable, Flushable
 		this(out,header,DELIMINATOR,System.getProperty("line.separator"),false);
 	}
 	
-	private boolean requiresQuoting(String line)
+	private boolean requiresQuoting(CharSequence line)
 	{
 		if(alwaysQuote) return true;
 		
@@ -182,7 +198,7 @@ public final class CSVPrinter implements Closeable, Flushable
 		else if(!MiscUtils.isLineTerminator(lineEnding))
 			throw new IllegalArgumentException("Illegal lineEnding: " + lineEnding);
 		
-		this.out = new BufferedWriter(out,1024);
+		this.out = out;
 		this.delim = delim;
 		this.lineEnding = lineEnding;
 		this.alwaysQuote = alwaysQuote;
@@ -215,7 +231,80 @@ public final class CSVPrinter implements Closeable, Flushable
 	public void print(String [] line) throws IOException
 	{
 		if(line != null)
-			out.write(print0(line,true));
+		{
+			print0(line);
+			putLineEnding();
+		}
+	}
+	
+	/**
+	 * Appends a field to the current record.
+	 * 
+	 * @param field the field value or <code>null</code> for an empty field
+	 * @return this <code>CSVPrinter</code>
+	 * @throws IOException if error occurs during the write operation
+	 */
+	public CSVPrinter append(CharSequence field) throws IOException
+	{
+		startField();
+		putField(field);
+		return this;
+	}
+	
+	/**
+	 * Appends a field to the current record.
+	 * 
+	 * @param field the field value
+	 * @return this <code>CSVPrinter</code>
+	 * @throws IOException if error occurs during the write operation
+	 */
+	public CSVPrinter append(int field) throws IOException
+	{
+		startField();
+		scratch.setLength(0);
+		putField(scratch.append(field));
+		return this;
+	}
+	
+	/**
+	 * Appends a field to the current record.
+	 * 
+	 * @param field the field value
+	 * @return this <code>CSVPrinter</code>
+	 * @throws IOException if error occurs during the write operation
+	 */
+	public CSVPrinter append(long field) throws IOException
+	{
+		startField();
+		scratch.setLength(0);
+		putField(scratch.append(field));
+		return this;
+	}
+	
+	/**
+	 * Appends a field to the current record in the format of <code>Double.toString(double)</code>.
+	 * 
+	 * @param field the field value
+	 * @return this <code>CSVPrinter</code>
+	 * @throws IOException if error occurs during the write operation
+	 */
+	public CSVPrinter append(double field) throws IOException
+	{
+		startField();
+		scratch.setLength(0);
+		putField(scratch.append(field));
+		return this;
+	}
+	
+	/**
+	 * Ends the current record started with the <code>append</code> methods by writing the line terminator.
+	 * 
+	 * @throws IOException if error occurs during the write operation
+	 */
+	public void endRecord() throws IOException
+	{
+		putLineEnding();
+		recordFields = 0;
 	}
 	
 	/**
@@ -234,7 +323,7 @@ public final class CSVPrinter implements Closeable, Flushable
 		try
 		{
 			csv = new CSVPrinter(data);
-			data.write(csv.print0(line,false));
+			csv.print0(line);
 			csv.flush();
 		}
 		catch(IOException e)
@@ -285,6 +374,7 @@ public final class CSVPrinter implements Closeable, Flushable
 	 */
 	public void flush() throws IOException
 	{
+		flushBuffer();
 		out.flush();
 	}
 	
@@ -295,48 +385,142 @@ public final class CSVPrinter implements Closeable, Flushable
 	 */
 	public void close() throws IOException
 	{
-		out.close();
+		try
+		{
+			flushBuffer();
+		}
+		finally
+		{
+			out.close();
+		}
 	}
 	
-	private String print0(String[] data,boolean addLineSep)
+	private void print0(String[] data) throws IOException
 	{
-		if(data == null)
-			return "";
-		
-		StringBuilder str = new StringBuilder(1024);
 		for(int i = 0, len = data.length; i < len; ++i)
 		{
-			str.append(makeEntry(data[i]));
-			if(i < len - 1)
-				str.append(delim);
+			if(i > 0)
+				put(delim);
+			putField(data[i]);
+		}
+	}
+	
+	private void startField() throws IOException
+	{
+		if(recordFields++ > 0)
+			put(delim);
+	}
+	
+	private void putLineEnding() throws IOException
+	{
+		for(int i = 0, len = lineEnding.length(); i < len; ++i)
+			put(lineEnding.charAt(i));
+	}
+	
+	private void put(char c) throws IOException
+	{
+		if(count == buf.length)
+			flushBuffer();
+		buf[count++] = c;
+	}
+	
+	private void flushBuffer() throws IOException
+	{
+		if(count > 0)
+		{
+			out.write(buf,0,count);
+			count = 0;
 		}
-		if(addLineSep)
-			str.append(lineEnding);
-		return str.toString();
 	}
 	
-	private String makeEntry(String entry)
+	/**
+	 * Escapes <code>entry</code> into the buffer in a single pass.  The entry is copied unquoted until a 
+	 * character requires quoting, at which point the copied prefix, which cannot contain a quote character,
+	 * is shifted to make room for the opening quote.
+	 */
+	private void putField(CharSequence entry) throws IOException
 	{
-		if(entry == null) return "";
+		if(entry == null) return;
 		
+		final int len = entry.length();
+		// worst case every character is a doubled quote plus the enclosing quotes
+		final int max = 2 * len + 2;
+		if(max > buf.length - count)
+		{
+			flushBuffer();
+			if(max > buf.length)
+			{
+				putLargeField(entry);
+				return;
+			}
+		}
 		
-		// see if we need to quote
+		final char [] buf = this.buf;
+		final int start = count;
+		int pos = start;
+		// also quote if we start with or end with spaces to try to preserve
+		// this in implementations that incorrectly ignore these
+		boolean quote = alwaysQuote || (len > 0 && Character.isSpaceChar(entry.charAt(0)));
+		if(quote)
+			buf[pos++] = quoteChar;
+		for(int i = 0; i < len; ++i)
+		{
+			char c = entry.charAt(i);
+			if(c == quoteChar)
+			{
+				if(!quote)
+				{
+					pos = openQuote(start,pos);
+					quote = true;
+				}
+				// escape quote characters by quoting again
+				buf[pos++] = c;
+				buf[pos++] = c;
+			}
+			else
+			{
+				// must quote if we contain a delimiter or line terminator
+				if(!quote && (c == delim || c == NEWLINE_CHAR || c == CARRAGE_RETURN_CHAR))
+				{
+					pos = openQuote(start,pos);
+					quote = true;
+				}
+				buf[pos++] = c;
+			}
+		}
+		if(!quote && len > 1 && Character.isSpaceChar(entry.charAt(len - 1)))
+		{
+			pos = openQuote(start,pos);
+			quote = true;
+		}
+		if(quote)
+			buf[pos++] = quoteChar;
+		count = pos;
+	}
+	
+	private int openQuote(int start,int pos)
+	{
+		System.arraycopy(buf,start,buf,start + 1,pos - start);
+		buf[start] = quoteChar;
+		return pos + 1;
+	}
+	
+	// entry that may not fit in the buffer
+	private void putLargeField(CharSequence entry) throws IOException
+	{
 		boolean quote = requiresQuoting(entry);
-		StringBuilder str = new StringBuilder(entry.length() * 2);
 		if(quote)
-			str.append(quoteChar);
+			put(quoteChar);
 		for(int i = 0,len = entry.length(); i < len; ++i)
 		{
 			char c = entry.charAt(i);
-			str.append(c);
+			put(c);
 			// escape quote characters by quoting again
 			if(c == quoteChar)
-				str.append(quoteChar);
+				put(quoteChar);
 		}
 		if(quote)
-			str.append(quoteChar);
-		
-		return str.toString();
+			put(quoteChar);
 	}
 
 }
@@ -69,6 +69,7 @@ public class CSVWriter implements Closeable,Flushable
 	private static final char NEWLINE_CHAR = '\n';
 	private static final char CARRAGE_RETURN_CHAR = '\r';
 	private static final char TAB_CHAR = '\t';
+	private static final String REGEX_META_CHARS = "^$.|?*+()[]{}";
 	
 	/**
 	 * Constructor.
@@ -162,8 +163,18 @@ public class CSVWriter implements Closeable,Flushable
 		String controlRegex = NEWLINE_CHAR + "|" + CARRAGE_RETURN_CHAR + "|" + 
 		   					  TAB_CHAR;
 		String escapeRegex =  controlRegex + "|\"|" + "\\\\|" + this.delim;
-		this.escapePattern = Pattern.compile(".*?(" + escapeRegex + ")");
-		this.quotePattern = Pattern.compile("\"");
+		// the delimiter is not quoted in the escape regex so a regex meta character changes which entries
+		// are escaped; only then is the regex consulted so that output remains compatible
+		if(REGEX_META_CHARS.indexOf(this.delim) != -1)
+		{
+			this.escapePattern = Pattern.compile(".*?(" + escapeRegex + ")");
+			this.quotePattern = Pattern.compile("\"");
+		}
+		else
+		{
+			this.escapePattern = null;
+			this.quotePattern = null;
+		}
 		//this.controlPattern = Pattern.compile(controlRegex);
 	}
 	
@@ -190,7 +201,10 @@ public class CSVWriter implements Closeable,Flushable
 	public void print(String [] line) throws IOException
 	{
 		if(line != null)
-			out.write(print0(line,true));
+		{
+			print0(line,out);
+			out.write(lineEnding);
+		}
 	}
 	
 	/**
@@ -246,23 +260,63 @@ public class CSVWriter implements Closeable,Flushable
 		out.close();
 	}
 	
-	private String print0(String[] data,boolean addLineSep)
+	private void print0(String[] data,Writer w) throws IOException
 	{
 		if(data == null)
-			return "";
+			return;
 		
-		StringBuilder str = new StringBuilder(1024);
 		for(int i = 0, len = data.length; i < len; ++i)
 		{
-			str.append(makeEntry(data[i]));
+			writeEntry(data[i],w);
 			if(i < len - 1)
-				str.append(delim);
+				w.write(delim);
 		}
-		if(addLineSep)
-			str.append(lineEnding);
-		return str.toString();
 	}
 	
+	private boolean requiresEscape(char c)
+	{
+		return c == QUOTE_CHAR || c == '\\' || c == delim || isControlChar(c);
+	}
+	
+	private void writeEntry(String entry,Writer w) throws IOException
+	{
+		if(entry == null) return;
+		if(escapePattern != null)
+		{
+			w.write(makeEntry(entry));
+			return;
+		}
+		
+		// copy the prefix that needs no escaping as is
+		final int len = entry.length();
+		int i = 0;
+		while(i < len && !requiresEscape(entry.charAt(i)))
+			++i;
+		if(i == len)
+		{
+			w.write(entry);
+			return;
+		}
+		
+		w.write(QUOTE_CHAR);
+		w.write(entry,0,i);
+		for(; i < len; ++i)
+		{
+			char c = entry.charAt(i);
+			switch(c)
+			{
+			case '\\': w.write("\\\\"); break;
+			case NEWLINE_CHAR: w.write("\\n"); break;
+			case CARRAGE_RETURN_CHAR: w.write("\\r"); break;
+			case TAB_CHAR: w.write("\\t"); break;
+			case QUOTE_CHAR: w.write("\\\""); break;
+			default: w.write(c);
+			}
+		}
+		w.write(QUOTE_CHAR);
+	}
+	
+
 	private String makeEntry(String entry)
 	{
 		if(entry == null) return "";
@@ -316,7 +370,7 @@ public class CSVWriter implements Closeable,Flushable
 		try
 		{
 			csv = new CSVWriter(data);
-			data.write(csv.print0(line,false));
+			csv.print0(line,data);
 			csv.flush();
 		}
 		catch(IOException e)
@@ -58,9 +58,9 @@ public final class CharArraySequence implements CharSequence
     {
         if(data == null)
             throw new NullPointerException("data");
-        if(offset < 0 || offset > length)
+        if(offset < 0 || offset > data.length)
             throw new IllegalArgumentException("offset=" + offset);
-        if(length < 0)
+        if(length < 0 || offset + length > data.length)
             throw new IllegalArgumentException("length=" + length);
 
         this.data = data;
@@ -74,13 +74,15 @@ public final class CharArraySequence implements CharSequence
 
     public char charAt(int index)
     {
-        if(index >= offset + length)
+        if(index < 0 || index >= length)
             throw new IndexOutOfBoundsException("index=" + index);
         return data[offset + index];
     }
 
     public CharSequence subSequence(int start, int end)
     {
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start=" + start + ";end=" + end);
         return new CharArraySequence(data,offset + start,end-start);
     }
 
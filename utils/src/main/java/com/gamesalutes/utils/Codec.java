@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes values of a single type to and from a <code>ByteBuffer</code>.  A codec is an alternative
+ * to Java object serialization when the type of the stored values is known ahead of time, avoiding
+ * the per-object class descriptors and reflective field access of <code>ObjectOutputStream</code>.
+ * <p>
+ * Encoded values must be self-delimiting: {@link #decode(ByteBuffer)} consumes exactly the bytes
+ * written by {@link #encode(Object, ByteBuffer)}, so several values may be written back to back into
+ * the same buffer.  Implementations must be stateless and thread-safe.
+ * <p>
+ * Built-in codecs and a registry keyed by class are provided by {@link Codecs}.
+ * 
+ * @author jmontgomery
+ *
+ * @param <T> the type of the encoded values
+ */
+public interface Codec<T>
+{
+	/**
+	 * Returns the type of the values handled by this codec.
+	 * 
+	 * @return the value type
+	 */
+	Class<T> getType();
+	
+	/**
+	 * Writes <code>value</code> starting at the position of <code>buf</code>.  On return the
+	 * position of the returned buffer is just past the encoded data.
+	 * 
+	 * @param value the value to encode
+	 * @param buf the buffer to write to or <code>null</code> to create a new buffer.
+	 *        If <code>buf</code> is not large enough it is expanded using {@link ByteUtils#growBuffer(ByteBuffer, int)}
+	 * @return the buffer containing the encoded value, which is either <code>buf</code> or a new larger buffer
+	 * @throws IOException if <code>value</code> cannot be encoded
+	 */
+	ByteBuffer encode(T value,ByteBuffer buf) throws IOException;
+	
+	/**
+	 * Reads a value starting at the position of <code>buf</code>, leaving the position just past
+	 * the encoded data.
+	 * 
+	 * @param buf the buffer to read from
+	 * @return the decoded value
+	 * @throws IOException if the data is malformed
+	 */
+	T decode(ByteBuffer buf) throws IOException;
+}
@@ -0,0 +1,753 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Built-in {@link Codec} implementations and a registry of codecs keyed by class.
+ * <p>
+ * Built-in codecs are provided for <code>String</code>, the boxed primitive types, the primitive array types
+ * and <code>Serializable</code>, which falls back to Java object serialization.  {@link #OBJECT} encodes values
+ * of any type by prefixing them with a one byte tag selecting the codec for the value's class: built-in types
+ * use their compact form, classes with a {@link #register(Codec) registered} codec use that codec and all other
+ * serializable objects use {@link #SERIALIZABLE}.
+ * <p>
+ * Numbers are written in big-endian order at fixed width; lengths are written as unsigned variable length
+ * integers.  Strings are written as their char count followed by each char in one to three bytes using the
+ * UTF-8 bit layout, so that any char sequence, including unpaired surrogates, round trips exactly.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class Codecs
+{
+	private Codecs() {}
+	
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_SERIALIZABLE = 1;
+	private static final byte TAG_REGISTERED = 2;
+	// tag of the first built-in codec
+	private static final int TAG_BUILTIN = 16;
+	
+	// maximum bytes in a variable length int
+	private static final int MAX_VARINT = 5;
+	
+	private static final List<Codec<?>> builtins = new ArrayList<Codec<?>>();
+	private static final Map<Class<?>,Integer> builtinTags = new HashMap<Class<?>,Integer>();
+	private static final Set<Class<?>> builtinTypes = new HashSet<Class<?>>();
+	private static final ConcurrentMap<Class<?>,Codec<?>> registry = new ConcurrentHashMap<Class<?>,Codec<?>>();
+	private static final ConcurrentMap<String,Codec<?>> registryByName = new ConcurrentHashMap<String,Codec<?>>();
+	
+	public static final Codec<String> STRING = new StringCodec();
+	public static final Codec<Boolean> BOOLEAN = new BooleanCodec();
+	public static final Codec<Byte> BYTE = new ByteCodec();
+	public static final Codec<Character> CHARACTER = new CharacterCodec();
+	public static final Codec<Short> SHORT = new ShortCodec();
+	public static final Codec<Integer> INTEGER = new IntegerCodec();
+	public static final Codec<Long> LONG = new LongCodec();
+	public static final Codec<Float> FLOAT = new FloatCodec();
+	public static final Codec<Double> DOUBLE = new DoubleCodec();
+	public static final Codec<boolean[]> BOOLEAN_ARRAY = new BooleanArrayCodec();
+	public static final Codec<byte[]> BYTE_ARRAY = new ByteArrayCodec();
+	public static final Codec<char[]> CHAR_ARRAY = new CharArrayCodec();
+	public static final Codec<short[]> SHORT_ARRAY = new ShortArrayCodec();
+	public static final Codec<int[]> INT_ARRAY = new IntArrayCodec();
+	public static final Codec<long[]> LONG_ARRAY = new LongArrayCodec();
+	public static final Codec<float[]> FLOAT_ARRAY = new FloatArrayCodec();
+	public static final Codec<double[]> DOUBLE_ARRAY = new DoubleArrayCodec();
+	
+	/**
+	 * Codec for any serializable object using Java object serialization.  The serialized form is
+	 * prefixed with its length so that it can be followed by other data.
+	 */
+	public static final Codec<Serializable> SERIALIZABLE = new SerializableCodec();
+	
+	/**
+	 * Codec for values of any type, including <code>null</code>, that selects the codec from the class of each value.
+	 */
+	public static final Codec<Object> OBJECT = new ObjectCodec();
+	
+	static
+	{
+		// the order defines the persisted tags: only append to this list
+		addBuiltin(STRING);
+		addBuiltin(BOOLEAN);
+		addBuiltin(BYTE);
+		addBuiltin(CHARACTER);
+		addBuiltin(SHORT);
+		addBuiltin(INTEGER);
+		addBuiltin(LONG);
+		addBuiltin(FLOAT);
+		addBuiltin(DOUBLE);
+		addBuiltin(BOOLEAN_ARRAY);
+		addBuiltin(BYTE_ARRAY);
+		addBuiltin(CHAR_ARRAY);
+		addBuiltin(SHORT_ARRAY);
+		addBuiltin(INT_ARRAY);
+		addBuiltin(LONG_ARRAY);
+		addBuiltin(FLOAT_ARRAY);
+		addBuiltin(DOUBLE_ARRAY);
+		
+		builtinTypes.add(Serializable.class);
+		registry.put(Serializable.class, SERIALIZABLE);
+		builtinTypes.add(Object.class);
+		registry.put(Object.class, OBJECT);
+	}
+	
+	private static void addBuiltin(Codec<?> codec)
+	{
+		builtinTags.put(codec.getType(), TAG_BUILTIN + builtins.size());
+		builtins.add(codec);
+		builtinTypes.add(codec.getType());
+		registry.put(codec.getType(), codec);
+	}
+	
+	/**
+	 * Registers <code>codec</code> for its {@link Codec#getType() type}, replacing any codec previously registered
+	 * for that type.  Registered codecs are used by {@link #OBJECT} for values whose class is exactly the codec type.
+	 * Since {@link #OBJECT} identifies registered codecs by class name, the same codec must be registered
+	 * before decoding any data that was encoded with it.
+	 * 
+	 * @param codec the <code>Codec</code>
+	 * @throws IllegalArgumentException if the type has a built-in codec
+	 */
+	public static <T> void register(Codec<T> codec)
+	{
+		if(codec == null) throw new NullPointerException("codec");
+		Class<T> type = codec.getType();
+		if(type == null) throw new NullPointerException("codec.getType()");
+		checkNotBuiltin(type);
+		registry.put(type, codec);
+		registryByName.put(type.getName(), codec);
+	}
+	
+	/**
+	 * Removes the codec registered for <code>type</code>.
+	 * 
+	 * @param type the value type
+	 * @return <code>true</code> if a codec was registered and <code>false</code> otherwise
+	 * @throws IllegalArgumentException if the type has a built-in codec
+	 */
+	public static boolean unregister(Class<?> type)
+	{
+		if(type == null) throw new NullPointerException("type");
+		checkNotBuiltin(type);
+		registryByName.remove(type.getName());
+		return registry.remove(type) != null;
+	}
+	
+	private static void checkNotBuiltin(Class<?> type)
+	{
+		if(builtinTypes.contains(type))
+			throw new IllegalArgumentException("built-in codec for " + type.getName() + " cannot be replaced");
+	}
+	
+	/**
+	 * Returns the built-in or registered codec for exactly <code>type</code>.
+	 * 
+	 * @param type the value type
+	 * @return the <code>Codec</code> or <code>null</code> if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Codec<T> lookup(Class<T> type)
+	{
+		if(type == null) throw new NullPointerException("type");
+		return (Codec<T>)registry.get(type);
+	}
+	
+	/**
+	 * Returns the built-in or registered codec for exactly <code>type</code> or {@link #OBJECT} if there is none.
+	 * 
+	 * @param type the value type
+	 * @return the <code>Codec</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Codec<T> getCodec(Class<T> type)
+	{
+		Codec<T> codec = lookup(type);
+		return codec != null ? codec : (Codec<T>)OBJECT;
+	}
+	
+	/**
+	 * Returns <code>buf</code> or a larger buffer that has at least <code>n</code> bytes available after its position.
+	 */
+	private static ByteBuffer ensure(ByteBuffer buf,int n)
+	{
+		return ByteUtils.growBuffer(buf, (buf != null ? buf.position() : 0) + n);
+	}
+	
+	private static void putLength(ByteBuffer buf,int v)
+	{
+		while((v & ~0x7F) != 0)
+		{
+			buf.put((byte)((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buf.put((byte)v);
+	}
+	
+	private static int getLength(ByteBuffer buf) throws IOException
+	{
+		int v = 0;
+		for(int shift = 0; shift < 32; shift += 7)
+		{
+			byte b = buf.get();
+			v |= (b & 0x7F) << shift;
+			if(b >= 0)
+			{
+				if(v < 0) break;
+				return v;
+			}
+		}
+		throw new StreamCorruptedException("malformed length");
+	}
+	
+	private static abstract class AbstractCodec<T> implements Codec<T>
+	{
+		private final Class<T> type;
+		
+		AbstractCodec(Class<T> type)
+		{
+			this.type = type;
+		}
+		
+		public final Class<T> getType()
+		{
+			return type;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "Codec[" + type.getName() + "]";
+		}
+	}
+	
+	private static final class StringCodec extends AbstractCodec<String>
+	{
+		StringCodec() { super(String.class); }
+		
+		public ByteBuffer encode(String value,ByteBuffer buf)
+		{
+			final int len = value.length();
+			int bytes = 0;
+			for(int i = 0; i < len; ++i)
+			{
+				char c = value.charAt(i);
+				bytes += c < 0x80 ? 1 : (c < 0x800 ? 2 : 3);
+			}
+			buf = ensure(buf,MAX_VARINT + bytes);
+			putLength(buf,len);
+			for(int i = 0; i < len; ++i)
+			{
+				char c = value.charAt(i);
+				if(c < 0x80)
+					buf.put((byte)c);
+				else if(c < 0x800)
+				{
+					buf.put((byte)(0xC0 | (c >> 6)));
+					buf.put((byte)(0x80 | (c & 0x3F)));
+				}
+				else
+				{
+					buf.put((byte)(0xE0 | (c >> 12)));
+					buf.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+					buf.put((byte)(0x80 | (c & 0x3F)));
+				}
+			}
+			return buf;
+		}
+		
+		public String decode(ByteBuffer buf) throws IOException
+		{
+			final int len = getLength(buf);
+			char [] chars = new char[len];
+			for(int i = 0; i < len; ++i)
+			{
+				int b = buf.get() & 0xFF;
+				if(b < 0x80)
+					chars[i] = (char)b;
+				else if((b & 0xE0) == 0xC0)
+					chars[i] = (char)(((b & 0x1F) << 6) | (buf.get() & 0x3F));
+				else if((b & 0xF0) == 0xE0)
+					chars[i] = (char)(((b & 0x0F) << 12) | ((buf.get() & 0x3F) << 6) | (buf.get() & 0x3F));
+				else
+					throw new StreamCorruptedException("malformed char at byte=" + b);
+			}
+			return new String(chars);
+		}
+	}
+	
+	private static final class BooleanCodec extends AbstractCodec<Boolean>
+	{
+		BooleanCodec() { super(Boolean.class); }
+		
+		public ByteBuffer encode(Boolean value,ByteBuffer buf)
+		{
+			buf = ensure(buf,1);
+			buf.put(value ? (byte)1 : (byte)0);
+			return buf;
+		}
+		
+		public Boolean decode(ByteBuffer buf)
+		{
+			return buf.get() != 0;
+		}
+	}
+	
+	private static final class ByteCodec extends AbstractCodec<Byte>
+	{
+		ByteCodec() { super(Byte.class); }
+		
+		public ByteBuffer encode(Byte value,ByteBuffer buf)
+		{
+			buf = ensure(buf,1);
+			buf.put(value);
+			return buf;
+		}
+		
+		public Byte decode(ByteBuffer buf)
+		{
+			return buf.get();
+		}
+	}
+	
+	private static final class CharacterCodec extends AbstractCodec<Character>
+	{
+		CharacterCodec() { super(Character.class); }
+		
+		public ByteBuffer encode(Character value,ByteBuffer buf)
+		{
+			buf = ensure(buf,2);
+			buf.putChar(value);
+			return buf;
+		}
+		
+		public Character decode(ByteBuffer buf)
+		{
+			return buf.getChar();
+		}
+	}
+	
+	private static final class ShortCodec extends AbstractCodec<Short>
+	{
+		ShortCodec() { super(Short.class); }
+		
+		public ByteBuffer encode(Short value,ByteBuffer buf)
+		{
+			buf = ensure(buf,2);
+			buf.putShort(value);
+			return buf;
+		}
+		
+		public Short decode(ByteBuffer buf)
+		{
+			return buf.getShort();
+		}
+	}
+	
+	private static final class IntegerCodec extends AbstractCodec<Integer>
+	{
+		IntegerCodec() { super(Integer.class); }
+		
+		public ByteBuffer encode(Integer value,ByteBuffer buf)
+		{
+			buf = ensure(buf,4);
+			buf.putInt(value);
+			return buf;
+		}
+		
+		public Integer decode(ByteBuffer buf)
+		{
+			return buf.getInt();
+		}
+	}
+	
+	private static final class LongCodec extends AbstractCodec<Long>
+	{
+		LongCodec() { super(Long.class); }
+		
+		public ByteBuffer encode(Long value,ByteBuffer buf)
+		{
+			buf = ensure(buf,8);
+			buf.putLong(value);
+			return buf;
+		}
+		
+		public Long decode(ByteBuffer buf)
+		{
+			return buf.getLong();
+		}
+	}
+	
+	private static final class FloatCodec extends AbstractCodec<Float>
+	{
+		FloatCodec() { super(Float.class); }
+		
+		public ByteBuffer encode(Float value,ByteBuffer buf)
+		{
+			buf = ensure(buf,4);
+			buf.putFloat(value);
+			return buf;
+		}
+		
+		public Float decode(ByteBuffer buf)
+		{
+			return buf.getFloat();
+		}
+	}
+	
+	private static final class DoubleCodec extends AbstractCodec<Double>
+	{
+		DoubleCodec() { super(Double.class); }
+		
+		public ByteBuffer encode(Double value,ByteBuffer buf)
+		{
+			buf = ensure(buf,8);
+			buf.putDouble(value);
+			return buf;
+		}
+		
+		public Double decode(ByteBuffer buf)
+		{
+			return buf.getDouble();
+		}
+	}
+	
+	// packs eight values per byte
+	private static final class BooleanArrayCodec extends AbstractCodec<boolean[]>
+	{
+		BooleanArrayCodec() { super(boolean[].class); }
+		
+		public ByteBuffer encode(boolean [] value,ByteBuffer buf)
+		{
+			final int len = value.length;
+			buf = ensure(buf,MAX_VARINT + (len + 7) / 8);
+			putLength(buf,len);
+			for(int i = 0; i < len; i += 8)
+			{
+				int bits = 0;
+				for(int j = 0, n = Math.min(8,len - i); j < n; ++j)
+				{
+					if(value[i + j])
+						bits |= 1 << j;
+				}
+				buf.put((byte)bits);
+			}
+			return buf;
+		}
+		
+		public boolean[] decode(ByteBuffer buf) throws IOException
+		{
+			final int len = getLength(buf);
+			boolean [] value = new boolean[len];
+			for(int i = 0; i < len; i += 8)
+			{
+				int bits = buf.get();
+				for(int j = 0, n = Math.min(8,len - i); j < n; ++j)
+					value[i + j] = (bits & (1 << j)) != 0;
+			}
+			return value;
+		}
+	}
+	
+	private static final class ByteArrayCodec extends AbstractCodec<byte[]>
+	{
+		ByteArrayCodec() { super(byte[].class); }
+		
+		public ByteBuffer encode(byte [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length);
+			putLength(buf,value.length);
+			buf.put(value);
+			return buf;
+		}
+		
+		public byte[] decode(ByteBuffer buf) throws IOException
+		{
+			byte [] value = new byte[getLength(buf)];
+			buf.get(value);
+			return value;
+		}
+	}
+	
+	// the multi-byte array codecs bulk copy through a view buffer of the same byte order
+	
+	private static final class CharArrayCodec extends AbstractCodec<char[]>
+	{
+		CharArrayCodec() { super(char[].class); }
+		
+		public ByteBuffer encode(char [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 2);
+			putLength(buf,value.length);
+			buf.asCharBuffer().put(value);
+			buf.position(buf.position() + value.length * 2);
+			return buf;
+		}
+		
+		public char[] decode(ByteBuffer buf) throws IOException
+		{
+			char [] value = new char[getLength(buf)];
+			buf.asCharBuffer().get(value);
+			buf.position(buf.position() + value.length * 2);
+			return value;
+		}
+	}
+	
+	private static final class ShortArrayCodec extends AbstractCodec<short[]>
+	{
+		ShortArrayCodec() { super(short[].class); }
+		
+		public ByteBuffer encode(short [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 2);
+			putLength(buf,value.length);
+			buf.asShortBuffer().put(value);
+			buf.position(buf.position() + value.length * 2);
+			return buf;
+		}
+		
+		public short[] decode(ByteBuffer buf) throws IOException
+		{
+			short [] value = new short[getLength(buf)];
+			buf.asShortBuffer().get(value);
+			buf.position(buf.position() + value.length * 2);
+			return value;
+		}
+	}
+	
+	private static final class IntArrayCodec extends AbstractCodec<int[]>
+	{
+		IntArrayCodec() { super(int[].class); }
+		
+		public ByteBuffer encode(int [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 4);
+			putLength(buf,value.length);
+			buf.asIntBuffer().put(value);
+			buf.position(buf.position() + value.length * 4);
+			return buf;
+		}
+		
+		public int[] decode(ByteBuffer buf) throws IOException
+		{
+			int [] value = new int[getLength(buf)];
+			buf.asIntBuffer().get(value);
+			buf.position(buf.position() + value.length * 4);
+			return value;
+		}
+	}
+	
+	private static final class LongArrayCodec extends AbstractCodec<long[]>
+	{
+		LongArrayCodec() { super(long[].class); }
+		
+		public ByteBuffer encode(long [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 8);
+			putLength(buf,value.length);
+			buf.asLongBuffer().put(value);
+			buf.position(buf.position() + value.length * 8);
+			return buf;
+		}
+		
+		public long[] decode(ByteBuffer buf) throws IOException
+		{
+			long [] value = new long[getLength(buf)];
+			buf.asLongBuffer().get(value);
+			buf.position(buf.position() + value.length * 8);
+			return value;
+		}
+	}
+	
+	private static final class FloatArrayCodec extends AbstractCodec<float[]>
+	{
+		FloatArrayCodec() { super(float[].class); }
+		
+		public ByteBuffer encode(float [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 4);
+			putLength(buf,value.length);
+			buf.asFloatBuffer().put(value);
+			buf.position(buf.position() + value.length * 4);
+			return buf;
+		}
+		
+		public float[] decode(ByteBuffer buf) throws IOException
+		{
+			float [] value = new float[getLength(buf)];
+			buf.asFloatBuffer().get(value);
+			buf.position(buf.position() + value.length * 4);
+			return value;
+		}
+	}
+	
+	private static final class DoubleArrayCodec extends AbstractCodec<double[]>
+	{
+		DoubleArrayCodec() { super(double[].class); }
+		
+		public ByteBuffer encode(double [] value,ByteBuffer buf)
+		{
+			buf = ensure(buf,MAX_VARINT + value.length * 8);
+			putLength(buf,value.length);
+			buf.asDoubleBuffer().put(value);
+			buf.position(buf.position() + value.length * 8);
+			return buf;
+		}
+		
+		public double[] decode(ByteBuffer buf) throws IOException
+		{
+			double [] value = new double[getLength(buf)];
+			buf.asDoubleBuffer().get(value);
+			buf.position(buf.position() + value.length * 8);
+			return value;
+		}
+	}
+	
+	private static final class SerializableCodec extends AbstractCodec<Serializable>
+	{
+		SerializableCodec() { super(Serializable.class); }
+		
+		public ByteBuffer encode(Serializable value,ByteBuffer buf) throws IOException
+		{
+			// reserve space for the length
+			buf = ensure(buf,4);
+			final int lenPos = buf.position();
+			buf.position(lenPos + 4);
+			buf = ByteUtils.getObjectBytes(value, buf);
+			// getObjectBytes returns the buffer flipped
+			final int end = buf.limit();
+			buf.limit(buf.capacity());
+			buf.putInt(lenPos, end - lenPos - 4);
+			buf.position(end);
+			return buf;
+		}
+		
+		public Serializable decode(ByteBuffer buf) throws IOException
+		{
+			final int len = buf.getInt();
+			// ObjectInputStream may read ahead so restrict it to this object
+			ByteBuffer src = buf.duplicate();
+			src.limit(src.position() + len);
+			ObjectInputStream in = null;
+			try
+			{
+				in = new ObjectInputStream(new ByteBufferInputStream(src));
+				Serializable value = (Serializable)in.readObject();
+				buf.position(buf.position() + len);
+				return value;
+			}
+			catch(ClassNotFoundException e)
+			{
+				throw (IOException)new InvalidClassException(e.getMessage()).initCause(e);
+			}
+			finally
+			{
+				MiscUtils.closeStream(in);
+			}
+		}
+	}
+	
+	private static final class ObjectCodec extends AbstractCodec<Object>
+	{
+		ObjectCodec() { super(Object.class); }
+		
+		@SuppressWarnings("unchecked")
+		public ByteBuffer encode(Object value,ByteBuffer buf) throws IOException
+		{
+			buf = ensure(buf,1);
+			if(value == null)
+			{
+				buf.put(TAG_NULL);
+				return buf;
+			}
+			Class<?> type = value.getClass();
+			Integer tag = builtinTags.get(type);
+			if(tag != null)
+			{
+				buf.put((byte)tag.intValue());
+				return ((Codec<Object>)builtins.get(tag - TAG_BUILTIN)).encode(value, buf);
+			}
+			Codec<Object> codec = (Codec<Object>)registry.get(type);
+			if(codec != null && codec != this)
+			{
+				buf.put(TAG_REGISTERED);
+				buf = STRING.encode(type.getName(), buf);
+				return codec.encode(value, buf);
+			}
+			if(value instanceof Serializable)
+			{
+				buf.put(TAG_SERIALIZABLE);
+				return SERIALIZABLE.encode((Serializable)value, buf);
+			}
+			throw new NotSerializableException(type.getName());
+		}
+		
+		public Object decode(ByteBuffer buf) throws IOException
+		{
+			int tag = buf.get();
+			switch(tag)
+			{
+				case TAG_NULL:
+					return null;
+				case TAG_SERIALIZABLE:
+					return SERIALIZABLE.decode(buf);
+				case TAG_REGISTERED:
+				{
+					String name = STRING.decode(buf);
+					Codec<?> codec = registryByName.get(name);
+					if(codec == null)
+						throw new InvalidClassException(name,"no codec registered");
+					return codec.decode(buf);
+				}
+				default:
+				{
+					int index = tag - TAG_BUILTIN;
+					if(index < 0 || index >= builtins.size())
+						throw new StreamCorruptedException("unknown codec tag=" + tag);
+					return builtins.get(index).decode(buf);
+				}
+			}
+		}
+	}
+}
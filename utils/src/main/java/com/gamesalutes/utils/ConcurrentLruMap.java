@@ -0,0 +1,676 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe Least-recently used (LRU) bounded map for caches shared between many threads.
+ * <p>
+ * Unlike wrapping an {@link LruMap} with <code>Collections.synchronizedMap</code>, which serializes every 
+ * <code>get</code> on one monitor in order to update the access order, the entries are striped across a
+ * number of independently locked segments.  Each segment maintains its own access order and evicts its own
+ * least recently used entry when it exceeds its share of the maximum size, so threads touching different
+ * segments never contend.  The LRU order is therefore approximate across the whole map, but the total
+ * number of entries never exceeds {@link #getMaxSize()}.
+ * <p>
+ * As with <code>LruMap</code>, the LRU order is only affected by {@link #get(Object)} and the <code>put</code>
+ * and <code>replace</code> methods.  Iterators are weakly consistent: they never throw <code>ConcurrentModificationException</code>
+ * and traverse a per-segment snapshot of the entries.  <code>null</code> keys and values are not permitted.
+ * <p>
+ * Registered {@link AutoMapRemovalListener AutoMapRemovalListeners} are notified of each eviction after the
+ * segment lock has been released.
+ * 
+ * @author jmontgomery
+ *
+ * @param <K> the key
+ * @param <V> the value
+ */
+public class ConcurrentLruMap<K,V> extends AbstractMap<K,V> implements ConcurrentMap<K,V>
+{
+	protected static final float LOAD_FACTOR = 0.75f;
+	protected static final int DEFAULT_MAX_SIZE = 16;
+	protected static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+	
+	/**
+	 * Segments are not split below this size so that small caches keep a useful LRU order.
+	 */
+	private static final int MIN_SEGMENT_SIZE = 16;
+	
+	private final int maxSize;
+	private final Segment<K,V> [] segments;
+	private final int segmentMask;
+	
+	private final Set<AutoMapRemovalListener<K, V>> removalListeners = 
+		new CopyOnWriteArraySet<AutoMapRemovalListener<K, V>>();
+	
+	private Set<Map.Entry<K, V>> entrySet;
+	
+	/**
+	 * Creates an empty map with a max entry capacity of 16.
+	 * 
+	 */
+	public ConcurrentLruMap()
+	{
+		this(DEFAULT_MAX_SIZE,DEFAULT_CONCURRENCY_LEVEL);
+	}
+	
+	/**
+	 * Constructs an empty map with the specified number of max entries and the default concurrency level of 16.
+	 * 
+	 * @param maxEntries the maximum number of entries permitted
+	 * @throws IllegalArgumentException if <code>maxEntries &lt; 0</code>
+	 */
+	public ConcurrentLruMap(int maxEntries)
+	{
+		this(maxEntries,DEFAULT_CONCURRENCY_LEVEL);
+	}
+	
+	/**
+	 * Constructs an empty map with the specified number of max entries and concurrency level.
+	 * 
+	 * @param maxEntries the maximum number of entries permitted
+	 * @param concurrencyLevel the estimated number of concurrently updating threads.  The number of 
+	 *        segments is the largest power of two not exceeding this value, reduced for small 
+	 *        <code>maxEntries</code> 
+	 * @throws IllegalArgumentException if <code>maxEntries &lt; 0</code> or <code>concurrencyLevel &lt;= 0</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLruMap(int maxEntries,int concurrencyLevel)
+	{
+		if(maxEntries < 0)
+			throw new IllegalArgumentException("maxEntries = " + maxEntries + " < 0");
+		if(concurrencyLevel <= 0)
+			throw new IllegalArgumentException("concurrencyLevel = " + concurrencyLevel + " <= 0");
+		
+		this.maxSize = maxEntries;
+		
+		int numSegments = 1;
+		while(numSegments * 2 <= concurrencyLevel && 
+			 (long)numSegments * 2 * MIN_SEGMENT_SIZE <= maxEntries)
+			numSegments *= 2;
+		
+		this.segmentMask = numSegments - 1;
+		this.segments = new Segment[numSegments];
+		// distribute the capacity exactly so that the sum of the segment bounds is maxEntries
+		for(int i = 0; i < numSegments; ++i)
+		{
+			int segmentMax = maxEntries / numSegments + (i < maxEntries % numSegments ? 1 : 0);
+			segments[i] = new Segment<K,V>(segmentMax);
+		}
+	}
+	
+	/**
+	 * Constructs a <code>ConcurrentLruMap</code> from the specified <code>Map</code>.  The maximum number
+	 * of entries permitted is equal to <code>m.size()</code>.
+	 * 
+	 * @param m the input map
+	 */
+	public ConcurrentLruMap(Map<? extends K,? extends V> m)
+	{
+		this(m.size(),DEFAULT_CONCURRENCY_LEVEL);
+		putAll(m);
+	}
+	
+	public final int getMaxSize() { return maxSize; }
+	
+	public boolean addAutoRemovalListener(AutoMapRemovalListener<K, V> l)
+	{
+		if(l == null)
+			throw new NullPointerException("l");
+		return removalListeners.add(l);
+	}
+	public boolean removeAutoRemovalListener(AutoMapRemovalListener<K, V> l)
+	{
+		return removalListeners.remove(l);
+	}
+	
+	/**
+	 * Returns the number of {@link #get(Object)} calls that found a mapping.
+	 * 
+	 * @return the hit count
+	 */
+	public long getHitCount()
+	{
+		long count = 0;
+		for(Segment<K,V> s : segments)
+			count += s.hits;
+		return count;
+	}
+	
+	/**
+	 * Returns the number of {@link #get(Object)} calls that did not find a mapping.
+	 * 
+	 * @return the miss count
+	 */
+	public long getMissCount()
+	{
+		long count = 0;
+		for(Segment<K,V> s : segments)
+			count += s.misses;
+		return count;
+	}
+	
+	/**
+	 * Returns the number of entries that were evicted to keep the map within its maximum size.
+	 * 
+	 * @return the eviction count
+	 */
+	public long getEvictionCount()
+	{
+		long count = 0;
+		for(Segment<K,V> s : segments)
+			count += s.evictions;
+		return count;
+	}
+	
+	/**
+	 * Returns the ratio of hits to total <code>get</code> calls or <code>1.0</code> if there
+	 * were no calls.
+	 * 
+	 * @return the hit rate
+	 */
+	public double getHitRate()
+	{
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 1.0 : (double)hits / total;
+	}
+	
+	/**
+	 * Resets the hit, miss and eviction counters to zero.
+	 * 
+	 */
+	public void resetStatistics()
+	{
+		for(Segment<K,V> s : segments)
+		{
+			s.lock();
+			try
+			{
+				s.hits = s.misses = s.evictions = 0;
+			}
+			finally
+			{
+				s.unlock();
+			}
+		}
+	}
+	
+	private static int hash(Object key)
+	{
+		// spread the bits so that keys with poor hash codes still use all segments
+		int h = key.hashCode();
+		h += (h <<  15) ^ 0xffffcd7d;
+		h ^= (h >>> 10);
+		h += (h <<   3);
+		h ^= (h >>>  6);
+		h += (h <<   2) + (h << 14);
+		return h ^ (h >>> 16);
+	}
+	
+	private Segment<K,V> segmentFor(Object key)
+	{
+		if(key == null)
+			throw new NullPointerException("key");
+		return segments[hash(key) & segmentMask];
+	}
+	
+	private void notifyListeners(Map.Entry<K, V> e)
+	{
+		if(e == null) return;
+		for(AutoMapRemovalListener<K, V> l : removalListeners)
+			l.entryRemoved(e);
+	}
+	
+	@Override
+	public V get(Object key)
+	{
+		return segmentFor(key).get(key);
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return segmentFor(key).containsKey(key);
+	}
+	
+	@Override
+	public boolean containsValue(Object value)
+	{
+		if(value == null)
+			throw new NullPointerException("value");
+		for(Segment<K,V> s : segments)
+		{
+			if(s.containsValue(value))
+				return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public V put(K key, V value)
+	{
+		return put(key,value,false);
+	}
+	
+	public V putIfAbsent(K key, V value)
+	{
+		return put(key,value,true);
+	}
+	
+	private V put(K key, V value,boolean onlyIfAbsent)
+	{
+		if(value == null)
+			throw new NullPointerException("value");
+		Segment<K,V> s = segmentFor(key);
+		V prev;
+		Map.Entry<K,V> evicted;
+		s.lock();
+		try
+		{
+			prev = onlyIfAbsent ? s.map.get(key) : null;
+			if(prev == null)
+				prev = s.map.put(key, value);
+			evicted = s.evicted;
+			s.evicted = null;
+		}
+		finally
+		{
+			s.unlock();
+		}
+		notifyListeners(evicted);
+		return prev;
+	}
+	
+	@Override
+	public V remove(Object key)
+	{
+		Segment<K,V> s = segmentFor(key);
+		s.lock();
+		try
+		{
+			return s.map.remove(key);
+		}
+		finally
+		{
+			s.unlock();
+		}
+	}
+	
+	public boolean remove(Object key, Object value)
+	{
+		if(value == null) return false;
+		Segment<K,V> s = segmentFor(key);
+		s.lock();
+		try
+		{
+			if(value.equals(s.map.get(key)))
+			{
+				s.map.remove(key);
+				return true;
+			}
+			return false;
+		}
+		finally
+		{
+			s.unlock();
+		}
+	}
+	
+	public V replace(K key, V value)
+	{
+		if(value == null)
+			throw new NullPointerException("value");
+		Segment<K,V> s = segmentFor(key);
+		s.lock();
+		try
+		{
+			if(s.map.containsKey(key))
+				return s.map.put(key, value);
+			return null;
+		}
+		finally
+		{
+			s.unlock();
+		}
+	}
+	
+	public boolean replace(K key, V oldValue, V newValue)
+	{
+		if(oldValue == null || newValue == null)
+			throw new NullPointerException("value");
+		Segment<K,V> s = segmentFor(key);
+		s.lock();
+		try
+		{
+			if(oldValue.equals(s.map.get(key)))
+			{
+				s.map.put(key, newValue);
+				return true;
+			}
+			return false;
+		}
+		finally
+		{
+			s.unlock();
+		}
+	}
+	
+	@Override
+	public void clear()
+	{
+		for(Segment<K,V> s : segments)
+		{
+			s.lock();
+			try
+			{
+				s.map.clear();
+			}
+			finally
+			{
+				s.unlock();
+			}
+		}
+	}
+	
+	@Override
+	public int size()
+	{
+		long size = 0;
+		for(Segment<K,V> s : segments)
+			size += s.size();
+		return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)size;
+	}
+	
+	@Override
+	public boolean isEmpty()
+	{
+		for(Segment<K,V> s : segments)
+		{
+			if(s.size() != 0)
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public Set<Map.Entry<K, V>> entrySet()
+	{
+		if(entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+	
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>>
+	{
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator()
+		{
+			return new EntryIterator();
+		}
+		@Override
+		public int size()
+		{
+			return ConcurrentLruMap.this.size();
+		}
+		@Override
+		public boolean contains(Object o)
+		{
+			if(!(o instanceof Map.Entry<?,?>)) return false;
+			Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+			if(e.getKey() == null) return false;
+			return segmentFor(e.getKey()).containsEntry(e.getKey(), e.getValue());
+		}
+		@Override
+		public boolean remove(Object o)
+		{
+			if(!(o instanceof Map.Entry<?,?>)) return false;
+			Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+			if(e.getKey() == null) return false;
+			return ConcurrentLruMap.this.remove(e.getKey(), e.getValue());
+		}
+		@Override
+		public void clear()
+		{
+			ConcurrentLruMap.this.clear();
+		}
+	}
+	
+	/**
+	 * Iterates over a snapshot of one segment at a time in LRU order within the segment.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>>
+	{
+		private int segmentIndex;
+		private Iterator<Map.Entry<K,V>> current;
+		private Map.Entry<K,V> last;
+		
+		public boolean hasNext()
+		{
+			while(current == null || !current.hasNext())
+			{
+				if(segmentIndex >= segments.length)
+					return false;
+				current = segments[segmentIndex++].snapshot().iterator();
+			}
+			return true;
+		}
+		
+		public Map.Entry<K, V> next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			Map.Entry<K,V> e = current.next();
+			last = new WriteThroughEntry(e.getKey(),e.getValue());
+			return last;
+		}
+		
+		public void remove()
+		{
+			if(last == null)
+				throw new IllegalStateException();
+			ConcurrentLruMap.this.remove(last.getKey(),last.getValue());
+			last = null;
+		}
+	}
+	
+	/**
+	 * Snapshot entry whose <code>setValue</code> writes through to the map.
+	 */
+	private final class WriteThroughEntry extends AbstractMap.SimpleEntry<K,V>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		WriteThroughEntry(K key,V value)
+		{
+			super(key,value);
+		}
+		
+		@Override
+		public V setValue(V value)
+		{
+			if(value == null)
+				throw new NullPointerException("value");
+			V prev = super.setValue(value);
+			ConcurrentLruMap.this.put(getKey(), value);
+			return prev;
+		}
+	}
+	
+	private static final class Segment<K,V> extends ReentrantLock
+	{
+		private static final long serialVersionUID = 1L;
+		
+		final LinkedHashMap<K,V> map;
+		// entry removed by the last put, to be reported outside of the lock
+		Map.Entry<K,V> evicted;
+		
+		// statistics guarded by the segment lock; reads of the totals are best effort
+		volatile long hits;
+		volatile long misses;
+		volatile long evictions;
+		volatile int size;
+		
+		Segment(final int maxSize)
+		{
+			map = new LinkedHashMap<K,V>(
+					CollectionUtils.calcHashCapacity(Math.max(maxSize,1),LOAD_FACTOR),LOAD_FACTOR,true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public V put(K key,V value)
+				{
+					V prev = super.put(key, value);
+					size = size();
+					return prev;
+				}
+				@Override
+				public V remove(Object key)
+				{
+					V prev = super.remove(key);
+					size = size();
+					return prev;
+				}
+				@Override
+				public void clear()
+				{
+					super.clear();
+					size = 0;
+				}
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+				{
+					boolean removed = size() > maxSize;
+					if(removed)
+					{
+						evicted = new AbstractMap.SimpleImmutableEntry<K,V>(eldest);
+						++evictions;
+					}
+					return removed;
+				}
+			};
+		}
+		
+		int size()
+		{
+			return size;
+		}
+		
+		V get(Object key)
+		{
+			lock();
+			try
+			{
+				V value = map.get(key);
+				if(value != null)
+					++hits;
+				else
+					++misses;
+				return value;
+			}
+			finally
+			{
+				unlock();
+			}
+		}
+		
+		boolean containsKey(Object key)
+		{
+			lock();
+			try
+			{
+				return map.containsKey(key);
+			}
+			finally
+			{
+				unlock();
+			}
+		}
+		
+		boolean containsValue(Object value)
+		{
+			lock();
+			try
+			{
+				return map.containsValue(value);
+			}
+			finally
+			{
+				unlock();
+			}
+		}
+		
+		boolean containsEntry(Object key,Object value)
+		{
+			lock();
+			try
+			{
+				// scan rather than call get so that the access order is untouched
+				if(!map.containsKey(key)) return false;
+				for(Map.Entry<K,V> e : map.entrySet())
+				{
+					if(e.getKey().equals(key))
+						return e.getValue().equals(value);
+				}
+				return false;
+			}
+			finally
+			{
+				unlock();
+			}
+		}
+		
+		List<Map.Entry<K,V>> snapshot()
+		{
+			lock();
+			try
+			{
+				List<Map.Entry<K,V>> entries = new ArrayList<Map.Entry<K,V>>(map.size());
+				for(Map.Entry<K,V> e : map.entrySet())
+					entries.add(new AbstractMap.SimpleImmutableEntry<K,V>(e));
+				return entries;
+			}
+			finally
+			{
+				unlock();
+			}
+		}
+	}
+}
@@ -46,8 +46,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
@@ -82,6 +85,8 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
 	private transient ByteBuffer buf;
 	private transient boolean persist;
 	private transient MetaData<K> meta;
+	// null to use serialization
+	private transient Codec<V> codec;
 	
 	private static final long serialVersionUID = 1L;
 	
@@ -185,6 +190,10 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
      {
 		 out.defaultWriteObject(); 
 		 out.writeObject(meta.file);
+		 // the codec is restored from the Codecs registry
+		 if(codec != null && Codecs.lookup(codec.getType()) != codec)
+			 throw new NotSerializableException("codec=" + codec + " not registered");
+		 out.writeObject(codec != null ? codec.getType() : null);
      }
 	 
 	 private void readObject(java.io.ObjectInputStream in)
@@ -193,9 +202,22 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
 		 //read in default state
 		 in.defaultReadObject();
 		 File f = (File)in.readObject();
+		 Class<?> codecType = null;
+		 try
+		 {
+			 codecType = (Class<?>)in.readObject();
+		 }
+		 // written before codecs were supported
+		 catch(OptionalDataException e) {}
 		 
 		 // reconstruct meta data
 		 init(f);
+		 if(codecType != null)
+		 {
+			 codec = (Codec<V>)Codecs.lookup(codecType);
+			 if(codec == null)
+				 throw new InvalidObjectException("no codec registered for " + codecType.getName());
+		 }
      }
 	/**
 	 * Constructor.
@@ -272,6 +294,22 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
 	{
 		init(tmpDir,prefix,persist);
 	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param tmpDir directory to create resources for this object
+	 * @param prefix the prefix name to give to the temporary file(s)
+	 * @param persist <code>true</code> to keep the data file between instances
+	 * @param codec the <code>Codec</code> used to store the values or <code>null</code> to use serialization.
+	 *        If this retriever is serialized, <code>codec</code> must be registered with {@link Codecs}
+	 */
+	public FileProxyRetriever(File tmpDir,String prefix,boolean persist,Codec<V> codec)
+		throws IOException
+	{
+		init(tmpDir,prefix,persist);
+		this.codec = codec;
+	}
 	/* (non-Javadoc)
 	 * @see com.gamesalutes.utils.ProxyRetriever#lookup(java.lang.Object)
 	 */
@@ -325,6 +363,8 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
 	private V readObject()
 		throws Exception
 	{
+		if(codec != null)
+			return codec.decode(buf);
 		ObjectInputStream in = null;
 		try
 		{
@@ -341,6 +381,11 @@ public class FileProxyRetriever<K,V> implements ProxyRetriever<K, V>,Serializabl
 	private void writeObject(V object)
 		throws IOException
 	{
+		if(codec != null)
+		{
+			buf = codec.encode(object, buf);
+			return;
+		}
 		ObjectOutputStream out = null;
 		try
 		{
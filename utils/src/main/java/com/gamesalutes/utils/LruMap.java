@@ -53,7 +53,8 @@ import java.util.Map.Entry;
  * is only affected by calls to {@link #put(Object, Object)}, {@link #putAll(Map)}, and {@link #get(Object)}.  No
  * other method calls, including method calls on returned iterators of the map affect the LRU ordering. 
  * This implementation is unsynchronized. Synchronization can be obtained by wrapping this 
- * Collection in a synchronized map using <code>Collections.synchronizedMap</code>.
+ * Collection in a synchronized map using <code>Collections.synchronizedMap</code>, or for caches shared by
+ * many threads see {@link ConcurrentLruMap}, which does not serialize readers on a single lock.
  * 
  * @author Justin Montgomery
  * @version $Id: LruMap.java 1168 2008-11-04 22:40:48Z jmontgomery $
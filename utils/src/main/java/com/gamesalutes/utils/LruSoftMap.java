@@ -50,6 +50,10 @@ import static com.gamesalutes.utils.LruMap.*;
  * <i><b>not Serializable nor Cloneable</b></i>.  It also does not return its entries in a predictable manner.
  * This implementation is unsynchronized. Synchronization can be obtained by wrapping this 
  * Collection in a synchronized map using <code>Collections.synchronizedMap</code>.
+ * <p>
+ * All entries live in a single <code>SoftHashMap</code> table.  The <code>maxEntries</code> most recently
+ * used entries additionally hold their keys strongly; when an entry falls out of that window it is only
+ * softly reachable, so no entry is ever copied between maps.
  * 
  * 
  * @author Justin Montgomery
@@ -57,44 +61,22 @@ import static com.gamesalutes.utils.LruMap.*;
  */
 public final class LruSoftMap<K,V> extends ConvenienceAbstractMap<K,V>
 {
-	// map that maintains the soft entries that get purged from the LruMap
-	private final SoftHashMap<K,V> softMap;
-	private final LruMap<K,V> lruMap;
-	
-//	private final AutoMapRemovalListener<K, V> softMapListener = 
-//		new SoftMapListener();
-	private final AutoMapRemovalListener<K,V> lruMapListener =
-		new LruMapListener();
-	
-	private static final float MAX_ENTRY_MULT = 0.25f;
+	private final SoftHashMap<K,V> map;
 	
 	public LruSoftMap()
 	{
-		SoftHashMap<K,V> m = new SoftHashMap<K,V>(
-				CollectionUtils.calcHashCapacity((int)(LruMap.DEFAULT_MAX_SIZE * MAX_ENTRY_MULT),
-						LruMap.LOAD_FACTOR),LruMap.LOAD_FACTOR);
-//		m.addAutoRemovalListener(softMapListener);
-		softMap = m;
-		lruMap = new LruMap<K,V>();
-		lruMap.addAutoRemovalListener(lruMapListener);
+		this(DEFAULT_MAX_SIZE,LOAD_FACTOR);
 	}
 	public LruSoftMap(int maxEntries, float loadFactor) 
 	{
-		lruMap = new LruMap<K,V>(maxEntries,loadFactor);
-		lruMap.addAutoRemovalListener(lruMapListener);
-		SoftHashMap<K,V> m = new SoftHashMap<K,V>(
-				CollectionUtils.calcHashCapacity((int)(maxEntries * MAX_ENTRY_MULT), loadFactor),loadFactor);
-//		m.addAutoRemovalListener(softMapListener);
-		softMap = m;
+		if(maxEntries < 0)
+			throw new IllegalArgumentException("maxEntries = " + maxEntries + " < 0");
+		map = new SoftHashMap<K,V>(
+				CollectionUtils.calcHashCapacity(maxEntries, loadFactor),loadFactor,maxEntries);
 	}
 	public LruSoftMap(int maxEntries) 
 	{
-		lruMap = new LruMap<K,V>(maxEntries);
-		lruMap.addAutoRemovalListener(lruMapListener);
-		SoftHashMap<K,V> m = new SoftHashMap<K,V>(
-				CollectionUtils.calcHashCapacity((int)(maxEntries * MAX_ENTRY_MULT), LOAD_FACTOR),LOAD_FACTOR);
-//		m.addAutoRemovalListener(softMapListener);
-		softMap = m;
+		this(maxEntries,LOAD_FACTOR);
 	}
 	public LruSoftMap(Map<? extends K, ? extends V> m)
 	{
@@ -104,164 +86,60 @@ public final class LruSoftMap<K,V> extends ConvenienceAbstractMap<K,V>
 	
 	public void clear() 
 	{
-		lruMap.clear();
-		softMap.clear();
-//		clearView();
+		map.clear();
 	}
 	
 	public boolean containsValue(Object value)
 	{
-		boolean result =  lruMap.containsValue(value);
-		if(!result)
-			result = softMap.containsValue(value);
-		return result;
+		return map.containsValue(value);
 	}
 	public V get(Object key) 
 	{
-		//System.out.println("LruSoftMapSize=" + size() + " time = " + new java.util.Date());
-		V result = lruMap.get(key);
-		if(result == null)
-			result = softMap.get(key);
-		return result;
+		return map.get(key);
 	}
 	
 	public boolean containsKey(Object key) 
 	{
-		boolean result = lruMap.containsKey(key);
-		if(!result)
-			result = softMap.containsKey(key);
-		return result;
+		return map.containsKey(key);
 	}
 	
 	public boolean isEmpty()
 	{
-		return lruMap.isEmpty() && softMap.isEmpty();
+		return map.isEmpty();
 	}
 	
 	public V put(K key, V value) 
 	{
-		// remove from soft map
-		boolean changed = false;
-		V prev = null;
-		if(softMap.containsKey(key))
-		{
-			changed = true;
-			prev = softMap.remove(key);
-		}
-		
-		// add it to LRU map
-		if(lruMap.containsKey(key))
-		{
-			changed = true;
-			prev = lruMap.put(key, value);
-		}
-		else
-			lruMap.put(key, value);
-
-//		if(changed)
-//			clearView();
-		return prev;
-			
+		return map.put(key, value);
 	}
 	
 	public void putAll(Map<? extends K, ? extends V> m) 
 	{
-		// remove all from soft map
-		for(K key : m.keySet())
-			softMap.remove(key);
-//		clearView();
-		lruMap.putAll(m);
+		map.putAll(m);
 	}
 	
 	public V remove(Object key) 
 	{
-		// remove from soft map
-		boolean changed = false;
-		V prev = null;
-		if(softMap.containsKey(key))
-		{
-			changed = true;
-			prev = softMap.remove(key);
-		}
-		if(lruMap.containsKey(key))
-		{
-			// remove it from the LRU map
-			prev = lruMap.remove(key);
-			changed = true;
-		}
-
-//		if(changed)
-//			clearView();
-		return prev;
+		return map.remove(key);
 	}
 	
 	public int size() 
 	{
-		return lruMap.size() + softMap.size();
+		return map.size();
 	}
 	
-	
-	@Override
-	public void initKeys(Set<K> keys)
+	/**
+	 * Explicitly purges entries whose keys have been garbage-collected.
+	 * 
+	 */
+	public void purge()
 	{
-		keys.addAll(lruMap.keySet());
-		keys.addAll(softMap.keySet());
-	}
-	
-	/*
-	private Object writeReplace() throws ObjectStreamException
-	{
-		throw new NotSerializableException();
-	}
-	private Object readResolve() throws ObjectStreamException
-	{
-		throw new NotSerializableException();
+		map.purge();
 	}
 	
 	@Override
-	public LruSoftMap<K,V> clone()
+	public void initKeys(Set<K> keys)
 	{
-		throw new UnsupportedOperationException();
+		keys.addAll(map.keySet());
 	}
-	*/
-	
-    
-   
-    
-//    private final class SoftMapListener implements AutoMapRemovalListener<K, V>
-//    {
-//
-//		/* (non-Javadoc)
-//		 * @see com.gamesalutes.utils.SoftHashMap.AutoRemovalListener#entryRemoved()
-//		 */
-//		public void entryRemoved(Map.Entry<K, V> e) 
-//		{
-//			clearView();
-//		}
-//    	
-//    }
-    
-    private final class LruMapListener implements AutoMapRemovalListener<K,V>
-    {
-
-		/* (non-Javadoc)
-		 * @see com.gamesalutes.utils.AutoMapRemovalListener#entryRemoved(java.util.Map.Entry)
-		 */
-		public void entryRemoved(Map.Entry<K, V> e)
-		{
-			// add it to the soft map if it is being removed from the LruMap
-			softMap.put(e.getKey(), e.getValue());
-			
-			//System.out.println("lruMapSize=" + lruMap.size());
-		}
-    	
-    }
-
-// caching the view prevents the entries in the soft map from being collected!!!
-//	@Override
-//	protected boolean cacheView() { return true; }
-    
-
-
-
 }
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <code>ProxyRetriever</code> that stores proxy data in memory-mapped segments of a temporary file.
+ * All optional methods are implemented.
+ * <p>
+ * Unlike {@link FileProxyRetriever}, which serializes every operation on one monitor and copies each 
+ * block through a heap buffer, lookups hold only a read lock and deserialize straight from the mapped
+ * region, so many threads read at page-cache speed at once.  Values are encoded with a {@link Codec}, by default
+ * {@link Codecs#OBJECT}, outside of any lock and writers hold the write lock only while allocating a block and copying the bytes.
+ * <p>
+ * Blocks are allocated with capacities rounded up to {@link #BLOCK_ALIGNMENT} bytes.  Freed blocks are kept
+ * in a best-fit free list keyed by capacity and an updated value is rewritten in place when it still fits 
+ * its block.  A value larger than the segment size gets a dedicated segment.  The data is not persisted:
+ * the file is deleted on {@link #dispose()}.
+ * 
+ * @author jmontgomery
+ *
+ * @param <K> the key
+ * @param <V> the value
+ */
+public class MappedFileProxyRetriever<K,V> implements ProxyRetriever<K, V>
+{
+	/**
+	 * Default size of each mapped segment: 64 MB.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * Block capacities are multiples of this many bytes.
+	 */
+	public static final int BLOCK_ALIGNMENT = 64;
+	
+	// serialization buffers larger than this are not retained between calls
+	private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+	
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel fileData;
+	private final int segmentSize;
+	private final Codec<V> codec;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	// all guarded by lock
+	private final List<Segment> segments = new ArrayList<Segment>();
+	private final Map<K,Block> mappedBlocks = new HashMap<K,Block>();
+	private final Map<K,V> cache = new HashMap<K,V>();
+	// free blocks by capacity for best-fit allocation
+	private final TreeMap<Integer,List<Block>> freeBlocks = new TreeMap<Integer,List<Block>>();
+	private long fileSize;
+	private boolean disposed;
+	
+	private final ThreadLocal<ByteBuffer> serializeBuffer = new ThreadLocal<ByteBuffer>()
+	{
+		@Override
+		protected ByteBuffer initialValue()
+		{
+			return ByteBuffer.allocate(8 * 1024);
+		}
+	};
+	
+	private static final class Segment
+	{
+		final MappedByteBuffer buf;
+		// bump allocation pointer
+		int used;
+		
+		Segment(MappedByteBuffer buf)
+		{
+			this.buf = buf;
+		}
+	}
+	
+	private static final class Block
+	{
+		final int segment;
+		final int offset;
+		final int capacity;
+		int length;
+		
+		Block(int segment,int offset,int capacity)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.capacity = capacity;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return new StringBuilder("[segment=").append(segment).append(";offset=").append(offset)
+				.append(";capacity=").append(capacity).append(";length=").append(length).append("]").toString();
+		}
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param tmpDir directory to create resources for this object
+	 * @param prefix the prefix name to give to the temporary file
+	 */
+	public MappedFileProxyRetriever(File tmpDir,String prefix) throws IOException
+	{
+		this(tmpDir,prefix,DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param tmpDir directory to create resources for this object
+	 * @param prefix the prefix name to give to the temporary file
+	 * @param segmentSize the size in bytes of each mapped segment
+	 */
+	@SuppressWarnings("unchecked")
+	public MappedFileProxyRetriever(File tmpDir,String prefix,int segmentSize) throws IOException
+	{
+		this(tmpDir,prefix,segmentSize,(Codec<V>)Codecs.OBJECT);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param tmpDir directory to create resources for this object
+	 * @param prefix the prefix name to give to the temporary file
+	 * @param segmentSize the size in bytes of each mapped segment
+	 * @param codec the <code>Codec</code> used to store the values
+	 */
+	public MappedFileProxyRetriever(File tmpDir,String prefix,int segmentSize,Codec<V> codec) throws IOException
+	{
+		if(tmpDir == null)
+			throw new NullPointerException("tmpDir");
+		if(prefix == null)
+			throw new NullPointerException("prefix");
+		if(codec == null)
+			throw new NullPointerException("codec");
+		if(segmentSize < BLOCK_ALIGNMENT)
+			throw new IllegalArgumentException("segmentSize=" + segmentSize + " < " + BLOCK_ALIGNMENT);
+		tmpDir.mkdirs();
+		if(!tmpDir.isDirectory())
+			throw new IllegalArgumentException("tmpDir=" + tmpDir + " not a dir");
+		
+		this.segmentSize = align(segmentSize);
+		this.codec = codec;
+		this.file = File.createTempFile(prefix, ".bin", tmpDir);
+		this.raf = new RandomAccessFile(file,"rw");
+		this.fileData = raf.getChannel();
+	}
+	
+	private static int align(int len)
+	{
+		return (len + BLOCK_ALIGNMENT - 1) / BLOCK_ALIGNMENT * BLOCK_ALIGNMENT;
+	}
+	
+	private void checkDisposed()
+	{
+		if(disposed)
+			throw new IllegalStateException("MappedFileProxyRetriever disposed");
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.ProxyRetriever#lookup(java.lang.Object)
+	 */
+	public Pair<Boolean, V> lookup(K key) 
+	{
+		lock.readLock().lock();
+		try
+		{
+			checkDisposed();
+			Block b = mappedBlocks.get(key);
+			if(b == null)
+				return Pair.makePair(false, null);
+			if(cache.containsKey(key))
+				return Pair.makePair(true, cache.get(key));
+			
+			// the read lock keeps writers from reusing the block while it is read
+			try
+			{
+				return Pair.makePair(true, readObject(b));
+			}
+			catch(Exception e)
+			{
+				throw new RuntimeException("Unable to lookup key=" + key + ";block=" + b,e);
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	private V readObject(Block b)
+		throws Exception
+	{
+		// independent position and limit for each reader
+		ByteBuffer src = segments.get(b.segment).buf.duplicate();
+		src.limit(b.offset + b.length);
+		src.position(b.offset);
+		return codec.decode(src);
+	}
+	
+	/**
+	 * Encodes <code>value</code> into this thread's buffer.
+	 * 
+	 * @return the buffer positioned at the data
+	 */
+	private ByteBuffer writeObject(V value)
+	{
+		ByteBuffer buf = serializeBuffer.get();
+		buf.clear();
+		try
+		{
+			buf = ByteUtils.getObjectBytes(value, codec, buf);
+		}
+		catch(IOException e)
+		{
+			throw new RuntimeException("error serializing value=" + value,e);
+		}
+		if(buf.capacity() <= MAX_RETAINED_BUFFER)
+			serializeBuffer.set(buf);
+		return buf;
+	}
+	
+	public void put(K key,V value)
+	{
+		// serialize before taking the lock unless the value only needs to be cached
+		ByteBuffer data = null;
+		while(true)
+		{
+			lock.writeLock().lock();
+			try
+			{
+				checkDisposed();
+				// only necessary to store if not in cache
+				if(cache.containsKey(key))
+				{
+					cache.put(key, value);
+					return;
+				}
+				if(data != null)
+				{
+					storeData(key,data);
+					return;
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+			data = writeObject(value);
+		}
+	}
+	
+	public void update(K key,V value)
+	{
+		put(key,value);
+	}
+	
+	private void storeData(K key,ByteBuffer data)
+	{
+		final int len = data.remaining();
+		Block storage = mappedBlocks.get(key);
+		try
+		{
+			if(storage == null || storage.capacity < len)
+			{
+				if(storage != null)
+					free(mappedBlocks.remove(key));
+				storage = allocate(len);
+				mappedBlocks.put(key, storage);
+			}
+			ByteBuffer dst = segments.get(storage.segment).buf.duplicate();
+			dst.position(storage.offset);
+			dst.put(data);
+			storage.length = len;
+		}
+		catch(IOException e)
+		{
+			throw new RuntimeException("error putting [key=" + key + ";block=" + storage + "]",e);
+		}
+	}
+	
+	private Block allocate(int len)
+		throws IOException
+	{
+		int capacity = align(Math.max(len,1));
+		
+		// best fit from the free list
+		Map.Entry<Integer,List<Block>> fit = freeBlocks.ceilingEntry(capacity);
+		if(fit != null)
+		{
+			List<Block> blocks = fit.getValue();
+			Block b = blocks.remove(blocks.size() - 1);
+			if(blocks.isEmpty())
+				freeBlocks.remove(fit.getKey());
+			return b;
+		}
+		
+		// bump allocate from the last segment
+		if(!segments.isEmpty())
+		{
+			int index = segments.size() - 1;
+			Segment s = segments.get(index);
+			if(s.buf.capacity() - s.used >= capacity)
+			{
+				Block b = new Block(index,s.used,capacity);
+				s.used += capacity;
+				return b;
+			}
+			// keep the unused tail of the segment for smaller values
+			int remaining = s.buf.capacity() - s.used;
+			if(remaining >= BLOCK_ALIGNMENT)
+				free(new Block(index,s.used,remaining));
+			s.used = s.buf.capacity();
+		}
+		
+		int size = Math.max(segmentSize,capacity);
+		MappedByteBuffer buf = fileData.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+		fileSize += size;
+		Segment s = new Segment(buf);
+		segments.add(s);
+		s.used = capacity;
+		return new Block(segments.size() - 1,0,capacity);
+	}
+	
+	private void free(Block b)
+	{
+		b.length = 0;
+		List<Block> blocks = freeBlocks.get(b.capacity);
+		if(blocks == null)
+		{
+			blocks = new ArrayList<Block>(4);
+			freeBlocks.put(b.capacity, blocks);
+		}
+		blocks.add(b);
+	}
+	
+	public void remove(Object key)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			checkDisposed();
+			Block b = mappedBlocks.remove(key);
+			if(b != null)
+				free(b);
+			// also remove from cache if an entry was cached
+			cache.remove(key);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			checkDisposed();
+			mappedBlocks.clear();
+			cache.clear();
+			freeBlocks.clear();
+			segments.clear();
+			fileSize = 0;
+			try
+			{
+				fileData.truncate(0);
+			}
+			catch(IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.ProxyRetriever#addCacheEntry(java.lang.Object, java.lang.Object)
+	 */
+	public void addCacheEntry(K key, V value) 
+	{
+		lock.writeLock().lock();
+		try
+		{
+			checkDisposed();
+			if(!mappedBlocks.containsKey(key))
+				throw new IllegalArgumentException("key=" + key);
+			// lookup will retrieve it from the cache
+			cache.put(key, value);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.ProxyRetriever#removeCacheEntry(java.lang.Object)
+	 */
+	public void removeCacheEntry(K key)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			checkDisposed();
+			if(!cache.containsKey(key))
+				throw new IllegalArgumentException("key=" + key);
+			V value = cache.remove(key);
+			// update the entry on disk
+			storeData(key,writeObject(value));
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public Set<K> getKeySet()
+	{
+		lock.readLock().lock();
+		try
+		{
+			// cached keys are always mapped
+			Set<K> keys = CollectionUtils.createHashSet(mappedBlocks.size(), CollectionUtils.LOAD_FACTOR);
+			keys.addAll(mappedBlocks.keySet());
+			return keys;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the number of bytes of the backing file that are currently mapped.
+	 * 
+	 * @return the mapped size in bytes
+	 */
+	public long getMappedSize()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return fileSize;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.Disposable#dispose()
+	 */
+	public void dispose() 
+	{
+		lock.writeLock().lock();
+		try
+		{
+			if(disposed)
+				return;
+			disposed = true;
+			mappedBlocks.clear();
+			cache.clear();
+			freeBlocks.clear();
+			segments.clear();
+			MiscUtils.closeStream(fileData);
+			MiscUtils.closeStream(raf);
+			// the mapping stays valid until the buffers are garbage-collected, which may block deletion on some platforms
+			if(!file.delete())
+				file.deleteOnExit();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+}
@@ -938,8 +938,9 @@ public final class MiscUtils
 	 * Attempts to make a deep copy of the specified <code>obj</code> by invoking
 	 * that object's clone method. If <code>obj</code> does not have a publicly
 	 * accessible clone method or the invocation of that method throws an
-	 * exception, then if <code>obj</code> is <code>Serializable</code> a copy using 
-	 * serialization is attempted; otherwise, <code>null</code> is returned.  Also,
+	 * exception, then if <code>obj</code> is <code>Serializable</code> or has a {@link Codec} 
+	 * registered with {@link Codecs} a copy using {@link ByteUtils#serializationClone(Object)}
+	 * is attempted; otherwise, <code>null</code> is returned.  Also,
 	 * if the <code>obj</code> is immutable as designated by implementing
 	 * {@link Mutability} and having <code>Mutability.isMutable()</code> return
 	 * <code>false</code>, or if it is a <code>String</code>,<code>Number</code>,or
@@ -1000,8 +1001,8 @@ public final class MiscUtils
 			// CloneNotSupportedException
 			catch(Exception e){}
 		}
-		// if element is serializable, then serialize it and then reconstruct it to get a copy
-		if(tryAgain && obj instanceof Serializable)
+		// if element is serializable or has a codec, then encode it and then reconstruct it to get a copy
+		if(tryAgain && (obj instanceof Serializable || Codecs.lookup(clazz) != null))
 		{
 			try
 			{
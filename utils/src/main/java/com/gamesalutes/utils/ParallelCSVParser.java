@@ -0,0 +1,626 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Parses a csv file on several threads with the same record semantics as {@link CSVParser}.
+ * <p>
+ * The file is memory-mapped and cut into chunks at line boundaries.  Since a quoted entry may span lines,
+ * a line boundary is only a record boundary if the preceding lines are not inside a quoted entry, which 
+ * depends on everything before it.  Each chunk is therefore first scanned in parallel for both possible
+ * states at its start: starting a new record or continuing a quoted entry.  Chaining the results from the
+ * start of the file gives the actual state at each chunk and so the record boundaries.  The chunks, adjusted 
+ * to those boundaries, are then parsed in parallel each with its own {@link CSVParser}.
+ * <p>
+ * Records are delivered to a {@link Callback} either in file order, from one thread at a time, or in any order,
+ * concurrently from the parsing threads.  In file order, the records of a chunk are held until all earlier chunks
+ * are delivered and the number of chunks parsed ahead is bounded.
+ * <p>
+ * The charset must encode the ASCII characters as themselves in single bytes that do not occur within the 
+ * encoding of any other character, such as UTF-8 or ISO-8859-1, and the deliminator and quote characters must be ASCII.
+ * 
+ * @author jmontgomery
+ *
+ */
+public final class ParallelCSVParser
+{
+	/**
+	 * Receives the parsed records.
+	 */
+	public interface Callback
+	{
+		/**
+		 * Receives the fields of a record.
+		 * 
+		 * @param fields the fields of the record
+		 * @throws Exception if the record cannot be processed, which stops the parse
+		 */
+		void record(String [] fields) throws Exception;
+	}
+	
+	/**
+	 * Default target size in bytes of each parsed chunk: 8 MB.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private final File file;
+	private final boolean hasHeader;
+	private final char delim;
+	private final String lineTerminator;
+	private final char quoteChar;
+	private final Charset charset;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	
+	/**
+	 * Constructor.
+	 * The default character deliminator and UTF-8 are used and it is assumed all csv is data and there is no header.
+	 * 
+	 * @param file the csv file
+	 */
+	public ParallelCSVParser(File file)
+	{
+		this(file,false);
+	}
+	
+	/**
+	 * Constructor.
+	 * The default character deliminator and UTF-8 are used.
+	 * 
+	 * @param file the csv file
+	 * @param hasHeader <code>true</code> if first line of the file is header and <code>false</code> otherwise
+	 */
+	public ParallelCSVParser(File file,boolean hasHeader)
+	{
+		this(file,hasHeader,CSVParser.DELIMINATOR,System.getProperty("line.separator"),CSVPrinter.QUOTE_CHAR,UTF8);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param file the csv file
+	 * @param hasHeader <code>true</code> if first line of the file is header and <code>false</code> otherwise
+	 * @param delim the character deliminator to use
+	 * @param lineTerminator the terminator that joins the lines of a multi-line entry
+	 * @param quoteChar the character to use to escape csv
+	 * @param charset the <code>Charset</code> of the file
+	 */
+	public ParallelCSVParser(File file,boolean hasHeader,char delim,String lineTerminator,char quoteChar,Charset charset)
+	{
+		if(file == null)
+			throw new NullPointerException("file");
+		if(charset == null)
+			throw new NullPointerException("charset");
+		if(lineTerminator == null)
+			throw new NullPointerException("lineTerminator");
+		else if(!MiscUtils.isLineTerminator(lineTerminator))
+			throw new IllegalArgumentException("lineTerminator=" + lineTerminator);
+		if(delim >= 0x80 || quoteChar >= 0x80)
+			throw new IllegalArgumentException("delim=" + delim + " and quoteChar=" + quoteChar + " must be ASCII");
+		if(delim == quoteChar || delim == '\\')
+			throw new IllegalArgumentException("Delim cannot be " + quoteChar + " or \\");
+		if(!isAsciiCompatible(charset))
+			throw new IllegalArgumentException("charset=" + charset + " is not ASCII compatible");
+		this.file = file;
+		this.hasHeader = hasHeader;
+		this.delim = delim;
+		this.lineTerminator = lineTerminator;
+		this.quoteChar = quoteChar;
+		this.charset = charset;
+	}
+	
+	private static boolean isAsciiCompatible(Charset charset)
+	{
+		if(UTF8.equals(charset))
+			return true;
+		// single byte charsets whose lower half is ASCII
+		if(!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1f)
+			return false;
+		byte [] ascii = new byte[0x80];
+		for(int i = 0; i < ascii.length; ++i)
+			ascii[i] = (byte)i;
+		CharBuffer chars = charset.decode(ByteBuffer.wrap(ascii));
+		if(chars.remaining() != ascii.length)
+			return false;
+		for(int i = 0; i < ascii.length; ++i)
+		{
+			if(chars.get(i) != i)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Sets the target size in bytes of each chunk.  Chunks end at the first line boundary after the target size.
+	 * 
+	 * @param chunkSize the chunk size
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		if(chunkSize <= 0)
+			throw new IllegalArgumentException("chunkSize=" + chunkSize);
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Returns the target size in bytes of each chunk.
+	 * 
+	 * @return the chunk size
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+	
+	/**
+	 * Parses the file on a new <code>ForkJoinPool</code> with one thread per processor.
+	 * 
+	 * @param callback the <code>Callback</code> for the records
+	 * @param ordered <code>true</code> to deliver the records in file order and <code>false</code> to deliver them
+	 *        concurrently in any order
+	 * @return the number of records delivered
+	 * @throws IOException if error occurs while reading the file or the callback throws an exception
+	 */
+	public long parse(Callback callback,boolean ordered) throws IOException
+	{
+		ExecutorService executor = new ForkJoinPool();
+		try
+		{
+			return parse(callback,ordered,executor);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Parses the file using <code>executor</code>.
+	 * 
+	 * @param callback the <code>Callback</code> for the records
+	 * @param ordered <code>true</code> to deliver the records in file order and <code>false</code> to deliver them
+	 *        concurrently in any order
+	 * @param executor the <code>ExecutorService</code> that runs the parse tasks
+	 * @return the number of records delivered
+	 * @throws IOException if error occurs while reading the file or the callback throws an exception
+	 */
+	public long parse(final Callback callback,final boolean ordered,ExecutorService executor) throws IOException
+	{
+		if(callback == null)
+			throw new NullPointerException("callback");
+		if(executor == null)
+			throw new NullPointerException("executor");
+		
+		RandomAccessFile raf = new RandomAccessFile(file,"r");
+		try
+		{
+			final FileChannel channel = raf.getChannel();
+			final long size = channel.size();
+			if(size == 0)
+				return 0;
+			
+			// the header is a single line regardless of quotes
+			ByteBuffer readBuf = ByteBuffer.allocate(8 * 1024);
+			long dataStart = hasHeader ? skipHeader(channel,size,readBuf) : 0;
+			if(dataStart >= size)
+				return 0;
+			long [] starts = findChunkStarts(channel,dataStart,size,readBuf);
+			final int numChunks = starts.length;
+			
+			// scan each chunk for both states at its start
+			List<Future<Scan>> scans = new ArrayList<Future<Scan>>(numChunks);
+			for(int i = 0; i < numChunks; ++i)
+			{
+				final long start = starts[i];
+				final long end = i + 1 < numChunks ? starts[i + 1] : size;
+				final boolean first = i == 0;
+				scans.add(executor.submit(new Callable<Scan>()
+				{
+					public Scan call() throws IOException
+					{
+						MappedByteBuffer buf = map(channel,start,end);
+						Scan scan = new Scan();
+						scan.exitContinuedFromNew = scan(buf,start,false,null);
+						if(!first)
+							scan.exitContinuedFromContinued = scan(buf,start,true,scan);
+						return scan;
+					}
+				}));
+			}
+			
+			// chain the states to find where each chunk's first record starts
+			List<Long> recordStarts = new ArrayList<Long>(numChunks);
+			boolean continued = false;
+			for(int i = 0; i < numChunks; ++i)
+			{
+				Scan scan = get(scans.get(i));
+				if(!continued)
+				{
+					recordStarts.add(starts[i]);
+					continued = scan.exitContinuedFromNew;
+				}
+				else
+				{
+					// the chunk starts inside a record of an earlier chunk
+					long end = i + 1 < numChunks ? starts[i + 1] : size;
+					if(scan.firstRecordEnd >= 0 && scan.firstRecordEnd < end)
+						recordStarts.add(scan.firstRecordEnd);
+					continued = scan.exitContinuedFromContinued;
+				}
+			}
+			
+			return parse(channel,size,recordStarts,callback,ordered,executor);
+		}
+		finally
+		{
+			MiscUtils.closeStream(raf);
+		}
+	}
+	
+	private long parse(final FileChannel channel,final long size,final List<Long> recordStarts,
+			final Callback callback,final boolean ordered,ExecutorService executor)
+		throws IOException
+	{
+		final int numRanges = recordStarts.size();
+		final AtomicLong count = new AtomicLong();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		// bounds the number of ranges held for ordered delivery
+		final Semaphore pending = new Semaphore(Math.max(2,2 * Runtime.getRuntime().availableProcessors()));
+		final Map<Integer,List<String[]>> completed = new HashMap<Integer,List<String[]>>();
+		final int [] nextDelivery = new int[1];
+		
+		List<Future<?>> parses = new ArrayList<Future<?>>(numRanges);
+		try
+		{
+			for(int i = 0; i < numRanges; ++i)
+			{
+				if(ordered)
+				{
+					while(!pending.tryAcquire(100,TimeUnit.MILLISECONDS))
+					{
+						if(failure.get() != null)
+							break;
+					}
+				}
+				if(failure.get() != null)
+					break;
+				
+				final int index = i;
+				final long start = recordStarts.get(i);
+				final long end = i + 1 < numRanges ? recordStarts.get(i + 1) : size;
+				parses.add(executor.submit(new Callable<Void>()
+				{
+					public Void call() throws Exception
+					{
+						try
+						{
+							CSVParser parser = new CSVParser(new InputStreamReader(
+									new ByteBufferInputStream(map(channel,start,end)),charset),
+									false,delim,lineTerminator,quoteChar);
+							if(ordered)
+							{
+								List<String[]> records = new ArrayList<String[]>();
+								String [] fields;
+								while((fields = parser.readLine()) != null)
+									records.add(fields);
+								deliver(index,records);
+							}
+							else
+							{
+								String [] fields;
+								while((fields = parser.readLine()) != null && failure.get() == null)
+								{
+									callback.record(fields);
+									count.incrementAndGet();
+								}
+							}
+							return null;
+						}
+						catch(Throwable t)
+						{
+							failure.compareAndSet(null,t);
+							if(t instanceof Error)
+								throw (Error)t;
+							throw (Exception)t;
+						}
+					}
+					
+					private void deliver(int index,List<String[]> records) throws Exception
+					{
+						synchronized(completed)
+						{
+							completed.put(index,records);
+							List<String[]> next;
+							while(failure.get() == null && (next = completed.remove(nextDelivery[0])) != null)
+							{
+								for(String [] fields : next)
+								{
+									callback.record(fields);
+									count.incrementAndGet();
+								}
+								++nextDelivery[0];
+								pending.release();
+							}
+						}
+					}
+				}));
+			}
+			for(Future<?> f : parses)
+				get(f);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted");
+		}
+		finally
+		{
+			for(Future<?> f : parses)
+				f.cancel(true);
+		}
+		if(failure.get() != null)
+			throw toIOException(failure.get());
+		return count.get();
+	}
+	
+	/**
+	 * Returns the offset just after the first line that is not empty or only whitespace.
+	 */
+	private static long skipHeader(FileChannel channel,long size,ByteBuffer buf) throws IOException
+	{
+		boolean blank = true;
+		boolean cr = false;
+		long pos = 0;
+		while(pos < size)
+		{
+			buf.clear();
+			int n = channel.read(buf,pos);
+			if(n <= 0)
+				break;
+			for(int i = 0; i < n; ++i)
+			{
+				byte c = buf.get(i);
+				if(cr)
+				{
+					cr = false;
+					if(!blank)
+						return c == '\n' ? pos + i + 1 : pos + i;
+					if(c == '\n')
+						continue;
+				}
+				if(c == '\n')
+				{
+					if(!blank)
+						return pos + i + 1;
+				}
+				else if(c == '\r')
+					cr = true;
+				else if((c & 0xFF) > ' ')
+					blank = false;
+			}
+			pos += n;
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the start offsets of chunks of about {@link #getChunkSize()} bytes that begin at line boundaries.
+	 */
+	private long[] findChunkStarts(FileChannel channel,long dataStart,long size,ByteBuffer buf) throws IOException
+	{
+		List<Long> starts = new ArrayList<Long>();
+		starts.add(dataStart);
+		long target = dataStart + chunkSize;
+		while(target < size)
+		{
+			long boundary = nextLineStart(channel,target,size,buf);
+			if(boundary >= size)
+				break;
+			starts.add(boundary);
+			target = boundary + chunkSize;
+		}
+		long [] result = new long[starts.size()];
+		for(int i = 0; i < result.length; ++i)
+			result[i] = starts.get(i);
+		return result;
+	}
+	
+	/**
+	 * Returns the offset just after the first line terminator at or after <code>pos</code>.
+	 */
+	private static long nextLineStart(FileChannel channel,long pos,long size,ByteBuffer buf) throws IOException
+	{
+		boolean cr = false;
+		while(pos < size)
+		{
+			buf.clear();
+			int n = channel.read(buf,pos);
+			if(n <= 0)
+				break;
+			for(int i = 0; i < n; ++i)
+			{
+				byte c = buf.get(i);
+				if(cr)
+					return c == '\n' ? pos + i + 1 : pos + i;
+				if(c == '\n')
+					return pos + i + 1;
+				cr = c == '\r';
+			}
+			pos += n;
+		}
+		return size;
+	}
+	
+	private static MappedByteBuffer map(FileChannel channel,long start,long end) throws IOException
+	{
+		if(end - start > Integer.MAX_VALUE)
+			throw new IOException("Chunk [" + start + "," + end + ") exceeds " + Integer.MAX_VALUE + " bytes");
+		return channel.map(FileChannel.MapMode.READ_ONLY,start,end - start);
+	}
+	
+	/**
+	 * States of a chunk scan.
+	 */
+	private static final class Scan
+	{
+		boolean exitContinuedFromNew;
+		boolean exitContinuedFromContinued;
+		// offset just past the first record when starting inside a record or -1 if the chunk does not finish it
+		long firstRecordEnd = -1;
+	}
+	
+	/**
+	 * Follows the line and quote state of {@link CSVParser#nextRecord()} over a chunk without
+	 * producing fields.
+	 * 
+	 * @param buf the chunk
+	 * @param base the file offset of the chunk
+	 * @param continued <code>true</code> if the chunk starts inside a quoted entry
+	 * @param result if not <code>null</code> the end of the first record is stored in it
+	 * @return <code>true</code> if the chunk ends inside a quoted entry
+	 */
+	private boolean scan(ByteBuffer buf,long base,boolean continued,Scan result)
+	{
+		final byte delim = (byte)this.delim;
+		final byte quoteChar = (byte)this.quoteChar;
+		int quotes = 0;
+		boolean pendingQuote = false;
+		boolean lineStart = true;
+		boolean blank = true;
+		boolean skipLF = false;
+		
+		for(int i = 0, limit = buf.limit(); i < limit; ++i)
+		{
+			byte c = buf.get(i);
+			if(skipLF)
+			{
+				skipLF = false;
+				if(c == '\n')
+				{
+					if(result != null && result.firstRecordEnd == base + i)
+						++result.firstRecordEnd;
+					continue;
+				}
+			}
+			if(lineStart)
+			{
+				lineStart = false;
+				blank = true;
+				if(continued)
+					quotes = 1;
+			}
+			if(c == '\n' || c == '\r')
+			{
+				skipLF = c == '\r';
+				lineStart = true;
+				if(pendingQuote)
+				{
+					pendingQuote = false;
+					quotes = 0;
+				}
+				if(!continued && blank)
+					quotes = 0;
+				else if(quotes > 0)
+					continued = true;
+				else
+				{
+					continued = false;
+					if(result != null && result.firstRecordEnd < 0)
+						result.firstRecordEnd = base + i + 1;
+				}
+				continue;
+			}
+			if((c & 0xFF) > ' ')
+				blank = false;
+			if(pendingQuote)
+			{
+				pendingQuote = false;
+				if(c == delim)
+					quotes = 0;
+			}
+			if(c == quoteChar && ++quotes % 2 == 0)
+				pendingQuote = true;
+		}
+		return continued;
+	}
+	
+	private static <T> T get(Future<T> f) throws IOException
+	{
+		try
+		{
+			return f.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted");
+		}
+		catch(ExecutionException e)
+		{
+			Throwable t = e.getCause();
+			// ForkJoinPool wraps exceptions rethrown from its workers
+			while(t.getClass() == RuntimeException.class && t.getCause() != null)
+				t = t.getCause();
+			throw toIOException(t);
+		}
+	}
+	
+	private static IOException toIOException(Throwable t)
+	{
+		if(t instanceof IOException)
+			return (IOException)t;
+		if(t instanceof RuntimeException)
+			throw (RuntimeException)t;
+		if(t instanceof Error)
+			throw (Error)t;
+		return (IOException)new IOException(t.getMessage()).initCause(t);
+	}
+}
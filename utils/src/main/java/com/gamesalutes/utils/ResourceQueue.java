@@ -40,44 +40,108 @@
 package com.gamesalutes.utils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Fixed size pool of resources that threads check out with one of the <code>get</code>
+ * methods and return with {@link #release(Object)}.  Threads that find the pool empty
+ * block on a <code>Condition</code> and are signalled as soon as a resource is released.
+ * <p>
+ * In fair mode waiting threads are served strictly in arrival order: a released resource is
+ * handed directly to the longest waiting thread and newly arriving threads may not barge
+ * ahead of it.  In non-fair mode a released resource goes back to the pool and any thread may
+ * claim it, which gives higher throughput under contention.
  *
  * @author jmontgomery
  */
 public final class ResourceQueue<T> implements Disposable
 {
-    private final Lock lock;
+    /**
+     * Upper bounds in milliseconds of the wait time histogram buckets returned by
+     * {@link Statistics#getWaitTimeHistogram()}. The last bucket is unbounded.
+     */
+    public static final long [] WAIT_BUCKET_MILLIS =
+        { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000, Long.MAX_VALUE };
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final boolean fair;
     private final List<T> available;
-    private final List<T> used;
-    private Map<T,int[]> usedCount;
+    private final Map<T,Slot> slots;
+    private final LinkedList<Waiter<T>> waiters;
     private final int totalCount;
 
-    private static final int SLEEP = 20;
+    private int usedCount;
+    private boolean disposed;
+
+    // statistics, guarded by lock
+    private int peakUsedCount;
+    private long getCount;
+    private long timeoutCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private final long [] waitHistogram = new long[WAIT_BUCKET_MILLIS.length];
+
+    private static final class Slot
+    {
+        boolean inUse;
+        int usedCount;
+    }
 
+    private static final class Waiter<T>
+    {
+        final Condition ready;
+        T resource;
+
+        Waiter(Condition ready)
+        {
+            this.ready = ready;
+        }
+    }
+
+    /**
+     * Constructor for a non-fair queue.
+     *
+     * @param resources the pooled resources; <code>null</code> entries are ignored
+     */
     public ResourceQueue(Collection<T> resources)
+    {
+        this(resources,false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resources the pooled resources; <code>null</code> entries are ignored
+     * @param fair <code>true</code> to serve waiting threads in FIFO order
+     */
+    public ResourceQueue(Collection<T> resources,boolean fair)
     {
         if(resources == null)
             throw new NullPointerException("resources");
 
-        this.lock = new ReentrantLock();
-        this.available = new ArrayList<T>(resources);
-        this.available.removeAll(Arrays.<T>asList((T)null));
-        this.used = new ArrayList<T>(this.available.size());
-
-        this.totalCount = this.available.size();
+        this.fair = fair;
+        this.lock = new ReentrantLock(fair);
+        this.notEmpty = lock.newCondition();
+        this.waiters = new LinkedList<Waiter<T>>();
+        this.available = new ArrayList<T>(resources.size());
+        this.slots = CollectionUtils.createHashMap(resources.size(), CollectionUtils.LOAD_FACTOR);
 
-        usedCount = CollectionUtils.createHashMap(available.size(), CollectionUtils.LOAD_FACTOR);
-        for(T resource : available)
+        for(T resource : resources)
         {
-            usedCount.put(resource, new int[1]);
+            if(resource != null && !slots.containsKey(resource))
+            {
+                slots.put(resource, new Slot());
+                available.add(resource);
+            }
         }
+        this.totalCount = this.available.size();
     }
 
     public void dispose()
@@ -85,8 +149,26 @@ public final class ResourceQueue<T> implements Disposable
         lock.lock();
         try
         {
-            disposeResources(available);
-            disposeResources(used);
+            disposed = true;
+            for(T e : slots.keySet())
+            {
+                if(e instanceof Disposable)
+                {
+                    try
+                    {
+                        ((Disposable)e).dispose();
+                    }
+                    catch(Exception ex) {}
+                }
+            }
+            available.clear();
+            slots.clear();
+            usedCount = 0;
+
+            // wake everyone up so they can observe the disposal
+            notEmpty.signalAll();
+            for(Waiter<T> w : waiters)
+                w.ready.signal();
         }
         finally
         {
@@ -94,48 +176,167 @@ public final class ResourceQueue<T> implements Disposable
         }
     }
 
-    private void disposeResources(List<T> resources)
+    /**
+     * Returns <code>true</code> if waiting threads are served in FIFO order.
+     *
+     * @return <code>true</code> if fair and <code>false</code> otherwise
+     */
+    public boolean isFair()
     {
-        for(T e : resources)
+        return fair;
+    }
+
+    /**
+     * Obtains a resource, waiting as long as necessary for one to become available.
+     *
+     * @return the resource
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the queue has been disposed
+     */
+    public T get()
+            throws InterruptedException
+    {
+        return get(-1,TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Obtains a resource, waiting up to the specified time for one to become available.
+     *
+     * @param timeout the maximum time to wait or a negative value to wait indefinitely
+     * @param unit the <code>TimeUnit</code> of <code>timeout</code>
+     * @return the resource or <code>null</code> if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the queue has been disposed
+     */
+    public T get(long timeout,TimeUnit unit)
+            throws InterruptedException
+    {
+        if(unit == null)
+            throw new NullPointerException("unit");
+
+        final long start = System.nanoTime();
+        lock.lockInterruptibly();
+        try
         {
-            if(e instanceof Disposable)
+            checkDisposed();
+            T resource = obtain();
+            if(resource != null)
             {
-                try
-                {
-                    ((Disposable)e).dispose();
-                }
-                catch(Exception ex) {}
+                recordWait(start,false);
+                return resource;
+            }
+            if(timeout == 0)
+            {
+                recordWait(start,true);
+                return null;
             }
+
+            resource = fair ? awaitHandoff(timeout,unit) : awaitAvailable(timeout,unit);
+            recordWait(start,resource == null);
+            return resource;
+        }
+        finally
+        {
+            lock.unlock();
         }
-        resources.clear();
     }
 
+    /**
+     * Obtains a resource only if one is immediately available.
+     *
+     * @return the resource or <code>null</code> if none are available
+     * @throws IllegalStateException if the queue has been disposed
+     */
+    public T tryGet()
+    {
+        lock.lock();
+        try
+        {
+            checkDisposed();
+            T resource = obtain();
+            if(resource != null)
+                recordWait(System.nanoTime(),false);
+            return resource;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
 
-    public T get()
-            throws InterruptedException
+    private T awaitAvailable(long timeout,TimeUnit unit)
+        throws InterruptedException
     {
-        T resource = null;
-        while(resource == null)
+        long nanos = timeout < 0 ? Long.MAX_VALUE : unit.toNanos(timeout);
+        while(true)
         {
-            lock.lock();
-            try
+            if(timeout < 0)
+                notEmpty.await();
+            else
             {
-                resource = obtain();
-                if(resource != null)
-                    break;
+                if(nanos <= 0)
+                    return null;
+                nanos = notEmpty.awaitNanos(nanos);
             }
-            finally
+            checkDisposed();
+            T resource = obtain();
+            if(resource != null)
+                return resource;
+        }
+    }
+
+    private T awaitHandoff(long timeout,TimeUnit unit)
+        throws InterruptedException
+    {
+        Waiter<T> w = new Waiter<T>(lock.newCondition());
+        waiters.addLast(w);
+        long nanos = timeout < 0 ? Long.MAX_VALUE : unit.toNanos(timeout);
+        try
+        {
+            while(w.resource == null)
             {
-                lock.unlock();
+                checkDisposed();
+                if(timeout < 0)
+                    w.ready.await();
+                else
+                {
+                    if(nanos <= 0)
+                        return null;
+                    nanos = w.ready.awaitNanos(nanos);
+                }
             }
-
-            Thread.sleep(SLEEP);
-
+            return w.resource;
+        }
+        catch(InterruptedException e)
+        {
+            // do not lose a resource that was handed off just before the interrupt
+            if(w.resource != null)
+            {
+                Thread.currentThread().interrupt();
+                return w.resource;
+            }
+            throw e;
         }
+        finally
+        {
+            if(w.resource == null)
+                waiters.remove(w);
+        }
+    }
 
-        return resource;
+    private void checkDisposed()
+    {
+        if(disposed)
+            throw new IllegalStateException("ResourceQueue disposed");
     }
 
+    /**
+     * Returns a previously obtained resource to the queue.
+     *
+     * @param resource the resource
+     * @return <code>true</code> if <code>resource</code> was checked out of this queue
+     *         and <code>false</code> otherwise
+     */
     public boolean release(T resource)
     {
         if(resource == null) return false;
@@ -143,40 +344,74 @@ public final class ResourceQueue<T> implements Disposable
         lock.lock();
         try
         {
-            if(used.contains(resource))
+            Slot slot = slots.get(resource);
+            if(slot == null || !slot.inUse)
+                return false;
+
+            // hand off directly to the longest waiting thread
+            if(fair && !waiters.isEmpty())
             {
-                used.remove(resource);
-                available.add(resource);
+                Waiter<T> w = waiters.removeFirst();
+                w.resource = resource;
+                ++slot.usedCount;
+                w.ready.signal();
                 return true;
             }
-            return false;
+
+            slot.inUse = false;
+            --usedCount;
+            available.add(resource);
+            notEmpty.signal();
+            return true;
         }
         finally
         {
             lock.unlock();
         }
     }
+
     private T obtain()
     {
-        if(!available.isEmpty())
+        // in fair mode do not barge ahead of threads that are already waiting
+        if(!available.isEmpty() && (!fair || waiters.isEmpty()))
         {
             T resource = available.remove(available.size()-1);
-            used.add(resource);
-            ++usedCount.get(resource)[0];
+            Slot slot = slots.get(resource);
+            slot.inUse = true;
+            ++slot.usedCount;
+            if(++usedCount > peakUsedCount)
+                peakUsedCount = usedCount;
             return resource;
         }
 
         return null;
     }
 
+    private void recordWait(long start,boolean timedOut)
+    {
+        long waitNanos = System.nanoTime() - start;
+        ++getCount;
+        if(timedOut)
+            ++timeoutCount;
+        totalWaitNanos += waitNanos;
+        if(waitNanos > maxWaitNanos)
+            maxWaitNanos = waitNanos;
+
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int i = 0;
+        while(waitMillis > WAIT_BUCKET_MILLIS[i])
+            ++i;
+        ++waitHistogram[i];
+    }
+
     public int getUsedCount(T resource)
     {
         lock.lock();
         try
         {
-            int [] count = usedCount.get(resource);
-            if(count == null) return -1;
-            return count[0];
+            Slot slot = slots.get(resource);
+            if(slot == null) return -1;
+            return slot.usedCount;
         }
         finally
         {
@@ -194,7 +429,7 @@ public final class ResourceQueue<T> implements Disposable
         lock.lock();
         try
         {
-            return used.size();
+            return usedCount;
         }
         finally
         {
@@ -213,4 +448,138 @@ public final class ResourceQueue<T> implements Disposable
             lock.unlock();
         }
     }
+
+    /**
+     * Returns the number of threads currently waiting for a resource.  This is exact in fair mode
+     * and an estimate in non-fair mode.
+     *
+     * @return the number of waiting threads
+     */
+    public int getWaitingCount()
+    {
+        lock.lock();
+        try
+        {
+            return fair ? waiters.size() : lock.getWaitQueueLength(notEmpty);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool usage statistics.
+     *
+     * @return the <code>Statistics</code>
+     */
+    public Statistics getStatistics()
+    {
+        lock.lock();
+        try
+        {
+            return new Statistics(getCount,timeoutCount,peakUsedCount,
+                    totalWaitNanos,maxWaitNanos,waitHistogram.clone());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Immutable snapshot of the statistics of a <code>ResourceQueue</code>.
+     */
+    public static final class Statistics
+    {
+        private final long getCount;
+        private final long timeoutCount;
+        private final int peakUsedCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long [] waitHistogram;
+
+        private Statistics(long getCount,long timeoutCount,int peakUsedCount,
+                long totalWaitNanos,long maxWaitNanos,long [] waitHistogram)
+        {
+            this.getCount = getCount;
+            this.timeoutCount = timeoutCount;
+            this.peakUsedCount = peakUsedCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.waitHistogram = waitHistogram;
+        }
+
+        /**
+         * Returns the number of get requests, including those that timed out.
+         *
+         * @return the number of get requests
+         */
+        public long getRequestCount() { return getCount; }
+
+        /**
+         * Returns the number of get requests that timed out without obtaining a resource.
+         *
+         * @return the number of timeouts
+         */
+        public long getTimeoutCount() { return timeoutCount; }
+
+        /**
+         * Returns the largest number of resources that were checked out at once.
+         *
+         * @return the peak number of resources in use
+         */
+        public int getPeakUsedCount() { return peakUsedCount; }
+
+        /**
+         * Returns the mean wait time of a get request.
+         *
+         * @param unit the <code>TimeUnit</code> of the result
+         * @return the mean wait time
+         */
+        public long getMeanWaitTime(TimeUnit unit)
+        {
+            return getCount == 0 ? 0 : unit.convert(totalWaitNanos / getCount,TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the longest wait time of a get request.
+         *
+         * @param unit the <code>TimeUnit</code> of the result
+         * @return the maximum wait time
+         */
+        public long getMaxWaitTime(TimeUnit unit)
+        {
+            return unit.convert(maxWaitNanos,TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the wait time histogram.  Element <code>i</code> counts the get requests
+         * whose wait was at most {@link ResourceQueue#WAIT_BUCKET_MILLIS}<code>[i]</code> milliseconds
+         * and greater than the previous bucket bound.
+         *
+         * @return copy of the histogram counts
+         */
+        public long [] getWaitTimeHistogram() { return waitHistogram.clone(); }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder str = new StringBuilder();
+            str.append("requests=").append(getCount)
+               .append(";timeouts=").append(timeoutCount)
+               .append(";peakUsed=").append(peakUsedCount)
+               .append(";meanWaitMs=").append(getMeanWaitTime(TimeUnit.MILLISECONDS))
+               .append(";maxWaitMs=").append(getMaxWaitTime(TimeUnit.MILLISECONDS))
+               .append(";histogram=[");
+            for(int i = 0; i < waitHistogram.length; ++i)
+            {
+                if(i > 0) str.append(",");
+                str.append(i == waitHistogram.length - 1 ? ">" + WAIT_BUCKET_MILLIS[i-1] : "<=" + WAIT_BUCKET_MILLIS[i])
+                   .append(":").append(waitHistogram[i]);
+            }
+            str.append("]");
+            return str.toString();
+        }
+    }
 }
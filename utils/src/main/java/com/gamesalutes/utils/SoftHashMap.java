@@ -39,15 +39,16 @@
  */
 package com.gamesalutes.utils;
 
-import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 /**
  * Hashtable-based map implementation that has "soft keys."  Soft references
@@ -58,31 +59,48 @@ import java.util.WeakHashMap;
  * used to implement memory-sensitive caches.  This implementation is unsynchronized.
  * Synchronization can be obtained by wrapping this Collection in a synchronized map
  * using <code>Collections.synchronizedMap</code>.
+ * <p>
+ * Each table entry is itself the soft reference to its key, so there is only one
+ * object per mapping.  Entries whose keys have been collected are unlinked incrementally
+ * from the reference queue: lookups and updates purge a bounded number of them, while
+ * {@link #size()}, {@link #isEmpty()}, iteration and {@link #purge()} purge all of them.
  * 
  * @author Justin Montgomery
  * @version $Id: SoftHashMap.java 1731 2009-10-15 18:32:46Z jmontgomery $
  */
-public final class SoftHashMap<K,V> implements Map<K,V>
+public final class SoftHashMap<K,V> extends AbstractMap<K,V> implements Map<K,V>
 {
-	// since there is no "soft reference" map, must use weak hash map, and then
-	// keep a collection of soft references to the keys to keep the weak references
-	// from being collected too soon.
-	// It is unnecessary to make the values a soft reference since if memory demands are great,
-	// the keys will be collected, which will remove the value mapping as well and allow the
-	// mapped value to be collected
-	private final WeakHashMap<K,V> map;
-	
-	private final Set<SoftReference<K>> softKeys;
-	// use reference queue to remove soft references from the set
-	// when their referents are collected
-	private final ReferenceQueue<K> refQueue;
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+	
+	// maximum number of collected entries unlinked by a single lookup or update
+	private static final int MAX_INCREMENTAL_PURGE = 32;
+	
+	// stands in for the null key so that it is never collected
+	private static final Object NULL_KEY = new Object();
+	
+	private Entry<K,V> [] table;
+	private int size;
+	private int threshold;
+	private final float loadFactor;
+	private int modCount;
+	
+	// use reference queue to unlink entries when their keys are collected
+	private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
+	
+	// when positive, the most recently used entries also hold their key strongly so that
+	// at least this many entries survive garbage collection.  See LruSoftMap.
+	private final int maxStrongEntries;
+	private int strongCount;
+	// recency list of the strongly held entries, eldest first
+	private LinkedEntry<K,V> head;
+	private LinkedEntry<K,V> tail;
 	
 	private final Set<AutoMapRemovalListener<K, V>> removalListeners = 
 		new LinkedHashSet<AutoMapRemovalListener<K, V>>();
 	
-	
-	// operations poll the reference queue to remove collected references
-	// from the soft reference set
+	private transient Set<Map.Entry<K, V>> entrySet;
 	
 	/**
 	 * Constructor.
@@ -92,9 +110,7 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public SoftHashMap()
 	{
-		this.map = new WeakHashMap<K,V>();
-		this.softKeys = new HashSet<SoftReference<K>>();
-		this.refQueue = new ReferenceQueue<K>();
+		this(DEFAULT_INITIAL_CAPACITY,DEFAULT_LOAD_FACTOR);
 	}
 	
 	/**
@@ -105,9 +121,7 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public SoftHashMap(int initialCapacity)
 	{
-		this.map = new WeakHashMap<K,V>(initialCapacity);
-		this.softKeys = new HashSet<SoftReference<K>>(initialCapacity);
-		this.refQueue = new ReferenceQueue<K>();
+		this(initialCapacity,DEFAULT_LOAD_FACTOR);
 	}
 	
 	/**
@@ -119,22 +133,40 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public SoftHashMap(int initialCapacity, float loadFactor)
 	{
-		this.map = new WeakHashMap<K,V>(initialCapacity,loadFactor);
-		this.softKeys = new HashSet<SoftReference<K>>(initialCapacity,loadFactor);
-		this.refQueue = new ReferenceQueue<K>();
+		this(initialCapacity,loadFactor,0);
 	}
+	
 	public SoftHashMap(Map<? extends K,? extends V> m)
 	{
-		this.map = new WeakHashMap<K,V>(m);
-		this.refQueue = new ReferenceQueue<K>();
-		float loadFactor = 0.75f;
-		this.softKeys = new HashSet<SoftReference<K>>(
-				CollectionUtils.calcHashCapacity(m.size(), loadFactor),
-				loadFactor);
-		// add soft references to all the keys in the map
-		addSoftKeys(m);
-		
+		this(Math.max(CollectionUtils.calcHashCapacity(m.size(), DEFAULT_LOAD_FACTOR),DEFAULT_INITIAL_CAPACITY),
+				DEFAULT_LOAD_FACTOR);
+		putAll(m);
+	}
+	
+	/**
+	 * Constructor.
+	 * Creates a map that additionally keeps the <code>maxStrongEntries</code> most recently used
+	 * entries strongly reachable.
+	 * 
+	 * @param initialCapacity the initial capacity
+	 * @param loadFactor the load factor
+	 * @param maxStrongEntries the number of recently used entries that are not eligible for collection
+	 */
+	@SuppressWarnings("unchecked")
+	SoftHashMap(int initialCapacity, float loadFactor, int maxStrongEntries)
+	{
+		if(initialCapacity < 0)
+			throw new IllegalArgumentException("initialCapacity = " + initialCapacity + " < 0");
+		if(loadFactor <= 0 || Float.isNaN(loadFactor))
+			throw new IllegalArgumentException("loadFactor = " + loadFactor);
 		
+		int capacity = 1;
+		while(capacity < initialCapacity && capacity < MAXIMUM_CAPACITY)
+			capacity <<= 1;
+		this.table = new Entry[capacity];
+		this.loadFactor = loadFactor;
+		this.threshold = (int)(capacity * loadFactor);
+		this.maxStrongEntries = maxStrongEntries;
 	}
 	
 	public boolean addAutoRemovalListener(AutoMapRemovalListener<K, V> l)
@@ -154,42 +186,174 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 			l.entryRemoved(null);
 	}
 	
-	private void addSoftKeys(Map<? extends K,? extends V> m)
+	/**
+	 * Soft reference to the key that is also the hash table entry.
+	 */
+	private static class Entry<K,V> extends SoftReference<Object> implements Map.Entry<K, V>
+	{
+		final int hash;
+		V value;
+		Entry<K,V> next;
+		
+		Entry(Object key,V value,ReferenceQueue<Object> queue,int hash,Entry<K,V> next)
+		{
+			super(key,queue);
+			this.value = value;
+			this.hash = hash;
+			this.next = next;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public K getKey()
+		{
+			return (K)unmaskNull(get());
+		}
+		
+		public V getValue()
+		{
+			return value;
+		}
+		
+		public V setValue(V value)
+		{
+			V prev = this.value;
+			this.value = value;
+			return prev;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Map.Entry<?,?>)) return false;
+			Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+			return MiscUtils.safeEquals(getKey(), e.getKey()) && MiscUtils.safeEquals(value, e.getValue());
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			Object k = getKey();
+			return (k != null ? k.hashCode() : 0) ^ (value != null ? value.hashCode() : 0);
+		}
+		
+		@Override
+		public String toString()
+		{
+			return getKey() + "=" + value;
+		}
+	}
+	
+	/**
+	 * Entry that can be held strongly on the recency list.
+	 */
+	private static final class LinkedEntry<K,V> extends Entry<K,V>
+	{
+		// non-null while on the recency list
+		Object strongKey;
+		LinkedEntry<K,V> before;
+		LinkedEntry<K,V> after;
+		
+		LinkedEntry(Object key,V value,ReferenceQueue<Object> queue,int hash,Entry<K,V> next)
+		{
+			super(key,value,queue,hash,next);
+		}
+	}
+	
+	private static Object maskNull(Object key)
+	{
+		return key == null ? NULL_KEY : key;
+	}
+	
+	private static Object unmaskNull(Object key)
 	{
-		for(K key : m.keySet())
-			softKeys.add(new SoftReference<K>(key,refQueue));
+		return key == NULL_KEY ? null : key;
 	}
 	
-	// poll the queues and remove the references from the set
-	// if their referents have been collected
-	private void pollRefQueue()
+	private static int hash(Object key)
+	{
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		return h ^ (h >>> 7) ^ (h >>> 4);
+	}
+	
+	private static int indexFor(int h,int length)
+	{
+		return h & (length - 1);
+	}
+	
+	// poll the queue and unlink the entries whose keys have been collected
+	private void expungeStaleEntries(int max)
 	{
-		Reference<? extends K> key;
 		boolean purged = false;
-		while((key = refQueue.poll()) != null)
+		for(int count = 0; count < max; ++count)
 		{
-			purged = true;
-			softKeys.remove(key);
+			Object ref = refQueue.poll();
+			if(ref == null)
+				break;
+			@SuppressWarnings("unchecked")
+			Entry<K,V> e = (Entry<K,V>)ref;
+			if(unlink(e))
+				purged = true;
 		}
 		if(purged)
 			notifyListeners();
 	}
 	
+	private boolean unlink(Entry<K,V> e)
+	{
+		int i = indexFor(e.hash,table.length);
+		Entry<K,V> prev = null;
+		for(Entry<K,V> p = table[i]; p != null; prev = p,p = p.next)
+		{
+			if(p == e)
+			{
+				if(prev == null)
+					table[i] = e.next;
+				else
+					prev.next = e.next;
+				// keep e.next intact for iterators positioned on e
+				e.value = null;
+				--size;
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Explicitly purges expired entries.
 	 * 
 	 */
 	public void purge()
 	{
-		pollRefQueue();
+		expungeStaleEntries(Integer.MAX_VALUE);
 	}
+	
+	private Entry<K,V> getEntry(Object key)
+	{
+		Object k = maskNull(key);
+		int h = hash(k);
+		for(Entry<K,V> e = table[indexFor(h,table.length)]; e != null; e = e.next)
+		{
+			if(e.hash == h && k.equals(e.get()))
+				return e;
+		}
+		return null;
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.util.Map#clear()
 	 */
 	public void clear() 
 	{
-		map.clear();
-		softKeys.clear();
+		for(int i = 0; i < table.length; ++i)
+			table[i] = null;
+		size = 0;
+		strongCount = 0;
+		head = tail = null;
+		++modCount;
+		// entries already on the queue no longer belong to the table
+		while(refQueue.poll() != null);
 	}
 
 
@@ -198,8 +362,8 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public boolean containsKey(Object key)
 	{
-		pollRefQueue();
-		return map.containsKey(key);
+		expungeStaleEntries(MAX_INCREMENTAL_PURGE);
+		return getEntry(key) != null;
 	}
 
 	/* (non-Javadoc)
@@ -207,8 +371,16 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public boolean containsValue(Object value) 
 	{
-		pollRefQueue();
-		return map.containsValue(value);
+		purge();
+		for(Entry<K,V> e : table)
+		{
+			for(; e != null; e = e.next)
+			{
+				if(e.get() != null && MiscUtils.safeEquals(value, e.value))
+					return true;
+			}
+		}
+		return false;
 	}
 
 	/* (non-Javadoc)
@@ -216,7 +388,9 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public Set<Map.Entry<K, V>> entrySet() 
 	{
-		return map.entrySet();
+		if(entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
 	}
 
 	/* (non-Javadoc)
@@ -224,8 +398,13 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public V get(Object key) 
 	{
-		pollRefQueue();
-		return map.get(key);
+		expungeStaleEntries(MAX_INCREMENTAL_PURGE);
+		Entry<K,V> e = getEntry(key);
+		if(e == null)
+			return null;
+		if(maxStrongEntries > 0)
+			recordAccess((LinkedEntry<K,V>)e);
+		return e.value;
 	}
 
 	/* (non-Javadoc)
@@ -233,16 +412,7 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public boolean isEmpty() 
 	{
-		pollRefQueue();
-		return map.isEmpty();
-	}
-
-	/* (non-Javadoc)
-	 * @see java.util.Map#keySet()
-	 */
-	public Set<K> keySet() 
-	{
-		return map.keySet();
+		return size() == 0;
 	}
 
 	/* (non-Javadoc)
@@ -250,9 +420,70 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public V put(K key, V value) 
 	{
-		pollRefQueue();
-		softKeys.add(new SoftReference<K>(key,refQueue));
-		return map.put(key, value);
+		expungeStaleEntries(MAX_INCREMENTAL_PURGE);
+		
+		Object k = maskNull(key);
+		int h = hash(k);
+		int i = indexFor(h,table.length);
+		for(Entry<K,V> e = table[i]; e != null; e = e.next)
+		{
+			if(e.hash == h && k.equals(e.get()))
+			{
+				V prev = e.value;
+				e.value = value;
+				if(maxStrongEntries > 0)
+					recordAccess((LinkedEntry<K,V>)e);
+				return prev;
+			}
+		}
+		
+		++modCount;
+		Entry<K,V> e = maxStrongEntries > 0 ? 
+				new LinkedEntry<K,V>(k,value,refQueue,h,table[i]) :
+				new Entry<K,V>(k,value,refQueue,h,table[i]);
+		table[i] = e;
+		if(maxStrongEntries > 0)
+			recordAccess((LinkedEntry<K,V>)e);
+		if(++size >= threshold)
+			resize(table.length * 2);
+		return null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void resize(int newCapacity)
+	{
+		if(table.length == MAXIMUM_CAPACITY)
+		{
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+		
+		Entry<K,V> [] newTable = new Entry[newCapacity];
+		for(int j = 0; j < table.length; ++j)
+		{
+			Entry<K,V> e = table[j];
+			table[j] = null;
+			while(e != null)
+			{
+				Entry<K,V> next = e.next;
+				if(e.get() == null)
+				{
+					// collected but not yet enqueued or polled: drop it now
+					e.next = null;
+					e.value = null;
+					--size;
+				}
+				else
+				{
+					int i = indexFor(e.hash,newCapacity);
+					e.next = newTable[i];
+					newTable[i] = e;
+				}
+				e = next;
+			}
+		}
+		table = newTable;
+		threshold = (int)(newCapacity * loadFactor);
 	}
 
 	/* (non-Javadoc)
@@ -260,10 +491,16 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public void putAll(Map<? extends K,? extends V> m) 
 	{
-		pollRefQueue();
-		// add soft references to all the keys in the map
-		addSoftKeys(m);
-		map.putAll(m);
+		int target = CollectionUtils.calcHashCapacity(size + m.size(),loadFactor);
+		if(target > table.length)
+		{
+			int capacity = table.length;
+			while(capacity < target && capacity < MAXIMUM_CAPACITY)
+				capacity <<= 1;
+			resize(capacity);
+		}
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(),e.getValue());
 	}
 
 	/* (non-Javadoc)
@@ -271,41 +508,187 @@ public final class SoftHashMap<K,V> implements Map<K,V>
 	 */
 	public V remove(Object key)
 	{
-		pollRefQueue();
-		return map.remove(key);
+		expungeStaleEntries(MAX_INCREMENTAL_PURGE);
+		Entry<K,V> e = getEntry(key);
+		if(e == null)
+			return null;
+		V prev = e.value;
+		removeEntry(e);
+		return prev;
 	}
-
-	/* (non-Javadoc)
-	 * @see java.util.Map#size()
+	
+	private void removeEntry(Entry<K,V> e)
+	{
+		if(maxStrongEntries > 0)
+			unpin((LinkedEntry<K,V>)e);
+		unlink(e);
+		// do not report it again if the key is collected later
+		e.clear();
+		++modCount;
+	}
+	
+	private void recordAccess(LinkedEntry<K,V> e)
+	{
+		if(e.strongKey != null)
+		{
+			if(e == tail)
+				return;
+			detach(e);
+		}
+		else
+		{
+			e.strongKey = e.get();
+			++strongCount;
+		}
+		// append as most recently used
+		e.before = tail;
+		e.after = null;
+		if(tail == null)
+			head = e;
+		else
+			tail.after = e;
+		tail = e;
+		
+		// eldest entries become softly reachable only
+		while(strongCount > maxStrongEntries)
+			unpin(head);
+	}
+	
+	private void unpin(LinkedEntry<K,V> e)
+	{
+		if(e.strongKey == null)
+			return;
+		detach(e);
+		e.strongKey = null;
+		e.before = e.after = null;
+		--strongCount;
+	}
+	
+	private void detach(LinkedEntry<K,V> e)
+	{
+		if(e.before == null)
+			head = e.after;
+		else
+			e.before.after = e.after;
+		if(e.after == null)
+			tail = e.before;
+		else
+			e.after.before = e.before;
+	}
+	
+	/**
+	 * Returns the number of entries currently held strongly.
+	 * 
+	 * @return the number of strongly held entries
 	 */
-	public int size() 
+	int getStrongCount()
 	{
-		pollRefQueue();
-		return map.size();
+		return strongCount;
 	}
 
 	/* (non-Javadoc)
-	 * @see java.util.Map#values()
+	 * @see java.util.Map#size()
 	 */
-	public Collection<V> values() 
+	public int size() 
 	{
-		return map.values();
+		purge();
+		return size;
 	}
 	
-	@Override
-	public boolean equals(Object o)
-	{
-		return map.equals(o);
-	}
-	@Override
-	public int hashCode()
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>>
 	{
-		return map.hashCode();
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator()
+		{
+			return new EntryIterator();
+		}
+		@Override
+		public int size()
+		{
+			return SoftHashMap.this.size();
+		}
+		@Override
+		public boolean contains(Object o)
+		{
+			if(!(o instanceof Map.Entry<?,?>)) return false;
+			Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+			Entry<K,V> candidate = getEntry(e.getKey());
+			return candidate != null && MiscUtils.safeEquals(candidate.value, e.getValue());
+		}
+		@Override
+		public boolean remove(Object o)
+		{
+			if(!contains(o)) return false;
+			SoftHashMap.this.remove(((Map.Entry<?,?>)o).getKey());
+			return true;
+		}
+		@Override
+		public void clear()
+		{
+			SoftHashMap.this.clear();
+		}
 	}
-	@Override
-	public String toString()
+	
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>>
 	{
-		return map.toString();
+		private int index;
+		private Entry<K,V> entry;
+		private Entry<K,V> lastReturned;
+		private int expectedModCount;
+		// strong references so that the keys cannot be collected between hasNext and next
+		private Object nextKey;
+		private Object currentKey;
+		
+		EntryIterator()
+		{
+			purge();
+			index = table.length;
+			expectedModCount = modCount;
+		}
+		
+		public boolean hasNext()
+		{
+			Entry<K,V> [] t = table;
+			while(nextKey == null)
+			{
+				Entry<K,V> e = entry;
+				int i = index;
+				while(e == null && i > 0)
+					e = t[--i];
+				entry = e;
+				index = i;
+				if(e == null)
+					return false;
+				nextKey = e.get();
+				if(nextKey == null)
+					entry = entry.next;
+			}
+			return true;
+		}
+		
+		public Map.Entry<K, V> next()
+		{
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			lastReturned = entry;
+			entry = entry.next;
+			currentKey = nextKey;
+			nextKey = null;
+			return lastReturned;
+		}
+		
+		public void remove()
+		{
+			if(lastReturned == null)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			removeEntry(lastReturned);
+			expectedModCount = modCount;
+			lastReturned = null;
+			currentKey = null;
+		}
 	}
-
 }
@@ -29,15 +29,28 @@ package com.gamesalutes.utils;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Map that expires entries based on a last update time threshold. Actual storage is passed through a backed map.
+ * <p>
+ * Entries using the map timeout are kept in an expiry queue ordered by their last write 
+ * (or last access for {@link ExpirationPolicy#AFTER_ACCESS}), so expired entries are always at the head
+ * and each operation only inspects the entries that have actually expired.  Entries put with a per-entry
+ * timeout override are kept in a separate deadline-ordered heap.
+ * <p>
+ * This implementation is unsynchronized.  Expired entries are removed during calls to the map, or
+ * periodically in the background with {@link #scheduleExpiration(ScheduledExecutorService, long, TimeUnit, Object)}.
  * 
  * @author jmontgomery
  *
@@ -46,9 +59,30 @@ import org.slf4j.LoggerFactory;
  */
 public final class TimedCacheMap<K,V> implements Map<K, V>,Serializable {
 
+	/**
+	 * Determines which operations restart the timeout of an entry.
+	 */
+	public enum ExpirationPolicy {
+		/**
+		 * Entries expire once the timeout has elapsed since they were last put.
+		 */
+		AFTER_WRITE,
+		/**
+		 * Entries expire once the timeout has elapsed since they were last put or retrieved with <code>get</code>.
+		 */
+		AFTER_ACCESS
+	}
+	
 	private final Map<K,V> storage;
-	private final Map<K,Long> timestampMap;
+	// entries using the map timeout in expiration order
+	private final LinkedHashMap<K,Expiry<K>> expiryQueue;
+	// same entries for lookups that must not reorder the queue, only needed for ExpirationPolicy.AFTER_ACCESS
+	private final Map<K,Expiry<K>> expiryIndex;
+	// entries with a per-entry timeout
+	private final Map<K,Expiry<K>> overrides;
+	private final PriorityQueue<Expiry<K>> overrideQueue;
 	private final long timeout;
+	private final ExpirationPolicy policy;
 	
 	private final Set<TimeoutListener<K, V>> listeners = 
 			new LinkedHashSet<TimeoutListener<K, V>>();
@@ -57,11 +91,37 @@ public final class TimedCacheMap<K,V> implements Map<K, V>,Serializable {
 	
 	
 	private static final long serialVersionUID = 1L;
-	
+
 	public interface TimeoutListener<K,V> {
 		public void onTimeout(K key,V value);
 	}
 	
+	private static final class Expiry<K> implements Comparable<Expiry<K>>,Serializable {
+		private static final long serialVersionUID = 1L;
+		
+		final K key;
+		final long timeout;
+		long time;
+		// false once superseded so that stale heap entries can be skipped
+		boolean live = true;
+		
+		Expiry(K key,long time,long timeout) {
+			this.key = key;
+			this.time = time;
+			this.timeout = timeout;
+		}
+		
+		long deadline() {
+			return time + timeout;
+		}
+		
+		public int compareTo(Expiry<K> o) {
+			long d1 = deadline();
+			long d2 = o.deadline();
+			return d1 < d2 ? -1 : (d1 == d2 ? 0 : 1);
+		}
+	}
+	
 	
 	public boolean addTimeoutListener(TimeoutListener<K, V> l)
 	{
@@ -87,62 +147,281 @@ public final class TimedCacheMap<K,V> implements Map<K, V>,Serializable {
 	}
 	
 	public TimedCacheMap(Map<K,V> storage,long timeoutMs) {
+		this(storage,timeoutMs,ExpirationPolicy.AFTER_WRITE);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param storage the backing map
+	 * @param timeoutMs the timeout of entries in milliseconds or a negative value for no timeout
+	 * @param policy the <code>ExpirationPolicy</code>
+	 */
+	public TimedCacheMap(Map<K,V> storage,long timeoutMs,ExpirationPolicy policy) {
 		if(storage == null) {
 			throw new NullPointerException("storage");
 		}
+		if(policy == null) {
+			throw new NullPointerException("policy");
+		}
 		this.storage = storage;
-		this.timestampMap = populateTimestamps(storage);
 		this.timeout = timeoutMs;
+		this.policy = policy;
+		
+		// an access ordered map moves an entry to the tail on get
+		this.expiryQueue = new LinkedHashMap<K,Expiry<K>>(
+				CollectionUtils.calcHashCapacity(storage.size() > 0 ? storage.size() : 16,CollectionUtils.LOAD_FACTOR),
+				CollectionUtils.LOAD_FACTOR,policy == ExpirationPolicy.AFTER_ACCESS);
+		this.expiryIndex = policy == ExpirationPolicy.AFTER_ACCESS ? 
+				CollectionUtils.<K,Expiry<K>>createHashMap(16,CollectionUtils.LOAD_FACTOR) : null;
+		this.overrides = CollectionUtils.createHashMap(16,CollectionUtils.LOAD_FACTOR);
+		this.overrideQueue = new PriorityQueue<Expiry<K>>();
+		
+		populateTimestamps(storage);
 	}
 	
-	private Long getTimestamp() {
-		return Long.valueOf((long)(System.nanoTime() / 1e6));
+	public long getTimeout() {
+		return timeout;
 	}
-	private Map<K,Long> populateTimestamps(Map<? extends K,? extends V> storage) {
-		Map<K,Long> map = CollectionUtils.createHashMap(storage.size() > 0 ? storage.size() : 16,CollectionUtils.LOAD_FACTOR);
+	
+	public ExpirationPolicy getExpirationPolicy() {
+		return policy;
+	}
+	
+	private static long getTimestamp() {
+		return System.nanoTime() / 1000000L;
+	}
+	
+	private void populateTimestamps(Map<? extends K,? extends V> storage) {
+		long timestamp = getTimestamp();
 		
-		populateTimestamps(storage,map);
+		for(K key : storage.keySet()) {
+			track(key,timestamp);
+		}
+	}
+	
+	/**
+	 * Starts or restarts the timeout of <code>key</code> using the map timeout.
+	 */
+	private void track(K key,long now) {
+		untrackOverride(key);
+		if(timeout < 0) {
+			return;
+		}
 		
-		return map;
+		Expiry<K> e = expiryQueue.remove(key);
+		if(e == null) {
+			e = new Expiry<K>(key,now,timeout);
+		}
+		else {
+			e.time = now;
+		}
+		// (re)inserting moves the entry to the tail of the queue
+		expiryQueue.put(key, e);
+		if(expiryIndex != null) {
+			expiryIndex.put(key, e);
+		}
 	}
 	
-	private void populateTimestamps(Map<? extends K,? extends V> storage,Map<K,Long> timestamps) {
-		Long timestamp = getTimestamp();
+	/**
+	 * Starts or restarts the timeout of <code>key</code> using a per-entry timeout.
+	 */
+	private void trackOverride(K key,long entryTimeout,long now) {
+		removeExpiry(key);
+		untrackOverride(key);
 		
-		for(K key : storage.keySet()) {
-			timestamps.put(key, timestamp);
+		Expiry<K> e = new Expiry<K>(key,now,entryTimeout);
+		overrides.put(key, e);
+		if(entryTimeout >= 0) {
+			overrideQueue.add(e);
 		}
 	}
+	
+	private void untrackOverride(Object key) {
+		if(overrides.isEmpty()) {
+			return;
+		}
+		Expiry<K> e = overrides.remove(key);
+		if(e != null) {
+			e.live = false;
+			compactOverrides();
+		}
+	}
+	
+	private void compactOverrides() {
+		// drop superseded heap entries once they outnumber the live ones
+		if(overrideQueue.size() > 2 * overrides.size() + 16) {
+			for(Iterator<Expiry<K>> i = overrideQueue.iterator(); i.hasNext();) {
+				if(!i.next().live) {
+					i.remove();
+				}
+			}
+		}
+	}
+	
+	private void untrack(Object key) {
+		removeExpiry(key);
+		untrackOverride(key);
+	}
+	
+	private void removeExpiry(Object key) {
+		expiryQueue.remove(key);
+		if(expiryIndex != null) {
+			expiryIndex.remove(key);
+		}
+	}
+	
+	private void touch(Object key) {
+		if(policy != ExpirationPolicy.AFTER_ACCESS) {
+			return;
+		}
+		long now = getTimestamp();
+		
+		// get moves the entry to the tail of the access ordered queue
+		Expiry<K> e = expiryQueue.get(key);
+		if(e != null) {
+			e.time = now;
+			return;
+		}
+		e = overrides.get(key);
+		if(e != null && e.timeout >= 0) {
+			e.live = false;
+			Expiry<K> renewed = new Expiry<K>(e.key,now,e.timeout);
+			overrides.put(e.key, renewed);
+			overrideQueue.add(renewed);
+			compactOverrides();
+		}
+	}
+	
 	public void clear() {
 		storage.clear();
-		timestampMap.clear();
+		expiryQueue.clear();
+		if(expiryIndex != null) {
+			expiryIndex.clear();
+		}
+		overrides.clear();
+		overrideQueue.clear();
 	}
 	
 	private void pollTimes() {
 		
-		if(timeout < 0) {
+		if(timeout < 0 && overrides.isEmpty()) {
 			return;
 		}
 		
 		long now = getTimestamp();
-		long threshold = now - timeout;
 		
-		for(Iterator<Map.Entry<K, Long>> i = timestampMap.entrySet().iterator(); i.hasNext();) {
-			Map.Entry<K,Long> timeEntry = i.next();
-			K key = timeEntry.getKey();
-			Long time = timeEntry.getValue();
+		if(timeout >= 0) {
+			long threshold = now - timeout;
 			
-			// expired
-			if(time < threshold) {
-				i.remove();
-				V value = storage.remove(key);
-				
-				notifyListeners(key,value);
+			// entries are in expiration order so stop at the first unexpired one
+			while(!expiryQueue.isEmpty()) {
+				Expiry<K> e = expiryQueue.values().iterator().next();
+				if(e.time >= threshold) {
+					break;
+				}
+				removeExpiry(e.key);
+				expire(e.key);
 			}
-			
-			//System.out.println("diff=" + (time - threshold));
-			
 		}
+		
+		while(!overrideQueue.isEmpty()) {
+			Expiry<K> e = overrideQueue.peek();
+			if(!e.live) {
+				overrideQueue.poll();
+				continue;
+			}
+			if(e.time >= now - e.timeout) {
+				break;
+			}
+			overrideQueue.poll();
+			overrides.remove(e.key);
+			expire(e.key);
+		}
+	}
+	
+	private void expire(K key) {
+		// the entry may have been removed through one of the collection views
+		if(storage.containsKey(key)) {
+			V value = storage.remove(key);
+			notifyListeners(key,value);
+		}
+	}
+	
+	/**
+	 * Returns the number of milliseconds until <code>key</code> expires, <code>Long.MAX_VALUE</code> if it never
+	 * expires, or <code>-1</code> if it is not tracked.  Unlike {@link #get(Object)} this does not count as an access 
+	 * with {@link ExpirationPolicy#AFTER_ACCESS}.
+	 * 
+	 * @param key the key
+	 * @return the remaining time to live in milliseconds
+	 */
+	long getTimeToLive(Object key) {
+		Expiry<K> e = overrides.isEmpty() ? null : overrides.get(key);
+		if(e == null && timeout >= 0) {
+			// get on the access ordered queue would move the entry without renewing it
+			e = expiryIndex != null ? expiryIndex.get(key) : expiryQueue.get(key);
+		}
+		if(e == null) {
+			return storage.containsKey(key) ? Long.MAX_VALUE : -1;
+		}
+		if(e.timeout < 0) {
+			return Long.MAX_VALUE;
+		}
+		return e.deadline() - getTimestamp();
+	}
+	
+	/**
+	 * Removes all expired entries, notifying any registered <code>TimeoutListener</code>.
+	 * 
+	 */
+	public void expire() {
+		pollTimes();
+	}
+	
+	/**
+	 * Schedules {@link #expire()} to run periodically on <code>executor</code> while holding this map's monitor.  
+	 * All other access to the map must then also synchronize on this map.
+	 * 
+	 * @param executor the <code>ScheduledExecutorService</code>
+	 * @param period the period between runs
+	 * @param unit the <code>TimeUnit</code> of <code>period</code>
+	 * @return the <code>ScheduledFuture</code> that can be used to cancel background expiration
+	 */
+	public ScheduledFuture<?> scheduleExpiration(ScheduledExecutorService executor,long period,TimeUnit unit) {
+		return scheduleExpiration(executor,period,unit,this);
+	}
+	
+	/**
+	 * Schedules {@link #expire()} to run periodically on <code>executor</code> while holding the monitor of 
+	 * <code>mutex</code>.  All other access to the map must then also synchronize on <code>mutex</code>.  For example,
+	 * pass the wrapper returned by <code>Collections.synchronizedMap</code> of this map.
+	 * 
+	 * @param executor the <code>ScheduledExecutorService</code>
+	 * @param period the period between runs
+	 * @param unit the <code>TimeUnit</code> of <code>period</code>
+	 * @param mutex the object to synchronize on
+	 * @return the <code>ScheduledFuture</code> that can be used to cancel background expiration
+	 */
+	public ScheduledFuture<?> scheduleExpiration(ScheduledExecutorService executor,long period,TimeUnit unit,final Object mutex) {
+		if(executor == null) {
+			throw new NullPointerException("executor");
+		}
+		if(mutex == null) {
+			throw new NullPointerException("mutex");
+		}
+		return executor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					synchronized(mutex) {
+						expire();
+					}
+				}
+				catch(Exception e) {
+					logger.warn("Exception during background expiration",e);
+				}
+			}
+		}, period, period, unit);
 	}
 
 	public boolean containsKey(Object key) {
@@ -161,7 +440,9 @@ public final class TimedCacheMap<K,V> implements Map<K, V>,Serializable {
 
 	public V get(Object key) {
 		pollTimes();
-		return storage.get(key);
+		V value = storage.get(key);
+		touch(key);
+		return value;
 	}
 
 	public boolean isEmpty() {
@@ -175,21 +456,37 @@ public final class TimedCacheMap<K,V> implements Map<K, V>,Serializable {
 
 	public V put(K key, V value) {
 		pollTimes();
-		this.timestampMap.put(key, getTimestamp());
+		track(key, getTimestamp());
+		
+		return storage.put(key, value);
+	}
+	
+	/**
+	 * Associates <code>value</code> with <code>key</code> using a timeout that overrides the map timeout
+	 * for this entry until it is put again.
+	 * 
+	 * @param key the key
+	 * @param value the value
+	 * @param timeoutMs the timeout of this entry in milliseconds or a negative value for no timeout
+	 * @return the previous value associated with <code>key</code>
+	 */
+	public V put(K key, V value, long timeoutMs) {
+		pollTimes();
+		trackOverride(key, timeoutMs, getTimestamp());
 		
 		return storage.put(key, value);
 	}
 
 	public void putAll(Map<? extends K, ? extends V> m) {
 		pollTimes();
-		this.populateTimestamps(m, this.timestampMap);
+		this.populateTimestamps(m);
 		
 		storage.putAll(m);
 	}
 
 	public V remove(Object key) {
 		pollTimes();
-		timestampMap.remove(key);
+		untrack(key);
 		return storage.remove(key);
 	}
 
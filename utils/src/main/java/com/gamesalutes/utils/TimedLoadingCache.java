@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe cache with {@link TimedCacheMap} expiration semantics that loads missing values on demand.
+ * <p>
+ * Concurrent requests for the same missing key are coalesced so that only one thread calls the loader while
+ * the others wait for its result.  Loading is done outside of the cache lock, so loads of different keys 
+ * proceed in parallel.  Optionally, a hit on an entry that is close to expiring triggers an asynchronous 
+ * refresh so that callers keep receiving the current value instead of stalling on a reload.
+ * <p>
+ * <code>null</code> values returned by a loader are not cached.
+ * 
+ * @author jmontgomery
+ *
+ * @param <K> the key
+ * @param <V> the value
+ */
+public final class TimedLoadingCache<K,V> {
+	
+	/**
+	 * Loads the value for a single key.
+	 */
+	public interface Loader<K,V> {
+		V load(K key) throws Exception;
+	}
+	
+	/**
+	 * Loads the values for a batch of keys in one call.  Keys absent from the returned map are treated
+	 * as not found.
+	 */
+	public interface BulkLoader<K,V> {
+		Map<K,V> loadAll(Collection<K> keys) throws Exception;
+	}
+	
+	// guarded by its own monitor, which also serializes background expiration
+	private final TimedCacheMap<K,V> cache;
+	// in-flight loads, guarded by the cache monitor
+	private final Map<K,LoadTask> loading;
+	private final long refreshAheadMs;
+	private final Executor refreshExecutor;
+	
+	private final Logger logger = LoggerFactory.getLogger(getClass().getSimpleName());
+	
+	/**
+	 * Constructor for a cache without refresh-ahead.
+	 * 
+	 * @param timeoutMs the timeout of entries in milliseconds or a negative value for no timeout
+	 */
+	public TimedLoadingCache(long timeoutMs) {
+		this(timeoutMs,TimedCacheMap.ExpirationPolicy.AFTER_WRITE,0,null);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param timeoutMs the timeout of entries in milliseconds or a negative value for no timeout
+	 * @param policy the <code>ExpirationPolicy</code>
+	 * @param refreshAheadMs when positive, a hit on an entry that expires within this many milliseconds 
+	 *        triggers an asynchronous reload on <code>refreshExecutor</code>
+	 * @param refreshExecutor the <code>Executor</code> for refresh-ahead loads; required if 
+	 *        <code>refreshAheadMs &gt; 0</code>
+	 */
+	public TimedLoadingCache(long timeoutMs,TimedCacheMap.ExpirationPolicy policy,long refreshAheadMs,Executor refreshExecutor) {
+		if(refreshAheadMs > 0 && refreshExecutor == null) {
+			throw new NullPointerException("refreshExecutor");
+		}
+		this.cache = new TimedCacheMap<K,V>(new HashMap<K,V>(),timeoutMs,policy);
+		this.loading = new HashMap<K,LoadTask>();
+		this.refreshAheadMs = refreshAheadMs;
+		this.refreshExecutor = refreshExecutor;
+	}
+	
+	/**
+	 * Load whose result is added to the cache on successful completion.  Bulk loads complete the task 
+	 * externally with {@link #set(Object)} and {@link #setException(Throwable)}.
+	 */
+	private final class LoadTask extends FutureTask<V> {
+		private final K key;
+		
+		LoadTask(final K key,final Loader<? super K,? extends V> loader) {
+			super(new Callable<V>() {
+				public V call() throws Exception {
+					return loader.load(key);
+				}
+			});
+			this.key = key;
+		}
+		
+		@SuppressWarnings("unchecked")
+		LoadTask(K key) {
+			super((Callable<V>)NULL_CALLABLE);
+			this.key = key;
+		}
+		
+		@Override
+		public void set(V value) {
+			super.set(value);
+		}
+		
+		@Override
+		public void setException(Throwable t) {
+			super.setException(t);
+		}
+		
+		@Override
+		protected void done() {
+			V value = null;
+			try {
+				if(!isCancelled()) {
+					value = get();
+				}
+			}
+			catch(Exception e) {
+				// reported to the callers waiting on this task
+			}
+			synchronized(cache) {
+				// a removal during the load invalidates its result
+				if(loading.get(key) == this) {
+					loading.remove(key);
+					if(value != null) {
+						cache.put(key, value);
+					}
+				}
+			}
+		}
+	}
+	
+	private static final Callable<Object> NULL_CALLABLE = new Callable<Object>() {
+		public Object call() {
+			return null;
+		}
+	};
+	
+	/**
+	 * Returns the value for <code>key</code>, loading it with <code>loader</code> if it is not cached.
+	 * If another thread is already loading <code>key</code>, waits for that load instead of starting another one.
+	 * 
+	 * @param key the key
+	 * @param loader the <code>Loader</code>
+	 * @return the value or <code>null</code> if the loader returned <code>null</code>
+	 * @throws ExecutionException if the loader threw an exception
+	 * @throws InterruptedException if interrupted while waiting for another thread's load
+	 */
+	public V get(K key,Loader<? super K,? extends V> loader) 
+		throws ExecutionException,InterruptedException {
+		if(key == null) {
+			throw new NullPointerException("key");
+		}
+		if(loader == null) {
+			throw new NullPointerException("loader");
+		}
+		
+		LoadTask task;
+		boolean owner = false;
+		LoadTask refresh = null;
+		V value;
+		synchronized(cache) {
+			// read before the get, which renews the entry with ExpirationPolicy.AFTER_ACCESS
+			long ttl = refreshAheadMs > 0 ? cache.getTimeToLive(key) : -1;
+			value = cache.get(key);
+			if(value != null) {
+				refresh = scheduleRefresh(key,ttl,loader);
+				task = null;
+			}
+			else {
+				task = loading.get(key);
+				if(task == null) {
+					task = new LoadTask(key,loader);
+					loading.put(key, task);
+					owner = true;
+				}
+			}
+		}
+		
+		if(refresh != null) {
+			executeRefresh(refresh);
+		}
+		if(task == null) {
+			return value;
+		}
+		
+		if(owner) {
+			task.run();
+		}
+		return task.get();
+	}
+	
+	/**
+	 * Returns the values for <code>keys</code>, loading all the missing keys with a single call to 
+	 * <code>bulkLoader</code>.  Keys already being loaded by other threads are waited on rather than reloaded.
+	 * 
+	 * @param keys the keys
+	 * @param bulkLoader the <code>BulkLoader</code>
+	 * @return map of the keys that were found to their values in iteration order of <code>keys</code>
+	 * @throws ExecutionException if the bulk loader threw an exception
+	 * @throws InterruptedException if interrupted while waiting for another thread's load
+	 */
+	public Map<K,V> getAll(Collection<? extends K> keys,BulkLoader<K,V> bulkLoader) 
+		throws ExecutionException,InterruptedException {
+		if(keys == null) {
+			throw new NullPointerException("keys");
+		}
+		if(bulkLoader == null) {
+			throw new NullPointerException("bulkLoader");
+		}
+		
+		Map<K,V> result = new LinkedHashMap<K,V>(CollectionUtils.calcHashCapacity(keys.size(),CollectionUtils.LOAD_FACTOR));
+		Map<K,LoadTask> owned = new LinkedHashMap<K,LoadTask>();
+		Map<K,LoadTask> pending = new LinkedHashMap<K,LoadTask>();
+		
+		// check every key before registering any load so that a bad key cannot strand the tasks of the others
+		for(K key : keys) {
+			if(key == null) {
+				throw new NullPointerException("key");
+			}
+		}
+		
+		synchronized(cache) {
+			for(K key : keys) {
+				if(result.containsKey(key) || owned.containsKey(key) || pending.containsKey(key)) {
+					continue;
+				}
+				V value = cache.get(key);
+				if(value != null) {
+					result.put(key, value);
+					continue;
+				}
+				LoadTask task = loading.get(key);
+				if(task != null) {
+					pending.put(key, task);
+				}
+				else {
+					task = new LoadTask(key);
+					loading.put(key, task);
+					owned.put(key, task);
+				}
+			}
+		}
+		
+		if(!owned.isEmpty()) {
+			Map<K,V> loaded;
+			try {
+				loaded = bulkLoader.loadAll(Collections.unmodifiableList(new ArrayList<K>(owned.keySet())));
+			}
+			catch(Throwable t) {
+				for(LoadTask task : owned.values()) {
+					task.setException(t);
+				}
+				throw new ExecutionException(t);
+			}
+			for(Map.Entry<K,LoadTask> e : owned.entrySet()) {
+				e.getValue().set(loaded != null ? loaded.get(e.getKey()) : null);
+			}
+			pending.putAll(owned);
+		}
+		
+		for(Map.Entry<K,LoadTask> e : pending.entrySet()) {
+			V value = e.getValue().get();
+			if(value != null) {
+				result.put(e.getKey(), value);
+			}
+		}
+		
+		// restore the order of the input keys
+		if(!pending.isEmpty()) {
+			Map<K,V> ordered = new LinkedHashMap<K,V>(CollectionUtils.calcHashCapacity(result.size(),CollectionUtils.LOAD_FACTOR));
+			for(K key : keys) {
+				V value = result.get(key);
+				if(value != null) {
+					ordered.put(key, value);
+				}
+			}
+			result = ordered;
+		}
+		return result;
+	}
+	
+	private LoadTask scheduleRefresh(K key,long ttl,Loader<? super K,? extends V> loader) {
+		if(refreshAheadMs <= 0 || loading.containsKey(key)) {
+			return null;
+		}
+		if(ttl > refreshAheadMs) {
+			return null;
+		}
+		LoadTask task = new LoadTask(key,loader);
+		loading.put(key, task);
+		return task;
+	}
+	
+	private void executeRefresh(LoadTask task) {
+		try {
+			refreshExecutor.execute(task);
+		}
+		catch(RuntimeException e) {
+			logger.warn("Unable to schedule refresh of key=" + task.key,e);
+			task.cancel(false);
+		}
+	}
+	
+	/**
+	 * Returns the cached value for <code>key</code> without loading it.
+	 * 
+	 * @param key the key
+	 * @return the value or <code>null</code> if not cached
+	 */
+	public V getIfPresent(K key) {
+		synchronized(cache) {
+			return cache.get(key);
+		}
+	}
+	
+	/**
+	 * Adds or replaces the value for <code>key</code>, superseding any in-flight load.
+	 * 
+	 * @param key the key
+	 * @param value the value
+	 */
+	public void put(K key,V value) {
+		if(key == null) {
+			throw new NullPointerException("key");
+		}
+		if(value == null) {
+			throw new NullPointerException("value");
+		}
+		synchronized(cache) {
+			loading.remove(key);
+			cache.put(key, value);
+		}
+	}
+	
+	/**
+	 * Removes <code>key</code> from the cache.  The result of an in-flight load of <code>key</code> is 
+	 * still returned to its callers but is not cached.
+	 * 
+	 * @param key the key
+	 */
+	public void invalidate(K key) {
+		synchronized(cache) {
+			loading.remove(key);
+			cache.remove(key);
+		}
+	}
+	
+	/**
+	 * Removes all entries from the cache.
+	 * 
+	 */
+	public void invalidateAll() {
+		synchronized(cache) {
+			loading.clear();
+			cache.clear();
+		}
+	}
+	
+	public int size() {
+		synchronized(cache) {
+			return cache.size();
+		}
+	}
+	
+	public boolean addTimeoutListener(TimedCacheMap.TimeoutListener<K, V> l) {
+		synchronized(cache) {
+			return cache.addTimeoutListener(l);
+		}
+	}
+	
+	public boolean removeTimeoutListener(TimedCacheMap.TimeoutListener<K, V> l) {
+		synchronized(cache) {
+			return cache.removeTimeoutListener(l);
+		}
+	}
+	
+	/**
+	 * Periodically removes expired entries in the background.
+	 * 
+	 * @param executor the <code>ScheduledExecutorService</code>
+	 * @param period the period between runs
+	 * @param unit the <code>TimeUnit</code> of <code>period</code>
+	 * @return the <code>ScheduledFuture</code> that can be used to cancel background expiration
+	 */
+	public ScheduledFuture<?> scheduleExpiration(ScheduledExecutorService executor,long period,TimeUnit unit) {
+		return cache.scheduleExpiration(executor, period, unit, cache);
+	}
+}
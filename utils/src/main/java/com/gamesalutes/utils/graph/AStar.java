@@ -40,17 +40,16 @@
 package com.gamesalutes.utils.graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
-
-import com.gamesalutes.utils.CollectionUtils;
 
 /**
  * An implementation of the A* Algorithm based on 
  * <a href="http://en.wikipedia.org/wiki/A-star_algorithm">Wikipedia</a>.
+ * <p>
+ * Scores and parents are kept in a {@link TraversalResult} and the graph is not modified, so any number of 
+ * instances may execute concurrently on the same graph.  The vertices of {@link #getTraversal()} are copies 
+ * whose weight is the best distance found from the source.
  * 
  * @author Justin Montgomery
  * @version $Id: AStar.java 1672 2009-09-02 19:17:16Z jmontgomery $
@@ -59,6 +58,7 @@ public final class AStar<V,E> extends AbstractGraphTraversal<V, E>
 {
 	private Vertex<V> target;
 	private AStarCallback<V> callback;
+	private TraversalResult<V> result;
 	
 	private static final int START_SIZE = 64;
 	
@@ -67,30 +67,6 @@ public final class AStar<V,E> extends AbstractGraphTraversal<V, E>
 		float heuristicDistance(Vertex<V> source,Vertex<V> target);
 	}
 	
-	/**
-	 * Data structure to hold the goal and heuristic scores.  The final score which is
-	 * the sum of the current best goal score from source to vertex v and the current heuristic
-	 * score from v to target is stored as the weight in vertex v.
-	 * 
-	 * @author Justin Montgomery
-	 * @version $Id: AStar.java 1672 2009-09-02 19:17:16Z jmontgomery $
-	 *
-	 */
-	private static class Score
-	{
-		float goalScore;
-		float heuristicScore;
-		
-		public Score()
-		{
-			this(0.0f,0.0f);
-		}
-		public Score(float gScore,float hScore)
-		{
-			this.goalScore = gScore;
-			this.heuristicScore = hScore;
-		}
-	}
 	/**
 	 * Constructor.
 	 * 
@@ -117,87 +93,67 @@ public final class AStar<V,E> extends AbstractGraphTraversal<V, E>
 		final int expSize = graph.numVerts() >= START_SIZE ? START_SIZE : graph.numVerts();
 		
 		traversal = new ArrayList<Vertex<V>>(expSize);
-		Set<Vertex<V>> closedSet = CollectionUtils.createHashSet(
-				expSize, CollectionUtils.LOAD_FACTOR);
-		SortedSet<Vertex<V>> openSet = new TreeSet<Vertex<V>>();
-		Map<Vertex<V>,Score> scoreMap = CollectionUtils.createHashMap(expSize,
-				CollectionUtils.LOAD_FACTOR);
-		
-		// do this on demand
-//		for(Iterator<Vertex<V>> it = graph.vertexIterator(); it.hasNext();)
-//			scoreMap.put(it.next(), new Score());
-			
-		// set initial score of source
-		Score sourceScore = new Score();
-		sourceScore.goalScore = 0.0f;
-		sourceScore.heuristicScore = callback.heuristicDistance(source, target);
-		scoreMap.put(source, sourceScore);
+		if(graph instanceof CSRGraph)
+			return execute((CSRGraph<V,E>)graph,expSize);
 		
-		source.setWeight(sourceScore.heuristicScore);
-		source.setParent(null);
-		source.setLevel(0);
+		// goal scores are the result distances and heap ids the result ids assigned in order of discovery
+		result = new TraversalResult<V>(expSize);
+		float [] heuristicScores = new float[expSize > 0 ? expSize : 1];
+		boolean [] closedSet = new boolean[heuristicScores.length];
+		IndexedHeap openSet = new IndexedHeap(expSize);
 		
-		openSet.add(source);
+		// set initial score of source
+		int s = result.add(source);
+		result.set(s,0.0f,-1,0);
+		heuristicScores[s] = callback.heuristicDistance(source, target);
+		openSet.insert(s,heuristicScores[s]);
 		
 		while(!openSet.isEmpty())
 		{
-			Vertex<V> x = openSet.first();
+			final int xi = openSet.poll();
+			Vertex<V> x = result.settle(xi);
 			traversal.add(x);
 			
-			if(x == target) return this;
+			if(x.equals(target)) return this;
 			
-			openSet.remove(x);
-			closedSet.add(x);
-			
-			Score xScore = scoreMap.get(x);
+			closedSet[xi] = true;
 			
+			final Vertex<V> xVertex = result.vertex(xi);
+			final float xGoalScore = result.distance(xi);
 			// for all the neighbors of x
-			for(Iterator<Edge<V,E>> it = graph.edgeIterator(x); it.hasNext();)
+			for(Iterator<Edge<V,E>> it = graph.edgeIterator(xVertex); it.hasNext();)
 			{
 				Edge<V,E> e = it.next();
 				Vertex<V> y = e.getTo();
 				// only considering outgoing edges
-				if(y == x) continue;
-				
-				if(closedSet.contains(y)) continue;
+				if(y == xVertex) continue;
 				
-				Score yScore = scoreMap.get(y);
+				int yi = result.indexOf(y);
 				// encountered this vertex for first time
-				if(yScore == null)
+				if(yi == -1)
 				{
-					yScore = new Score();
-					scoreMap.put(y, yScore);
+					yi = result.add(y);
+					if(yi == heuristicScores.length)
+					{
+						heuristicScores = Arrays.copyOf(heuristicScores,yi * 2);
+						closedSet = Arrays.copyOf(closedSet,yi * 2);
+					}
 				}
+				else if(closedSet[yi])
+					continue;
 				
-				float newGoalScore = xScore.goalScore + e.getWeight();
-				boolean newScoreBetter = false;
-				boolean inOpen = true;
+				float newGoalScore = xGoalScore + e.getWeight();
 				
-				if(!openSet.contains(y))
-				{
-					//openSet.add(y);
-					y.setParent(null);
-					y.setLevel(-1);
-					yScore.heuristicScore = callback.heuristicDistance(y, target);
-					newScoreBetter = true;
-					inOpen = false;
-				}
-				else if(newGoalScore < yScore.goalScore)
+				if(!openSet.contains(yi))
 				{
-					newScoreBetter = true;
+					heuristicScores[yi] = callback.heuristicDistance(y, target);
+					result.set(yi,newGoalScore,xi,result.level(xi) + 1);
+					openSet.insert(yi,newGoalScore + heuristicScores[yi]);
 				}
-				
-				if(newScoreBetter)
+				else if(newGoalScore < result.distance(yi))
 				{
-					y.setParent(x);
-					y.setLevel(x.getLevel() + 1);
-					yScore.goalScore = newGoalScore;
-					float score = newGoalScore + yScore.heuristicScore;
-					// must remove and re-add since changing comparison value
-					if(inOpen)
-						openSet.remove(y);
-					y.setWeight(score);
-					openSet.add(y);
+					result.set(yi,newGoalScore,xi,result.level(xi) + 1);
+					openSet.decreaseKey(yi,newGoalScore + heuristicScores[yi]);
 				}
 			} // end for
 	
@@ -207,5 +163,82 @@ public final class AStar<V,E> extends AbstractGraphTraversal<V, E>
 		throw new RuntimeException("Unable to reach target; source=" + source + ";target=" + target);
 		
 	} // end execute
+	
+	/**
+	 * Primitive version of {@link #execute()} that keeps the heuristic scores and closed set in arrays 
+	 * indexed by vertex id and expands over the arrays of <code>csr</code>.
+	 */
+	private AStar<V,E> execute(CSRGraph<V,E> csr,int expSize)
+	{
+		final int [] offsets = csr.offsets();
+		final int [] targets = csr.targets();
+		final float [] weights = csr.weights();
+		final int n = csr.numVerts();
+		final int t = csr.indexOf(target);
+		
+		result = new TraversalResult<V>(csr);
+		final float [] goalScores = result.distances();
+		final int [] parents = result.parents();
+		final int [] levels = result.levels();
+		float [] heuristicScores = new float[n];
+		boolean [] closedSet = new boolean[n];
+		IndexedHeap openSet = new IndexedHeap(expSize);
+		
+		final int s = csr.indexOf(source);
+		result.set(s,0.0f,-1,0);
+		heuristicScores[s] = callback.heuristicDistance(source, target);
+		openSet.insert(s,heuristicScores[s]);
+		
+		while(!openSet.isEmpty())
+		{
+			final int xi = openSet.poll();
+			traversal.add(result.settle(xi));
+			
+			if(xi == t) return this;
+			
+			closedSet[xi] = true;
+			
+			// for all the neighbors of x
+			for(int a = offsets[xi], end = offsets[xi + 1]; a < end; ++a)
+			{
+				int yi = targets[a];
+				if(yi == xi || closedSet[yi]) continue;
+				
+				float newGoalScore = goalScores[xi] + weights[a];
+				
+				if(!openSet.contains(yi))
+				{
+					heuristicScores[yi] = callback.heuristicDistance(csr.getVertex(yi), target);
+					goalScores[yi] = newGoalScore;
+					parents[yi] = xi;
+					levels[yi] = levels[xi] + 1;
+					openSet.insert(yi,newGoalScore + heuristicScores[yi]);
+				}
+				else if(newGoalScore < goalScores[yi])
+				{
+					goalScores[yi] = newGoalScore;
+					parents[yi] = xi;
+					levels[yi] = levels[xi] + 1;
+					openSet.decreaseKey(yi,newGoalScore + heuristicScores[yi]);
+				}
+			} // end for
+		} // end while
+		
+		// couldn't reach destination
+		throw new RuntimeException("Unable to reach target; source=" + source + ";target=" + target);
+	}
+	
+	/**
+	 * Returns the distances and path tree of the last execution.
+	 * 
+	 * @return the <code>TraversalResult</code>
+	 * @throws IllegalStateException if <code>execute</code> has not been called
+	 */
+	public TraversalResult<V> getResult()
+	{
+		if(result == null)
+			throw new IllegalStateException("execute not called");
+		return result;
+	}
 
 }
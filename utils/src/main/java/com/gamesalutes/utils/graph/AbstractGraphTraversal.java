@@ -29,7 +29,8 @@ package com.gamesalutes.utils.graph;
 import java.util.*;
 
 /**
- * Skeletal implementation for {@link GraphTraversalAlgorithm}.
+ * Skeletal implementation for {@link GraphTraversalAlgorithm}.  Traversals do not modify the vertices of the graph;
+ * the level and parent of each traversed vertex are set on the copy of it in the traversal.
  * 
  * @author Justin Montgomery
  * @version $Id: AbstractGraphTraversal.java 1946 2010-02-26 17:55:34Z jmontgomery $
@@ -77,26 +78,20 @@ public abstract class AbstractGraphTraversal<V,E> implements GraphTraversalAlgor
 			this.callback = callback;
 		else
 			this.callback = new DefaultGraphTraversalCallback<V,E>();
-		
-		prepareGraph();
 	}
 	
-	private void prepareGraph()
+	/**
+	 * Returns a copy of the source to start the traversal from with no parent and a level of zero
+	 * so that the source passed to the constructor is not modified.
+	 * 
+	 * @return the copy of the source
+	 */
+	protected Vertex<V> copySource()
 	{
-		// set all vertex weights to infinity except for the source
-		float maxEdgeWt = 0.0f;
-		for(Iterator<Edge<V,E>> it = graph.edgeIterator(); it.hasNext();)
-		{
-			float wt = it.next().getWeight();
-			if(wt > maxEdgeWt) wt = maxEdgeWt;
-		}
-		for(Iterator<Vertex<V>> it = graph.vertexIterator(); it.hasNext();)
-		{
-			Vertex<V> v = it.next();
-			v.setWeight(Float.MAX_VALUE - maxEdgeWt);
-			v.setParent(null);
-			v.setLevel(-1);
-		}	
+		Vertex<V> copy = source.clone();
+		copy.setParent(null);
+		copy.setLevel(0);
+		return copy;
 	}
 	public List<Vertex<V>> getPath(Vertex<V> dest) 
 	{
@@ -33,6 +33,12 @@ import com.gamesalutes.utils.CollectionUtils;
 
 /**
  * Adjacency list implementation of the {@link Graph} interface.
+ * <p>
+ * {@link #containsEdge(Edge)} and {@link #removeEdge(Edge)} are hash lookups in the edge set of a vertex, 
+ * while {@link #findEdge(Vertex, Vertex)} scans the edges of the source.  A graph created with 
+ * <code>indexDestinations</code> also maps each source to the first of its edges to each destination, making 
+ * <code>findEdge</code> a hash lookup for high degree vertices at the cost of a map entry per source and 
+ * destination pair.
  * 
  * @author Justin Montgomery
  * @version $Id: AdjacencyList.java 1639 2009-07-20 19:28:25Z jmontgomery $
@@ -47,6 +53,8 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 	private Map<Vertex<V>,Set<Edge<V,E>>> edgeMap;
 	private boolean isDirected;
 	private int numEdges;
+	// source -> destination -> first edge, or null if not indexed
+	private Map<Vertex<V>,Map<Vertex<V>,Destination<V,E>>> destinations;
 	
 	private static final long serialVersionUID = 2L;
 	/**
@@ -56,10 +64,25 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 	 *                   <code>false</code> for undirected graph
 	 */
 	public AdjacencyList(boolean isDirected)
+	{
+		this(isDirected,false);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param isDirected <code>true</code> for a directed graph
+	 *                   <code>false</code> for undirected graph
+	 * @param indexDestinations <code>true</code> to index the edges of each source by destination so 
+	 *                   {@link #findEdge(Vertex, Vertex)} does not scan the edges of the source
+	 */
+	public AdjacencyList(boolean isDirected,boolean indexDestinations)
 	{
 		this.isDirected = isDirected;
 		vertices = new LinkedHashMap<Vertex<V>,Vertex<V>>();
 		edgeMap = new LinkedHashMap<Vertex<V>,Set<Edge<V,E>>>();
+		if(indexDestinations)
+			destinations = new HashMap<Vertex<V>,Map<Vertex<V>,Destination<V,E>>>();
 	}
 	
 	/**
@@ -71,7 +94,20 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 	 */
 	public AdjacencyList(Graph<V,E> graph,boolean isDirected)
 	{
-		this(isDirected);
+		this(graph,isDirected,false);
+	}
+	
+	/**
+	 * Copy Constructor.
+	 * 
+	 * @param graph <code>Graph</code> to copy
+	 * @param isDirected <code>true</code> for a directed graph
+	 *                   <code>false</code> for undirected graph
+	 * @param indexDestinations <code>true</code> to index the edges of each source by destination
+	 */
+	public AdjacencyList(Graph<V,E> graph,boolean isDirected,boolean indexDestinations)
+	{
+		this(isDirected,indexDestinations);
 		
 		for(Iterator<Vertex<V>> it = graph.vertexIterator(); it.hasNext();)
 			addVertex(it.next());
@@ -149,6 +185,19 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 		g.vertices = newVerts;
 		g.edgeMap = newEdgeMap;
 		
+		if(destinations != null)
+		{
+			g.destinations = new HashMap<Vertex<V>,Map<Vertex<V>,Destination<V,E>>>();
+			for(Map.Entry<Vertex<V>,Set<Edge<V,E>>> E : newEdgeMap.entrySet())
+			{
+				for(Edge<V,E> e : E.getValue())
+				{
+					if(e.getFrom() == E.getKey())
+						g.index(e);
+				}
+			}
+		}
+		
 		return g;
 	}
 	
@@ -211,6 +260,8 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 		//must add to edge list of both from and to
 		boolean first = _addEdge(from,e);
 		boolean second = _addEdge(to,e);
+		if(first && destinations != null)
+			index(e);
 		
 		return first || second;
 	}
@@ -308,7 +359,15 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 		// since an edge is added to edge sets of both to and from
 		// it must also be removed from both to and from
 		if(edgeMap.containsKey(from))
-			modified |= edgeMap.get(from).remove(e);
+		{
+			Set<Edge<V,E>> edgeSet = edgeMap.get(from);
+			if(edgeSet.remove(e))
+			{
+				modified = true;
+				if(destinations != null)
+					unindex(edgeSet,e);
+			}
+		}
 		if(edgeMap.containsKey(to))
 			modified |= edgeMap.get(to).remove(e);
 		return modified;
@@ -340,6 +399,13 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 						
 				} //end for
 			} //end for
+			
+			if(destinations != null)
+			{
+				destinations.remove(v);
+				for(Map<Vertex<V>,Destination<V,E>> index : destinations.values())
+					index.remove(v);
+			}
 		}
 			
 		return removed;
@@ -386,6 +452,8 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 	{
 		vertices.clear();
 		edgeMap.clear();
+		if(destinations != null)
+			destinations.clear();
 		numEdges = 0;
 	}
 
@@ -401,6 +469,14 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 		if(!vertices.containsKey(dest))
 			throw new IllegalArgumentException("dest not in graph");
 		
+		// the edge set of a vertex also has the edges into it, so a self loop is found by scanning
+		if(destinations != null && !source.equals(dest))
+		{
+			Map<Vertex<V>,Destination<V,E>> index = destinations.get(source);
+			Destination<V,E> d = index != null ? index.get(dest) : null;
+			return d != null ? d.first : null;
+		}
+		
 		//examine edge list of source
 		Set<Edge<V,E>> edges = edgeMap.get(source);
 		if(edges != null)
@@ -419,7 +495,7 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 		if(!isDirected)
 			return this;
 		else
-			return new AdjacencyList<V,E>(this,false);
+			return new AdjacencyList<V,E>(this,false,destinations != null);
 	}
 
 	/* (non-Javadoc)
@@ -428,9 +504,76 @@ public class AdjacencyList<V,E> extends AbstractGraph<V,E> implements Serializab
 	@Override
 	protected Graph<V, E> newInstance(boolean isDirected)
 	{
-		return new AdjacencyList<V,E>(isDirected);
+		return new AdjacencyList<V,E>(isDirected,destinations != null);
 	}
 	
-
-
+	/**
+	 * Adds <code>e</code>, which was just added to the edge set of its source, to the destination index.
+	 * Self loops are not indexed since <code>findEdge</code> scans for them.
+	 * 
+	 */
+	private void index(Edge<V,E> e)
+	{
+		if(e.isSelfLoop()) return;
+		Vertex<V> from = e.getFrom();
+		Map<Vertex<V>,Destination<V,E>> index = destinations.get(from);
+		if(index == null)
+		{
+			index = new HashMap<Vertex<V>,Destination<V,E>>();
+			destinations.put(from,index);
+		}
+		Destination<V,E> d = index.get(e.getTo());
+		if(d == null)
+			index.put(e.getTo(),new Destination<V,E>(e));
+		else
+			++d.count;
+	}
+	
+	/**
+	 * Removes <code>e</code>, which was just removed from <code>edgeSet</code> of its source, from the destination
+	 * index.
+	 * 
+	 */
+	private void unindex(Set<Edge<V,E>> edgeSet,Edge<V,E> e)
+	{
+		if(e.isSelfLoop()) return;
+		Vertex<V> dest = e.getTo();
+		Map<Vertex<V>,Destination<V,E>> index = destinations.get(e.getFrom());
+		Destination<V,E> d = index.get(dest);
+		if(--d.count == 0)
+		{
+			index.remove(dest);
+			if(index.isEmpty())
+				destinations.remove(e.getFrom());
+		}
+		else if(d.first.equals(e))
+		{
+			// next parallel edge in insertion order
+			for(Edge<V,E> next : edgeSet)
+			{
+				if(next.getTo().equals(dest))
+				{
+					d.first = next;
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * First edge from a source to a destination and the number of such edges.
+	 * 
+	 */
+	private static final class Destination<V,E> implements Serializable
+	{
+		Edge<V,E> first;
+		int count = 1;
+		
+		private static final long serialVersionUID = 1L;
+		
+		Destination(Edge<V,E> first)
+		{
+			this.first = first;
+		}
+	}
 }
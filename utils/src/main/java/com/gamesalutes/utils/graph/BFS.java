@@ -84,22 +84,25 @@ public final class BFS<V,E> extends AbstractGraphTraversal<V,E>
 	public BFS<V,E> execute()
 	{
 		traversal = new ArrayList<Vertex<V>>(graph.numVerts());
+		if(graph instanceof CSRGraph)
+			return execute((CSRGraph<V,E>)graph);
+		
 		Queue<Vertex<V>> queue = new LinkedList<Vertex<V>>();
 		Queue<Integer> pathQueue = new LinkedList<Integer>();
 		
 		int pathCount = 0;
 		
-		source.setLevel(0);
-		queue.add(source);
+		Vertex<V> start = copySource();
+		queue.add(start);
 		pathQueue.add(pathCount);
 		
 		
 		Set<Vertex<V>> visited = new HashSet<Vertex<V>>();
-		visited.add(source);
-		traversal.add(source);
+		visited.add(start);
+		traversal.add(start);
 		
 		callback.onBegin(this);
-		callback.onTraverse(new GraphTraversalElement<V,E>(this,source,null,
+		callback.onTraverse(new GraphTraversalElement<V,E>(this,start,null,
 				Integer.valueOf(pathCount),Integer.valueOf(pathCount)));
 		
 		List<Vertex<V>> queueCurrLevel = new ArrayList<Vertex<V>>();
@@ -127,15 +130,11 @@ public final class BFS<V,E> extends AbstractGraphTraversal<V,E>
 					// and don't want to go backwards again
 					if(!next.equals(vertex) && !next.equals(vertex.getParent()))
 					{
-						// must make copy of vertex
+						// must make copy of vertex, whose parent may be left over from an earlier
+						// traversal so it is always replaced
 						next = next.clone();
-						
-						boolean firstEncounter = next.getParent() == null;
-						if(firstEncounter)
-						{
-							next.setParent(vertex);
-							next.setLevel(vertex.getLevel() + 1);	
-						}
+						next.setParent(vertex);
+						next.setLevel(vertex.getLevel() + 1);
 						
 						Integer newPathId;
 						if(edgeCount > 1)
@@ -147,8 +146,7 @@ public final class BFS<V,E> extends AbstractGraphTraversal<V,E>
 						
 						if(traverse)
 						{
-							if(firstEncounter)
-								traversal.add(next);
+							traversal.add(next);
 							queueCurrLevel.add(next);
 							pathQueueCurrLevel.add(newPathId);
 						}
@@ -176,4 +174,132 @@ public final class BFS<V,E> extends AbstractGraphTraversal<V,E>
 		return this;
 	}
 
+	/**
+	 * Primitive version of {@link #execute()} that tracks visited vertices by vertex id and only 
+	 * iterates the outgoing arcs of <code>csr</code>.
+	 */
+	private BFS<V,E> execute(CSRGraph<V,E> csr)
+	{
+		final int [] offsets = csr.offsets();
+		final int [] targets = csr.targets();
+		final int s = csr.indexOf(source);
+		
+		int pathCount = 0;
+		Vertex<V> start = copySource();
+		
+		boolean [] visited = new boolean[csr.numVerts()];
+		visited[s] = true;
+		traversal.add(start);
+		
+		callback.onBegin(this);
+		callback.onTraverse(new GraphTraversalElement<V,E>(this,start,null,
+				Integer.valueOf(pathCount),Integer.valueOf(pathCount)));
+		
+		// vertex, id, path id and parent id of each queued vertex
+		Level<V> queue = new Level<V>();
+		Level<V> queueCurrLevel = new Level<V>();
+		queue.add(start,s,pathCount,-1);
+		
+		while(queue.size > 0)
+		{
+			queueCurrLevel.clear();
+			
+			// for current level
+			for(int q = 0; q < queue.size; ++q)
+			{
+				Vertex<V> vertex = queue.vertices.get(q);
+				final int id = queue.ids[q];
+				final int parentId = queue.parents[q];
+				final int pathId = queue.pathIds[q];
+				
+				int edgeCount = csr.numEdges(id);
+				
+				for(int a = offsets[id], end = offsets[id + 1]; a < end; ++a)
+				{
+					int nextId = targets[a];
+					// don't want to go backwards again
+					if(nextId == id || nextId == parentId) continue;
+					
+					// must make copy of vertex, whose parent may be left over from an earlier
+					// traversal so it is always replaced
+					Vertex<V> next = csr.getVertex(nextId).clone();
+					next.setParent(vertex);
+					next.setLevel(vertex.getLevel() + 1);
+					
+					int newPathId;
+					if(edgeCount > 1)
+						newPathId = ++pathCount;
+					else
+						newPathId = pathId;
+					
+					boolean traverse = callback.onTraverse(new GraphTraversalElement<V,E>(this,next,csr.getEdge(a),
+							Integer.valueOf(pathId),Integer.valueOf(newPathId)));
+					
+					if(traverse)
+					{
+						traversal.add(next);
+						queueCurrLevel.add(next,nextId,newPathId,id);
+					}
+				} // end for
+			} //end for
+			
+			queue.clear();
+			for(int i = 0; i < queueCurrLevel.size; ++i)
+			{
+				int id = queueCurrLevel.ids[i];
+				if(!visited[id])
+				{
+					if(!this.traverseMulti)
+						visited[id] = true;
+					queue.add(queueCurrLevel.vertices.get(i),id,queueCurrLevel.pathIds[i],queueCurrLevel.parents[i]);
+				}
+			}
+			
+			// post add them to visited list
+			if(this.traverseMulti)
+			{
+				for(int i = 0; i < queueCurrLevel.size; ++i)
+					visited[queueCurrLevel.ids[i]] = true;
+			}
+		}  // outer while
+		
+		callback.onFinish(this);
+		
+		return this;
+	}
+	
+	/**
+	 * Vertices of one level of a {@link CSRGraph} traversal.
+	 * 
+	 */
+	private static final class Level<V>
+	{
+		final List<Vertex<V>> vertices = new ArrayList<Vertex<V>>();
+		int [] ids = new int[16];
+		int [] pathIds = new int[16];
+		int [] parents = new int[16];
+		int size;
+		
+		void add(Vertex<V> v,int id,int pathId,int parent)
+		{
+			if(size == ids.length)
+			{
+				ids = Arrays.copyOf(ids,size * 2);
+				pathIds = Arrays.copyOf(pathIds,size * 2);
+				parents = Arrays.copyOf(parents,size * 2);
+			}
+			vertices.add(v);
+			ids[size] = id;
+			pathIds[size] = pathId;
+			parents[size] = parent;
+			++size;
+		}
+		
+		void clear()
+		{
+			vertices.clear();
+			size = 0;
+		}
+	}
+
 }
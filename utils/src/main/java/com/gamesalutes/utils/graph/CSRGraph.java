@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.gamesalutes.utils.CollectionUtils;
+
+/**
+ * Immutable {@link Graph} stored in compressed sparse row form.  Vertices are numbered
+ * <code>0..numVerts()-1</code> in the iteration order of the frozen graph and the outgoing edges of vertex 
+ * <code>i</code> are the arcs <code>offsets[i]..offsets[i + 1]-1</code> of parallel <code>targets</code> and 
+ * <code>weights</code> arrays, preserving the per-vertex edge order of the frozen graph.  An undirected graph stores
+ * both directions of each edge, as {@link AdjacencyList} does.  The {@link Vertex} and {@link Edge} objects are kept
+ * in side tables indexed by vertex id and arc number.
+ * <p>
+ * {@link BFS}, {@link DFS}, {@link Djikstra} and {@link AStar} traverse a <code>CSRGraph</code> over the arrays
+ * without iterating edge objects.  Edge weights are captured when the graph is frozen so later changes to the
+ * weight of an <code>Edge</code> are not seen by these algorithms.  All mutating operations throw
+ * <code>UnsupportedOperationException</code>.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class CSRGraph<V,E> extends AbstractGraph<V,E> implements Serializable
+{
+	private final boolean isDirected;
+	
+	// vertex id -> vertex and vertex -> vertex id
+	private Vertex<V> [] vertices;
+	private Map<Vertex<V>,Integer> ids;
+	
+	// outgoing arcs of vertex i are offsets[i] until offsets[i + 1]
+	private final int [] offsets;
+	private final int [] targets;
+	private final float [] weights;
+	// arc -> edge
+	private Edge<V,E> [] edges;
+	
+	// arcs into vertex i, excluding self loops, are inArcs[inOffsets[i]] until inArcs[inOffsets[i + 1]]
+	private final int [] inOffsets;
+	private final int [] inArcs;
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Constructor.  Freezes a copy of <code>g</code>.  The <code>Vertex</code> and <code>Edge</code> objects are
+	 * copied, but the data they contain are not.
+	 * 
+	 * @param g the <code>Graph</code> to freeze
+	 */
+	@SuppressWarnings("unchecked")
+	public CSRGraph(Graph<V,E> g)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		
+		this.isDirected = g.isDirected();
+		final int n = g.numVerts();
+		vertices = new Vertex[n];
+		ids = CollectionUtils.createHashMap(n,CollectionUtils.LOAD_FACTOR);
+		int id = 0;
+		for(Iterator<Vertex<V>> it = g.vertexIterator(); it.hasNext(); ++id)
+		{
+			Vertex<V> v = it.next().clone();
+			vertices[id] = v;
+			ids.put(v,id);
+		}
+		
+		// outgoing arcs in the order of each vertex's edge iterator
+		final int m = g.numEdges();
+		offsets = new int[n + 1];
+		int [] targets = new int[m];
+		float [] weights = new float[m];
+		edges = new Edge[m];
+		int [] inCounts = new int[n + 1];
+		int arc = 0;
+		for(int i = 0; i < n; ++i)
+		{
+			offsets[i] = arc;
+			Vertex<V> v = vertices[i];
+			for(Iterator<Edge<V,E>> it = g.edgeIterator(v); it.hasNext();)
+			{
+				Edge<V,E> e = it.next();
+				if(!e.getFrom().equals(v)) continue;
+				int to = indexOf(e.getTo());
+				if(arc == targets.length)
+				{
+					int len = Math.max(4,arc * 2);
+					targets = Arrays.copyOf(targets,len);
+					weights = Arrays.copyOf(weights,len);
+					edges = Arrays.copyOf(edges,len);
+				}
+				e = e.clone();
+				e.setFrom(v);
+				e.setTo(vertices[to]);
+				targets[arc] = to;
+				weights[arc] = e.getWeight();
+				edges[arc] = e;
+				if(to != i)
+					++inCounts[to + 1];
+				++arc;
+			}
+		}
+		offsets[n] = arc;
+		if(arc != targets.length)
+		{
+			targets = Arrays.copyOf(targets,arc);
+			weights = Arrays.copyOf(weights,arc);
+			edges = Arrays.copyOf(edges,arc);
+		}
+		this.targets = targets;
+		this.weights = weights;
+		
+		for(int i = 0; i < n; ++i)
+			inCounts[i + 1] += inCounts[i];
+		inOffsets = inCounts;
+		inArcs = inArcs(offsets,targets,inCounts);
+	}
+	
+	/**
+	 * Constructor for graphs built directly in compressed sparse row form.  The arrays and objects are
+	 * not copied and the endpoints of <code>edges[a]</code> must be <code>vertices[i]</code> and 
+	 * <code>vertices[targets[a]]</code> for each arc <code>a</code> of vertex <code>i</code>.
+	 * 
+	 * @param isDirected <code>true</code> for a directed graph
+	 * @param vertices vertex id -> vertex
+	 * @param offsets the first outgoing arc of each vertex followed by the number of arcs
+	 * @param targets arc -> target vertex id
+	 * @param weights arc -> weight
+	 * @param edges arc -> edge
+	 */
+	CSRGraph(boolean isDirected,Vertex<V> [] vertices,int [] offsets,int [] targets,float [] weights,Edge<V,E> [] edges)
+	{
+		this.isDirected = isDirected;
+		final int n = vertices.length;
+		this.vertices = vertices;
+		ids = CollectionUtils.createHashMap(n,CollectionUtils.LOAD_FACTOR);
+		for(int i = 0; i < n; ++i)
+		{
+			if(ids.put(vertices[i],i) != null)
+				throw new IllegalArgumentException("duplicate vertex: " + vertices[i]);
+		}
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.edges = edges;
+		
+		int [] inCounts = new int[n + 1];
+		for(int i = 0; i < n; ++i)
+		{
+			for(int a = offsets[i], end = offsets[i + 1]; a < end; ++a)
+			{
+				int to = targets[a];
+				if(to != i)
+					++inCounts[to + 1];
+			}
+		}
+		for(int i = 0; i < n; ++i)
+			inCounts[i + 1] += inCounts[i];
+		inOffsets = inCounts;
+		inArcs = inArcs(offsets,targets,inCounts);
+	}
+	
+	/**
+	 * Counting sort of the arcs by target, excluding self loops.
+	 * 
+	 * @param offsets the outgoing arc offsets
+	 * @param targets the arc targets
+	 * @param inOffsets the prefix sums of the incoming arc counts
+	 * @return the incoming arcs
+	 */
+	private static int [] inArcs(int [] offsets,int [] targets,int [] inOffsets)
+	{
+		final int n = inOffsets.length - 1;
+		int [] next = inOffsets.clone();
+		int [] inArcs = new int[inOffsets[n]];
+		for(int i = 0; i < n; ++i)
+		{
+			for(int a = offsets[i], end = offsets[i + 1]; a < end; ++a)
+			{
+				int to = targets[a];
+				if(to != i)
+					inArcs[next[to]++] = a;
+			}
+		}
+		return inArcs;
+	}
+	
+	/**
+	 * Returns the id of <code>v</code>.
+	 * 
+	 * @param v the vertex
+	 * @return the id of <code>v</code> or <code>-1</code> if <code>v</code> is not in this graph
+	 */
+	public int indexOf(Vertex<V> v)
+	{
+		if(v == null)
+			throw new NullPointerException("v");
+		Integer id = ids.get(v);
+		return id != null ? id : -1;
+	}
+	
+	/**
+	 * Returns the vertex with the given id.
+	 * 
+	 * @param id the vertex id
+	 * @return the <code>Vertex</code>
+	 * @throws IndexOutOfBoundsException if <code>id</code> is not a valid vertex id
+	 */
+	public Vertex<V> getVertex(int id)
+	{
+		return vertices[id];
+	}
+	
+	/**
+	 * Returns the edge for the given arc.
+	 * 
+	 * @param arc the arc number
+	 * @return the <code>Edge</code>
+	 * @throws IndexOutOfBoundsException if <code>arc</code> is not a valid arc number
+	 */
+	public Edge<V,E> getEdge(int arc)
+	{
+		return edges[arc];
+	}
+	
+	/**
+	 * Returns the first outgoing arc of vertex <code>id</code>.  The outgoing arcs of <code>id</code> are
+	 * <code>getFirstArc(id)</code> until <code>getFirstArc(id + 1) - 1</code>.
+	 * 
+	 * @param id the vertex id or <code>numVerts()</code>
+	 * @return the first outgoing arc
+	 */
+	public int getFirstArc(int id)
+	{
+		return offsets[id];
+	}
+	
+	/**
+	 * Returns the target vertex id of <code>arc</code>.
+	 * 
+	 * @param arc the arc number
+	 * @return the target vertex id
+	 */
+	public int getTarget(int arc)
+	{
+		return targets[arc];
+	}
+	
+	/**
+	 * Returns the weight of <code>arc</code>.
+	 * 
+	 * @param arc the arc number
+	 * @return the weight
+	 */
+	public float getWeight(int arc)
+	{
+		return weights[arc];
+	}
+	
+	/**
+	 * Returns the offsets array.  Not copied.
+	 * 
+	 */
+	int [] offsets() { return offsets; }
+	
+	/**
+	 * Returns the targets array.  Not copied.
+	 * 
+	 */
+	int [] targets() { return targets; }
+	
+	/**
+	 * Returns the weights array.  Not copied.
+	 * 
+	 */
+	float [] weights() { return weights; }
+	
+	/**
+	 * Returns the incoming arc offsets array.  Not copied.
+	 * 
+	 */
+	int [] inOffsets() { return inOffsets; }
+	
+	/**
+	 * Returns the incoming arcs array.  Not copied.
+	 * 
+	 */
+	int [] inArcs() { return inArcs; }
+	
+	/**
+	 * Returns the source vertex id of each arc.  Computed on each call.
+	 * 
+	 */
+	int [] arcSources()
+	{
+		int [] sources = new int[targets.length];
+		for(int i = 0, n = vertices.length; i < n; ++i)
+			Arrays.fill(sources,offsets[i],offsets[i + 1],i);
+		return sources;
+	}
+	
+	/**
+	 * Returns the number of edges to or from vertex <code>id</code> as {@link #numEdges(Vertex)}.
+	 * 
+	 * @param id the vertex id
+	 * @return the number of edges
+	 */
+	int numEdges(int id)
+	{
+		return offsets[id + 1] - offsets[id] + inOffsets[id + 1] - inOffsets[id];
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public CSRGraph<V,E> clone()
+	{
+		CSRGraph<V,E> g = (CSRGraph<V,E>)super.clone();
+		// copy the vertices and edges, the arrays are immutable and can be shared
+		final int n = vertices.length;
+		g.vertices = new Vertex[n];
+		g.ids = CollectionUtils.createHashMap(n,CollectionUtils.LOAD_FACTOR);
+		for(int i = 0; i < n; ++i)
+		{
+			Vertex<V> v = vertices[i].clone();
+			g.vertices[i] = v;
+			g.ids.put(v,i);
+		}
+		for(int i = 0; i < n; ++i)
+		{
+			Vertex<V> parent = vertices[i].getParent();
+			if(parent != null)
+			{
+				int id = indexOf(parent);
+				if(id != -1)
+					g.vertices[i].setParent(g.vertices[id]);
+			}
+		}
+		g.edges = new Edge[edges.length];
+		for(int i = 0; i < n; ++i)
+		{
+			for(int a = offsets[i], end = offsets[i + 1]; a < end; ++a)
+			{
+				Edge<V,E> e = edges[a].clone();
+				e.setFrom(g.vertices[i]);
+				e.setTo(g.vertices[targets[a]]);
+				g.edges[a] = e;
+			}
+		}
+		return g;
+	}
+	
+	public boolean isDirected()
+	{
+		return isDirected;
+	}
+	
+	public int numVerts()
+	{
+		return vertices.length;
+	}
+	
+	public int numEdges()
+	{
+		return edges.length;
+	}
+	
+	@Override
+	public int numEdges(Vertex<V> v)
+	{
+		return numEdges(checkedIndexOf(v,"v"));
+	}
+	
+	public boolean containsVertex(Vertex<V> v)
+	{
+		return indexOf(v) != -1;
+	}
+	
+	public boolean containsEdge(Edge<V,E> e)
+	{
+		if(e == null)
+			throw new NullPointerException("e");
+		int from = indexOf(e.getFrom());
+		if(from == -1) return false;
+		for(int a = offsets[from], end = offsets[from + 1]; a < end; ++a)
+		{
+			if(edges[a].equals(e))
+				return true;
+		}
+		return false;
+	}
+	
+	public Edge<V,E> findEdge(Vertex<V> source,Vertex<V> dest)
+	{
+		int from = checkedIndexOf(source,"source");
+		int to = checkedIndexOf(dest,"dest");
+		for(int a = offsets[from], end = offsets[from + 1]; a < end; ++a)
+		{
+			if(targets[a] == to)
+				return edges[a];
+		}
+		return null;
+	}
+	
+	public Iterator<Vertex<V>> vertexIterator()
+	{
+		return new ArrayIterator<Vertex<V>>(vertices,0,vertices.length);
+	}
+	
+	public Iterator<Edge<V,E>> edgeIterator()
+	{
+		return new ArrayIterator<Edge<V,E>>(edges,0,edges.length);
+	}
+	
+	public Iterator<Edge<V,E>> edgeIterator(Vertex<V> v)
+	{
+		final int id = checkedIndexOf(v,"v");
+		return new Iterator<Edge<V,E>>()
+		{
+			// outgoing arcs then incoming arcs
+			int next = offsets[id];
+			final int outEnd = offsets[id + 1];
+			int nextIn = inOffsets[id];
+			final int inEnd = inOffsets[id + 1];
+			
+			public boolean hasNext()
+			{
+				return next < outEnd || nextIn < inEnd;
+			}
+			public Edge<V,E> next()
+			{
+				if(next < outEnd)
+					return edges[next++];
+				if(nextIn < inEnd)
+					return edges[inArcs[nextIn++]];
+				throw new NoSuchElementException();
+			}
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	public Graph<V,E> makeUndirected()
+	{
+		if(!isDirected)
+			return this;
+		else
+			return new CSRGraph<V,E>(new AdjacencyList<V,E>(this,false));
+	}
+	
+	@Override
+	public Graph<V,E> reverse()
+	{
+		if(!isDirected)
+			return this;
+		return new CSRGraph<V,E>(super.reverse());
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.graph.AbstractGraph#newInstance(boolean)
+	 */
+	@Override
+	protected Graph<V,E> newInstance(boolean isDirected)
+	{
+		return new AdjacencyList<V,E>(isDirected);
+	}
+	
+	public boolean addVertex(Vertex<V> v)
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	public boolean addEdge(Edge<V,E> e)
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void addAll(Graph<V,E> g)
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	public boolean removeVertex(Vertex<V> v)
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	public boolean removeEdge(Edge<V,E> e)
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+	
+	private int checkedIndexOf(Vertex<V> v,String name)
+	{
+		if(v == null)
+			throw new NullPointerException(name);
+		int id = indexOf(v);
+		if(id == -1)
+			throw new IllegalArgumentException(name + "=" + v + " not in graph");
+		return id;
+	}
+	
+	private static final class ArrayIterator<T> implements Iterator<T>
+	{
+		private final T [] array;
+		private int next;
+		private final int end;
+		
+		ArrayIterator(T [] array,int start,int end)
+		{
+			this.array = array;
+			this.next = start;
+			this.end = end;
+		}
+		public boolean hasNext()
+		{
+			return next < end;
+		}
+		public T next()
+		{
+			if(next >= end)
+				throw new NoSuchElementException();
+			return array[next++];
+		}
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+
+/**
+ * Copy-on-write wrapper around a {@link Graph}.  Each mutation that changes the graph copies the current graph,
+ * changes the copy and publishes it, so queries and iterators read an immutable snapshot without locking.  
+ * Mutations are serialized and cost time in the size of the graph, so this is suited to graphs that are read 
+ * far more often than they are changed; {@link #addAll(Graph)} makes one copy for a batch of changes.
+ * <p>
+ * Iterators traverse the snapshot current when they were created.  Their <code>remove</code> removes the element
+ * from this graph and does not affect the iteration.  Algorithms that make several queries should run on 
+ * {@link #snapshot()} to see a single version of the graph.  The vertex and edge objects of a snapshot must not 
+ * be modified.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public final class CopyOnWriteGraph<V,E> implements Graph<V,E>,Serializable
+{
+	private volatile Graph<V,E> graph;
+	
+	private static final long serialVersionUID = 1L;
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param g the {@link Graph} whose copy is the initial snapshot
+	 */
+	public CopyOnWriteGraph(Graph<V,E> g)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		this.graph = g.clone();
+	}
+	
+	/**
+	 * Constructor that shares the snapshot <code>g</code>.
+	 * 
+	 * @param g the snapshot
+	 * @param shared unused
+	 */
+	private CopyOnWriteGraph(Graph<V,E> g,boolean shared)
+	{
+		this.graph = g;
+	}
+	
+	/**
+	 * Returns a <code>CopyOnWriteGraph</code> that starts from the current snapshot of this graph.  The snapshot 
+	 * is shared rather than copied, and changes to either graph are not seen by the other.
+	 * 
+	 * @return the snapshot
+	 */
+	public CopyOnWriteGraph<V,E> snapshot()
+	{
+		return new CopyOnWriteGraph<V,E>(graph,true);
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		return graph.equals(o);
+	}
+	@Override
+	public int hashCode()
+	{
+		return graph.hashCode();
+	}
+	@Override
+	public String toString()
+	{
+		return graph.toString();
+	}
+	
+	@SuppressWarnings("unchecked")
+	public CopyOnWriteGraph<V,E> clone()
+	{
+		try
+		{
+			CopyOnWriteGraph<V,E> clone = (CopyOnWriteGraph<V,E>)super.clone();
+			clone.graph = graph.clone();
+			return clone;
+		}
+		catch(CloneNotSupportedException e)
+		{
+			throw new AssertionError(e);
+		}
+	}
+	
+	public synchronized boolean addEdge(Edge<V,E> e) 
+	{
+		if(graph.containsEdge(e))
+			return false;
+		Graph<V,E> copy = graph.clone();
+		boolean added = copy.addEdge(e);
+		graph = copy;
+		return added;
+	}
+
+	public synchronized boolean addVertex(Vertex<V> v) 
+	{
+		if(graph.containsVertex(v))
+			return false;
+		Graph<V,E> copy = graph.clone();
+		boolean added = copy.addVertex(v);
+		graph = copy;
+		return added;
+	}
+
+	public synchronized void clear() 
+	{
+		if(graph.numVerts() == 0)
+			return;
+		Graph<V,E> copy = graph.clone();
+		copy.clear();
+		graph = copy;
+	}
+
+	public boolean containsEdge(Edge<V,E> e) 
+	{
+		return graph.containsEdge(e);
+	}
+
+	public boolean containsVertex(Vertex<V> v) 
+	{
+		return graph.containsVertex(v);
+	}
+
+	public Iterator<Edge<V,E>> edgeIterator() 
+	{
+		return new EdgeIterator(graph.edgeIterator());
+	}
+
+	public Iterator<Edge<V,E>> edgeIterator(Vertex<V> v)
+	{
+		return new EdgeIterator(graph.edgeIterator(v));
+	}
+
+	public Edge<V,E> findEdge(Vertex<V> source, Vertex<V> dest)
+	{
+		return graph.findEdge(source, dest);
+	}
+
+
+	public boolean isDirected() 
+	{
+		return graph.isDirected();
+	}
+
+
+	public Graph<V,E> makeUndirected()
+	{
+		Graph<V,E> g = graph;
+		if(!g.isDirected())
+			return this;
+		else
+			return new CopyOnWriteGraph<V,E>(g.makeUndirected(),true);
+	}
+	
+	public Graph<V,E> reverse()
+	{
+		Graph<V,E> g = graph;
+		if(!g.isDirected())
+			return this;
+		else
+			return new CopyOnWriteGraph<V,E>(g.reverse(),true);
+	}
+
+
+	public int numEdges()
+	{
+		return graph.numEdges();
+	}
+	
+	public int numEdges(Vertex<V> v)
+	{
+		return graph.numEdges(v);
+	}
+
+
+	public int numVerts()
+	{
+		return graph.numVerts();
+	}
+
+
+	public synchronized boolean removeEdge(Edge<V,E> e) 
+	{
+		if(!graph.containsEdge(e))
+			return false;
+		Graph<V,E> copy = graph.clone();
+		boolean removed = copy.removeEdge(e);
+		graph = copy;
+		return removed;
+	}
+
+	public synchronized boolean removeVertex(Vertex<V> v) 
+	{
+		if(!graph.containsVertex(v))
+			return false;
+		Graph<V,E> copy = graph.clone();
+		boolean removed = copy.removeVertex(v);
+		graph = copy;
+		return removed;
+	}
+
+	public Iterator<Vertex<V>> vertexIterator()
+	{
+		return new SnapshotIterator<Vertex<V>>(graph.vertexIterator())
+		{
+			@Override
+			protected void remove(Vertex<V> v)
+			{
+				removeVertex(v);
+			}
+		};
+	}
+
+	public synchronized void addAll(Graph<V,E> g)
+	{
+		Graph<V,E> copy = graph.clone();
+		copy.addAll(g);
+		graph = copy;
+	}
+	
+	private final class EdgeIterator extends SnapshotIterator<Edge<V,E>>
+	{
+		EdgeIterator(Iterator<Edge<V,E>> it)
+		{
+			super(it);
+		}
+		
+		@Override
+		protected void remove(Edge<V,E> e)
+		{
+			removeEdge(e);
+		}
+	}
+}
@@ -65,15 +65,27 @@ public final class DFS<V,E> extends AbstractGraphTraversal<V,E>
 	public DFS<V,E> execute() 
 	{
 		traversal = new ArrayList<Vertex<V>>(graph.numVerts());
-		Set<Vertex<V>> visited = new HashSet<Vertex<V>>();
-		source.setLevel(0);
-		visited.add(source);
-		traversal.add(source);
+		Vertex<V> start = copySource();
+		traversal.add(start);
 		
 		callback.onBegin(this);
-		callback.onTraverse(new GraphTraversalElement<V,E>(this,source,null,0,0));
+		callback.onTraverse(new GraphTraversalElement<V,E>(this,start,null,0,0));
 		
-		execute(0,source,visited);
+		if(graph instanceof CSRGraph)
+		{
+			// visited vertices are tracked by vertex id
+			CSRGraph<V,E> csr = (CSRGraph<V,E>)graph;
+			int s = csr.indexOf(source);
+			boolean [] visited = new boolean[csr.numVerts()];
+			visited[s] = true;
+			execute(csr,0,start,s,-1,visited);
+		}
+		else
+		{
+			Set<Vertex<V>> visited = new HashSet<Vertex<V>>();
+			visited.add(start);
+			execute(0,start,visited);
+		}
 		
 		callback.onFinish(this);
 		
@@ -115,5 +127,44 @@ public final class DFS<V,E> extends AbstractGraphTraversal<V,E>
 			}
 		} //end for
 	}
+	
+	/**
+	 * Primitive version of {@link #execute(int, Vertex, Set)} that only iterates the outgoing
+	 * arcs of <code>csr</code>.
+	 */
+	private void execute(CSRGraph<V,E> csr,int pathId,Vertex<V> vertex,int id,int parentId,boolean [] visited)
+	{
+		int numEdges = csr.numEdges(id);
+		int newPathId;
+		
+		if(numEdges > 1)
+			newPathId = pathId + 1;
+		else
+			newPathId = pathId;
+		
+		final int [] targets = csr.targets();
+		for(int a = csr.getFirstArc(id), end = csr.getFirstArc(id + 1); a < end; ++a)
+		{
+			int nextId = targets[a];
+			// don't want to pop back up to parent either
+			if(nextId == id || nextId == parentId) continue;
+			
+			// must make copy of vertex
+			Vertex<V> next = csr.getVertex(nextId).clone();
+			next.setParent(vertex);
+			next.setLevel(vertex.getLevel() + 1);
+			
+			boolean traverse = callback.onTraverse(new GraphTraversalElement<V,E>(this,next,csr.getEdge(a),
+					Integer.valueOf(pathId),Integer.valueOf(newPathId)));
+			if(traverse)
+				traversal.add(next);
+			//call recursively down the graph
+			if(traverse && !visited[nextId])
+			{
+				visited[nextId] = true;
+				execute(csr,newPathId,next,nextId,id,visited);
+			}
+		} //end for
+	}
 
 } //end DFS
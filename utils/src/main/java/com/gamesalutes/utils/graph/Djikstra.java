@@ -41,18 +41,26 @@ package com.gamesalutes.utils.graph;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Implementation of Djikstra's algorithm.  Based on the implementation given
  * on <a href="http://en.wikipedia.org/wiki/Dijkstra%27s_algorithm">Wikipedia</a>.
+ * Vertices are added to an {@link IndexedHeap} as they are first reached and relaxed with a decrease-key
+ * so only vertices reachable from the source are queued and traversed.
+ * <p>
+ * Distances and parents are kept in a {@link TraversalResult} and the graph is not modified, so any number of 
+ * instances may execute concurrently on the same graph.  The vertices of {@link #getTraversal()} are copies 
+ * whose weight is the distance from the source.
  * 
  * @author Justin Montgomery
  * @version $Id: Djikstra.java 1946 2010-02-26 17:55:34Z jmontgomery $
  */
 public final class Djikstra<V,E> extends AbstractGraphTraversal<V, E> 
 {
+	private static final int START_SIZE = 64;
+	
+	private TraversalResult<V> result;
+	
 	/**
 	 * Constructor.
 	 * 
@@ -81,66 +89,132 @@ public final class Djikstra<V,E> extends AbstractGraphTraversal<V, E>
 	 */
 	public Djikstra<V,E> execute() 
 	{
-		prepareGraph();
+		traversal = new ArrayList<Vertex<V>>();
 
 		callback.onBegin(this);
 		
-		// insert all unoptimized vertices
-		SortedSet<Vertex<V>> queue = 
-			new TreeSet<Vertex<V>>();
-		for(Iterator<Vertex<V>> it = graph.vertexIterator();it.hasNext();)
-		{
-			Vertex<V> v = it.next();
-			queue.add(v);
-		}
+		if(graph instanceof CSRGraph)
+			execute((CSRGraph<V,E>)graph);
+		else
+			executeGraph();
+		
+		callback.onFinish(this);
+		
+		return this;
+	}
+	
+	/**
+	 * Returns the distances and shortest path tree of the last execution.
+	 * 
+	 * @return the <code>TraversalResult</code>
+	 * @throws IllegalStateException if <code>execute</code> has not been called
+	 */
+	public TraversalResult<V> getResult()
+	{
+		if(result == null)
+			throw new IllegalStateException("execute not called");
+		return result;
+	}
+	
+	private void executeGraph()
+	{
+		final int expSize = graph.numVerts() >= START_SIZE ? START_SIZE : graph.numVerts();
+		// heap ids are the result ids assigned in order of discovery
+		result = new TraversalResult<V>(expSize);
+		IndexedHeap queue = new IndexedHeap(expSize);
+		
+		int s = result.add(source);
+		result.set(s,0.0f,-1,0);
+		queue.insert(s,0.0f);
 		
 		while(!queue.isEmpty())
 		{
-			Vertex<V> u = queue.first();
-			queue.remove(u);
-			// TODO: BFS and DFS make copy of vertices before modifying parent,level do we need that here?
-			// can't remember why it was done in first place but it was done for a reason
+			final int ui = queue.poll();
+			Vertex<V> u = result.settle(ui);
 			
 			boolean traverse = callback.onTraverse(new GraphTraversalElement<V,E>(this,u,null,null,null));
 			if(!traverse) // end the search now
-				break;
+				return;
 			
 			traversal.add(u);
 			
+			final Vertex<V> uVertex = result.vertex(ui);
+			final float uDist = result.distance(ui);
+			final int vLevel = result.level(ui) + 1;
 			// for all neighbors v of u
-			for(Iterator<Edge<V,E>> it = graph.edgeIterator(u); it.hasNext();)
+			for(Iterator<Edge<V,E>> it = graph.edgeIterator(uVertex); it.hasNext();)
 			{
 				Edge<V,E> e = it.next();
 				
 				// only consider outgoing edges
 				Vertex<V> v = e.getTo();
-				if(u == v) continue;
+				if(uVertex == v) continue;
+				
+				int vi = result.indexOf(v);
+				if(vi == -1)
+					vi = result.add(v);
 				
-				float currDist = v.getWeight();
-				float newDist = u.getWeight() + e.getWeight();
+				float newDist = uDist + e.getWeight();
 				// relax u,v
-				if(newDist < currDist)
+				if(newDist < result.distance(vi))
 				{
-					// must remove from sorted set and re-add since changing the comparison value
-					queue.remove(v);
-					v.setWeight(newDist);
-					v.setParent(u);
-					v.setLevel(u.getLevel() + 1);
-					queue.add(v);
+					result.set(vi,newDist,ui,vLevel);
+					queue.insertOrDecrease(vi,newDist);
 				}
 			}
 		}
-		
-		callback.onFinish(this);
-		
-		return this;
 	}
 	
-	private void prepareGraph()
+	/**
+	 * Primitive version of {@link #executeGraph()} that uses vertex ids as heap ids and relaxes over
+	 * the arrays of <code>csr</code>.
+	 */
+	private void execute(CSRGraph<V,E> csr)
 	{
-		source.setWeight(0.0f);
-		source.setLevel(0);
-		traversal = new ArrayList<Vertex<V>>(graph.numVerts());
+		final int [] offsets = csr.offsets();
+		final int [] targets = csr.targets();
+		final float [] weights = csr.weights();
+		final int n = csr.numVerts();
+		
+		result = new TraversalResult<V>(csr);
+		final float [] dist = result.distances();
+		final int [] parents = result.parents();
+		final int [] levels = result.levels();
+		IndexedHeap queue = new IndexedHeap(n >= START_SIZE ? START_SIZE : n);
+		
+		final int s = csr.indexOf(source);
+		result.set(s,0.0f,-1,0);
+		queue.insert(s,0.0f);
+		
+		while(!queue.isEmpty())
+		{
+			final int ui = queue.poll();
+			Vertex<V> u = result.settle(ui);
+			
+			boolean traverse = callback.onTraverse(new GraphTraversalElement<V,E>(this,u,null,null,null));
+			if(!traverse) // end the search now
+				return;
+			
+			traversal.add(u);
+			
+			final float uDist = dist[ui];
+			final int vLevel = levels[ui] + 1;
+			for(int a = offsets[ui], end = offsets[ui + 1]; a < end; ++a)
+			{
+				int vi = targets[a];
+				if(vi == ui) continue;
+				
+				float newDist = uDist + weights[a];
+				// relax u,v
+				if(newDist < dist[vi])
+				{
+					dist[vi] = newDist;
+					parents[vi] = ui;
+					levels[vi] = vLevel;
+					queue.insertOrDecrease(vi,newDist);
+				}
+			}
+		}
 	}
 
 }
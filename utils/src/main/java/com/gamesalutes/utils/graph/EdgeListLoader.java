@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.gamesalutes.utils.CSVParser;
+import com.gamesalutes.utils.CollectionUtils;
+import com.gamesalutes.utils.MiscUtils;
+
+/**
+ * Loads graphs from csv edge lists.  Each record is an edge <code>from,to[,weight[,data]]</code> where 
+ * <code>from</code> and <code>to</code> are the data of the endpoint vertices, <code>weight</code> is the edge weight, 
+ * which is <code>0</code> if missing or empty, and <code>data</code> is the edge data, which is <code>null</code> 
+ * if missing.  Vertices are created as their names are first seen.
+ * <p>
+ * The records are streamed with a {@link CSVParser} into primitive arrays and the graph is built in one pass as a 
+ * {@link CSRGraph}, so the only hashing is a lookup of each endpoint name rather than the per-edge set insertions 
+ * of building an {@link AdjacencyList} with {@link Graph#addEdge(Edge)}.  The outgoing edges of each vertex are in 
+ * record order.  Unlike <code>AdjacencyList</code>, duplicate records become parallel edges and both 
+ * directions of an undirected edge have the weight of the record.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ */
+public final class EdgeListLoader
+{
+	private EdgeListLoader() {}
+	
+	private static final int DEFAULT_EXPECTED_SIZE = 16;
+	
+	/**
+	 * Loads the edge list in <code>file</code>.
+	 * 
+	 * @param file the csv file
+	 * @param isDirected <code>true</code> for a directed graph
+	 * @param hasHeader <code>true</code> if the first line of <code>file</code> is a header
+	 * @return the {@link CSRGraph}
+	 * @throws IOException if an error occurs reading the file or a record is not a valid edge
+	 */
+	public static CSRGraph<String,String> load(File file,boolean isDirected,boolean hasHeader) throws IOException
+	{
+		if(file == null)
+			throw new NullPointerException("file");
+		Reader in = new InputStreamReader(new FileInputStream(file),"UTF-8");
+		try
+		{
+			return load(new CSVParser(in,hasHeader),isDirected);
+		}
+		finally
+		{
+			MiscUtils.closeStream(in);
+		}
+	}
+	
+	/**
+	 * Loads the edge list from the remaining records of <code>parser</code>.  <code>parser</code> is not closed.
+	 * 
+	 * @param parser the {@link CSVParser}
+	 * @param isDirected <code>true</code> for a directed graph
+	 * @return the {@link CSRGraph}
+	 * @throws IOException if an error occurs reading or a record is not a valid edge
+	 */
+	public static CSRGraph<String,String> load(CSVParser parser,boolean isDirected) throws IOException
+	{
+		return load(parser,isDirected,DEFAULT_EXPECTED_SIZE,DEFAULT_EXPECTED_SIZE);
+	}
+	
+	/**
+	 * Loads the edge list from the remaining records of <code>parser</code>.  <code>parser</code> is not closed.
+	 * 
+	 * @param parser the {@link CSVParser}
+	 * @param isDirected <code>true</code> for a directed graph
+	 * @param expectedVertices the expected number of vertices, used to presize the vertex lookup
+	 * @param expectedEdges the expected number of records, used to presize the edge arrays
+	 * @return the {@link CSRGraph}
+	 * @throws IOException if an error occurs reading or a record is not a valid edge
+	 */
+	@SuppressWarnings("unchecked")
+	public static CSRGraph<String,String> load(CSVParser parser,boolean isDirected,int expectedVertices,int expectedEdges) 
+		throws IOException
+	{
+		if(parser == null)
+			throw new NullPointerException("parser");
+		if(expectedVertices < 0)
+			throw new IllegalArgumentException("expectedVertices=" + expectedVertices);
+		if(expectedEdges < 0)
+			throw new IllegalArgumentException("expectedEdges=" + expectedEdges);
+		
+		Map<String,Integer> ids = CollectionUtils.createHashMap(expectedVertices,CollectionUtils.LOAD_FACTOR);
+		List<String> names = new ArrayList<String>(expectedVertices);
+		int cap = Math.max(expectedEdges,DEFAULT_EXPECTED_SIZE);
+		int [] from = new int[cap];
+		int [] to = new int[cap];
+		float [] weight = new float[cap];
+		String [] data = new String[cap];
+		int records = 0;
+		
+		while(parser.nextRecord())
+		{
+			int fields = parser.getFieldCount();
+			if(fields < 2)
+				throw new IOException("record " + (records + 1) + " has " + fields + " fields: expected from,to[,weight[,data]]");
+			if(records == from.length)
+			{
+				cap = records * 2;
+				from = Arrays.copyOf(from,cap);
+				to = Arrays.copyOf(to,cap);
+				weight = Arrays.copyOf(weight,cap);
+				data = Arrays.copyOf(data,cap);
+			}
+			from[records] = id(parser.fieldAsString(0),ids,names);
+			to[records] = id(parser.fieldAsString(1),ids,names);
+			if(fields > 2 && parser.fieldLength(2) != 0)
+			{
+				String w = parser.fieldAsString(2);
+				try
+				{
+					weight[records] = Float.parseFloat(w);
+				}
+				catch(NumberFormatException e)
+				{
+					throw new IOException("record " + (records + 1) + " has invalid weight=" + w,e);
+				}
+			}
+			if(fields > 3)
+				data[records] = parser.fieldAsString(3);
+			++records;
+		}
+		
+		// count the arcs of each vertex, an undirected edge has an arc in each direction except for self loops
+		final int n = names.size();
+		int [] offsets = new int[n + 1];
+		for(int r = 0; r < records; ++r)
+		{
+			++offsets[from[r] + 1];
+			if(!isDirected && from[r] != to[r])
+				++offsets[to[r] + 1];
+		}
+		for(int i = 0; i < n; ++i)
+			offsets[i + 1] += offsets[i];
+		
+		Vertex<String> [] vertices = new Vertex[n];
+		for(int i = 0; i < n; ++i)
+			vertices[i] = new Vertex<String>(names.get(i));
+		
+		final int m = offsets[n];
+		int [] targets = new int[m];
+		float [] weights = new float[m];
+		Edge<String,String> [] edges = new Edge[m];
+		int [] next = Arrays.copyOf(offsets,n);
+		for(int r = 0; r < records; ++r)
+		{
+			int u = from[r];
+			int v = to[r];
+			float w = weight[r];
+			Edge<String,String> e = new Edge<String,String>(vertices[u],vertices[v],data[r]);
+			e.setWeight(w);
+			int a = next[u]++;
+			targets[a] = v;
+			weights[a] = w;
+			edges[a] = e;
+			if(!isDirected && u != v)
+			{
+				e = e.reverse();
+				e.setWeight(w);
+				a = next[v]++;
+				targets[a] = u;
+				weights[a] = w;
+				edges[a] = e;
+			}
+		}
+		return new CSRGraph<String,String>(isDirected,vertices,offsets,targets,weights,edges);
+	}
+	
+	private static int id(String name,Map<String,Integer> ids,List<String> names)
+	{
+		Integer id = ids.get(name);
+		if(id == null)
+		{
+			id = names.size();
+			ids.put(name,id);
+			names.add(name);
+		}
+		return id;
+	}
+}
@@ -84,22 +84,22 @@ public final class FullTraversal<V,E> extends AbstractGraphTraversal<V, E>
 		Queue<Integer> pathIdQueue = new LinkedList<Integer>();
 		int pathCount = 0;
 		
-		source.setLevel(0);
-		queue.add(source);
+		Vertex<V> start = copySource();
+		queue.add(start);
 		pathIdQueue.add(pathCount);
 		
 		{
 			List<Vertex<V>> sourcePath = new ArrayList<Vertex<V>>(1);
-			sourcePath.add(source);
+			sourcePath.add(start);
 			pathQueue.add(sourcePath);
 			allPaths.add(sourcePath);
 		}
 		
 		Set<Edge<V,E>> visited = new HashSet<Edge<V,E>>();
-		traversal.add(source);
+		traversal.add(start);
 		
 		callback.onBegin(this);
-		callback.onTraverse(new GraphTraversalElement<V,E>(this,source,null,
+		callback.onTraverse(new GraphTraversalElement<V,E>(this,start,null,
 				Integer.valueOf(pathCount),Integer.valueOf(pathCount)));
 		
 		while(!queue.isEmpty())
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.gamesalutes.utils.ByteUtils;
+import com.gamesalutes.utils.Codec;
+import com.gamesalutes.utils.MiscUtils;
+
+/**
+ * Reads and writes graphs in a compact binary snapshot format that loads directly into a {@link CSRGraph}.
+ * A snapshot is the compressed sparse row arrays of the graph followed by the vertex and edge data encoded 
+ * with a {@link Codec} for each, so reading a snapshot bulk copies the arrays and decodes each data value once 
+ * instead of rebuilding the graph an edge at a time or deserializing it with <code>ObjectInputStream</code>.
+ * A snapshot file is memory mapped by {@link #read(File, Codec, Codec)}.
+ * <p>
+ * The format, in big-endian order, is:
+ * <pre>
+ * int      magic 'GSNP'
+ * int      version
+ * byte     1 if directed and 0 if undirected
+ * int      n = number of vertices
+ * int      m = number of arcs
+ * float[n] vertex weights
+ * int[n+1] outgoing arc offsets
+ * int[m]   arc targets
+ * float[m] arc weights
+ * byte[m]  arc flags
+ * n        vertex data values
+ * m        edge data values
+ * </pre>
+ * Each data value is a byte that is <code>0</code> for <code>null</code> and <code>1</code> otherwise followed 
+ * by the encoded value if not <code>null</code>.  An undirected graph stores both directions of each edge as 
+ * <code>CSRGraph</code> does.  Only the data and weights of vertices and edges are stored; the 
+ * traversal levels and parents of vertices are not.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ */
+public final class GraphSnapshot
+{
+	private GraphSnapshot() {}
+	
+	private static final int MAGIC = 0x47534E50;
+	private static final int VERSION = 1;
+	
+	// arc flags
+	private static final byte REVERSED = 1;
+	
+	// buffer is written out once its position passes this
+	private static final int FLUSH_SIZE = 64 * 1024;
+	
+	/**
+	 * Writes <code>g</code> to <code>file</code>.
+	 * 
+	 * @param <V> vertex type of the graph
+	 * @param <E> edge type of the graph
+	 * @param g the {@link Graph}
+	 * @param file the file to write
+	 * @param vertexCodec the {@link Codec} for the vertex data
+	 * @param edgeCodec the <code>Codec</code> for the edge data
+	 * @throws IOException if an error occurs writing the file or encoding the data
+	 */
+	public static <V,E> void write(Graph<V,E> g,File file,Codec<V> vertexCodec,Codec<E> edgeCodec) throws IOException
+	{
+		if(file == null)
+			throw new NullPointerException("file");
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			write(g,out,vertexCodec,edgeCodec);
+		}
+		finally
+		{
+			MiscUtils.closeStream(out);
+		}
+	}
+	
+	/**
+	 * Writes <code>g</code> to <code>out</code>.  <code>out</code> is not closed.
+	 * 
+	 * @param <V> vertex type of the graph
+	 * @param <E> edge type of the graph
+	 * @param g the {@link Graph}.  If <code>g</code> is not a {@link CSRGraph} it is frozen first
+	 * @param out the <code>OutputStream</code> to write to
+	 * @param vertexCodec the {@link Codec} for the vertex data
+	 * @param edgeCodec the <code>Codec</code> for the edge data
+	 * @throws IOException if an error occurs writing the stream or encoding the data
+	 */
+	public static <V,E> void write(Graph<V,E> g,OutputStream out,Codec<V> vertexCodec,Codec<E> edgeCodec) throws IOException
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		if(out == null)
+			throw new NullPointerException("out");
+		if(vertexCodec == null)
+			throw new NullPointerException("vertexCodec");
+		if(edgeCodec == null)
+			throw new NullPointerException("edgeCodec");
+		
+		CSRGraph<V,E> csr = g instanceof CSRGraph ? (CSRGraph<V,E>)g : new CSRGraph<V,E>(g);
+		final int n = csr.numVerts();
+		final int m = csr.numEdges();
+		Writer w = new Writer(Channels.newChannel(out));
+		
+		w.ensure(17);
+		w.buf.putInt(MAGIC);
+		w.buf.putInt(VERSION);
+		w.buf.put(csr.isDirected() ? (byte)1 : (byte)0);
+		w.buf.putInt(n);
+		w.buf.putInt(m);
+		for(int i = 0; i < n; ++i)
+		{
+			w.ensure(4);
+			w.buf.putFloat(csr.getVertex(i).getWeight());
+		}
+		w.putInts(csr.offsets());
+		w.putInts(csr.targets());
+		float [] weights = csr.weights();
+		for(int a = 0; a < m; ++a)
+		{
+			w.ensure(4);
+			w.buf.putFloat(weights[a]);
+		}
+		for(int a = 0; a < m; ++a)
+		{
+			w.ensure(1);
+			w.buf.put(csr.getEdge(a).isReversed() ? REVERSED : 0);
+		}
+		for(int i = 0; i < n; ++i)
+			w.putValue(csr.getVertex(i).getData(),vertexCodec);
+		for(int a = 0; a < m; ++a)
+			w.putValue(csr.getEdge(a).getData(),edgeCodec);
+		w.flush();
+	}
+	
+	/**
+	 * Reads the snapshot in <code>file</code> by memory mapping it.
+	 * 
+	 * @param <V> vertex type of the graph
+	 * @param <E> edge type of the graph
+	 * @param file the snapshot file
+	 * @param vertexCodec the {@link Codec} for the vertex data
+	 * @param edgeCodec the <code>Codec</code> for the edge data
+	 * @return the {@link CSRGraph}
+	 * @throws IOException if an error occurs reading the file or the file is not a valid snapshot
+	 */
+	public static <V,E> CSRGraph<V,E> read(File file,Codec<V> vertexCodec,Codec<E> edgeCodec) throws IOException
+	{
+		if(file == null)
+			throw new NullPointerException("file");
+		RandomAccessFile raf = new RandomAccessFile(file,"r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE)
+				throw new IOException("file=" + file + " exceeds " + Integer.MAX_VALUE + " bytes");
+			return read(channel.map(FileChannel.MapMode.READ_ONLY,0,size),vertexCodec,edgeCodec);
+		}
+		finally
+		{
+			MiscUtils.closeStream(raf);
+		}
+	}
+	
+	/**
+	 * Reads a snapshot starting at the position of <code>buf</code>.  On return the position of <code>buf</code> is
+	 * just past the snapshot.
+	 * 
+	 * @param <V> vertex type of the graph
+	 * @param <E> edge type of the graph
+	 * @param buf the buffer to read from
+	 * @param vertexCodec the {@link Codec} for the vertex data
+	 * @param edgeCodec the <code>Codec</code> for the edge data
+	 * @return the {@link CSRGraph}
+	 * @throws IOException if <code>buf</code> does not contain a valid snapshot
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V,E> CSRGraph<V,E> read(ByteBuffer buf,Codec<V> vertexCodec,Codec<E> edgeCodec) throws IOException
+	{
+		if(buf == null)
+			throw new NullPointerException("buf");
+		if(vertexCodec == null)
+			throw new NullPointerException("vertexCodec");
+		if(edgeCodec == null)
+			throw new NullPointerException("edgeCodec");
+		
+		try
+		{
+			if(buf.getInt() != MAGIC)
+				throw new IOException("Not a graph snapshot");
+			int version = buf.getInt();
+			if(version != VERSION)
+				throw new IOException("Unsupported snapshot version=" + version);
+			final boolean isDirected = buf.get() != 0;
+			final int n = buf.getInt();
+			final int m = buf.getInt();
+			if(n < 0 || m < 0)
+				throw new IOException("Invalid snapshot size: n=" + n + ";m=" + m);
+			
+			float [] vertexWeights = getFloats(buf,n);
+			int [] offsets = getInts(buf,n + 1);
+			int [] targets = getInts(buf,m);
+			float [] weights = getFloats(buf,m);
+			byte [] flags = new byte[m];
+			buf.get(flags);
+			if(offsets[0] != 0 || offsets[n] != m)
+				throw new IOException("Invalid arc offsets");
+			
+			Vertex<V> [] vertices = new Vertex[n];
+			for(int i = 0; i < n; ++i)
+			{
+				Vertex<V> v = new Vertex<V>(getValue(buf,vertexCodec));
+				v.setWeight(vertexWeights[i]);
+				vertices[i] = v;
+			}
+			Edge<V,E> [] edges = new Edge[m];
+			for(int i = 0; i < n; ++i)
+			{
+				int end = offsets[i + 1];
+				if(offsets[i] > end)
+					throw new IOException("Invalid arc offsets");
+				for(int a = offsets[i]; a < end; ++a)
+				{
+					int to = targets[a];
+					if(to < 0 || to >= n)
+						throw new IOException("Invalid target=" + to + " for arc=" + a);
+					E data = getValue(buf,edgeCodec);
+					Edge<V,E> e;
+					// a reversed edge is only created by reversing another edge
+					if((flags[a] & REVERSED) != 0 && to != i)
+						e = new Edge<V,E>(vertices[to],vertices[i],data).reverse();
+					else
+						e = new Edge<V,E>(vertices[i],vertices[to],data);
+					e.setWeight(weights[a]);
+					edges[a] = e;
+				}
+			}
+			return new CSRGraph<V,E>(isDirected,vertices,offsets,targets,weights,edges);
+		}
+		catch(BufferUnderflowException e)
+		{
+			throw new IOException("Truncated snapshot",e);
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new IOException("Invalid snapshot",e);
+		}
+	}
+	
+	private static int [] getInts(ByteBuffer buf,int len)
+	{
+		int [] a = new int[len];
+		buf.asIntBuffer().get(a);
+		buf.position(buf.position() + 4 * len);
+		return a;
+	}
+	
+	private static float [] getFloats(ByteBuffer buf,int len)
+	{
+		float [] a = new float[len];
+		buf.asFloatBuffer().get(a);
+		buf.position(buf.position() + 4 * len);
+		return a;
+	}
+	
+	private static <T> T getValue(ByteBuffer buf,Codec<T> codec) throws IOException
+	{
+		return buf.get() != 0 ? codec.decode(buf) : null;
+	}
+	
+	/**
+	 * Buffers output to a channel.
+	 * 
+	 */
+	private static final class Writer
+	{
+		private final WritableByteChannel channel;
+		ByteBuffer buf = ByteBuffer.allocate(FLUSH_SIZE + 1024);
+		
+		Writer(WritableByteChannel channel)
+		{
+			this.channel = channel;
+		}
+		
+		void ensure(int n) throws IOException
+		{
+			if(buf.position() >= FLUSH_SIZE)
+				flush();
+			if(buf.remaining() < n)
+				buf = ByteUtils.growBuffer(buf,buf.position() + n);
+		}
+		
+		void putInts(int [] a) throws IOException
+		{
+			for(int i = 0; i < a.length;)
+			{
+				ensure(4);
+				int len = Math.min(buf.remaining() / 4,a.length - i);
+				buf.asIntBuffer().put(a,i,len);
+				buf.position(buf.position() + 4 * len);
+				i += len;
+			}
+		}
+		
+		<T> void putValue(T value,Codec<T> codec) throws IOException
+		{
+			ensure(1);
+			if(value == null)
+			{
+				buf.put((byte)0);
+				return;
+			}
+			buf.put((byte)1);
+			buf = codec.encode(value,buf);
+		}
+		
+		void flush() throws IOException
+		{
+			buf.flip();
+			while(buf.hasRemaining())
+				channel.write(buf);
+			buf.clear();
+		}
+	}
+}
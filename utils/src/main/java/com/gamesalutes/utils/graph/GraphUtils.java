@@ -27,6 +27,7 @@
 package com.gamesalutes.utils.graph;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import com.gamesalutes.utils.CollectionUtils;
 
@@ -325,6 +326,24 @@ public class GraphUtils
 	}
 	
 	
+	/**
+	 * Returns the largest connected component in <code>g</code> as {@link #getLargestConnectedSubgraph(Graph)}
+	 * does, finding the components with a concurrent union-find on <code>pool</code>.
+	 * Directedness is <b><i>NOT</i></b> considered.
+	 * 
+	 * @param <V> the vertex type
+	 * @param <E> the edge type
+	 * @param g the {@link Graph}
+	 * @param pool the <code>ForkJoinPool</code> that runs the search
+	 * @return a <code>Set</code> of the vertices in the largest connected
+	 *         component in the graph
+	 */
+	public static <V,E> Set<Vertex<V>> getLargestConnectedSubgraph(Graph<V,E> g,ForkJoinPool pool)
+	{
+		return new ParallelConnectivity<V,E>(g,pool).getLargestConnectedSubgraph();
+	}
+	
+	
 	/**
 	 * Returns the vertices that are not part of the connected component
 	 * that contains <code>source</code>.
@@ -450,6 +469,20 @@ public class GraphUtils
     	
     	return visited.equals(nodes);
 	}
+	/**
+	 * Returns whether <code>g</code> is connected as {@link #isConnected(Graph)} does, using a level-synchronous
+	 * breadth-first search on <code>pool</code> for a directed graph and a concurrent union-find for an undirected
+	 * one.  Directedness <b><i>is</i></b> considered.
+	 * 
+	 * @param g the <code>Graph</code>
+	 * @param pool the <code>ForkJoinPool</code> that runs the search
+	 * @return <code>true</code> if connected and <code>false</code> otherwise
+	 */
+	public static <V,E> boolean isConnected(Graph<V,E> g,ForkJoinPool pool)
+	{
+		return new ParallelConnectivity<V,E>(g,pool).isConnected();
+	}
+	
 	/**
 	 * Returns the connected component sub-graphs within <code>g</code>.  If <code>g</code> is connected then
 	 * itself is returned.  Directedness <b><i>is</i></b> considered.
@@ -524,6 +557,24 @@ public class GraphUtils
     	
     	return components;
 	}
+	/**
+	 * Returns the connected component sub-graphs within <code>g</code> as {@link #getConnectedComponents(Graph)}
+	 * does.  The components of an undirected graph are found with a concurrent union-find and those of a directed 
+	 * graph with a level-synchronous breadth-first search from each vertex not yet reached, both on 
+	 * <code>pool</code>, which also builds the sub-graphs.  If <code>g</code> is connected then itself is returned.
+	 * Directedness <b><i>is</i></b> considered.
+	 * 
+	 * @param <V> vertex type
+	 * @param <E> edge type
+	 * @param g the {@link Graph}
+	 * @param pool the <code>ForkJoinPool</code> that runs the search
+	 * @return a <code>Set</code> of the connected component sub-graphs
+	 */
+	public static <V,E> Set<Graph<V,E>> getConnectedComponents(Graph<V,E> g,ForkJoinPool pool)
+	{
+		return new ParallelConnectivity<V,E>(g,pool).getConnectedComponents();
+	}
+	
 	/**
 	 * Removes paths returned by {@link GraphTraversalAlgorithm#getPath(Vertex)} that are subsets of each other
 	 * so that only the longest paths are returned.
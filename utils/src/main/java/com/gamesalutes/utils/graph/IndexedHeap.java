@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min heap of non-negative <code>int</code> ids keyed by <code>float</code> priorities.
+ * The heap position of every id is tracked so that {@link #contains(int)} is constant time and
+ * {@link #decreaseKey(int, float)} is <code>O(log<sub>d</sub> n)</code> without removing and re-adding
+ * the element.  Ids are expected to be assigned densely from zero, for example in order of discovery 
+ * during a traversal, since the position table is sized by the largest id seen.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+final class IndexedHeap
+{
+	/**
+	 * The default arity of the heap.
+	 * 
+	 */
+	public static final int DEFAULT_ARITY = 4;
+	
+	private final int arity;
+	// ids in heap order
+	private int [] heap;
+	// keys parallel to heap
+	private float [] keys;
+	// position in heap by id or -1 if id not in heap
+	private int [] pos;
+	private int size;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param capacity the initial capacity
+	 */
+	public IndexedHeap(int capacity)
+	{
+		this(DEFAULT_ARITY,capacity);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param arity the number of children of each heap node
+	 * @param capacity the initial capacity
+	 * @throws IllegalArgumentException if <code>arity</code> &lt; 2 or <code>capacity</code> &lt; 0
+	 */
+	public IndexedHeap(int arity,int capacity)
+	{
+		if(arity < 2)
+			throw new IllegalArgumentException("arity=" + arity);
+		if(capacity < 0)
+			throw new IllegalArgumentException("capacity=" + capacity);
+		if(capacity == 0) capacity = 1;
+		this.arity = arity;
+		this.heap = new int[capacity];
+		this.keys = new float[capacity];
+		this.pos = new int[capacity];
+		Arrays.fill(pos,-1);
+	}
+	
+	/**
+	 * Returns the number of ids in the heap.
+	 * 
+	 * @return the size of the heap
+	 */
+	public int size() { return size; }
+	
+	/**
+	 * Returns whether the heap is empty.
+	 * 
+	 * @return <code>true</code> if empty and <code>false</code> otherwise
+	 */
+	public boolean isEmpty() { return size == 0; }
+	
+	/**
+	 * Returns whether <code>id</code> is in the heap.
+	 * 
+	 * @param id the id
+	 * @return <code>true</code> if in the heap and <code>false</code> otherwise
+	 */
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < pos.length && pos[id] != -1;
+	}
+	
+	/**
+	 * Returns the key of <code>id</code>.
+	 * 
+	 * @param id the id
+	 * @return the key of <code>id</code>
+	 * @throws NoSuchElementException if <code>id</code> is not in the heap
+	 */
+	public float getKey(int id)
+	{
+		if(!contains(id))
+			throw new NoSuchElementException("id=" + id);
+		return keys[pos[id]];
+	}
+	
+	/**
+	 * Inserts <code>id</code> with the given key.
+	 * 
+	 * @param id the id
+	 * @param key the key
+	 * @throws IllegalArgumentException if <code>id</code> &lt; 0 or <code>id</code> is already in the heap
+	 */
+	public void insert(int id,float key)
+	{
+		if(id < 0)
+			throw new IllegalArgumentException("id=" + id);
+		if(id >= pos.length)
+		{
+			int oldLen = pos.length;
+			pos = Arrays.copyOf(pos,Math.max(id + 1,oldLen * 2));
+			Arrays.fill(pos,oldLen,pos.length,-1);
+		}
+		else if(pos[id] != -1)
+			throw new IllegalArgumentException("id=" + id + " already in heap");
+		if(size == heap.length)
+		{
+			heap = Arrays.copyOf(heap,size * 2);
+			keys = Arrays.copyOf(keys,size * 2);
+		}
+		siftUp(size++,id,key);
+	}
+	
+	/**
+	 * Lowers the key of <code>id</code> to <code>key</code>.  The key is unchanged if it 
+	 * is already less than or equal to <code>key</code>.
+	 * 
+	 * @param id the id
+	 * @param key the new key
+	 * @return <code>true</code> if the key was lowered and <code>false</code> otherwise
+	 * @throws NoSuchElementException if <code>id</code> is not in the heap
+	 */
+	public boolean decreaseKey(int id,float key)
+	{
+		if(!contains(id))
+			throw new NoSuchElementException("id=" + id);
+		int i = pos[id];
+		if(!(key < keys[i]))
+			return false;
+		siftUp(i,id,key);
+		return true;
+	}
+	
+	/**
+	 * Inserts <code>id</code> if not in the heap and otherwise lowers its key to <code>key</code>.
+	 * 
+	 * @param id the id
+	 * @param key the key
+	 * @return <code>true</code> if inserted or the key was lowered and <code>false</code> otherwise
+	 */
+	public boolean insertOrDecrease(int id,float key)
+	{
+		if(contains(id))
+			return decreaseKey(id,key);
+		insert(id,key);
+		return true;
+	}
+	
+	/**
+	 * Returns the id with the minimum key without removing it.
+	 * 
+	 * @return the minimum id
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public int peek()
+	{
+		if(size == 0)
+			throw new NoSuchElementException();
+		return heap[0];
+	}
+	
+	/**
+	 * Returns the minimum key.
+	 * 
+	 * @return the minimum key
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public float peekKey()
+	{
+		if(size == 0)
+			throw new NoSuchElementException();
+		return keys[0];
+	}
+	
+	/**
+	 * Removes and returns the id with the minimum key.
+	 * 
+	 * @return the minimum id
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public int poll()
+	{
+		if(size == 0)
+			throw new NoSuchElementException();
+		int min = heap[0];
+		pos[min] = -1;
+		if(--size > 0)
+			siftDown(0,heap[size],keys[size]);
+		return min;
+	}
+	
+	/**
+	 * Removes all ids from the heap.
+	 * 
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < size; ++i)
+			pos[heap[i]] = -1;
+		size = 0;
+	}
+	
+	private void siftUp(int i,int id,float key)
+	{
+		final int [] heap = this.heap;
+		final float [] keys = this.keys;
+		while(i > 0)
+		{
+			int parent = (i - 1) / arity;
+			float parentKey = keys[parent];
+			if(!(key < parentKey))
+				break;
+			heap[i] = heap[parent];
+			keys[i] = parentKey;
+			pos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		keys[i] = key;
+		pos[id] = i;
+	}
+	
+	private void siftDown(int i,int id,float key)
+	{
+		final int [] heap = this.heap;
+		final float [] keys = this.keys;
+		final int size = this.size;
+		for(;;)
+		{
+			int first = i * arity + 1;
+			if(first >= size)
+				break;
+			int last = Math.min(first + arity,size);
+			int min = first;
+			float minKey = keys[first];
+			for(int c = first + 1; c < last; ++c)
+			{
+				if(keys[c] < minKey)
+				{
+					min = c;
+					minKey = keys[c];
+				}
+			}
+			if(!(minKey < key))
+				break;
+			heap[i] = heap[min];
+			keys[i] = minKey;
+			pos[heap[i]] = i;
+			i = min;
+		}
+		heap[i] = id;
+		keys[i] = key;
+		pos[id] = i;
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.gamesalutes.utils.CollectionUtils;
+
+/**
+ * Landmark (ALT) lower bounds on the shortest distances of a static {@link Graph}.  Preprocessing picks 
+ * landmarks spread across the graph and stores the shortest distances from and to each landmark.  By the triangle 
+ * inequality, <code>d(u,t) &gt;= d(L,t) - d(L,u)</code> and <code>d(u,t) &gt;= d(u,L) - d(t,L)</code> for each 
+ * landmark <code>L</code>, and the largest of these bounds is a consistent heuristic.
+ * <p>
+ * A <code>Landmarks</code> is an {@link AStar.AStarCallback} for {@link AStar} or {@link ShortestPaths}.  
+ * A <code>ShortestPaths</code> created on the same {@link CSRGraph} as the landmarks reads the bounds by vertex id 
+ * instead of looking up the vertices.
+ * <p>
+ * Landmarks are chosen by farthest selection: each new landmark is the vertex farthest from the landmarks chosen
+ * so far, preferring vertices that none of them reach.  Two distances per vertex and landmark are stored, so
+ * the memory used is <code>8 * numVerts() * numLandmarks()</code> bytes.  Instances are immutable and serializable
+ * and the distances reflect the graph when it was preprocessed.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <V> vertex type
+ */
+public final class Landmarks<V> implements AStar.AStarCallback<V>,Serializable
+{
+	/**
+	 * Number of landmarks chosen by {@link #Landmarks(Graph)}.
+	 */
+	public static final int DEFAULT_LANDMARKS = 16;
+	
+	private static final int START_SIZE = 64;
+	
+	private final Map<Vertex<V>,Integer> ids;
+	private final Vertex<V> [] landmarks;
+	// distances from and to landmark i of vertex v are at index v * landmarks.length + i
+	private final float [] from;
+	private final float [] to;
+	
+	// graph whose vertex ids index the distances, not kept when serialized
+	private transient CSRGraph<V,?> graph;
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Constructor.  Chooses {@link #DEFAULT_LANDMARKS} landmarks.
+	 * 
+	 * @param g the {@link Graph}
+	 */
+	public Landmarks(Graph<V,?> g)
+	{
+		this(g,DEFAULT_LANDMARKS);
+	}
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param g the {@link Graph}, which is frozen into a {@link CSRGraph} unless it is one
+	 * @param numLandmarks the number of landmarks, limited to the number of vertices
+	 * @throws IllegalArgumentException if <code>numLandmarks</code> &lt; 1
+	 */
+	@SuppressWarnings("unchecked")
+	public Landmarks(Graph<V,?> g,int numLandmarks)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		if(numLandmarks < 1)
+			throw new IllegalArgumentException("numLandmarks=" + numLandmarks);
+		
+		CSRGraph<V,?> csr = g instanceof CSRGraph ? (CSRGraph<V,?>)g : freeze(g);
+		final int n = csr.numVerts();
+		final int k = Math.min(numLandmarks,n);
+		
+		this.graph = csr;
+		this.ids = CollectionUtils.createHashMap(n,CollectionUtils.LOAD_FACTOR);
+		for(int i = 0; i < n; ++i)
+			ids.put(csr.getVertex(i),i);
+		this.landmarks = new Vertex[k];
+		this.from = new float[n * k];
+		this.to = new float[n * k];
+		
+		// reverse arcs for the searches to the landmarks
+		final int [] offsets = csr.offsets();
+		final int [] targets = csr.targets();
+		final float [] weights = csr.weights();
+		final int [] inOffsets = csr.inOffsets();
+		final int [] inArcs = csr.inArcs();
+		final int [] arcSources = csr.arcSources();
+		final int [] inSources = new int[inArcs.length];
+		final float [] inWeights = new float[inArcs.length];
+		for(int a = 0; a < inArcs.length; ++a)
+		{
+			inSources[a] = arcSources[inArcs[a]];
+			inWeights[a] = weights[inArcs[a]];
+		}
+		
+		float [] dist = new float[n];
+		// distance from the nearest landmark
+		float [] nearest = new float[n];
+		Arrays.fill(nearest,Float.POSITIVE_INFINITY);
+		
+		// first landmark is the vertex farthest from the first vertex
+		int next = 0;
+		if(n > 0)
+		{
+			distances(offsets,targets,weights,0,dist);
+			next = farthest(dist);
+		}
+		for(int i = 0; i < k; ++i)
+		{
+			landmarks[i] = csr.getVertex(next);
+			
+			distances(offsets,targets,weights,next,dist);
+			for(int v = 0; v < n; ++v)
+			{
+				from[v * k + i] = dist[v];
+				if(dist[v] < nearest[v])
+					nearest[v] = dist[v];
+			}
+			
+			distances(inOffsets,inSources,inWeights,next,dist);
+			for(int v = 0; v < n; ++v)
+				to[v * k + i] = dist[v];
+			
+			next = farthest(nearest);
+		}
+	}
+	
+	private static <V,E> CSRGraph<V,E> freeze(Graph<V,E> g)
+	{
+		return new CSRGraph<V,E>(g);
+	}
+	
+	/**
+	 * Returns the vertex with the largest distance, or the first that is not reached.
+	 * 
+	 */
+	private static int farthest(float [] dist)
+	{
+		int farthest = 0;
+		for(int v = 0; v < dist.length; ++v)
+		{
+			if(dist[v] == Float.POSITIVE_INFINITY)
+				return v;
+			if(dist[v] > dist[farthest])
+				farthest = v;
+		}
+		return farthest;
+	}
+	
+	/**
+	 * Djikstra search from <code>source</code> over the arcs <code>offsets[u]..offsets[u + 1]-1</code> of 
+	 * <code>adjacent</code> and <code>weights</code>.
+	 * 
+	 */
+	private static void distances(int [] offsets,int [] adjacent,float [] weights,int source,float [] dist)
+	{
+		final int n = dist.length;
+		Arrays.fill(dist,Float.POSITIVE_INFINITY);
+		IndexedHeap queue = new IndexedHeap(n >= START_SIZE ? START_SIZE : n);
+		dist[source] = 0.0f;
+		queue.insert(source,0.0f);
+		while(!queue.isEmpty())
+		{
+			final int u = queue.poll();
+			final float uDist = dist[u];
+			for(int a = offsets[u], end = offsets[u + 1]; a < end; ++a)
+			{
+				int v = adjacent[a];
+				float newDist = uDist + weights[a];
+				if(newDist < dist[v])
+				{
+					dist[v] = newDist;
+					queue.insertOrDecrease(v,newDist);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the landmarks.
+	 * 
+	 * @return unmodifiable <code>List</code> of the landmarks
+	 */
+	public List<Vertex<V>> getLandmarks()
+	{
+		return Collections.unmodifiableList(new ArrayList<Vertex<V>>(Arrays.asList(landmarks)));
+	}
+	
+	/**
+	 * Returns the number of landmarks.
+	 * 
+	 * @return the number of landmarks
+	 */
+	public int numLandmarks()
+	{
+		return landmarks.length;
+	}
+	
+	/**
+	 * Returns a lower bound of the shortest distance from <code>source</code> to <code>target</code>.
+	 * 
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 * @return the lower bound
+	 * @throws IllegalArgumentException if <code>source</code> or <code>target</code> was not in the graph
+	 */
+	public float heuristicDistance(Vertex<V> source,Vertex<V> target)
+	{
+		return lowerBound(checkedIndexOf(source,"source"),checkedIndexOf(target,"target"));
+	}
+	
+	/**
+	 * Returns whether the bounds are indexed by the vertex ids of <code>csr</code>.
+	 * 
+	 */
+	boolean isFor(CSRGraph<?,?> csr)
+	{
+		return graph == csr;
+	}
+	
+	/**
+	 * Returns a lower bound of the shortest distance from vertex <code>u</code> to vertex <code>t</code>.  
+	 * Bounds through a landmark that does not reach, or is not reached by, both vertices are skipped.
+	 * 
+	 */
+	float lowerBound(int u,int t)
+	{
+		final int k = landmarks.length;
+		final float [] from = this.from;
+		final float [] to = this.to;
+		float bound = 0.0f;
+		for(int i = 0, ui = u * k, ti = t * k; i < k; ++i, ++ui, ++ti)
+		{
+			float b = from[ti] - from[ui];
+			// infinite differences are NaN or infinite
+			if(b > bound && b != Float.POSITIVE_INFINITY)
+				bound = b;
+			b = to[ui] - to[ti];
+			if(b > bound && b != Float.POSITIVE_INFINITY)
+				bound = b;
+		}
+		return bound;
+	}
+	
+	private int checkedIndexOf(Vertex<V> v,String name)
+	{
+		if(v == null)
+			throw new NullPointerException(name);
+		Integer id = ids.get(v);
+		if(id == null)
+			throw new IllegalArgumentException(name + ": " + v + " not in graph");
+		return id;
+	}
+}
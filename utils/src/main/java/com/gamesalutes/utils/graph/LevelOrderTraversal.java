@@ -39,10 +39,6 @@
  */
 package com.gamesalutes.utils.graph;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
-
 /**
  * Performs a level-order traversal on the tree.
  * 
@@ -65,24 +61,12 @@ public final class LevelOrderTraversal<T> extends AbstractTreeTraversal<T>
 
 	protected void doExecute()
 	{
-		Queue<TreeNode<T>> queue = new LinkedList<TreeNode<T>>();
-		root.setLevel(0);
-		queue.add(root);
-		
-		while(!queue.isEmpty())
+		for(TreeNode.LevelOrderIterator<T> it = new TreeNode.LevelOrderIterator<T>(root); it.hasNext();)
 		{
-			TreeNode<T> node = queue.poll();
-			if(listener.onTraverse(node))
-			{
-				// examine children
-				for(Iterator<TreeNode<T>> it = node.iterator(); it.hasNext();)
-				{
-					TreeNode<T> child = it.next();
-					child.setLevel(node.getLevel() + 1);
-					queue.offer(child);
-				}
-			}
-		} // end while
+			// only examine children of accepted nodes
+			if(!listener.onTraverse(it.next()))
+				it.skipChildren();
+		}
 	}
 
 }
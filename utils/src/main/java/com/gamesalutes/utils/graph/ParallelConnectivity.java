@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.gamesalutes.utils.CollectionUtils;
+
+/**
+ * Fork-join implementations of the connectivity queries in {@link GraphUtils}.  The graph is frozen into a 
+ * {@link CSRGraph} unless it already is one and the work is split into chunks of vertex ids.
+ * <p>
+ * Breadth-first searches are level-synchronous: each level of the frontier is expanded in parallel and a 
+ * discovered vertex is claimed by the earliest frontier vertex that reaches it, so the visit order and 
+ * the parent of each vertex are the same as those of a sequential {@link BFS}.  Undirected connectivity 
+ * uses a concurrent union-find that links roots with compare-and-set, always under the lower id, so the 
+ * root of each component is its first vertex.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+final class ParallelConnectivity<V,E>
+{
+	// vertices handled by one task
+	private static final int GRAIN = 512;
+	
+	private final Graph<V,E> graph;
+	private final CSRGraph<V,E> csr;
+	private final ForkJoinPool pool;
+	private final int [] offsets;
+	private final int [] targets;
+	
+	// breadth-first search state, reset for the vertices reached by each search
+	private boolean [] visited;
+	private AtomicIntegerArray claims;
+	private int [] parents;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param g the <code>Graph</code>
+	 * @param pool the <code>ForkJoinPool</code> that runs the tasks
+	 */
+	ParallelConnectivity(Graph<V,E> g,ForkJoinPool pool)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		if(pool == null)
+			throw new NullPointerException("pool");
+		this.graph = g;
+		this.csr = g instanceof CSRGraph ? (CSRGraph<V,E>)g : new CSRGraph<V,E>(g);
+		this.pool = pool;
+		this.offsets = csr.offsets();
+		this.targets = csr.targets();
+	}
+	
+	/**
+	 * See {@link GraphUtils#isConnected(Graph)}.
+	 * 
+	 */
+	boolean isConnected()
+	{
+		final int n = csr.numVerts();
+		if(n == 0) return true;
+		if(!csr.isDirected())
+		{
+			for(int root : components())
+			{
+				if(root != 0)
+					return false;
+			}
+			return true;
+		}
+		return search(0).length == n;
+	}
+	
+	/**
+	 * See {@link GraphUtils#getConnectedComponents(Graph)}.
+	 * 
+	 */
+	Set<Graph<V,E>> getConnectedComponents()
+	{
+		final int n = csr.numVerts();
+		Set<Graph<V,E>> components = new HashSet<Graph<V,E>>();
+		if(n == 0)
+		{
+			components.add(graph);
+			return components;
+		}
+		
+		List<ForkJoinTask<Graph<V,E>>> tasks = new ArrayList<ForkJoinTask<Graph<V,E>>>();
+		if(!csr.isDirected())
+		{
+			// components are disjoint and the first vertex of each is its root
+			int [] roots = components();
+			int [] sizes = new int[n];
+			for(int i = 0; i < n; ++i)
+				++sizes[roots[i]];
+			if(sizes[0] == n)
+			{
+				components.add(graph);
+				return components;
+			}
+			int [][] members = new int[n][];
+			for(int i = 0; i < n; ++i)
+			{
+				int r = roots[i];
+				if(members[r] == null)
+					members[r] = new int[sizes[r]];
+				members[r][members[r].length - sizes[r]--] = i;
+			}
+			for(int r = 0; r < n; ++r)
+			{
+				if(members[r] != null)
+					tasks.add(pool.submit(new Subgraph(members[r],null)));
+			}
+		}
+		else
+		{
+			// a search from each vertex not yet reached, as the sequential version does
+			boolean [] reached = new boolean[n];
+			for(int source = 0; source < n; ++source)
+			{
+				if(reached[source]) continue;
+				int [] order = search(source);
+				if(source == 0 && order.length == n)
+				{
+					components.add(graph);
+					return components;
+				}
+				int [] orderParents = new int[order.length];
+				for(int i = 0; i < order.length; ++i)
+				{
+					reached[order[i]] = true;
+					orderParents[i] = parents[order[i]];
+				}
+				tasks.add(pool.submit(new Subgraph(order,orderParents)));
+			}
+		}
+		
+		for(ForkJoinTask<Graph<V,E>> task : tasks)
+			components.add(task.join());
+		return components;
+	}
+	
+	/**
+	 * See {@link GraphUtils#getLargestConnectedSubgraph(Graph)}.
+	 * 
+	 */
+	Set<Vertex<V>> getLargestConnectedSubgraph()
+	{
+		final int n = csr.numVerts();
+		Set<Vertex<V>> subgraph = CollectionUtils.createHashSet(n,CollectionUtils.LOAD_FACTOR);
+		if(n == 0) return subgraph;
+		
+		int [] roots = components();
+		int [] sizes = new int[n];
+		for(int i = 0; i < n; ++i)
+			++sizes[roots[i]];
+		// first largest component wins
+		int max = 0;
+		for(int r = 1; r < n; ++r)
+		{
+			if(sizes[r] > sizes[max])
+				max = r;
+		}
+		for(int i = 0; i < n; ++i)
+		{
+			if(roots[i] == max)
+				subgraph.add(csr.getVertex(i));
+		}
+		return subgraph;
+	}
+	
+	/**
+	 * Finds the undirected connected components with a concurrent union-find.
+	 * 
+	 * @return the lowest vertex id in the component of each vertex
+	 */
+	int [] components()
+	{
+		final int n = csr.numVerts();
+		final AtomicIntegerArray links = new AtomicIntegerArray(n);
+		for(int i = 0; i < n; ++i)
+			links.set(i,i);
+		
+		forEach(n,new Chunk()
+		{
+			public void run(int lo,int hi)
+			{
+				for(int v = lo; v < hi; ++v)
+				{
+					for(int a = offsets[v], end = offsets[v + 1]; a < end; ++a)
+					{
+						int w = targets[a];
+						if(w != v)
+							union(links,v,w);
+					}
+				}
+			}
+		});
+		
+		final int [] roots = new int[n];
+		forEach(n,new Chunk()
+		{
+			public void run(int lo,int hi)
+			{
+				for(int v = lo; v < hi; ++v)
+					roots[v] = find(links,v);
+			}
+		});
+		return roots;
+	}
+	
+	/**
+	 * Returns the root of <code>x</code>, halving the path to it.
+	 * 
+	 */
+	private static int find(AtomicIntegerArray links,int x)
+	{
+		for(;;)
+		{
+			int p = links.get(x);
+			if(p == x) return x;
+			int gp = links.get(p);
+			if(gp != p)
+				links.compareAndSet(x,p,gp);
+			x = gp;
+		}
+	}
+	
+	/**
+	 * Merges the sets of <code>x</code> and <code>y</code>.
+	 * 
+	 */
+	private static void union(AtomicIntegerArray links,int x,int y)
+	{
+		for(;;)
+		{
+			x = find(links,x);
+			y = find(links,y);
+			if(x == y) return;
+			// link the higher root under the lower so each root stays the lowest id of its set
+			if(x < y)
+			{
+				int t = x;
+				x = y;
+				y = t;
+			}
+			// fails if another thread linked x first
+			if(links.compareAndSet(x,x,y))
+				return;
+		}
+	}
+	
+	/**
+	 * Level-synchronous breadth-first search over the outgoing arcs from <code>source</code>.
+	 * The parent of each reached vertex is available from <code>parents</code> until the next search.
+	 * 
+	 * @param source the source id
+	 * @return the reached ids in visit order
+	 */
+	int [] search(int source)
+	{
+		final int n = csr.numVerts();
+		if(visited == null)
+		{
+			visited = new boolean[n];
+			parents = new int[n];
+			claims = new AtomicIntegerArray(n);
+			for(int i = 0; i < n; ++i)
+				claims.set(i,Integer.MAX_VALUE);
+		}
+		
+		int [] order = new int[16];
+		int size = 0;
+		order[size++] = source;
+		visited[source] = true;
+		parents[source] = -1;
+		
+		int start = 0;
+		while(start < size)
+		{
+			final int [] frontier = order;
+			final int base = start;
+			final int count = size - start;
+			
+			// each undiscovered target is claimed by the earliest frontier vertex with an arc to it
+			forEach(count,new Chunk()
+			{
+				public void run(int lo,int hi)
+				{
+					for(int i = lo; i < hi; ++i)
+					{
+						int v = frontier[base + i];
+						for(int a = offsets[v], end = offsets[v + 1]; a < end; ++a)
+						{
+							int w = targets[a];
+							if(!visited[w])
+								claim(w,i);
+						}
+					}
+				}
+			});
+			
+			// the claiming vertex appends its targets in arc order, giving the sequential visit order
+			final int [][] next = new int[(count + GRAIN - 1) / GRAIN][];
+			forEach(count,new Chunk()
+			{
+				public void run(int lo,int hi)
+				{
+					int [] found = new int[16];
+					int numFound = 0;
+					for(int i = lo; i < hi; ++i)
+					{
+						int v = frontier[base + i];
+						for(int a = offsets[v], end = offsets[v + 1]; a < end; ++a)
+						{
+							int w = targets[a];
+							// only this task writes the vertices claimed by its frontier vertices
+							if(claims.get(w) == i && !visited[w])
+							{
+								visited[w] = true;
+								parents[w] = v;
+								if(numFound == found.length)
+									found = Arrays.copyOf(found,numFound * 2);
+								found[numFound++] = w;
+							}
+						}
+					}
+					next[lo / GRAIN] = Arrays.copyOf(found,numFound);
+				}
+			});
+			
+			start = size;
+			for(int [] found : next)
+			{
+				if(size + found.length > order.length)
+					order = Arrays.copyOf(order,Math.max(order.length * 2,size + found.length));
+				System.arraycopy(found,0,order,size,found.length);
+				size += found.length;
+			}
+		}
+		
+		for(int i = 0; i < size; ++i)
+		{
+			visited[order[i]] = false;
+			claims.set(order[i],Integer.MAX_VALUE);
+		}
+		return Arrays.copyOf(order,size);
+	}
+	
+	/**
+	 * Lowers the claim on <code>w</code> to frontier position <code>i</code>.
+	 * 
+	 */
+	private void claim(int w,int i)
+	{
+		for(;;)
+		{
+			int c = claims.get(w);
+			if(c <= i || claims.compareAndSet(w,c,i))
+				return;
+		}
+	}
+	
+	/**
+	 * Runs <code>body</code> over <code>0..size-1</code> in chunks of {@link #GRAIN} ids.  Chunks start at
+	 * multiples of <code>GRAIN</code>.
+	 * 
+	 */
+	private void forEach(int size,Chunk body)
+	{
+		final int chunks = (size + GRAIN - 1) / GRAIN;
+		if(chunks == 1)
+			body.run(0,size);
+		else if(chunks > 1)
+			pool.invoke(new ChunkTask(body,size,0,chunks));
+	}
+	
+	/**
+	 * Work on a range of ids.
+	 * 
+	 */
+	private interface Chunk
+	{
+		void run(int lo,int hi);
+	}
+	
+	/**
+	 * Splits a range of chunks in half until one is left.
+	 * 
+	 */
+	private static final class ChunkTask extends RecursiveAction
+	{
+		private final Chunk body;
+		private final int size;
+		private final int lo;
+		private final int hi;
+		
+		private static final long serialVersionUID = 1L;
+		
+		ChunkTask(Chunk body,int size,int lo,int hi)
+		{
+			this.body = body;
+			this.size = size;
+			this.lo = lo;
+			this.hi = hi;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(hi - lo == 1)
+			{
+				body.run(lo * GRAIN,Math.min(size,hi * GRAIN));
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new ChunkTask(body,size,lo,mid),new ChunkTask(body,size,mid,hi));
+		}
+	}
+	
+	/**
+	 * Copies a component into an {@link AdjacencyList}.
+	 * 
+	 */
+	private final class Subgraph extends RecursiveTask<Graph<V,E>>
+	{
+		private final int [] ids;
+		private final int [] idParents;
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param ids the vertex ids of the component
+		 * @param idParents search parent of each id, or <code>null</code> for an undirected component
+		 */
+		Subgraph(int [] ids,int [] idParents)
+		{
+			this.ids = ids;
+			this.idParents = idParents;
+		}
+		
+		@Override
+		protected Graph<V,E> compute()
+		{
+			Graph<V,E> g = new AdjacencyList<V,E>(csr.isDirected());
+			for(int id : ids)
+				g.addVertex(csr.getVertex(id));
+			for(int i = 0; i < ids.length; ++i)
+			{
+				int v = ids[i];
+				for(int a = offsets[v], end = offsets[v + 1]; a < end; ++a)
+				{
+					int w = targets[a];
+					// a search does not go back along the arcs to a vertex's parent, nor does it follow self loops,
+					// and an undirected edge is added with its reverse
+					if(idParents != null ? w == v || w == idParents[i] : w <= v)
+						continue;
+					g.addEdge(csr.getEdge(a));
+				}
+			}
+			return g;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.gamesalutes.utils.graph.TreeTraversal.Listener;
+
+/**
+ * Visits the nodes of a tree in parallel on a <code>ForkJoinPool</code>.  Each node is passed to 
+ * {@link TreeTraversal.Listener#onTraverse(TreeNode)} after its parent and, as in a {@link PreOrderTraversal}, 
+ * the subtree below a node is skipped if the listener returns <code>false</code>.  Otherwise there is no
+ * ordering between nodes so the listener must be thread-safe.
+ * <p>
+ * The children of wide nodes are split into ranges that are processed as separate tasks and each task 
+ * walks its subtrees with an explicit stack, forking the children of a node only while there are idle workers.
+ * The level of each node is set before it is visited, the root being level <code>0</code>.  The tree must not 
+ * be modified during the traversal.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <T> the type of the tree node
+ */
+public final class ParallelTreeTraversal<T>
+{
+	private final TreeNode<T> root;
+	private final Listener<T> listener;
+	
+	// fork while at most this many tasks are waiting to be stolen
+	private static final int SURPLUS = 3;
+	// bound on the nesting of forked subtrees, which may run on the stack of the joining task
+	private static final int MAX_FORK_DEPTH = 32;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param root the root node in the traversal
+	 * @param listener the thread-safe {@link TreeTraversal.Listener TreeTraversal.Listener} to call 
+	 *        for each node
+	 */
+	public ParallelTreeTraversal(TreeNode<T> root,Listener<T> listener)
+	{
+		if(root == null)
+			throw new NullPointerException("root");
+		if(listener == null)
+			throw new NullPointerException("listener");
+		this.root = root;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Executes the traversal on a new <code>ForkJoinPool</code> with one thread per processor.
+	 * 
+	 * @return the number of nodes for which the listener returned <code>true</code>
+	 */
+	public int execute()
+	{
+		ForkJoinPool pool = new ForkJoinPool();
+		try
+		{
+			return execute(pool);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Executes the traversal using <code>pool</code>.
+	 * 
+	 * @param pool the <code>ForkJoinPool</code> that runs the traversal
+	 * @return the number of nodes for which the listener returned <code>true</code>
+	 */
+	public int execute(ForkJoinPool pool)
+	{
+		if(pool == null)
+			throw new NullPointerException("pool");
+		root.setLevel(0);
+		if(!listener.onTraverse(root))
+			return 0;
+		return 1 + pool.invoke(new SubtreeTask(root,0,root.getChildCount(),0));
+	}
+	
+	/**
+	 * Visits the subtrees of a range of children of an already visited node.
+	 * 
+	 */
+	private final class SubtreeTask extends RecursiveTask<Integer>
+	{
+		private final TreeNode<T> parent;
+		private final int start;
+		private final int end;
+		private final int forkDepth;
+		
+		private static final long serialVersionUID = 1L;
+		
+		SubtreeTask(TreeNode<T> parent,int start,int end,int forkDepth)
+		{
+			this.parent = parent;
+			this.start = start;
+			this.end = end;
+			this.forkDepth = forkDepth;
+		}
+		
+		@Override
+		protected Integer compute()
+		{
+			if(end - start > 1 && getSurplusQueuedTaskCount() <= SURPLUS)
+			{
+				int mid = (start + end) >>> 1;
+				SubtreeTask left = new SubtreeTask(parent,start,mid,forkDepth);
+				left.fork();
+				int count = new SubtreeTask(parent,mid,end,forkDepth).compute();
+				return count + left.join();
+			}
+			
+			int count = 0;
+			List<SubtreeTask> forked = null;
+			final int level = parent.getLevel() + 1;
+			for(int i = start; i < end; ++i)
+			{
+				for(TreeNode.PreOrderIterator<T> it = new TreeNode.PreOrderIterator<T>(parent.getChildAt(i),level); 
+					it.hasNext();)
+				{
+					TreeNode<T> node = it.next();
+					if(!listener.onTraverse(node))
+					{
+						it.skipChildren();
+						continue;
+					}
+					++count;
+					int size = node.getChildCount();
+					if(size > 1 && forkDepth < MAX_FORK_DEPTH && getSurplusQueuedTaskCount() <= SURPLUS)
+					{
+						SubtreeTask task = new SubtreeTask(node,0,size,forkDepth + 1);
+						task.fork();
+						if(forked == null)
+							forked = new ArrayList<SubtreeTask>();
+						forked.add(task);
+						it.skipChildren();
+					}
+				}
+			}
+			if(forked != null)
+			{
+				for(int i = forked.size() - 1; i >= 0; --i)
+					count += forked.get(i).join();
+			}
+			return count;
+		}
+	}
+}
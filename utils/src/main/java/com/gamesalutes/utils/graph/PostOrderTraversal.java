@@ -53,22 +53,9 @@ public final class PostOrderTraversal<T> extends AbstractTreeTraversal<T>
 
 	protected void doExecute()
 	{
-		root.setLevel(0);
-		execute(root);
-		
-	}
-	
-	private void execute(TreeNode<T> node) 
-	{
-		for(Iterator<TreeNode<T>> i = 
-				node.iterator(); i.hasNext();)
-		{
-			TreeNode<T> child = i.next();
-			child.setLevel(node.getLevel() + 1);
-			execute(child);
-		}
-		
-		listener.onTraverse(node);
+		// iterative so that deep trees do not overflow the stack
+		for(Iterator<TreeNode<T>> it = root.postOrderIterator(); it.hasNext();)
+			listener.onTraverse(it.next());
 	}
 
 }
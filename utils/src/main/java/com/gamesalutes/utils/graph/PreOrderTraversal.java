@@ -26,8 +26,6 @@
  ******************************************************************************/
 package com.gamesalutes.utils.graph;
 
-import java.util.Iterator;
-
 /**
  * A pre-order traversal on a {@link TreeNode}.  A traversal operation will only continue as long
  * as {@link TreeTraversal.Listener#onTraverse(TreeNode)} returns <code>true</code>.
@@ -51,22 +49,11 @@ public final class PreOrderTraversal<T> extends AbstractTreeTraversal<T>
 
 	protected void doExecute()
 	{
-		root.setLevel(0);
-		execute(root);
-		
-	}
-	
-	private void execute(TreeNode<T> node)
-	{
-		if(listener.onTraverse(node))
+		// iterative so that deep trees do not overflow the stack
+		for(TreeNode.PreOrderIterator<T> it = new TreeNode.PreOrderIterator<T>(root,0); it.hasNext();)
 		{
-			for(Iterator<TreeNode<T>> i = 
-					node.iterator(); i.hasNext();)
-			{
-				TreeNode<T> child = i.next();
-				child.setLevel(node.getLevel() + 1);
-				execute(child);
-			}
+			if(!listener.onTraverse(it.next()))
+				it.skipChildren();
 		}
 	}
 
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Wrapper around a {@link Graph} guarded by a <code>ReentrantReadWriteLock</code>.  Queries hold the read lock so
+ * any number of readers run concurrently, while mutations hold the write lock.
+ * <p>
+ * Iterators are created over a copy of the vertices or edges taken under the read lock, so they are consistent 
+ * and are not affected by later changes.  Their <code>remove</code> removes the element from this graph.  
+ * Operations that must be atomic across several calls can hold the lock returned by {@link #getLock()}.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public final class ReadWriteLockedGraph<V,E> implements Graph<V,E>,Serializable
+{
+	private Graph<V,E> graph;
+	private ReadWriteLock lock;
+	
+	private static final long serialVersionUID = 1L;
+	
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param g the {@link Graph} to wrap
+	 */
+	public ReadWriteLockedGraph(Graph<V,E> g)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		this.graph = g;
+		this.lock = new ReentrantReadWriteLock();
+	}
+	
+	/**
+	 * Returns the lock that guards this graph.
+	 * 
+	 * @return the <code>ReadWriteLock</code>
+	 */
+	public ReadWriteLock getLock()
+	{
+		return lock;
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.equals(o);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	@Override
+	public int hashCode()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.hashCode();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	@Override
+	public String toString()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.toString();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public ReadWriteLockedGraph<V,E> clone()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			ReadWriteLockedGraph<V,E> clone = (ReadWriteLockedGraph<V,E>)super.clone();
+			clone.graph = clone.graph.clone();
+			clone.lock = new ReentrantReadWriteLock();
+			return clone;
+		}
+		catch(CloneNotSupportedException e)
+		{
+			throw new AssertionError(e);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	
+	public boolean addEdge(Edge<V,E> e) 
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			return graph.addEdge(e);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public boolean addVertex(Vertex<V> v) 
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			return graph.addVertex(v);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public void clear() 
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			graph.clear();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public boolean containsEdge(Edge<V,E> e) 
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.containsEdge(e);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public boolean containsVertex(Vertex<V> v) 
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.containsVertex(v);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public Iterator<Edge<V,E>> edgeIterator() 
+	{
+		List<Edge<V,E>> edges;
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			edges = new ArrayList<Edge<V,E>>(graph.numEdges());
+			for(Iterator<Edge<V,E>> it = graph.edgeIterator(); it.hasNext();)
+				edges.add(it.next());
+		}
+		finally
+		{
+			l.unlock();
+		}
+		return new EdgeIterator(edges.iterator());
+	}
+
+	public Iterator<Edge<V,E>> edgeIterator(Vertex<V> v)
+	{
+		List<Edge<V,E>> edges;
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			edges = new ArrayList<Edge<V,E>>(graph.numEdges(v));
+			for(Iterator<Edge<V,E>> it = graph.edgeIterator(v); it.hasNext();)
+				edges.add(it.next());
+		}
+		finally
+		{
+			l.unlock();
+		}
+		return new EdgeIterator(edges.iterator());
+	}
+
+	public Edge<V,E> findEdge(Vertex<V> source, Vertex<V> dest)
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.findEdge(source, dest);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+
+	public boolean isDirected() 
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.isDirected();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+
+	public Graph<V,E> makeUndirected()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			if(!graph.isDirected())
+				return this;
+			else
+				return new ReadWriteLockedGraph<V,E>(graph.makeUndirected());
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	
+	public Graph<V,E> reverse()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			if(!graph.isDirected())
+				return this;
+			else
+				return new ReadWriteLockedGraph<V,E>(graph.reverse());
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+
+	public int numEdges()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.numEdges();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	
+	public int numEdges(Vertex<V> v)
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.numEdges(v);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+
+	public int numVerts()
+	{
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			return graph.numVerts();
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+
+	public boolean removeEdge(Edge<V,E> e) 
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			return graph.removeEdge(e);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public boolean removeVertex(Vertex<V> v) 
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			return graph.removeVertex(v);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+
+	public Iterator<Vertex<V>> vertexIterator()
+	{
+		List<Vertex<V>> vertices;
+		Lock l = lock.readLock();
+		l.lock();
+		try
+		{
+			vertices = new ArrayList<Vertex<V>>(graph.numVerts());
+			for(Iterator<Vertex<V>> it = graph.vertexIterator(); it.hasNext();)
+				vertices.add(it.next());
+		}
+		finally
+		{
+			l.unlock();
+		}
+		return new SnapshotIterator<Vertex<V>>(vertices.iterator())
+		{
+			@Override
+			protected void remove(Vertex<V> v)
+			{
+				removeVertex(v);
+			}
+		};
+	}
+
+	public void addAll(Graph<V,E> g)
+	{
+		Lock l = lock.writeLock();
+		l.lock();
+		try
+		{
+			graph.addAll(g);
+		}
+		finally
+		{
+			l.unlock();
+		}
+	}
+	
+	private final class EdgeIterator extends SnapshotIterator<Edge<V,E>>
+	{
+		EdgeIterator(Iterator<Edge<V,E>> it)
+		{
+			super(it);
+		}
+		
+		@Override
+		protected void remove(Edge<V,E> e)
+		{
+			removeEdge(e);
+		}
+	}
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Point-to-point and many-to-many shortest path queries on a {@link CSRGraph}.  A graph that is not a 
+ * <code>CSRGraph</code> is frozen into one when the instance is created, so an instance should be kept for 
+ * repeated queries.
+ * <p>
+ * Point-to-point queries run a bidirectional Djikstra search that grows a forward search from the source and a
+ * backward search from the target over the incoming arcs and stops as soon as the two searches cannot improve the 
+ * best path through a vertex reached by both.  Given a heuristic the searches become a bidirectional A* with the
+ * average of the forward and backward potentials, which requires <code>heuristicDistance</code> to be a consistent 
+ * lower bound of the distance between any two vertices, such as a metric for vertices embedded in space, or
+ * {@link Landmarks}.
+ * <p>
+ * {@link #getDistances(List, List, ForkJoinPool)} runs a Djikstra search from each source that stops once all the 
+ * targets are settled, in parallel across the sources.
+ * <p>
+ * Edge weights must not be negative.  An instance may be used by any number of threads.  Each thread keeps the 
+ * arrays of its point-to-point searches, which are sized to the graph, for reuse by its next query.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class ShortestPaths<V,E>
+{
+	private static final int START_SIZE = 64;
+	
+	private final CSRGraph<V,E> graph;
+	private final AStar.AStarCallback<V> heuristic;
+	// heuristic read by vertex id
+	private final Landmarks<V> landmarks;
+	
+	private final int [] offsets;
+	private final int [] targets;
+	private final float [] weights;
+	// incoming arcs of vertex i are inOffsets[i] until inOffsets[i + 1] of inSources and inWeights
+	private final int [] inOffsets;
+	private final int [] inSources;
+	private final float [] inWeights;
+	
+	// point-to-point search state of each thread
+	private final ThreadLocal<Query> queries = new ThreadLocal<Query>()
+	{
+		@Override
+		protected Query initialValue()
+		{
+			return new Query();
+		}
+	};
+	
+	/**
+	 * Constructor for bidirectional Djikstra queries.
+	 * 
+	 * @param g the {@link Graph}
+	 */
+	public ShortestPaths(Graph<V,E> g)
+	{
+		this(g,null);
+	}
+	
+	/**
+	 * Constructor for bidirectional A* queries.
+	 * 
+	 * @param g the {@link Graph}
+	 * @param heuristic a consistent lower bound of the distance between two vertices or <code>null</code> to run
+	 *        bidirectional Djikstra
+	 */
+	@SuppressWarnings("unchecked")
+	public ShortestPaths(Graph<V,E> g,AStar.AStarCallback<V> heuristic)
+	{
+		if(g == null)
+			throw new NullPointerException("g");
+		this.graph = g instanceof CSRGraph ? (CSRGraph<V,E>)g : new CSRGraph<V,E>(g);
+		this.heuristic = heuristic;
+		this.landmarks = heuristic instanceof Landmarks && ((Landmarks<V>)heuristic).isFor(graph) ? 
+				(Landmarks<V>)heuristic : null;
+		this.offsets = graph.offsets();
+		this.targets = graph.targets();
+		this.weights = graph.weights();
+		
+		// copy the incoming arcs into arrays of their own for the backward search
+		final int [] inArcs = graph.inArcs();
+		final int [] arcSources = graph.arcSources();
+		this.inOffsets = graph.inOffsets();
+		this.inSources = new int[inArcs.length];
+		this.inWeights = new float[inArcs.length];
+		for(int k = 0; k < inArcs.length; ++k)
+		{
+			inSources[k] = arcSources[inArcs[k]];
+			inWeights[k] = weights[inArcs[k]];
+		}
+	}
+	
+	/**
+	 * Returns the graph that is searched.
+	 * 
+	 * @return the <code>CSRGraph</code>
+	 */
+	public CSRGraph<V,E> getGraph()
+	{
+		return graph;
+	}
+	
+	/**
+	 * Returns the shortest distance from <code>source</code> to <code>target</code>.
+	 * 
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 * @return the distance or <code>Float.POSITIVE_INFINITY</code> if <code>target</code> cannot be reached
+	 * @throws IllegalArgumentException if <code>source</code> or <code>target</code> is not in the graph
+	 */
+	public float getDistance(Vertex<V> source,Vertex<V> target)
+	{
+		int s = checkedIndexOf(source,"source");
+		int t = checkedIndexOf(target,"target");
+		Query q = queries.get();
+		try
+		{
+			return q.execute(s,t);
+		}
+		finally
+		{
+			q.reset();
+		}
+	}
+	
+	/**
+	 * Returns a shortest path from <code>source</code> to <code>target</code>.
+	 * 
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 * @return the vertices along the path or an empty list if <code>target</code> cannot be reached
+	 * @throws IllegalArgumentException if <code>source</code> or <code>target</code> is not in the graph
+	 */
+	public List<Vertex<V>> getPath(Vertex<V> source,Vertex<V> target)
+	{
+		int s = checkedIndexOf(source,"source");
+		int t = checkedIndexOf(target,"target");
+		Query q = queries.get();
+		try
+		{
+			if(q.execute(s,t) == Float.POSITIVE_INFINITY)
+				return Collections.emptyList();
+			
+			LinkedList<Vertex<V>> path = new LinkedList<Vertex<V>>();
+			for(int id = q.meet; id != -1; id = q.forwardParents[id])
+				path.addFirst(graph.getVertex(id));
+			for(int id = q.backwardParents[q.meet]; id != -1; id = q.backwardParents[id])
+				path.addLast(graph.getVertex(id));
+			return path;
+		}
+		finally
+		{
+			q.reset();
+		}
+	}
+	
+	/**
+	 * Returns the shortest distances from each of <code>sources</code> to each of <code>targets</code>, searching
+	 * from the sources one at a time on the calling thread.
+	 * 
+	 * @param sources the source vertices
+	 * @param targets the target vertices
+	 * @return matrix whose entry <code>[i][j]</code> is the distance from source <code>i</code> to target 
+	 *         <code>j</code> or <code>Float.POSITIVE_INFINITY</code> if it cannot be reached
+	 * @throws IllegalArgumentException if a source or target is not in the graph
+	 */
+	public float [][] getDistances(List<Vertex<V>> sources,List<Vertex<V>> targets)
+	{
+		return getDistances(sources,targets,null);
+	}
+	
+	/**
+	 * Returns the shortest distances from each of <code>sources</code> to each of <code>targets</code>, searching
+	 * from the sources in parallel on <code>pool</code>.
+	 * 
+	 * @param sources the source vertices
+	 * @param targets the target vertices
+	 * @param pool the <code>ForkJoinPool</code> that runs the searches or <code>null</code> to search on the 
+	 *        calling thread
+	 * @return matrix whose entry <code>[i][j]</code> is the distance from source <code>i</code> to target 
+	 *         <code>j</code> or <code>Float.POSITIVE_INFINITY</code> if it cannot be reached
+	 * @throws IllegalArgumentException if a source or target is not in the graph
+	 */
+	public float [][] getDistances(List<Vertex<V>> sources,List<Vertex<V>> targets,ForkJoinPool pool)
+	{
+		if(sources == null)
+			throw new NullPointerException("sources");
+		if(targets == null)
+			throw new NullPointerException("targets");
+		
+		final int [] sourceIds = new int[sources.size()];
+		for(int i = 0; i < sourceIds.length; ++i)
+			sourceIds[i] = checkedIndexOf(sources.get(i),"source");
+		
+		// columns of each target id, chained through nextColumn
+		final int [] firstColumn = new int[graph.numVerts()];
+		Arrays.fill(firstColumn,-1);
+		final int [] nextColumn = new int[targets.size()];
+		int numTargets = 0;
+		for(int j = 0; j < nextColumn.length; ++j)
+		{
+			int id = checkedIndexOf(targets.get(j),"target");
+			if(firstColumn[id] == -1)
+				++numTargets;
+			nextColumn[j] = firstColumn[id];
+			firstColumn[id] = j;
+		}
+		
+		final float [][] matrix = new float[sourceIds.length][nextColumn.length];
+		int threshold = pool != null ? Math.max(1,sourceIds.length / (4 * pool.getParallelism())) : sourceIds.length;
+		ManyToMany task = new ManyToMany(sourceIds,firstColumn,nextColumn,numTargets,matrix,
+				0,sourceIds.length,threshold);
+		if(pool != null && sourceIds.length > 1)
+			pool.invoke(task);
+		else
+			task.search(0,sourceIds.length);
+		return matrix;
+	}
+	
+	private int checkedIndexOf(Vertex<V> v,String name)
+	{
+		if(v == null)
+			throw new NullPointerException(name);
+		int id = graph.indexOf(v);
+		if(id == -1)
+			throw new IllegalArgumentException(name + ": " + v + " not in graph");
+		return id;
+	}
+	
+	/**
+	 * State of the bidirectional searches of one thread.  Only the vertices reached by a search are reset after 
+	 * it, so a query costs time in the number of vertices it reaches rather than in the size of the graph.
+	 * 
+	 */
+	private final class Query
+	{
+		int source;
+		int target;
+		
+		final float [] forwardDistances;
+		final float [] backwardDistances;
+		final int [] forwardParents;
+		// next vertex on the path to the target
+		final int [] backwardParents;
+		// forward potential of each vertex, NaN until computed
+		final float [] potentials;
+		final IndexedHeap forward;
+		final IndexedHeap backward;
+		
+		// vertices with a finite distance in either direction
+		int [] reached = new int[START_SIZE];
+		int numReached;
+		
+		// best path found through meet
+		float best;
+		int meet;
+		
+		Query()
+		{
+			final int n = graph.numVerts();
+			forwardDistances = new float[n];
+			backwardDistances = new float[n];
+			forwardParents = new int[n];
+			backwardParents = new int[n];
+			Arrays.fill(forwardDistances,Float.POSITIVE_INFINITY);
+			Arrays.fill(backwardDistances,Float.POSITIVE_INFINITY);
+			if(heuristic != null)
+			{
+				potentials = new float[n];
+				Arrays.fill(potentials,Float.NaN);
+			}
+			else
+				potentials = null;
+			forward = new IndexedHeap(n >= START_SIZE ? START_SIZE : n);
+			backward = new IndexedHeap(n >= START_SIZE ? START_SIZE : n);
+		}
+		
+		/**
+		 * Runs the search.  {@link #reset()} must be called before the next one.
+		 * 
+		 * @return the shortest distance
+		 */
+		float execute(int source,int target)
+		{
+			this.source = source;
+			this.target = target;
+			best = Float.POSITIVE_INFINITY;
+			meet = -1;
+			
+			forwardDistances[source] = 0.0f;
+			forwardParents[source] = -1;
+			reach(source);
+			backwardDistances[target] = 0.0f;
+			backwardParents[target] = -1;
+			reach(target);
+			forward.insert(source,potential(source));
+			backward.insert(target,-potential(target));
+			if(source == target)
+			{
+				best = 0.0f;
+				meet = source;
+			}
+			
+			// with potentials the keys are the distances of the same reduced graph in both directions,
+			// so the sum of the minimum keys bounds any path not yet found
+			while(!forward.isEmpty() && !backward.isEmpty())
+			{
+				float forwardKey = forward.peekKey();
+				float backwardKey = backward.peekKey();
+				if(forwardKey + backwardKey >= best)
+					break;
+				
+				if(forwardKey <= backwardKey)
+				{
+					int u = forward.poll();
+					final float uDist = forwardDistances[u];
+					for(int a = offsets[u], end = offsets[u + 1]; a < end; ++a)
+					{
+						int v = targets[a];
+						float newDist = uDist + weights[a];
+						if(newDist < forwardDistances[v])
+						{
+							if(forwardDistances[v] == Float.POSITIVE_INFINITY)
+								reach(v);
+							forwardDistances[v] = newDist;
+							forwardParents[v] = u;
+							forward.insertOrDecrease(v,newDist + potential(v));
+							meet(v,newDist + backwardDistances[v]);
+						}
+					}
+				}
+				else
+				{
+					int u = backward.poll();
+					final float uDist = backwardDistances[u];
+					for(int k = inOffsets[u], end = inOffsets[u + 1]; k < end; ++k)
+					{
+						int v = inSources[k];
+						float newDist = uDist + inWeights[k];
+						if(newDist < backwardDistances[v])
+						{
+							if(backwardDistances[v] == Float.POSITIVE_INFINITY)
+								reach(v);
+							backwardDistances[v] = newDist;
+							backwardParents[v] = u;
+							backward.insertOrDecrease(v,newDist - potential(v));
+							meet(v,forwardDistances[v] + newDist);
+						}
+					}
+				}
+			}
+			return best;
+		}
+		
+		/**
+		 * Clears the state of the last search.
+		 * 
+		 */
+		void reset()
+		{
+			forward.clear();
+			backward.clear();
+			for(int i = 0; i < numReached; ++i)
+			{
+				int v = reached[i];
+				forwardDistances[v] = Float.POSITIVE_INFINITY;
+				backwardDistances[v] = Float.POSITIVE_INFINITY;
+				if(potentials != null)
+					potentials[v] = Float.NaN;
+			}
+			numReached = 0;
+		}
+		
+		private void reach(int v)
+		{
+			if(numReached == reached.length)
+				reached = Arrays.copyOf(reached,numReached * 2);
+			reached[numReached++] = v;
+		}
+		
+		private void meet(int v,float dist)
+		{
+			if(dist < best)
+			{
+				best = dist;
+				meet = v;
+			}
+		}
+		
+		/**
+		 * Returns the forward potential of <code>v</code>, half the difference of its estimated distance to the
+		 * target and from the source.  The backward potential is its negation.
+		 * 
+		 */
+		private float potential(int v)
+		{
+			if(potentials == null)
+				return 0.0f;
+			float p = potentials[v];
+			if(p != p && landmarks != null)
+				p = potentials[v] = 0.5f * (landmarks.lowerBound(v,target) - landmarks.lowerBound(source,v));
+			else if(p != p)
+			{
+				Vertex<V> vertex = graph.getVertex(v);
+				p = potentials[v] = 0.5f * (heuristic.heuristicDistance(vertex,graph.getVertex(target)) -
+						heuristic.heuristicDistance(graph.getVertex(source),vertex));
+			}
+			return p;
+		}
+	}
+	
+	/**
+	 * Searches from a range of the sources, splitting it until it is no more than a threshold.
+	 * 
+	 */
+	private final class ManyToMany extends RecursiveAction
+	{
+		private final int [] sourceIds;
+		private final int [] firstColumn;
+		private final int [] nextColumn;
+		private final int numTargets;
+		private final float [][] matrix;
+		private final int lo;
+		private final int hi;
+		private final int threshold;
+		
+		private static final long serialVersionUID = 1L;
+		
+		ManyToMany(int [] sourceIds,int [] firstColumn,int [] nextColumn,int numTargets,float [][] matrix,
+				int lo,int hi,int threshold)
+		{
+			this.sourceIds = sourceIds;
+			this.firstColumn = firstColumn;
+			this.nextColumn = nextColumn;
+			this.numTargets = numTargets;
+			this.matrix = matrix;
+			this.lo = lo;
+			this.hi = hi;
+			this.threshold = threshold;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(hi - lo <= threshold)
+			{
+				search(lo,hi);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new ManyToMany(sourceIds,firstColumn,nextColumn,numTargets,matrix,lo,mid,threshold),
+					new ManyToMany(sourceIds,firstColumn,nextColumn,numTargets,matrix,mid,hi,threshold));
+		}
+		
+		/**
+		 * Runs a Djikstra search from each source in <code>lo..hi-1</code>, reusing the distances by resetting 
+		 * only the reached vertices between searches.
+		 * 
+		 */
+		void search(int lo,int hi)
+		{
+			final int n = graph.numVerts();
+			float [] dist = new float[n];
+			Arrays.fill(dist,Float.POSITIVE_INFINITY);
+			int [] reached = new int[n >= START_SIZE ? START_SIZE : Math.max(n,1)];
+			IndexedHeap queue = new IndexedHeap(n >= START_SIZE ? START_SIZE : n);
+			
+			for(int i = lo; i < hi; ++i)
+			{
+				final float [] row = matrix[i];
+				Arrays.fill(row,Float.POSITIVE_INFINITY);
+				
+				int numReached = 0;
+				int remaining = numTargets;
+				final int s = sourceIds[i];
+				dist[s] = 0.0f;
+				reached[numReached++] = s;
+				queue.insert(s,0.0f);
+				
+				while(remaining > 0 && !queue.isEmpty())
+				{
+					final int u = queue.poll();
+					final float uDist = dist[u];
+					if(firstColumn[u] != -1)
+					{
+						for(int j = firstColumn[u]; j != -1; j = nextColumn[j])
+							row[j] = uDist;
+						// stop once every target is settled
+						if(--remaining == 0)
+							break;
+					}
+					
+					for(int a = offsets[u], end = offsets[u + 1]; a < end; ++a)
+					{
+						int v = targets[a];
+						float newDist = uDist + weights[a];
+						if(newDist < dist[v])
+						{
+							if(dist[v] == Float.POSITIVE_INFINITY)
+							{
+								if(numReached == reached.length)
+									reached = Arrays.copyOf(reached,numReached * 2);
+								reached[numReached++] = v;
+							}
+							dist[v] = newDist;
+							queue.insertOrDecrease(v,newDist);
+						}
+					}
+				}
+				
+				queue.clear();
+				for(int k = 0; k < numReached; ++k)
+					dist[reached[k]] = Float.POSITIVE_INFINITY;
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over a snapshot of the vertices or edges of a concurrent graph wrapper.  <code>remove</code> removes
+ * the last element from the wrapper rather than from the snapshot, so iteration is not affected.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <T> element type
+ */
+abstract class SnapshotIterator<T> implements Iterator<T>
+{
+	private final Iterator<T> it;
+	private T last;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param it iterator over the snapshot
+	 */
+	SnapshotIterator(Iterator<T> it)
+	{
+		this.it = it;
+	}
+	
+	public boolean hasNext()
+	{
+		return it.hasNext();
+	}
+	
+	public T next()
+	{
+		return last = it.next();
+	}
+	
+	public void remove()
+	{
+		if(last == null)
+			throw new IllegalStateException();
+		remove(last);
+		last = null;
+	}
+	
+	/**
+	 * Removes <code>o</code> from the graph.
+	 * 
+	 * @param o the vertex or edge
+	 */
+	protected abstract void remove(T o);
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.gamesalutes.utils.CollectionUtils;
+
+/**
+ * Per-run state of a shortest path traversal.  The distance, parent and level of each reached vertex are kept
+ * in arrays indexed by an id assigned to the vertex rather than in the {@link Vertex} objects, so traversals 
+ * leave the graph untouched and any number of them may run concurrently on a graph that is not being modified.
+ * On a {@link CSRGraph} the ids are the vertex ids of the graph and otherwise they are assigned in order of
+ * discovery.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ *
+ * @param <V> vertex type of the graph
+ */
+public final class TraversalResult<V>
+{
+	private final CSRGraph<V,?> csr;
+	// vertex -> id when not a csr graph
+	private final Map<Vertex<V>,Integer> ids;
+	
+	private Vertex<V> [] vertices;
+	private float [] distances;
+	private int [] parents;
+	private int [] levels;
+	private int size;
+	
+	// copies of settled vertices with their weight, parent and level set
+	private Vertex<V> [] copies;
+	
+	/**
+	 * Constructor for a traversal that assigns ids in order of discovery.
+	 * 
+	 * @param capacity the expected number of reached vertices
+	 */
+	@SuppressWarnings("unchecked")
+	TraversalResult(int capacity)
+	{
+		if(capacity < 1) capacity = 1;
+		this.csr = null;
+		this.ids = CollectionUtils.createHashMap(capacity,CollectionUtils.LOAD_FACTOR);
+		this.vertices = new Vertex[capacity];
+		this.distances = new float[capacity];
+		this.parents = new int[capacity];
+		this.levels = new int[capacity];
+	}
+	
+	/**
+	 * Constructor for a traversal on <code>csr</code>.
+	 * 
+	 * @param csr the graph
+	 */
+	TraversalResult(CSRGraph<V,?> csr)
+	{
+		this.csr = csr;
+		this.ids = null;
+		final int n = csr.numVerts();
+		this.size = n;
+		this.distances = new float[n];
+		this.parents = new int[n];
+		this.levels = new int[n];
+		Arrays.fill(distances,Float.POSITIVE_INFINITY);
+		Arrays.fill(parents,-1);
+		Arrays.fill(levels,-1);
+	}
+	
+	/**
+	 * Returns the id of <code>v</code>.
+	 * 
+	 * @param v the vertex
+	 * @return the id or <code>-1</code> if <code>v</code> has not been added
+	 */
+	int indexOf(Vertex<V> v)
+	{
+		if(csr != null)
+			return csr.indexOf(v);
+		Integer id = ids.get(v);
+		return id != null ? id : -1;
+	}
+	
+	/**
+	 * Assigns the next id to <code>v</code>, which must not have been added.
+	 * 
+	 * @param v the vertex
+	 * @return the id of <code>v</code>
+	 */
+	int add(Vertex<V> v)
+	{
+		if(csr != null)
+			throw new UnsupportedOperationException();
+		if(size == vertices.length)
+		{
+			int len = size * 2;
+			vertices = Arrays.copyOf(vertices,len);
+			distances = Arrays.copyOf(distances,len);
+			parents = Arrays.copyOf(parents,len);
+			levels = Arrays.copyOf(levels,len);
+		}
+		int id = size++;
+		ids.put(v,id);
+		vertices[id] = v;
+		distances[id] = Float.POSITIVE_INFINITY;
+		parents[id] = -1;
+		levels[id] = -1;
+		return id;
+	}
+	
+	/**
+	 * Returns the number of ids.
+	 * 
+	 */
+	int size() { return size; }
+	
+	/**
+	 * Returns the vertex with the given id.
+	 * 
+	 */
+	Vertex<V> vertex(int id)
+	{
+		return csr != null ? csr.getVertex(id) : vertices[id];
+	}
+	
+	float distance(int id) { return distances[id]; }
+	
+	int level(int id) { return levels[id]; }
+	
+	/**
+	 * Records the distance, parent and level of <code>id</code>.
+	 * 
+	 */
+	void set(int id,float distance,int parent,int level)
+	{
+		distances[id] = distance;
+		parents[id] = parent;
+		levels[id] = level;
+	}
+	
+	/**
+	 * Returns the distance array.  Not copied.
+	 * 
+	 */
+	float [] distances() { return distances; }
+	
+	/**
+	 * Returns the parent array.  Not copied.
+	 * 
+	 */
+	int [] parents() { return parents; }
+	
+	/**
+	 * Returns the level array.  Not copied.
+	 * 
+	 */
+	int [] levels() { return levels; }
+	
+	/**
+	 * Returns a copy of the vertex <code>id</code> with its weight set to its distance and its level and parent 
+	 * set.  The parent is the copy of the parent vertex, which must have been settled first.
+	 * 
+	 */
+	@SuppressWarnings("unchecked")
+	Vertex<V> settle(int id)
+	{
+		if(copies == null)
+			copies = new Vertex[Math.max(size,1)];
+		else if(id >= copies.length)
+			copies = Arrays.copyOf(copies,Math.max(id + 1,copies.length * 2));
+		
+		Vertex<V> copy = vertex(id).clone();
+		copy.setWeight(distances[id]);
+		copy.setLevel(levels[id]);
+		int parent = parents[id];
+		copy.setParent(parent != -1 ? copies[parent] : null);
+		copies[id] = copy;
+		return copy;
+	}
+	
+	/**
+	 * Returns whether <code>v</code> was reached by the traversal.
+	 * 
+	 * @param v the vertex
+	 * @return <code>true</code> if reached and <code>false</code> otherwise
+	 */
+	public boolean isReached(Vertex<V> v)
+	{
+		int id = indexOf(v);
+		return id != -1 && distances[id] != Float.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Returns the distance from the source to <code>v</code>.  For an {@link AStar} traversal this is the
+	 * best distance found, which is only the shortest distance for the target.
+	 * 
+	 * @param v the vertex
+	 * @return the distance or <code>Float.POSITIVE_INFINITY</code> if <code>v</code> was not reached
+	 */
+	public float getDistance(Vertex<V> v)
+	{
+		int id = indexOf(v);
+		return id != -1 ? distances[id] : Float.POSITIVE_INFINITY;
+	}
+	
+	/**
+	 * Returns the number of edges on the path from the source to <code>v</code>.
+	 * 
+	 * @param v the vertex
+	 * @return the level or <code>-1</code> if <code>v</code> was not reached
+	 */
+	public int getLevel(Vertex<V> v)
+	{
+		int id = indexOf(v);
+		return id != -1 ? levels[id] : -1;
+	}
+	
+	/**
+	 * Returns the predecessor of <code>v</code> on the path from the source.
+	 * 
+	 * @param v the vertex
+	 * @return the parent or <code>null</code> if <code>v</code> is the source or was not reached
+	 */
+	public Vertex<V> getParent(Vertex<V> v)
+	{
+		int id = indexOf(v);
+		if(id == -1) return null;
+		int parent = parents[id];
+		return parent != -1 ? vertex(parent) : null;
+	}
+	
+	/**
+	 * Returns the path from the source to <code>dest</code>.
+	 * 
+	 * @param dest the destination vertex
+	 * @return the vertices along the path or an empty list if <code>dest</code> was not reached
+	 */
+	public List<Vertex<V>> getPath(Vertex<V> dest)
+	{
+		int id = indexOf(dest);
+		if(id == -1 || distances[id] == Float.POSITIVE_INFINITY)
+			return Collections.emptyList();
+		
+		LinkedList<Vertex<V>> path = new LinkedList<Vertex<V>>();
+		for(; id != -1; id = parents[id])
+			path.addFirst(vertex(id));
+		return path;
+	}
+}
@@ -28,7 +28,6 @@ package com.gamesalutes.utils.graph;
 
 import java.util.*;
 
-import com.gamesalutes.utils.graph.TreeTraversal.Listener;
 import com.gamesalutes.utils.AbstractIterator;
 
 /**
@@ -95,7 +94,6 @@ public final class TreeNode<T> extends GraphObject<T>
 		// don't actually copy the child nodes over yet, just reserve the size
 		copy.children.ensureCapacity(node.children.size());
 		copy.parent = null;
-		copy.level = node.level;
 		
 		return copy;
 		
@@ -108,56 +106,89 @@ public final class TreeNode<T> extends GraphObject<T>
 	 * @return a copy of the tree rooted at this <code>TreeNode</code>
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public TreeNode<T> clone()
 	{
-		final Map<TreeNode<T>,TreeNode<T>> oldToNew = 
-			new IdentityHashMap<TreeNode<T>,TreeNode<T>>();
+		TreeNode<T> root = clone0(this);
+		// copy is a new root so levels are recomputed from it rather than copied
+		root.level = 0;
 		
-		// first traversal pass copies the nodes
-		new PostOrderTraversal<T>(
-				this,new Listener<T>()
-				{
-
-					public boolean onTraverse(TreeNode<T> node)
-					{
-						if(!oldToNew.containsKey(node))
-							oldToNew.put(node,clone0(node));
-						return true;
-					}
-					
-				}
-		).execute();
-		
-		// now fix-up the children,parent,level
-		new PostOrderTraversal<T>(
-				this,new Listener<T>()
-				{
-					public boolean onTraverse(TreeNode<T> node)
-					{
-						TreeNode<T> copy = oldToNew.get(node);
-						if(copy == null)
-							throw new AssertionError("no copy of node=" + node);
-						
-						for(int i = 0; i < node.children.size(); ++i)
-						{
-							TreeNode<T> child = node.children.get(i);
-							TreeNode<T> childCopy = oldToNew.get(child);
-							if(childCopy == null)
-								throw new AssertionError("no copy of node=" + child);
-							copy.addChildAt(childCopy, i);
-						}
-						
-						return true;
-						
-					}
-					
-				}
-		).execute();
-		
-		TreeNode<T> copy = oldToNew.get(this);
-		if(copy == null) throw new AssertionError();
+		// explicit stack of original nodes and their copies whose children have not been copied
+		TreeNode<T> [] nodes = new TreeNode[8];
+		TreeNode<T> [] copies = new TreeNode[8];
+		nodes[0] = this;
+		copies[0] = root;
+		int depth = 1;
+		while(depth > 0)
+		{
+			--depth;
+			TreeNode<T> node = nodes[depth];
+			TreeNode<T> copy = copies[depth];
+			nodes[depth] = copies[depth] = null;
+			
+			final int size = node.children.size();
+			if(depth + size > nodes.length)
+			{
+				int len = Math.max(nodes.length * 2,depth + size);
+				nodes = Arrays.copyOf(nodes,len);
+				copies = Arrays.copyOf(copies,len);
+			}
+			for(int i = 0; i < size; ++i)
+			{
+				TreeNode<T> child = node.children.get(i);
+				TreeNode<T> childCopy = clone0(child);
+				// children of the original are distinct so no need for addChild
+				childCopy.parent = copy;
+				childCopy.level = copy.level + 1;
+				copy.children.add(childCopy);
+				nodes[depth] = child;
+				copies[depth] = childCopy;
+				++depth;
+			}
+		}
 		
-		return copy;
+		return root;
+	}
+	
+	/**
+	 * Returns an iterator over the tree rooted at this <code>TreeNode</code> in the order of a
+	 * {@link PreOrderTraversal}.  The iterator keeps an explicit stack that grows with the depth of
+	 * the tree rather than recursing and does not allocate for each node.  As with the traversals,
+	 * the level of each node is set as it is reached, this node being level <code>0</code>.  The tree 
+	 * must not be modified during the iteration.
+	 * 
+	 * @return the pre-order iterator
+	 */
+	public Iterator<TreeNode<T>> preOrderIterator()
+	{
+		return new PreOrderIterator<T>(this,0);
+	}
+	
+	/**
+	 * Returns an iterator over the tree rooted at this <code>TreeNode</code> in the order of a
+	 * {@link PostOrderTraversal}.  The iterator keeps an explicit stack that grows with the depth of
+	 * the tree rather than recursing and does not allocate for each node.  As with the traversals,
+	 * the level of each node is set as it is reached, this node being level <code>0</code>.  The tree 
+	 * must not be modified during the iteration.
+	 * 
+	 * @return the post-order iterator
+	 */
+	public Iterator<TreeNode<T>> postOrderIterator()
+	{
+		return new PostOrderIterator<T>(this);
+	}
+	
+	/**
+	 * Returns an iterator over the tree rooted at this <code>TreeNode</code> in the order of a
+	 * {@link LevelOrderTraversal}.  The iterator keeps an array queue of the pending nodes and does 
+	 * not allocate for each node.  As with the traversals, the level of each node is set as it is reached, 
+	 * this node being level <code>0</code>.  The tree must not be modified during the iteration.
+	 * 
+	 * @return the level-order iterator
+	 */
+	public Iterator<TreeNode<T>> levelOrderIterator()
+	{
+		return new LevelOrderIterator<T>(this);
 	}
 	
 	
@@ -388,4 +419,219 @@ public final class TreeNode<T> extends GraphObject<T>
 	 * @return the level of this vertex
 	 */
 	public int getLevel() { return level; }
+	
+	/**
+	 * Base class of the depth-first iterators.  Keeps a stack of nodes and the index of the next
+	 * child to visit of each.
+	 * 
+	 */
+	private static abstract class DepthFirstIterator<T> implements Iterator<TreeNode<T>>
+	{
+		private TreeNode<T> [] nodes;
+		private int [] nextChild;
+		private int depth;
+		
+		@SuppressWarnings("unchecked")
+		DepthFirstIterator()
+		{
+			nodes = new TreeNode[8];
+			nextChild = new int[8];
+		}
+		
+		final void push(TreeNode<T> node)
+		{
+			if(depth == nodes.length)
+			{
+				nodes = Arrays.copyOf(nodes,depth * 2);
+				nextChild = Arrays.copyOf(nextChild,depth * 2);
+			}
+			nodes[depth] = node;
+			nextChild[depth] = 0;
+			++depth;
+		}
+		
+		final boolean isEmpty()
+		{
+			return depth == 0;
+		}
+		
+		/**
+		 * Returns the next unvisited child of the node on top of the stack with its level set or
+		 * <code>null</code> if all its children have been visited.
+		 * 
+		 */
+		final TreeNode<T> nextChild()
+		{
+			TreeNode<T> node = nodes[depth - 1];
+			int i = nextChild[depth - 1];
+			if(i == node.children.size())
+				return null;
+			nextChild[depth - 1] = i + 1;
+			TreeNode<T> child = node.children.get(i);
+			child.level = node.level + 1;
+			return child;
+		}
+		
+		final TreeNode<T> pop()
+		{
+			TreeNode<T> node = nodes[--depth];
+			nodes[depth] = null;
+			return node;
+		}
+		
+		public final void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * Pre-order iterator.  The children of the last returned node are pushed on the following call to 
+	 * <code>hasNext</code> or <code>next</code> unless they are skipped with {@link #skipChildren()}.
+	 * 
+	 */
+	static final class PreOrderIterator<T> extends DepthFirstIterator<T>
+	{
+		private TreeNode<T> next;
+		private TreeNode<T> last;
+		
+		PreOrderIterator(TreeNode<T> root,int level)
+		{
+			root.level = level;
+			next = root;
+		}
+		
+		/**
+		 * Skips the subtree below the node last returned by <code>next</code>.  Must be called before 
+		 * the following call to <code>hasNext</code>.
+		 * 
+		 */
+		void skipChildren()
+		{
+			if(last == null)
+				throw new IllegalStateException();
+			last = null;
+			advance();
+		}
+		
+		public boolean hasNext()
+		{
+			if(last != null)
+			{
+				push(last);
+				last = null;
+				advance();
+			}
+			return next != null;
+		}
+		
+		public TreeNode<T> next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			last = next;
+			next = null;
+			return last;
+		}
+		
+		private void advance()
+		{
+			while(!isEmpty())
+			{
+				TreeNode<T> child = nextChild();
+				if(child != null)
+				{
+					next = child;
+					return;
+				}
+				pop();
+			}
+		}
+	}
+	
+	/**
+	 * Post-order iterator.
+	 * 
+	 */
+	static final class PostOrderIterator<T> extends DepthFirstIterator<T>
+	{
+		PostOrderIterator(TreeNode<T> root)
+		{
+			root.level = 0;
+			push(root);
+		}
+		
+		public boolean hasNext()
+		{
+			return !isEmpty();
+		}
+		
+		public TreeNode<T> next()
+		{
+			if(isEmpty())
+				throw new NoSuchElementException();
+			// descend to the first node whose children have all been returned
+			TreeNode<T> child;
+			while((child = nextChild()) != null)
+				push(child);
+			return pop();
+		}
+	}
+	
+	/**
+	 * Level-order iterator.  The children of the last returned node are queued on the following call to 
+	 * <code>hasNext</code> or <code>next</code> unless they are skipped with {@link #skipChildren()}.
+	 * 
+	 */
+	static final class LevelOrderIterator<T> implements Iterator<TreeNode<T>>
+	{
+		private final ArrayDeque<TreeNode<T>> queue = new ArrayDeque<TreeNode<T>>();
+		private TreeNode<T> last;
+		
+		LevelOrderIterator(TreeNode<T> root)
+		{
+			root.level = 0;
+			queue.add(root);
+		}
+		
+		/**
+		 * Skips the children of the node last returned by <code>next</code>.  Must be called before 
+		 * the following call to <code>hasNext</code>.
+		 * 
+		 */
+		void skipChildren()
+		{
+			if(last == null)
+				throw new IllegalStateException();
+			last = null;
+		}
+		
+		public boolean hasNext()
+		{
+			if(last != null)
+			{
+				for(int i = 0, size = last.children.size(); i < size; ++i)
+				{
+					TreeNode<T> child = last.children.get(i);
+					child.level = last.level + 1;
+					queue.add(child);
+				}
+				last = null;
+			}
+			return !queue.isEmpty();
+		}
+		
+		public TreeNode<T> next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			last = queue.poll();
+			return last;
+		}
+		
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -217,10 +217,9 @@ public final class LogicStatement<S,T>
 		if(currentNode == null)
 			return null;
 		
-		List<TreeNode<UniqueWrapper<Object>>> enumeration = 
-			new LevelOrderTraversal<UniqueWrapper<Object>>(currentNode).execute().getTraversal();
-		for(TreeNode<UniqueWrapper<Object>> node : enumeration)
+		for(Iterator<TreeNode<UniqueWrapper<Object>>> it = currentNode.levelOrderIterator(); it.hasNext();)
 		{
+			TreeNode<UniqueWrapper<Object>> node = it.next();
 			if(node.getData().get().equals(constraint))
 				return node;
 		}
@@ -759,27 +758,17 @@ public final class LogicStatement<S,T>
 	@SuppressWarnings("unchecked")
 	private TreeNode<UniqueWrapper<Object>> expandInAll(LogicStatement<S,T> rootStmt)
 	{
-		final boolean [] needsExpand = {false};
-		
 		TreeNode<UniqueWrapper<Object>> root = rootStmt.currentNode;
 		
 		if(root == null) return null;
 		
 		// determine if we need to clone the root
-		new LevelOrderTraversal<UniqueWrapper<Object>>(root,new Listener<UniqueWrapper<Object>>()
-		{
-
-						public boolean onTraverse(TreeNode<UniqueWrapper<Object>> node)
-						{
-							if(node.getData().get() instanceof LogicStatement)
-								needsExpand[0] = true;
-							return true;
-						}
-				
-					}).execute();
+		boolean needsExpand = false;
+		for(Iterator<TreeNode<UniqueWrapper<Object>>> it = root.levelOrderIterator(); it.hasNext() && !needsExpand;)
+			needsExpand = it.next().getData().get() instanceof LogicStatement;
 		
 		// no nested statements
-		if(!needsExpand[0])
+		if(!needsExpand)
 			return root;
 		
 		// must unnest the statements
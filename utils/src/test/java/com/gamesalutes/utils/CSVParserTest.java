@@ -39,8 +39,13 @@
  */
 package com.gamesalutes.utils;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.After;
@@ -171,4 +176,81 @@ public final class CSVParserTest
 		test(CSVTestUtils.createWholeOutput(false),
 				CSVTestUtils.createWholeInput(true));
 	}
+	
+	/**
+	 * Reads at most 3 characters at a time to exercise records that span buffer refills.
+	 */
+	private static final class TrickleReader extends FilterReader
+	{
+		TrickleReader(Reader in)
+		{
+			super(in);
+		}
+		
+		@Override
+		public int read(char [] cbuf,int off,int len) throws IOException
+		{
+			return super.read(cbuf,off,Math.min(len,3));
+		}
+	}
+	
+	@Test
+	public void testCursor()
+		throws Exception
+	{
+		String input = CSVTestUtils.createWholeOutput(false);
+		List<String[]> expected = CSVTestUtils.createWholeInput(false);
+		
+		CSVParser p = new CSVParser(new TrickleReader(new StringReader(input)),false,CSVParser.DELIMINATOR,"\n");
+		List<String[]> actual = new ArrayList<String[]>();
+		while(p.nextRecord())
+		{
+			String [] fields = new String[p.getFieldCount()];
+			for(int i = 0; i < fields.length; ++i)
+			{
+				CharSequence field = p.field(i);
+				assertEquals(p.fieldLength(i),field.length());
+				fields[i] = field.toString();
+				assertEquals(fields[i],p.fieldAsString(i));
+			}
+			actual.add(fields);
+		}
+		assertFalse(p.nextRecord());
+		assertEquals(0,p.getFieldCount());
+		assertEquals(CSVTestUtils.toString(expected),CSVTestUtils.toString(actual));
+	}
+	
+	@Test
+	public void testCursorMultiLine()
+		throws Exception
+	{
+		CSVParser p = new CSVParser(new TrickleReader(new StringReader(
+				"h1,h2\r\n\r\n\"a,\"\"b\"\"\r\n\r\nc\",d\n  \nlast,")),true,CSVParser.DELIMINATOR,"\n");
+		assertTrue(p.nextRecord());
+		assertEquals(2,p.getFieldCount());
+		assertEquals("a,\"b\"\n\nc",p.fieldAsString(0));
+		assertEquals("d",p.field(1).toString());
+		assertTrue(p.nextRecord());
+		assertEquals(2,p.getFieldCount());
+		assertEquals("last",p.fieldAsString(0));
+		assertEquals(0,p.fieldLength(1));
+		assertFalse(p.nextRecord());
+	}
+	
+	@Test
+	public void testCursorUnterminatedQuote()
+		throws Exception
+	{
+		CSVParser p = new CSVParser(new StringReader("a,b\n\"open,c\nd"),false,CSVParser.DELIMINATOR,"\n");
+		assertTrue(p.nextRecord());
+		assertEquals("b",p.fieldAsString(1));
+		assertFalse(p.nextRecord());
+		
+		try
+		{
+			p.field(0);
+			fail("Field of no record");
+		}
+		catch(IndexOutOfBoundsException e) {}
+	}
 }
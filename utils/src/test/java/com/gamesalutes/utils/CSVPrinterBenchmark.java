@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Compares the time to print rows with {@link CSVPrinter#printAll(String[][])}, with {@link CSVPrinter#print(String[])}
+ * and with the field-by-field <code>append</code> methods against a copy of the previous implementation that 
+ * built a <code>String</code> per field and per line.  Output is discarded.  Run with <code>main</code>; not part of
+ * the unit test suite.
+ * <p>
+ * Arguments: <code>[rows]</code> (default 10,000,000).
+ * 
+ * @author jmontgomery
+ */
+public final class CSVPrinterBenchmark {
+
+	private static final int BATCH = 10000;
+	
+	private CSVPrinterBenchmark() {}
+	
+	public static void main(String [] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		
+		String [][] batch = new String[BATCH][];
+		for(int i = 0; i < BATCH; ++i)
+			batch[i] = new String[] {String.valueOf(i),"name " + i,"say \"hi\"","a,b", String.valueOf(i * 0.25)};
+		
+		System.out.println("rows=" + rows);
+		for(int round = 0; round < 2; ++round) {
+			// first round is warm up
+			int n = round == 0 ? rows / 10 : rows;
+			report(round,"legacy print",legacy(batch,n),n);
+			report(round,"printAll",printAll(batch,n),n);
+			report(round,"append",append(n),n);
+		}
+	}
+	
+	private static long legacy(String [][] batch,int rows) throws IOException {
+		LegacyPrinter p = new LegacyPrinter(new NullWriter());
+		long start = System.nanoTime();
+		for(int i = 0; i < rows; ++i)
+			p.print(batch[i % BATCH]);
+		p.out.flush();
+		return System.nanoTime() - start;
+	}
+	
+	private static long printAll(String [][] batch,int rows) throws IOException {
+		CSVPrinter p = new CSVPrinter(new NullWriter(),null,',',"\n",false);
+		long start = System.nanoTime();
+		for(int i = 0; i < rows; i += BATCH)
+			p.printAll(batch);
+		return System.nanoTime() - start;
+	}
+	
+	private static long append(int rows) throws IOException {
+		CSVPrinter p = new CSVPrinter(new NullWriter(),null,',',"\n",false);
+		long start = System.nanoTime();
+		for(int i = 0; i < rows; ++i)
+			p.append(i).append("name ").append("say \"hi\"").append("a,b").append(i * 0.25).endRecord();
+		p.flush();
+		return System.nanoTime() - start;
+	}
+	
+	private static void report(int round,String name,long nanos,int rows) {
+		if(round > 0)
+			System.out.println(String.format("%-20s ms=%d ns/row=%d",name,nanos / 1000000,nanos / rows));
+	}
+	
+	private static final class NullWriter extends Writer {
+		@Override
+		public void write(char[] cbuf, int off, int len) {}
+		@Override
+		public void flush() {}
+		@Override
+		public void close() {}
+	}
+	
+	// CSVPrinter before fields were escaped directly into its buffer
+	private static final class LegacyPrinter {
+		final BufferedWriter out;
+		
+		LegacyPrinter(Writer out) {
+			this.out = new BufferedWriter(out,1024);
+		}
+		
+		void print(String [] line) throws IOException {
+			StringBuilder str = new StringBuilder(1024);
+			for(int i = 0, len = line.length; i < len; ++i) {
+				str.append(makeEntry(line[i]));
+				if(i < len - 1)
+					str.append(',');
+			}
+			str.append('\n');
+			out.write(str.toString());
+		}
+		
+		private static boolean requiresQuoting(String line) {
+			int len = line.length();
+			if(len > 0 && Character.isSpaceChar(line.charAt(0))) return true;
+			if(len > 1 && Character.isSpaceChar(line.charAt(len - 1))) return true;
+			for(int i = 0; i < len; ++i) {
+				char c = line.charAt(i);
+				if(c == ',' || c == '\n' || c == '\r' || c == '"')
+					return true;
+			}
+			return false;
+		}
+		
+		private static String makeEntry(String entry) {
+			if(entry == null) return "";
+			boolean quote = requiresQuoting(entry);
+			StringBuilder str = new StringBuilder(entry.length() * 2);
+			if(quote)
+				str.append('"');
+			for(int i = 0,len = entry.length(); i < len; ++i) {
+				char c = entry.charAt(i);
+				str.append(c);
+				if(c == '"')
+					str.append('"');
+			}
+			if(quote)
+				str.append('"');
+			return str.toString();
+		}
+	}
+}
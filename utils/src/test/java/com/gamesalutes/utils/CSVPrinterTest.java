@@ -206,4 +206,58 @@ public final class CSVPrinterTest
 		test(CSVTestUtils.createWholeOutput(true),
 				CSVTestUtils.createWholeInput(false));
 	}
+	
+	@Test
+	public void testAppend()
+		throws Exception
+	{
+		StringWriter w = new StringWriter(512);
+		CSVPrinter p = new CSVPrinter(w,null,CSVPrinter.DELIMINATOR,"\n",false);
+		
+		StringBuilder value = new StringBuilder("a,b");
+		p.append(value).append(-42).append(Long.MIN_VALUE).append(1.5).append((CharSequence)null).endRecord();
+		p.append("say \"hi\"").append(" x").endRecord();
+		p.endRecord();
+		p.flush();
+		
+		assertEquals("\"a,b\",-42," + Long.MIN_VALUE + ",1.5,\n\"say \"\"hi\"\"\",\" x\"\n\n",w.toString());
+	}
+	
+	@Test
+	public void testAppendMatchesPrint()
+		throws Exception
+	{
+		List<String[]> input = CSVTestUtils.createWholeInput(false);
+		StringWriter w = new StringWriter(2048);
+		CSVPrinter p = new CSVPrinter(w,null,CSVPrinter.DELIMINATOR,"\n",false);
+		for(String [] line : input)
+		{
+			for(String field : line)
+				p.append(field);
+			p.endRecord();
+		}
+		p.flush();
+		
+		assertEquals(CSVTestUtils.createWholeOutput(true),w.toString());
+	}
+	
+	@Test
+	public void testLargeFields()
+		throws Exception
+	{
+		// fields larger than the internal buffer
+		StringBuilder plain = new StringBuilder();
+		StringBuilder quoted = new StringBuilder();
+		for(int i = 0; i < 100000; ++i)
+		{
+			plain.append((char)('a' + i % 26));
+			quoted.append(i % 1000 == 999 ? '"' : 'q');
+		}
+		StringWriter w = new StringWriter(512);
+		CSVPrinter p = new CSVPrinter(w,null,CSVPrinter.DELIMINATOR,"\n",false);
+		p.print(new String[]{plain.toString(),quoted.toString()});
+		p.flush();
+		
+		assertEquals(plain + ",\"" + quoted.toString().replace("\"","\"\"") + "\"\n",w.toString());
+	}
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * Compares the encoded size and the encode plus decode time of {@link Codecs#OBJECT} with Java serialization
+ * through {@link ByteUtils#getObjectBytes(Object, ByteBuffer)} and {@link ByteUtils#readObject(ByteBuffer)},
+ * and the put plus lookup time of a {@link FileProxyRetriever} with and without a codec.  Run with 
+ * <code>main</code>; not part of the unit test suite.
+ * <p>
+ * Arguments: <code>[iterations]</code> (default 100,000).
+ * 
+ * @author jmontgomery
+ */
+public final class CodecBenchmark {
+
+	private CodecBenchmark() {}
+	
+	public static void main(String [] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		
+		int [] ints = new int[256];
+		for(int i = 0; i < ints.length; ++i)
+			ints[i] = i * 31;
+		Object [] values = {"session-0123456789", 123456789L, ints, new Date(0)};
+		
+		System.out.println("iterations=" + iterations);
+		for(Object value : values) {
+			// warm up
+			serialization(value,iterations / 10);
+			codec(value,iterations / 10);
+			
+			long start = System.nanoTime();
+			int serialBytes = serialization(value,iterations);
+			long serialNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			int codecBytes = codec(value,iterations);
+			long codecNanos = System.nanoTime() - start;
+			
+			String name = value.getClass().getSimpleName();
+			report(name + " serialization",serialBytes,serialNanos,iterations);
+			report(name + " Codecs.OBJECT",codecBytes,codecNanos,iterations);
+		}
+		
+		int entries = Math.max(1,iterations / 10);
+		retriever(null,entries);
+		long start = System.nanoTime();
+		retriever(null,entries);
+		report("FileProxyRetriever serialization",-1,System.nanoTime() - start,entries);
+		retriever(Codecs.STRING,entries);
+		start = System.nanoTime();
+		retriever(Codecs.STRING,entries);
+		report("FileProxyRetriever Codecs.STRING",-1,System.nanoTime() - start,entries);
+	}
+	
+	private static int serialization(Object value,int n) throws Exception {
+		ByteBuffer buf = ByteBuffer.allocate(1024);
+		int bytes = 0;
+		for(int i = 0; i < n; ++i) {
+			buf.clear();
+			buf = ByteUtils.getObjectBytes(value,buf);
+			bytes = buf.remaining();
+			ByteUtils.readObject(buf);
+		}
+		return bytes;
+	}
+	
+	private static int codec(Object value,int n) throws Exception {
+		ByteBuffer buf = ByteBuffer.allocate(1024);
+		int bytes = 0;
+		for(int i = 0; i < n; ++i) {
+			buf.clear();
+			buf = ByteUtils.getObjectBytes(value,Codecs.OBJECT,buf);
+			bytes = buf.remaining();
+			ByteUtils.readObject(buf,Codecs.OBJECT);
+		}
+		return bytes;
+	}
+	
+	private static void retriever(Codec<String> codec,int n) throws Exception {
+		FileProxyRetriever<Integer,String> r = new FileProxyRetriever<Integer,String>(
+				UtilsTestSuite.getTempDirectory(),"codec_benchmark",false,codec);
+		try {
+			for(int i = 0; i < n; ++i)
+				r.put(i,"value-" + i);
+			for(int i = 0; i < n; ++i)
+				r.lookup(i);
+		}
+		finally {
+			r.dispose();
+		}
+	}
+	
+	private static void report(String name,int bytes,long nanos,int n) {
+		System.out.println(String.format("%-40s bytes/entry=%s ns/op=%d",
+				name,bytes >= 0 ? String.valueOf(bytes) : "-",nanos / n));
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CodecsTest {
+
+	private static final class Point
+	{
+		final int x;
+		final int y;
+		
+		Point(int x,int y)
+		{
+			this.x = x;
+			this.y = y;
+		}
+		
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Point && ((Point)o).x == x && ((Point)o).y == y;
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return x * 31 + y;
+		}
+	}
+	
+	private static class PointCodec implements Codec<Point>
+	{
+		public Class<Point> getType()
+		{
+			return Point.class;
+		}
+		
+		public ByteBuffer encode(Point value,ByteBuffer buf)
+		{
+			buf = ByteUtils.growBuffer(buf, (buf != null ? buf.position() : 0) + 8);
+			buf.putInt(value.x);
+			buf.putInt(value.y);
+			return buf;
+		}
+		
+		public Point decode(ByteBuffer buf)
+		{
+			return new Point(buf.getInt(),buf.getInt());
+		}
+	}
+	
+	@After
+	public void tearDown()
+	{
+		Codecs.unregister(Point.class);
+	}
+	
+	private static <T> T roundTrip(Codec<T> codec,T value) throws IOException
+	{
+		// start from a tiny buffer at a non-zero position to exercise growth
+		ByteBuffer buf = ByteBuffer.allocate(2);
+		buf.put((byte)7);
+		buf = codec.encode(value, buf);
+		int end = buf.position();
+		buf.flip();
+		assertEquals(7,buf.get());
+		T result = codec.decode(buf);
+		assertEquals(end,buf.position());
+		return result;
+	}
+	
+	@Test
+	public void testStrings() throws IOException
+	{
+		for(String s : new String[] {"","abc","été","中文","😀","\ud800x","\u0000"})
+		{
+			assertEquals(s,roundTrip(Codecs.STRING,s));
+			assertEquals(s,roundTrip(Codecs.OBJECT,s));
+		}
+		StringBuilder big = new StringBuilder();
+		for(int i = 0; i < 10000; ++i)
+			big.append((char)i);
+		assertEquals(big.toString(),roundTrip(Codecs.STRING,big.toString()));
+	}
+	
+	@Test
+	public void testPrimitives() throws IOException
+	{
+		assertEquals(Boolean.TRUE,roundTrip(Codecs.BOOLEAN,true));
+		assertEquals(Byte.valueOf((byte)-3),roundTrip(Codecs.BYTE,(byte)-3));
+		assertEquals(Character.valueOf('￿'),roundTrip(Codecs.CHARACTER,'￿'));
+		assertEquals(Short.valueOf(Short.MIN_VALUE),roundTrip(Codecs.SHORT,Short.MIN_VALUE));
+		assertEquals(Integer.valueOf(-123456),roundTrip(Codecs.INTEGER,-123456));
+		assertEquals(Long.valueOf(Long.MAX_VALUE),roundTrip(Codecs.LONG,Long.MAX_VALUE));
+		assertEquals(Float.valueOf(1.5f),roundTrip(Codecs.FLOAT,1.5f));
+		assertEquals(Double.valueOf(Double.NaN),roundTrip(Codecs.DOUBLE,Double.NaN));
+		
+		for(Object o : new Object[] {false,(byte)1,'c',(short)2,3,4L,5f,6d})
+			assertEquals(o,roundTrip(Codecs.OBJECT,o));
+	}
+	
+	@Test
+	public void testArrays() throws IOException
+	{
+		boolean [] z = new boolean[19];
+		for(int i = 0; i < z.length; i += 3)
+			z[i] = true;
+		assertTrue(Arrays.equals(z,roundTrip(Codecs.BOOLEAN_ARRAY,z)));
+		assertTrue(Arrays.equals(new byte[] {1,-2,3},roundTrip(Codecs.BYTE_ARRAY,new byte[] {1,-2,3})));
+		assertTrue(Arrays.equals(new char[] {'a','ሴ'},roundTrip(Codecs.CHAR_ARRAY,new char[] {'a','ሴ'})));
+		assertTrue(Arrays.equals(new short[] {-1,2},roundTrip(Codecs.SHORT_ARRAY,new short[] {-1,2})));
+		assertTrue(Arrays.equals(new int[] {Integer.MIN_VALUE,0,7},roundTrip(Codecs.INT_ARRAY,new int[] {Integer.MIN_VALUE,0,7})));
+		assertTrue(Arrays.equals(new long[] {-1L,1L << 40},roundTrip(Codecs.LONG_ARRAY,new long[] {-1L,1L << 40})));
+		assertTrue(Arrays.equals(new float[] {0.25f},roundTrip(Codecs.FLOAT_ARRAY,new float[] {0.25f})));
+		assertTrue(Arrays.equals(new double[] {},roundTrip(Codecs.DOUBLE_ARRAY,new double[] {})));
+		
+		int [] large = new int[1000];
+		for(int i = 0; i < large.length; ++i)
+			large[i] = i * i;
+		assertTrue(Arrays.equals(large,(int[])roundTrip(Codecs.OBJECT,large)));
+	}
+	
+	@Test
+	public void testSerializableFallback() throws IOException
+	{
+		Date d = new Date(123456789L);
+		assertEquals(d,roundTrip(Codecs.SERIALIZABLE,d));
+		assertEquals(d,roundTrip(Codecs.OBJECT,d));
+		List<Object> list = new ArrayList<Object>(Arrays.asList("a",1,null));
+		assertEquals(list,roundTrip(Codecs.OBJECT,list));
+		assertNull(roundTrip(Codecs.OBJECT,null));
+		
+		try
+		{
+			Codecs.OBJECT.encode(new Object(), null);
+			fail("Encoded non-serializable object");
+		}
+		catch(NotSerializableException e) {}
+	}
+	
+	@Test
+	public void testSequentialValues() throws IOException
+	{
+		ByteBuffer buf = null;
+		buf = Codecs.OBJECT.encode("first", buf);
+		buf = Codecs.OBJECT.encode(new Date(5), buf);
+		buf = Codecs.OBJECT.encode(new int[] {1,2}, buf);
+		buf = Codecs.OBJECT.encode(42L, buf);
+		buf.flip();
+		assertEquals("first",Codecs.OBJECT.decode(buf));
+		assertEquals(new Date(5),Codecs.OBJECT.decode(buf));
+		assertTrue(Arrays.equals(new int[] {1,2},(int[])Codecs.OBJECT.decode(buf)));
+		assertEquals(42L,Codecs.OBJECT.decode(buf));
+		assertFalse(buf.hasRemaining());
+	}
+	
+	@Test
+	public void testCompactness() throws IOException
+	{
+		assertEquals(6,Codecs.STRING.encode("hello", null).position());
+		assertTrue(Codecs.OBJECT.encode("hello", null).position() < ByteUtils.getObjectBytes("hello").length);
+		assertEquals(1 + 4,Codecs.OBJECT.encode(12, null).position());
+	}
+	
+	@Test
+	public void testRegistry() throws IOException
+	{
+		assertSame(Codecs.STRING,Codecs.lookup(String.class));
+		assertSame(Codecs.INT_ARRAY,Codecs.lookup(int[].class));
+		assertNull(Codecs.lookup(Point.class));
+		assertSame(Codecs.OBJECT,Codecs.getCodec(Point.class));
+		
+		try
+		{
+			Codecs.register(new PointCodec()
+			{
+				@SuppressWarnings({ "rawtypes", "unchecked" })
+				@Override
+				public Class getType() { return String.class; }
+			});
+			fail("Replaced built-in codec");
+		}
+		catch(IllegalArgumentException e) {}
+		
+		// not serializable and no codec
+		try
+		{
+			Codecs.OBJECT.encode(new Point(1,2), null);
+			fail("Encoded Point without codec");
+		}
+		catch(NotSerializableException e) {}
+		
+		PointCodec codec = new PointCodec();
+		Codecs.register(codec);
+		assertSame(codec,Codecs.lookup(Point.class));
+		ByteBuffer buf = Codecs.OBJECT.encode(new Point(1,2), null);
+		buf.flip();
+		assertEquals(new Point(1,2),Codecs.OBJECT.decode(buf));
+		
+		Point copy = MiscUtils.copy(new Point(3,4));
+		assertEquals(new Point(3,4),copy);
+		
+		assertTrue(Codecs.unregister(Point.class));
+		buf.rewind();
+		try
+		{
+			Codecs.OBJECT.decode(buf);
+			fail("Decoded Point without codec");
+		}
+		catch(InvalidClassException e) {}
+	}
+	
+	@Test
+	public void testByteUtils() throws Exception
+	{
+		ByteBuffer buf = ByteBuffer.allocate(4);
+		buf.position(2);
+		buf = ByteUtils.getObjectBytes(new long[] {1,2,3}, Codecs.LONG_ARRAY, buf);
+		assertEquals(2,buf.position());
+		assertTrue(Arrays.equals(new long[] {1,2,3},ByteUtils.readObject(buf, Codecs.LONG_ARRAY)));
+		
+		double [] d = {1.0,2.0};
+		double [] dc = ByteUtils.serializationClone(d);
+		assertNotSame(d,dc);
+		assertTrue(Arrays.equals(d,dc));
+		
+		ByteBuffer [] bufData = new ByteBuffer[1];
+		assertEquals("abc",ByteUtils.serializationClone("abc", Codecs.STRING, bufData));
+		assertNotNull(bufData[0]);
+		assertEquals(new Date(7),ByteUtils.serializationClone(new Date(7), bufData));
+		
+		int [] ic = MiscUtils.copy(new int[] {4,5});
+		assertTrue(Arrays.equals(new int[] {4,5},ic));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Multi-threaded throughput comparison of {@link ConcurrentLruMap} against a
+ * <code>Collections.synchronizedMap</code> wrapped {@link LruMap}.
+ * Run with <code>main</code>; not part of the unit test suite.
+ * <p>
+ * Arguments: <code>[threads] [maxEntries] [opsPerThread] [readPercent]</code>
+ * 
+ * @author jmontgomery
+ */
+public final class ConcurrentLruMapBenchmark {
+
+	private ConcurrentLruMapBenchmark() {}
+	
+	public static void main(String [] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int maxEntries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int ops = args.length > 2 ? Integer.parseInt(args[2]) : 2000000;
+		int readPercent = args.length > 3 ? Integer.parseInt(args[3]) : 90;
+		
+		System.out.println("threads=" + threads + ";maxEntries=" + maxEntries + 
+				";opsPerThread=" + ops + ";readPercent=" + readPercent);
+		
+		// warm up both implementations before measuring
+		for(int i = 0; i < 2; ++i) {
+			run(Collections.synchronizedMap(new LruMap<Integer,Integer>(maxEntries)),threads,maxEntries,ops / 10,readPercent);
+			run(new ConcurrentLruMap<Integer,Integer>(maxEntries),threads,maxEntries,ops / 10,readPercent);
+		}
+		
+		long syncNanos = run(Collections.synchronizedMap(new LruMap<Integer,Integer>(maxEntries)),threads,maxEntries,ops,readPercent);
+		ConcurrentLruMap<Integer,Integer> concurrent = new ConcurrentLruMap<Integer,Integer>(maxEntries);
+		long concurrentNanos = run(concurrent,threads,maxEntries,ops,readPercent);
+		
+		report("synchronized LruMap",syncNanos,threads,ops);
+		report("ConcurrentLruMap",concurrentNanos,threads,ops);
+		System.out.println("ConcurrentLruMap hitRate=" + concurrent.getHitRate() + 
+				";evictions=" + concurrent.getEvictionCount());
+	}
+	
+	private static void report(String name,long nanos,int threads,int ops) {
+		double opsPerSec = (double)threads * ops / (nanos / 1e9);
+		System.out.println(String.format("%-22s %10.0f ops/s (%d ms)",name,opsPerSec,nanos / 1000000));
+	}
+	
+	private static long run(final Map<Integer,Integer> map,int threads,final int maxEntries,
+			final int ops,final int readPercent) throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for(int t = 0; t < threads; ++t) {
+			final long seed = t;
+			new Thread() {
+				public void run() {
+					Random r = new Random(seed);
+					// key space twice the cache size gives a realistic mix of hits and evictions
+					int keySpace = Math.max(1,maxEntries * 2);
+					try {
+						start.await();
+						for(int i = 0; i < ops; ++i) {
+							Integer key = r.nextInt(keySpace);
+							if(r.nextInt(100) < readPercent)
+								map.get(key);
+							else
+								map.put(key,key);
+						}
+					}
+					catch(InterruptedException e) {}
+					finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		return System.nanoTime() - begin;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrentLruMapTest {
+
+	@Test
+	public void testMapFromExisting() {
+		Map<Integer,Integer> orig = new HashMap<Integer,Integer>();
+		for(int i = 0; i < 10; ++i)
+			orig.put(i,i);
+		ConcurrentLruMap<Integer,Integer> cache = new ConcurrentLruMap<Integer,Integer>(orig);
+		assertEquals(orig.size(),cache.getMaxSize());
+		assertEquals(orig,cache);
+	}
+
+	@Test
+	public void testGetUpdatesOrder() {
+		// small caches use a single segment so ordering is exact
+		final int max = 10;
+		ConcurrentLruMap<Integer,Integer> cache = new ConcurrentLruMap<Integer,Integer>(max);
+		for(int i = 0; i < max; ++i)
+			cache.put(i,i);
+		cache.get(0);
+		cache.put(max,max);
+		assertTrue(cache.containsKey(0));
+		assertFalse(cache.containsKey(1));
+		assertEquals(max,cache.size());
+	}
+
+	@Test
+	public void testEvictionNotifiesListeners() {
+		final int max = 10;
+		ConcurrentLruMap<Integer,Integer> cache = new ConcurrentLruMap<Integer,Integer>(max);
+		final List<Integer> removed = new ArrayList<Integer>();
+		cache.addAutoRemovalListener(new AutoMapRemovalListener<Integer,Integer>() {
+			public void entryRemoved(Map.Entry<Integer, Integer> e) {
+				removed.add(e.getKey());
+			}
+		});
+		for(int i = 0; i < max + 3; ++i)
+			cache.put(i,i);
+		assertEquals(3,removed.size());
+		assertEquals(Integer.valueOf(0),removed.get(0));
+		assertEquals(3,cache.getEvictionCount());
+	}
+
+	@Test
+	public void testStatistics() {
+		ConcurrentLruMap<String,String> cache = new ConcurrentLruMap<String,String>(100);
+		cache.put("a","1");
+		assertEquals("1",cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNull(cache.get("c"));
+		assertEquals(1,cache.getHitCount());
+		assertEquals(2,cache.getMissCount());
+		assertEquals(1.0 / 3,cache.getHitRate(),1e-9);
+		cache.resetStatistics();
+		assertEquals(0,cache.getHitCount());
+		assertEquals(0,cache.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentMapOperations() {
+		ConcurrentLruMap<String,String> cache = new ConcurrentLruMap<String,String>(100);
+		assertNull(cache.putIfAbsent("a","1"));
+		assertEquals("1",cache.putIfAbsent("a","2"));
+		assertFalse(cache.replace("a","2","3"));
+		assertTrue(cache.replace("a","1","3"));
+		assertEquals("3",cache.replace("a","4"));
+		assertNull(cache.replace("b","4"));
+		assertFalse(cache.remove("a","1"));
+		assertTrue(cache.remove("a","4"));
+		assertTrue(cache.isEmpty());
+	}
+
+	@Test
+	public void testEntrySetWriteThrough() {
+		ConcurrentLruMap<String,String> cache = new ConcurrentLruMap<String,String>(100);
+		cache.put("a","1");
+		cache.put("b","2");
+		for(Map.Entry<String,String> e : cache.entrySet())
+			e.setValue(e.getValue() + "0");
+		assertEquals("10",cache.get("a"));
+		assertEquals("20",cache.get("b"));
+		cache.entrySet().iterator().next();
+		cache.keySet().remove("a");
+		assertEquals(1,cache.size());
+	}
+
+	@Test
+	public void testBoundedUnderConcurrency() throws Exception {
+		final int max = 1000;
+		final ConcurrentLruMap<Integer,Integer> cache = new ConcurrentLruMap<Integer,Integer>(max,8);
+		final AtomicInteger evictions = new AtomicInteger();
+		cache.addAutoRemovalListener(new AutoMapRemovalListener<Integer,Integer>() {
+			public void entryRemoved(Map.Entry<Integer, Integer> e) {
+				evictions.incrementAndGet();
+			}
+		});
+		final int numThreads = 8;
+		final int perThread = 5000;
+		final CountDownLatch done = new CountDownLatch(numThreads);
+		for(int t = 0; t < numThreads; ++t) {
+			final int offset = t * perThread;
+			new Thread() {
+				public void run() {
+					try {
+						for(int i = 0; i < perThread; ++i) {
+							cache.put(offset + i,i);
+							cache.get(offset + i / 2);
+						}
+					}
+					finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await();
+		assertTrue(cache.size() <= max);
+		assertEquals(numThreads * perThread - cache.size(),evictions.get());
+		assertEquals(evictions.get(),cache.getEvictionCount());
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileProxyRetrieverTest extends FileProxyRetrieverTest {
+
+	@Before
+	public void setUp() throws Exception
+	{
+		// small segments so that the tests span several mappings
+		retriever = new MappedFileProxyRetriever<String,String>(
+				UtilsTestSuite.getTempDirectory(),"mapped_proxy_test",256);
+	}
+	
+	private static String repeat(char c,int n)
+	{
+		StringBuilder str = new StringBuilder(n);
+		for(int i = 0; i < n; ++i)
+			str.append(c);
+		return str.toString();
+	}
+	
+	@Test
+	public void testValueLargerThanSegment()
+	{
+		String big = repeat('x',2000);
+		retriever.put("small","value");
+		retriever.put("big",big);
+		retriever.put("small2","value2");
+		assertEquals(big,retriever.lookup("big").second);
+		assertEquals("value",retriever.lookup("small").second);
+		assertEquals("value2",retriever.lookup("small2").second);
+	}
+	
+	@Test
+	public void testFreedBlocksReused()
+	{
+		MappedFileProxyRetriever<String,String> r = (MappedFileProxyRetriever<String,String>)retriever;
+		for(int i = 0; i < 100; ++i)
+			r.put("key" + i,"value" + i);
+		long mapped = r.getMappedSize();
+		for(int i = 0; i < 100; ++i)
+			r.remove("key" + i);
+		for(int i = 0; i < 100; ++i)
+			r.put("other" + i,"value" + i);
+		assertEquals(mapped,r.getMappedSize());
+		for(int i = 0; i < 100; ++i)
+			assertEquals("value" + i,r.lookup("other" + i).second);
+	}
+	
+	@Test
+	public void testGrowInPlaceAndRelocate()
+	{
+		retriever.put("a","1");
+		retriever.put("b","2");
+		String big = repeat('y',150);
+		retriever.put("a",big);
+		assertEquals(big,retriever.lookup("a").second);
+		assertEquals("2",retriever.lookup("b").second);
+		retriever.put("a","3");
+		assertEquals("3",retriever.lookup("a").second);
+	}
+	
+	@Test
+	public void testCacheEntries()
+	{
+		retriever.put("a","1");
+		retriever.addCacheEntry("a","cached");
+		assertEquals("cached",retriever.lookup("a").second);
+		retriever.put("a","cached2");
+		retriever.removeCacheEntry("a");
+		assertEquals("cached2",retriever.lookup("a").second);
+		assertEquals(1,retriever.getKeySet().size());
+	}
+	
+	@Test(timeout=30000)
+	public void testConcurrentReadersAndWriters() throws Exception
+	{
+		final int numKeys = 200;
+		for(int i = 0; i < numKeys; ++i)
+			retriever.put("key" + i,"value" + i);
+		
+		final int numThreads = 8;
+		final CountDownLatch done = new CountDownLatch(numThreads);
+		final AtomicInteger errors = new AtomicInteger();
+		for(int t = 0; t < numThreads; ++t)
+		{
+			final boolean writer = t % 4 == 0;
+			new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						for(int n = 0; n < 2000; ++n)
+						{
+							int i = n % numKeys;
+							if(writer)
+								retriever.put("key" + i,"value" + i);
+							else if(!("value" + i).equals(retriever.lookup("key" + i).second))
+								errors.incrementAndGet();
+						}
+					}
+					catch(Exception e)
+					{
+						errors.incrementAndGet();
+					}
+					finally
+					{
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await();
+		assertEquals(0,errors.get());
+	}
+}
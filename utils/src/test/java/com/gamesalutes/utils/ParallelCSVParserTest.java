@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelCSVParserTest {
+
+	private File file;
+	
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile("parallel_csv_test",".csv",UtilsTestSuite.getTempDirectory());
+	}
+	
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+	}
+	
+	private static final class Collector implements ParallelCSVParser.Callback
+	{
+		final List<String> records = Collections.synchronizedList(new ArrayList<String>());
+		
+		public void record(String [] fields)
+		{
+			records.add(CSVTestUtils.toString(fields));
+		}
+	}
+	
+	private void write(String csv) throws IOException
+	{
+		Writer w = new OutputStreamWriter(new FileOutputStream(file),"UTF-8");
+		try
+		{
+			w.write(csv);
+		}
+		finally
+		{
+			w.close();
+		}
+	}
+	
+	private static String createInput()
+	{
+		StringBuilder str = new StringBuilder();
+		String whole = CSVTestUtils.createWholeOutput(false);
+		for(int i = 0; i < 50; ++i)
+		{
+			str.append(whole).append("\r\n");
+			str.append(i).append(",\"multi\r\nline ").append(i).append(" é\",x\n\n");
+		}
+		return str.toString();
+	}
+	
+	private static List<String> parseSequential(String csv,boolean hasHeader) throws IOException
+	{
+		List<String> records = new ArrayList<String>();
+		for(String [] fields : new CSVParser(new StringReader(csv),hasHeader,CSVParser.DELIMINATOR,"\n").readAll())
+			records.add(CSVTestUtils.toString(fields));
+		return records;
+	}
+	
+	private ParallelCSVParser create(boolean hasHeader,int chunkSize)
+	{
+		ParallelCSVParser p = new ParallelCSVParser(file,hasHeader,CSVParser.DELIMINATOR,"\n",
+				CSVPrinter.QUOTE_CHAR,Charset.forName("UTF-8"));
+		p.setChunkSize(chunkSize);
+		return p;
+	}
+	
+	@Test
+	public void testOrdered() throws Exception
+	{
+		String csv = createInput();
+		write(csv);
+		List<String> expected = parseSequential(csv,false);
+		for(int chunkSize : new int[] {1,7,64,1024,Integer.MAX_VALUE})
+		{
+			Collector c = new Collector();
+			assertEquals(expected.size(),create(false,chunkSize).parse(c,true));
+			assertEquals("chunkSize=" + chunkSize,expected,c.records);
+		}
+	}
+	
+	@Test
+	public void testUnordered() throws Exception
+	{
+		String csv = createInput();
+		write(csv);
+		List<String> expected = parseSequential(csv,false);
+		Collections.sort(expected);
+		Collector c = new Collector();
+		assertEquals(expected.size(),create(false,13).parse(c,false));
+		List<String> actual = new ArrayList<String>(c.records);
+		Collections.sort(actual);
+		assertEquals(expected,actual);
+	}
+	
+	@Test
+	public void testHeader() throws Exception
+	{
+		String csv = "\n  \nh1,h2\n" + createInput();
+		write(csv);
+		Collector c = new Collector();
+		create(true,5).parse(c,true);
+		assertEquals(parseSequential(csv,true),c.records);
+	}
+	
+	@Test
+	public void testQuoteSpansChunks() throws Exception
+	{
+		StringBuilder str = new StringBuilder("a,\"");
+		for(int i = 0; i < 100; ++i)
+			str.append("line ").append(i).append(",\n");
+		str.append("end\",b\nc,d\n");
+		write(str.toString());
+		Collector c = new Collector();
+		assertEquals(2,create(false,16).parse(c,true));
+		assertEquals(parseSequential(str.toString(),false),c.records);
+	}
+	
+	@Test
+	public void testEmptyFile() throws Exception
+	{
+		assertEquals(0,create(false,16).parse(new Collector(),true));
+	}
+	
+	@Test
+	public void testCallbackFailure() throws Exception
+	{
+		write(createInput());
+		for(boolean ordered : new boolean[] {true,false})
+		{
+			try
+			{
+				create(false,32).parse(new ParallelCSVParser.Callback()
+				{
+					public void record(String [] fields) throws Exception
+					{
+						throw new IOException("failed");
+					}
+				},ordered);
+				fail("Callback exception not propagated");
+			}
+			catch(IOException e)
+			{
+				assertEquals("failed",e.getMessage());
+			}
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testIncompatibleCharset()
+	{
+		new ParallelCSVParser(file,false,',',"\n",'"',Charset.forName("UTF-16"));
+	}
+}
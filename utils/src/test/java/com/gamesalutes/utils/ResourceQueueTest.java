@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ResourceQueueTest {
+
+	private static final int TIMEOUT = 10000;
+
+	@Test
+	public void testTryGetAndRelease() {
+		ResourceQueue<String> q = new ResourceQueue<String>(Arrays.asList("a","b",null));
+		assertEquals(2,q.getTotalCount());
+
+		String r1 = q.tryGet();
+		String r2 = q.tryGet();
+		assertNotNull(r1);
+		assertNotNull(r2);
+		assertNull(q.tryGet());
+		assertEquals(2,q.getUsedCount());
+		assertEquals(0,q.getAvailableCount());
+
+		assertTrue(q.release(r1));
+		assertFalse(q.release(r1));
+		assertFalse(q.release("c"));
+		assertEquals(1,q.getUsedCount());
+		assertEquals(1,q.getUsedCount(r1));
+		assertEquals(-1,q.getUsedCount("c"));
+		assertEquals(2,q.getStatistics().getPeakUsedCount());
+	}
+
+	@Test
+	public void testGetTimeout() throws Exception {
+		ResourceQueue<String> q = new ResourceQueue<String>(Collections.singletonList("a"));
+		assertEquals("a",q.get());
+		assertNull(q.get(50,TimeUnit.MILLISECONDS));
+		assertNull(q.get(0,TimeUnit.MILLISECONDS));
+
+		ResourceQueue.Statistics stats = q.getStatistics();
+		assertEquals(3,stats.getRequestCount());
+		assertEquals(2,stats.getTimeoutCount());
+		assertTrue(stats.getMaxWaitTime(TimeUnit.MILLISECONDS) >= 50);
+
+		long total = 0;
+		for(long c : stats.getWaitTimeHistogram())
+			total += c;
+		assertEquals(3,total);
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void testReleaseWakesWaiter() throws Exception {
+		final ResourceQueue<String> q = new ResourceQueue<String>(Collections.singletonList("a"));
+		final String r = q.get();
+		final String [] result = new String[1];
+		Thread t = new Thread() {
+			public void run() {
+				try {
+					result[0] = q.get();
+				}
+				catch(InterruptedException e) {}
+			}
+		};
+		t.start();
+		while(q.getWaitingCount() == 0)
+			Thread.sleep(5);
+		q.release(r);
+		t.join();
+		assertEquals("a",result[0]);
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void testFairOrdering() throws Exception {
+		final ResourceQueue<String> q = new ResourceQueue<String>(Collections.singletonList("a"),true);
+		assertTrue(q.isFair());
+		String r = q.get();
+
+		final int numWaiters = 5;
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch done = new CountDownLatch(numWaiters);
+		for(int i = 0; i < numWaiters; ++i) {
+			final int id = i;
+			new Thread() {
+				public void run() {
+					try {
+						String res = q.get();
+						order.add(id);
+						q.release(res);
+					}
+					catch(InterruptedException e) {}
+					finally {
+						done.countDown();
+					}
+				}
+			}.start();
+			// make sure waiters enqueue in a known order
+			while(q.getWaitingCount() != i + 1)
+				Thread.sleep(5);
+		}
+
+		// a barging thread must not jump the queue
+		assertNull(q.tryGet());
+
+		q.release(r);
+		done.await();
+		assertEquals(Arrays.asList(0,1,2,3,4),order);
+		assertEquals(0,q.getUsedCount());
+		assertEquals(1,q.getAvailableCount());
+		assertEquals(6,q.getUsedCount("a"));
+	}
+
+	@Test(timeout=TIMEOUT)
+	public void testDisposeWakesWaiters() throws Exception {
+		final ResourceQueue<String> q = new ResourceQueue<String>(Collections.singletonList("a"),true);
+		q.get();
+		final Exception [] error = new Exception[1];
+		Thread t = new Thread() {
+			public void run() {
+				try {
+					q.get();
+				}
+				catch(Exception e) {
+					error[0] = e;
+				}
+			}
+		};
+		t.start();
+		while(q.getWaitingCount() == 0)
+			Thread.sleep(5);
+		q.dispose();
+		t.join();
+		assertTrue(error[0] instanceof IllegalStateException);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Measures the heap footprint per entry and the GC cost of filling a {@link SoftHashMap} compared with the 
+ * previous <code>WeakHashMap</code> plus <code>Set&lt;SoftReference&gt;</code> design, which is reproduced
+ * here as {@link LegacySoftMap}. Run with <code>main</code>; not part of the unit test suite.
+ * <p>
+ * Arguments: <code>[entries]</code> (default 1,000,000).  Run with a heap large enough that no soft
+ * references are cleared, e.g. <code>-Xmx2g</code>.
+ * 
+ * @author jmontgomery
+ */
+public final class SoftHashMapBenchmark {
+
+	private SoftHashMapBenchmark() {}
+	
+	/**
+	 * The previous <code>SoftHashMap</code> storage: weak keyed map plus a set of soft references to pin the keys.
+	 */
+	static final class LegacySoftMap<K,V> {
+		private final WeakHashMap<K,V> map = new WeakHashMap<K,V>();
+		private final Set<SoftReference<K>> softKeys = new HashSet<SoftReference<K>>();
+		private final ReferenceQueue<K> refQueue = new ReferenceQueue<K>();
+		
+		V put(K key,V value) {
+			Reference<? extends K> ref;
+			while((ref = refQueue.poll()) != null)
+				softKeys.remove(ref);
+			softKeys.add(new SoftReference<K>(key,refQueue));
+			return map.put(key,value);
+		}
+		int size() {
+			return map.size();
+		}
+	}
+	
+	public static void main(String [] args) throws Exception {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		
+		// keys are allocated up front so that only the map structure is measured
+		Integer [] keys = new Integer[entries];
+		for(int i = 0; i < entries; ++i)
+			keys[i] = new Integer(i);
+		Object value = new Object();
+		
+		System.out.println("entries=" + entries);
+		
+		// warm up
+		fillLegacy(keys,value,entries / 10);
+		fillSoft(keys,value,entries / 10);
+		
+		long base = usedHeap();
+		long gc = gcTime();
+		long start = System.nanoTime();
+		LegacySoftMap<Integer,Object> legacy = fillLegacy(keys,value,entries);
+		long legacyNanos = System.nanoTime() - start;
+		long legacyGc = gcTime() - gc;
+		long legacyBytes = usedHeap() - base;
+		report("WeakHashMap+SoftReference set",legacy.size(),legacyBytes,legacyNanos,legacyGc);
+		legacy = null;
+		
+		base = usedHeap();
+		gc = gcTime();
+		start = System.nanoTime();
+		SoftHashMap<Integer,Object> soft = fillSoft(keys,value,entries);
+		long softNanos = System.nanoTime() - start;
+		long softGc = gcTime() - gc;
+		long softBytes = usedHeap() - base;
+		report("SoftHashMap",soft.size(),softBytes,softNanos,softGc);
+	}
+	
+	private static LegacySoftMap<Integer,Object> fillLegacy(Integer [] keys,Object value,int n) {
+		LegacySoftMap<Integer,Object> m = new LegacySoftMap<Integer,Object>();
+		for(int i = 0; i < n; ++i)
+			m.put(keys[i],value);
+		return m;
+	}
+	
+	private static SoftHashMap<Integer,Object> fillSoft(Integer [] keys,Object value,int n) {
+		SoftHashMap<Integer,Object> m = new SoftHashMap<Integer,Object>();
+		for(int i = 0; i < n; ++i)
+			m.put(keys[i],value);
+		return m;
+	}
+	
+	private static void report(String name,int size,long bytes,long nanos,long gcMillis) {
+		System.out.println(String.format("%-30s size=%d bytes/entry=%.1f fill=%d ms gc=%d ms",
+				name,size,(double)bytes / size,nanos / 1000000,gcMillis));
+	}
+	
+	private static long usedHeap() throws InterruptedException {
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; ++i) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	private static long gcTime() {
+		long total = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			total += Math.max(0,gc.getCollectionTime());
+		return total;
+	}
+}
@@ -39,8 +39,13 @@
  */
 package com.gamesalutes.utils;
 
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
 import java.util.Map;
 
+import org.junit.Test;
+
 /**
  * @author Justin Montgomery
  * @version $Id: SoftHashMapTest.java 1087 2008-09-05 22:22:09Z jmontgomery $
@@ -65,4 +70,53 @@ public class SoftHashMapTest extends AbstractMapTest {
 		return new SoftHashMap<Integer,Integer>(m);
 	}
 
+	@Test
+	public void testNullKey()
+	{
+		SoftHashMap<Integer,Integer> m = new SoftHashMap<Integer,Integer>();
+		m.put(null,1);
+		m.put(2,2);
+		assertTrue(m.containsKey(null));
+		assertEquals(Integer.valueOf(1),m.get(null));
+		assertTrue(m.keySet().contains(null));
+		assertEquals(Integer.valueOf(1),m.remove(null));
+		assertFalse(m.containsKey(null));
+		assertEquals(1,m.size());
+	}
+	
+	@Test
+	public void testResize()
+	{
+		SoftHashMap<Integer,Integer> m = new SoftHashMap<Integer,Integer>(2);
+		for(int i = 0; i < 1000; ++i)
+			m.put(i,i);
+		assertEquals(1000,m.size());
+		for(int i = 0; i < 1000; ++i)
+			assertEquals(Integer.valueOf(i),m.get(i));
+		int count = 0;
+		for(Iterator<Integer> it = m.keySet().iterator(); it.hasNext();)
+		{
+			if(it.next() % 2 == 0)
+				it.remove();
+			++count;
+		}
+		assertEquals(1000,count);
+		assertEquals(500,m.size());
+	}
+	
+	@Test
+	public void testStrongEntriesBounded()
+	{
+		SoftHashMap<Integer,Integer> m = new SoftHashMap<Integer,Integer>(16,0.75f,10);
+		for(int i = 0; i < 100; ++i)
+			m.put(i,i);
+		assertEquals(10,m.getStrongCount());
+		m.get(0);
+		assertEquals(10,m.getStrongCount());
+		m.remove(0);
+		assertEquals(9,m.getStrongCount());
+		m.clear();
+		assertEquals(0,m.getStrongCount());
+	}
+
 }
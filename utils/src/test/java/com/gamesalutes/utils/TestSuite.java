@@ -73,6 +73,13 @@ import org.junit.runners.Suite;
 	           ReverseFileTest.class,
                    ReaderInputStreamTest.class,
                    WriterOutputStreamTest.class,
-                   EmailUtilTest.class
+                   EmailUtilTest.class,
+                   ResourceQueueTest.class,
+                   ConcurrentLruMapTest.class,
+                   TimedLoadingCacheTest.class,
+                   MappedFileProxyRetrieverTest.class,
+                   CodecsTest.class,
+                   FileProxyRetrieverCodecTest.class,
+                   ParallelCSVParserTest.class
 	          })
 public class TestSuite {}
@@ -28,8 +28,13 @@ package com.gamesalutes.utils;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -73,4 +78,116 @@ public class TimedCacheMapTest {
 		assertTrue(m.containsKey(1));
 		assertEquals(Integer.valueOf(1),m.get(1));
 	}
+	
+	@Test
+	public void testTimeoutListener() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),10);
+		final List<Integer> expired = new ArrayList<Integer>();
+		m.addTimeoutListener(new TimedCacheMap.TimeoutListener<Integer, Integer>() {
+			public void onTimeout(Integer key, Integer value) {
+				expired.add(value);
+			}
+		});
+		m.put(1, 10);
+		m.put(2, 20);
+		m.remove(2);
+		Thread.sleep(100);
+		assertEquals(0,m.size());
+		assertEquals(1,expired.size());
+		assertEquals(Integer.valueOf(10),expired.get(0));
+	}
+	
+	@Test
+	public void testPerEntryTimeout() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),10000);
+		m.put(1, 1, 10);
+		m.put(2, 2);
+		m.put(3, 3, -1);
+		Thread.sleep(100);
+		assertFalse(m.containsKey(1));
+		assertTrue(m.containsKey(2));
+		assertTrue(m.containsKey(3));
+		
+		// putting again without a timeout reverts to the map timeout
+		m.put(1, 1, 10);
+		m.put(1, 1);
+		Thread.sleep(100);
+		assertTrue(m.containsKey(1));
+	}
+	
+	@Test
+	public void testPerEntryTimeoutWithoutMapTimeout() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),-1);
+		m.put(1, 1, 10);
+		m.put(2, 2);
+		Thread.sleep(100);
+		assertFalse(m.containsKey(1));
+		assertTrue(m.containsKey(2));
+	}
+	
+	@Test
+	public void testExpireAfterAccess() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),300,
+				TimedCacheMap.ExpirationPolicy.AFTER_ACCESS);
+		m.put(1, 1);
+		m.put(2, 2);
+		for(int i = 0; i < 5; ++i) {
+			Thread.sleep(100);
+			assertEquals(Integer.valueOf(1),m.get(1));
+		}
+		assertTrue(m.containsKey(1));
+		assertFalse(m.containsKey(2));
+	}
+	
+	@Test
+	public void testTimeToLiveIsNotAccess() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),300,
+				TimedCacheMap.ExpirationPolicy.AFTER_ACCESS);
+		m.put(1, 1);
+		Thread.sleep(200);
+		m.put(2, 2);
+		long ttl = m.getTimeToLive(1);
+		assertTrue(ttl > 0 && ttl <= 100);
+		Thread.sleep(150);
+		// expired even though the fresher entry was written after it
+		assertNull(m.get(1));
+		assertEquals(Integer.valueOf(2),m.get(2));
+	}
+	
+	@Test
+	public void testExpireAfterWriteIgnoresAccess() throws Exception {
+		TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),300);
+		m.put(1, 1);
+		for(int i = 0; i < 5; ++i) {
+			Thread.sleep(100);
+			m.get(1);
+		}
+		assertFalse(m.containsKey(1));
+	}
+	
+	@Test
+	public void testScheduledExpiration() throws Exception {
+		final TimedCacheMap<Integer,Integer> m = new TimedCacheMap<Integer,Integer>(new HashMap<Integer,Integer>(),10);
+		final List<Integer> expired = new ArrayList<Integer>();
+		m.addTimeoutListener(new TimedCacheMap.TimeoutListener<Integer, Integer>() {
+			public void onTimeout(Integer key, Integer value) {
+				expired.add(key);
+			}
+		});
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try {
+			synchronized(m) {
+				m.put(1, 1);
+			}
+			m.scheduleExpiration(executor, 20, TimeUnit.MILLISECONDS);
+			Thread.sleep(500);
+			synchronized(m) {
+				// the reaper removed the entry without any call on the map
+				assertEquals(1,expired.size());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
 }
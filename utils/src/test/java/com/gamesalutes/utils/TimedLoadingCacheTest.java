@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TimedLoadingCacheTest {
+
+	private static final int TIMEOUT = 10000;
+	
+	private static class CountingLoader implements TimedLoadingCache.Loader<Integer,String> {
+		final AtomicInteger count = new AtomicInteger();
+		final long sleep;
+		
+		CountingLoader(long sleep) {
+			this.sleep = sleep;
+		}
+		public String load(Integer key) throws Exception {
+			count.incrementAndGet();
+			Thread.sleep(sleep);
+			return key + ":" + count.get();
+		}
+	}
+	
+	@Test
+	public void testLoadAndCache() throws Exception {
+		TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10000);
+		CountingLoader loader = new CountingLoader(0);
+		assertEquals("1:1",cache.get(1,loader));
+		assertEquals("1:1",cache.get(1,loader));
+		assertEquals(1,loader.count.get());
+		assertEquals("1:1",cache.getIfPresent(1));
+		
+		cache.invalidate(1);
+		assertNull(cache.getIfPresent(1));
+		assertEquals("1:2",cache.get(1,loader));
+	}
+	
+	@Test
+	public void testReloadAfterExpiry() throws Exception {
+		TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10);
+		CountingLoader loader = new CountingLoader(0);
+		cache.get(1,loader);
+		Thread.sleep(100);
+		assertEquals("1:2",cache.get(1,loader));
+	}
+	
+	@Test(timeout=TIMEOUT)
+	public void testConcurrentLoadsCoalesced() throws Exception {
+		final TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10000);
+		final CountingLoader loader = new CountingLoader(200);
+		final int numThreads = 10;
+		final CountDownLatch done = new CountDownLatch(numThreads);
+		final String [] results = new String[numThreads];
+		for(int i = 0; i < numThreads; ++i) {
+			final int index = i;
+			new Thread() {
+				public void run() {
+					try {
+						results[index] = cache.get(1,loader);
+					}
+					catch(Exception e) {}
+					finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await();
+		assertEquals(1,loader.count.get());
+		for(String r : results)
+			assertEquals("1:1",r);
+	}
+	
+	@Test
+	public void testLoaderException() throws Exception {
+		TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10000);
+		try {
+			cache.get(1, new TimedLoadingCache.Loader<Integer,String>() {
+				public String load(Integer key) throws Exception {
+					throw new IllegalStateException("fail");
+				}
+			});
+			fail();
+		}
+		catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		// failures are not cached
+		assertEquals("1:1",cache.get(1,new CountingLoader(0)));
+	}
+	
+	@Test
+	public void testGetAllBatchesMisses() throws Exception {
+		TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10000);
+		cache.put(2,"cached");
+		final AtomicInteger calls = new AtomicInteger();
+		final Map<Integer,Integer> requested = new HashMap<Integer,Integer>();
+		TimedLoadingCache.BulkLoader<Integer,String> bulk = new TimedLoadingCache.BulkLoader<Integer,String>() {
+			public Map<Integer,String> loadAll(Collection<Integer> keys) {
+				calls.incrementAndGet();
+				Map<Integer,String> m = new HashMap<Integer,String>();
+				for(Integer k : keys) {
+					requested.put(k,k);
+					// 4 is not found
+					if(k != 4)
+						m.put(k,"v" + k);
+				}
+				return m;
+			}
+		};
+		List<Integer> keys = Arrays.asList(3,2,1,4,3);
+		Map<Integer,String> result = cache.getAll(keys,bulk);
+		assertEquals(1,calls.get());
+		assertEquals(3,requested.size());
+		assertFalse(requested.containsKey(2));
+		assertEquals(Arrays.asList(3,2,1),Arrays.asList(result.keySet().toArray()));
+		assertEquals("cached",result.get(2));
+		assertEquals("v1",result.get(1));
+		
+		// loaded values are now cached
+		result = cache.getAll(Arrays.asList(1,3),bulk);
+		assertEquals(1,calls.get());
+		assertEquals(2,result.size());
+	}
+	
+	@Test(timeout=TIMEOUT)
+	public void testRefreshAhead() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(
+					1000,TimedCacheMap.ExpirationPolicy.AFTER_WRITE,900,executor);
+			CountingLoader loader = new CountingLoader(0);
+			assertEquals("1:1",cache.get(1,loader));
+			Thread.sleep(200);
+			// within the refresh window: current value is returned and a reload is started
+			assertEquals("1:1",cache.get(1,loader));
+			while(!"1:2".equals(cache.getIfPresent(1)))
+				Thread.sleep(10);
+			assertEquals(2,loader.count.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test(timeout=TIMEOUT)
+	public void testGetAllNullKey() throws Exception {
+		TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(10000);
+		TimedLoadingCache.BulkLoader<Integer,String> bulk = new TimedLoadingCache.BulkLoader<Integer,String>() {
+			public Map<Integer,String> loadAll(Collection<Integer> keys) {
+				throw new AssertionError("should not load");
+			}
+		};
+		try {
+			cache.getAll(Arrays.asList(1,null),bulk);
+			fail();
+		}
+		catch(NullPointerException e) {}
+		// the valid key must not be left with a load that never completes
+		assertEquals("1:1",cache.get(1,new CountingLoader(0)));
+	}
+	
+	@Test(timeout=TIMEOUT)
+	public void testRefreshAheadAfterAccess() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(
+					1000,TimedCacheMap.ExpirationPolicy.AFTER_ACCESS,500,executor);
+			CountingLoader loader = new CountingLoader(0);
+			assertEquals("1:1",cache.get(1,loader));
+			Thread.sleep(700);
+			// idle long enough to be within the refresh window even though the access renews the entry
+			assertEquals("1:1",cache.get(1,loader));
+			while(!"1:2".equals(cache.getIfPresent(1)))
+				Thread.sleep(10);
+			assertEquals(2,loader.count.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test(timeout=TIMEOUT)
+	public void testRefreshAheadAfterAccessExpired() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TimedLoadingCache<Integer,String> cache = new TimedLoadingCache<Integer,String>(
+					500,TimedCacheMap.ExpirationPolicy.AFTER_ACCESS,100,executor);
+			CountingLoader loader = new CountingLoader(0);
+			assertEquals("1:1",cache.get(1,loader));
+			Thread.sleep(400);
+			assertEquals("2:2",cache.get(2,loader));
+			Thread.sleep(200);
+			// idle past the timeout behind a fresher entry so it is reloaded rather than served stale
+			assertEquals("1:3",cache.get(1,loader));
+			assertEquals(3,loader.count.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
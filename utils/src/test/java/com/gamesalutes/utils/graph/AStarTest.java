@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class AStarTest
+{
+	private static final int SIZE = 30;
+	
+	@Test(timeout = 10000)
+	public void testExecute()
+	{
+		// grid with unit weight edges and a wall that must be walked around
+		Graph<Integer,Integer> g = new AdjacencyList<Integer,Integer>(true);
+		Vertex<Integer> [] vertices = createVertices();
+		for(Vertex<Integer> v : vertices)
+			g.addVertex(v);
+		int edge = 0;
+		for(int x = 0; x < SIZE; ++x)
+		{
+			for(int y = 0; y < SIZE; ++y)
+			{
+				if(isWall(x,y)) continue;
+				int [][] dirs = {{1,0},{-1,0},{0,1},{0,-1}};
+				for(int [] d : dirs)
+				{
+					int nx = x + d[0], ny = y + d[1];
+					if(nx < 0 || ny < 0 || nx >= SIZE || ny >= SIZE || isWall(nx,ny)) continue;
+					Edge<Integer,Integer> e = new Edge<Integer,Integer>(
+							vertices[x * SIZE + y],vertices[nx * SIZE + ny],edge++);
+					e.setWeight(1.0f);
+					g.addEdge(e);
+				}
+			}
+		}
+		
+		Vertex<Integer> source = vertices[0];
+		Vertex<Integer> target = vertices[SIZE * SIZE - 1];
+		
+		Djikstra<Integer,Integer> djikstra = new Djikstra<Integer,Integer>(g,source);
+		djikstra.execute();
+		List<Vertex<Integer>> trav = djikstra.getTraversal();
+		float expected = trav.get(trav.indexOf(target)).getWeight();
+		
+		AStar<Integer,Integer> astar = new AStar<Integer,Integer>(g,source,target,
+			new AStar.AStarCallback<Integer>()
+			{
+				public float heuristicDistance(Vertex<Integer> s,Vertex<Integer> t)
+				{
+					int a = s.getData(), b = t.getData();
+					return Math.abs(a / SIZE - b / SIZE) + Math.abs(a % SIZE - b % SIZE);
+				}
+			});
+		astar.execute();
+		
+		List<Vertex<Integer>> path = astar.getPath(target);
+		assertEquals(source,path.get(0));
+		assertEquals(target,path.get(path.size() - 1));
+		assertEquals(expected,path.size() - 1,0.0f);
+		// consistent heuristic expands fewer vertices than Djikstra
+		assertTrue(astar.getTraversal().size() < djikstra.getTraversal().size());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static Vertex<Integer> [] createVertices()
+	{
+		Vertex<Integer> [] vertices = new Vertex[SIZE * SIZE];
+		for(int i = 0; i < vertices.length; ++i)
+			vertices[i] = new Vertex<Integer>(i);
+		return vertices;
+	}
+	
+	private static boolean isWall(int x,int y)
+	{
+		return x == SIZE / 2 && y < SIZE - 2;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import java.util.Random;
+
+/**
+ * Compares {@link AdjacencyList#findEdge(Vertex, Vertex)}, {@link AdjacencyList#containsEdge(Edge)} and
+ * {@link AdjacencyList#removeEdge(Edge)} on hub vertices with and without the destination index.  Run with 
+ * <code>main</code>; not part of the unit test suite.
+ * <p>
+ * Arguments: <code>[hubs] [degree]</code> (default 4 hubs of 200,000 edges).
+ * 
+ * @author jmontgomery
+ */
+public final class AdjacencyListBenchmark
+{
+	private static final int QUERIES = 200000;
+	
+	private AdjacencyListBenchmark() {}
+	
+	public static void main(String [] args)
+	{
+		int hubs = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int degree = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+		
+		System.out.println("hubs=" + hubs + " degree=" + degree);
+		for(int round = 0; round < 2; ++round)
+		{
+			// first round is warm up
+			for(boolean indexed : new boolean [] { false,true })
+			{
+				long start = System.nanoTime();
+				AdjacencyList<Integer,Integer> g = hubGraph(hubs,degree,indexed);
+				long build = System.nanoTime() - start;
+				Random r = new Random(1);
+				
+				// fewer unindexed queries since each one scans a hub
+				int queries = indexed ? QUERIES : QUERIES / 100;
+				int found = 0;
+				start = System.nanoTime();
+				for(int i = 0; i < queries; ++i)
+				{
+					if(g.findEdge(new Vertex<Integer>(r.nextInt(hubs)),new Vertex<Integer>(hubs + r.nextInt(degree))) != null)
+						++found;
+				}
+				long find = System.nanoTime() - start;
+				
+				start = System.nanoTime();
+				for(int i = 0; i < queries; ++i)
+				{
+					Edge<Integer,Integer> e = edge(r.nextInt(hubs),hubs + r.nextInt(degree));
+					if(g.containsEdge(e))
+						++found;
+				}
+				long contains = System.nanoTime() - start;
+				
+				start = System.nanoTime();
+				for(int i = 0; i < queries; ++i)
+				{
+					Edge<Integer,Integer> e = edge(r.nextInt(hubs),hubs + r.nextInt(degree));
+					if(g.removeEdge(e))
+						g.addEdge(e);
+				}
+				long remove = System.nanoTime() - start;
+				
+				if(round > 0)
+				{
+					System.out.println(String.format("indexed=%-5s build ms=%d findEdge ns=%d containsEdge ns=%d " +
+							"removeEdge+addEdge ns=%d (%d)",indexed,build / 1000000,find / queries,
+							contains / queries,remove / queries,found));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Directed graph with edges from each hub to <code>degree</code> leaves.
+	 * 
+	 */
+	private static AdjacencyList<Integer,Integer> hubGraph(int hubs,int degree,boolean indexed)
+	{
+		AdjacencyList<Integer,Integer> g = new AdjacencyList<Integer,Integer>(true,indexed);
+		for(int i = 0; i < hubs + degree; ++i)
+			g.addVertex(new Vertex<Integer>(i));
+		for(int h = 0; h < hubs; ++h)
+		{
+			for(int i = 0; i < degree; ++i)
+				g.addEdge(edge(h,hubs + i));
+		}
+		return g;
+	}
+	
+	private static Edge<Integer,Integer> edge(int from,int to)
+	{
+		return new Edge<Integer,Integer>(new Vertex<Integer>(from),new Vertex<Integer>(to),from * 31 + to);
+	}
+}
@@ -115,5 +115,47 @@ public class BFSTest
 		assertEquals("traversal path",expected,traversal.getPath(trav.get(trav.indexOf(vertices.get(3)))));
 		
 	}
+	
+	/**
+	 * Tests {@link BFS#execute()} on the components of {@link GraphUtils#getConnectedComponents(Graph)}, whose 
+	 * vertices are copies from an earlier traversal that still have their parents set.
+	 * 
+	 */
+	@Test(timeout = 5000)
+	public void testExecuteVerticesWithParents()
+	{
+		Graph<String,Integer> g = new AdjacencyList<String,Integer>(false);
+		String [][] edges = { {"a","b"}, {"b","c"}, {"c","d"}, {"a","c"}, {"e","f"} };
+		int i = 0;
+		for(String [] e : edges)
+		{
+			Vertex<String> from = new Vertex<String>(e[0]);
+			Vertex<String> to = new Vertex<String>(e[1]);
+			g.addVertex(from);
+			g.addVertex(to);
+			g.addEdge(new Edge<String,Integer>(from,to,i++));
+		}
+		
+		Set<Graph<String,Integer>> components = GraphUtils.getConnectedComponents(g);
+		assertEquals(2,components.size());
+		for(Graph<String,Integer> component : components)
+		{
+			Vertex<String> source = component.vertexIterator().next();
+			assertTrue(component.containsVertex(new Vertex<String>(source.getData())));
+			
+			for(Graph<String,Integer> target : Arrays.<Graph<String,Integer>>asList(
+					component,new CSRGraph<String,Integer>(component)))
+			{
+				GraphTraversalAlgorithm<String,Integer> bfs = new BFS<String,Integer>(target,source);
+				bfs.execute();
+				Set<Vertex<String>> reached = new HashSet<Vertex<String>>(bfs.getTraversal());
+				assertEquals(target.getClass().getSimpleName(),component.numVerts(),reached.size());
+				
+				// paths lead back to the source
+				for(Vertex<String> v : reached)
+					assertEquals(source,bfs.getPath(v).get(0));
+			}
+		}
+	}
 
 }
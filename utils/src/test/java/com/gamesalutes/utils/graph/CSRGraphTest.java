@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class CSRGraphTest
+{
+	private static Graph<Integer,Integer> randomGraph(long seed,boolean directed)
+	{
+		Random r = new Random(seed);
+		int n = 60;
+		Graph<Integer,Integer> g = new AdjacencyList<Integer,Integer>(directed);
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		for(int i = 0; i < n; ++i)
+		{
+			Vertex<Integer> v = new Vertex<Integer>(i);
+			vertices.add(v);
+			g.addVertex(v);
+		}
+		for(int i = 0; i < 150; ++i)
+		{
+			Edge<Integer,Integer> e = new Edge<Integer,Integer>(
+					vertices.get(r.nextInt(n)),vertices.get(r.nextInt(n)),i);
+			e.setWeight(1 + r.nextInt(5));
+			g.addEdge(e);
+		}
+		return g;
+	}
+	
+	private static <T> Set<T> toSet(Iterator<T> it)
+	{
+		Set<T> set = new HashSet<T>();
+		while(it.hasNext())
+			assertTrue(set.add(it.next()));
+		return set;
+	}
+	
+	@Test
+	public void testGraph()
+	{
+		for(boolean directed : new boolean[]{true,false})
+		{
+			Graph<Integer,Integer> g = randomGraph(1,directed);
+			CSRGraph<Integer,Integer> csr = new CSRGraph<Integer,Integer>(g);
+			
+			assertEquals(g,csr);
+			assertEquals(csr,g);
+			assertEquals(g.hashCode(),csr.hashCode());
+			assertEquals(directed,csr.isDirected());
+			assertEquals(g.numVerts(),csr.numVerts());
+			assertEquals(g.numEdges(),csr.numEdges());
+			
+			for(Iterator<Vertex<Integer>> vit = g.vertexIterator(); vit.hasNext();)
+			{
+				Vertex<Integer> v = vit.next();
+				int id = csr.indexOf(v);
+				assertEquals(v,csr.getVertex(id));
+				assertEquals(toSet(g.edgeIterator(v)),toSet(csr.edgeIterator(v)));
+				assertEquals(g.numEdges(v),csr.numEdges(v));
+				for(Iterator<Vertex<Integer>> wit = g.vertexIterator(); wit.hasNext();)
+				{
+					Vertex<Integer> w = wit.next();
+					// AdjacencyList may return an incoming edge of v when v == w
+					if(!v.equals(w))
+						assertEquals(g.findEdge(v,w),csr.findEdge(v,w));
+				}
+				for(int a = csr.getFirstArc(id); a < csr.getFirstArc(id + 1); ++a)
+				{
+					Edge<Integer,Integer> e = csr.getEdge(a);
+					assertEquals(v,e.getFrom());
+					assertEquals(e.getTo(),csr.getVertex(csr.getTarget(a)));
+					assertEquals(e.getWeight(),csr.getWeight(a),0.0f);
+					assertTrue(csr.containsEdge(e));
+				}
+			}
+			assertFalse(csr.containsVertex(new Vertex<Integer>(-1)));
+			assertEquals(-1,csr.indexOf(new Vertex<Integer>(-1)));
+			
+			CSRGraph<Integer,Integer> clone = csr.clone();
+			assertEquals(csr,clone);
+			assertNotSame(csr.getVertex(0),clone.getVertex(0));
+			assertEquals(g.reverse(),csr.reverse());
+			assertEquals(g.makeUndirected(),csr.makeUndirected());
+		}
+	}
+	
+	@Test
+	public void testImmutable()
+	{
+		CSRGraph<Integer,Integer> csr = new CSRGraph<Integer,Integer>(randomGraph(2,true));
+		Vertex<Integer> v = new Vertex<Integer>(100);
+		try
+		{
+			csr.addVertex(v);
+			fail("addVertex");
+		}
+		catch(UnsupportedOperationException e) {}
+		try
+		{
+			csr.removeEdge(csr.getEdge(0));
+			fail("removeEdge");
+		}
+		catch(UnsupportedOperationException e) {}
+		try
+		{
+			Iterator<Edge<Integer,Integer>> it = csr.edgeIterator();
+			it.next();
+			it.remove();
+			fail("remove");
+		}
+		catch(UnsupportedOperationException e) {}
+		try
+		{
+			csr.clear();
+			fail("clear");
+		}
+		catch(UnsupportedOperationException e) {}
+	}
+	
+	/**
+	 * Records each traversal element as a string.
+	 * 
+	 */
+	private static final class RecordingCallback extends DefaultGraphTraversalCallback<Integer,Integer>
+	{
+		final List<String> elements = new ArrayList<String>();
+		
+		@Override
+		public boolean onTraverse(GraphTraversalElement<Integer,Integer> e)
+		{
+			Vertex<Integer> v = e.getCurrentVertex();
+			Edge<Integer,Integer> edge = e.getCurrentEdge();
+			elements.add(v + " " + (edge != null ? edge.getData() : null) + " " + e.getPreviousPathId() + " " +
+					e.getCurrentPathId() + " " + v.getLevel() + " " + v.getParent());
+			return true;
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void testTraversals()
+	{
+		for(long seed = 0; seed < 10; ++seed)
+		{
+			for(boolean directed : new boolean[]{true,false})
+			{
+				Graph<Integer,Integer> g = randomGraph(seed,directed);
+				CSRGraph<Integer,Integer> csr = new CSRGraph<Integer,Integer>(g);
+				Vertex<Integer> source = new Vertex<Integer>(0);
+				
+				for(boolean multi : new boolean[]{true,false})
+				{
+					RecordingCallback expected = new RecordingCallback();
+					RecordingCallback actual = new RecordingCallback();
+					new BFS<Integer,Integer>(g,source,expected,multi).execute();
+					new BFS<Integer,Integer>(csr,source,actual,multi).execute();
+					assertEquals(expected.elements,actual.elements);
+				}
+				
+				RecordingCallback expected = new RecordingCallback();
+				RecordingCallback actual = new RecordingCallback();
+				new DFS<Integer,Integer>(g,source,expected).execute();
+				new DFS<Integer,Integer>(csr,source,actual).execute();
+				assertEquals(expected.elements,actual.elements);
+				
+				Map<Vertex<Integer>,Float> distances = distances(new Djikstra<Integer,Integer>(g,source).execute());
+				assertEquals(distances,distances(new Djikstra<Integer,Integer>(csr,source).execute()));
+				
+				// zero heuristic gives shortest path
+				AStar.AStarCallback<Integer> h = new AStar.AStarCallback<Integer>()
+				{
+					public float heuristicDistance(Vertex<Integer> s,Vertex<Integer> t)
+					{
+						return 0;
+					}
+				};
+				for(Map.Entry<Vertex<Integer>,Float> entry : distances.entrySet())
+				{
+					AStar<Integer,Integer> astar = new AStar<Integer,Integer>(csr,source,entry.getKey(),h);
+					astar.execute();
+					List<Vertex<Integer>> path = astar.getPath(entry.getKey());
+					assertEquals(entry.getKey(),path.get(path.size() - 1));
+					float cost = 0;
+					for(int i = 1; i < path.size(); ++i)
+						cost += minWeight(csr,path.get(i - 1),path.get(i));
+					assertEquals(entry.getValue(),cost,0.0f);
+				}
+			}
+		}
+	}
+	
+	// there may be parallel edges
+	private static float minWeight(CSRGraph<Integer,Integer> csr,Vertex<Integer> from,Vertex<Integer> to)
+	{
+		int id = csr.indexOf(from);
+		float min = Float.MAX_VALUE;
+		for(int a = csr.getFirstArc(id); a < csr.getFirstArc(id + 1); ++a)
+		{
+			if(csr.getTarget(a) == csr.indexOf(to))
+				min = Math.min(min,csr.getWeight(a));
+		}
+		return min;
+	}
+	
+	private static Map<Vertex<Integer>,Float> distances(Djikstra<Integer,Integer> alg)
+	{
+		Map<Vertex<Integer>,Float> distances = new HashMap<Vertex<Integer>,Float>();
+		for(Vertex<Integer> v : alg.getTraversal())
+			assertNull(distances.put(v,v.getWeight()));
+		return distances;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class CopyOnWriteGraphTest extends GraphTest 
+{
+
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.graph.GraphTest#getDirectedGraph()
+	 */
+	@Override
+	protected Graph<Integer, Integer> getDirectedGraph() 
+	{
+		return new CopyOnWriteGraph<Integer,Integer>(new 
+				AdjacencyList<Integer,Integer>(true));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.graph.GraphTest#getUndirectedGraph()
+	 */
+	@Override
+	protected Graph<Integer, Integer> getUndirectedGraph()
+	{
+		return new CopyOnWriteGraph<Integer,Integer>(new 
+				AdjacencyList<Integer,Integer>(false));
+	}
+	
+	@Test
+	public void testSnapshot()
+	{
+		CopyOnWriteGraph<Integer,Integer> g = new CopyOnWriteGraph<Integer,Integer>(
+				new AdjacencyList<Integer,Integer>(true));
+		Vertex<Integer> v0 = new Vertex<Integer>(0);
+		Vertex<Integer> v1 = new Vertex<Integer>(1);
+		g.addVertex(v0);
+		g.addVertex(v1);
+		
+		CopyOnWriteGraph<Integer,Integer> snapshot = g.snapshot();
+		Iterator<Vertex<Integer>> it = g.vertexIterator();
+		g.addEdge(new Edge<Integer,Integer>(v0,v1,1));
+		g.removeVertex(v0);
+		
+		assertEquals(2,snapshot.numVerts());
+		assertEquals(0,snapshot.numEdges());
+		assertEquals(1,g.numVerts());
+		int count = 0;
+		for(; it.hasNext(); it.next())
+			++count;
+		assertEquals(2,count);
+		
+		// changes to the snapshot are not seen by the graph
+		snapshot.removeVertex(v1);
+		assertTrue(g.containsVertex(v1));
+		assertFalse(g.addVertex(v1));
+	}
+	
+	@Test(timeout = 30000)
+	public void testConcurrentIteration() throws Exception
+	{
+		final CopyOnWriteGraph<Integer,Integer> g = new CopyOnWriteGraph<Integer,Integer>(
+				new AdjacencyList<Integer,Integer>(true));
+		g.addVertex(new Vertex<Integer>(0));
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		
+		// readers iterate snapshots while a writer adds edges, each edge to a new vertex
+		Thread [] readers = new Thread[4];
+		for(int i = 0; i < readers.length; ++i)
+		{
+			readers[i] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for(int k = 0; k < 200; ++k)
+						{
+							Graph<Integer,Integer> s = g.snapshot();
+							int edges = 0;
+							for(Iterator<Edge<Integer,Integer>> it = s.edgeIterator(); it.hasNext(); it.next())
+								++edges;
+							int verts = 0;
+							for(Iterator<Vertex<Integer>> it = s.vertexIterator(); it.hasNext(); it.next())
+								++verts;
+							assertEquals(s.numEdges(),edges);
+							assertEquals(s.numVerts(),verts);
+							assertTrue(verts >= edges + 1);
+						}
+					}
+					catch(Throwable t)
+					{
+						error.compareAndSet(null,t);
+					}
+				}
+			};
+			readers[i].start();
+		}
+		
+		for(int i = 1; i <= 300; ++i)
+		{
+			Vertex<Integer> v = new Vertex<Integer>(i);
+			g.addVertex(v);
+			g.addEdge(new Edge<Integer,Integer>(new Vertex<Integer>(0),v,i));
+		}
+		for(Thread t : readers)
+			t.join();
+		
+		if(error.get() != null)
+			throw new AssertionError(error.get());
+		assertEquals(300,g.numEdges());
+	}
+
+}
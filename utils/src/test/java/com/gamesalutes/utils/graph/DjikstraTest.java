@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class DjikstraTest
+{
+	/**
+	 * Builds a random directed graph whose last vertex is unreachable.
+	 * 
+	 */
+	static Graph<Integer,Integer> randomGraph(Random r,int n,int m,List<Vertex<Integer>> vertices)
+	{
+		Graph<Integer,Integer> g = new AdjacencyList<Integer,Integer>(true);
+		for(int i = 0; i < n; ++i)
+		{
+			Vertex<Integer> v = new Vertex<Integer>(i);
+			vertices.add(v);
+			g.addVertex(v);
+		}
+		for(int i = 0; i < m; ++i)
+		{
+			Edge<Integer,Integer> e = new Edge<Integer,Integer>(
+					vertices.get(r.nextInt(n)),vertices.get(r.nextInt(n - 1)),i);
+			e.setWeight(r.nextInt(20));
+			g.addEdge(e);
+		}
+		return g;
+	}
+	
+	/**
+	 * Bellman-Ford distances from <code>source</code>.
+	 * 
+	 */
+	static float [] distances(Graph<Integer,Integer> g,int n,int source)
+	{
+		float [] dist = new float[n];
+		Arrays.fill(dist,Float.POSITIVE_INFINITY);
+		dist[source] = 0;
+		for(int k = 0; k < n; ++k)
+		{
+			for(Iterator<Edge<Integer,Integer>> it = g.edgeIterator(); it.hasNext();)
+			{
+				Edge<Integer,Integer> e = it.next();
+				float d = dist[e.getFrom().getData()] + e.getWeight();
+				if(d < dist[e.getTo().getData()])
+					dist[e.getTo().getData()] = d;
+			}
+		}
+		return dist;
+	}
+	
+	@Test(timeout = 10000)
+	public void testExecute()
+	{
+		Random r = new Random(1);
+		int n = 200;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = randomGraph(r,n,1000,vertices);
+		float [] expected = distances(g,n,0);
+		
+		Djikstra<Integer,Integer> alg = new Djikstra<Integer,Integer>(g,vertices.get(0));
+		alg.execute();
+		
+		List<Vertex<Integer>> traversal = alg.getTraversal();
+		// unreachable vertices are never queued
+		assertFalse(traversal.contains(vertices.get(n - 1)));
+		for(Vertex<Integer> v : traversal)
+		{
+			int i = v.getData();
+			assertEquals(expected[i],v.getWeight(),0.0f);
+			
+			// path weight matches distance
+			List<Vertex<Integer>> path = alg.getPath(v);
+			assertEquals(vertices.get(0),path.get(0));
+			assertEquals(v,path.get(path.size() - 1));
+			assertEquals(path.size() - 1,v.getLevel());
+		}
+		for(int i = 0; i < n; ++i)
+			assertEquals(!Float.isInfinite(expected[i]),traversal.contains(vertices.get(i)));
+		
+		// settled in order of distance
+		for(int i = 1; i < traversal.size(); ++i)
+			assertTrue(traversal.get(i - 1).getWeight() <= traversal.get(i).getWeight());
+	}
+	
+	@Test(timeout = 10000)
+	public void testResult()
+	{
+		Random r = new Random(2);
+		int n = 200;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = randomGraph(r,n,1000,vertices);
+		float [] expected = distances(g,n,0);
+		
+		for(Graph<Integer,Integer> graph : Arrays.asList(g,new CSRGraph<Integer,Integer>(g)))
+		{
+			Vertex<Integer> source = vertices.get(0);
+			TraversalResult<Integer> result = new Djikstra<Integer,Integer>(graph,source).execute().getResult();
+			for(int i = 0; i < n; ++i)
+			{
+				Vertex<Integer> v = vertices.get(i);
+				assertEquals(expected[i],result.getDistance(v),0.0f);
+				assertEquals(!Float.isInfinite(expected[i]),result.isReached(v));
+				
+				List<Vertex<Integer>> path = result.getPath(v);
+				if(!result.isReached(v))
+				{
+					assertTrue(path.isEmpty());
+					assertNull(result.getParent(v));
+					assertEquals(-1,result.getLevel(v));
+					continue;
+				}
+				assertEquals(source,path.get(0));
+				assertEquals(v,path.get(path.size() - 1));
+				assertEquals(path.size() - 1,result.getLevel(v));
+				float dist = 0;
+				for(int j = 1; j < path.size(); ++j)
+				{
+					assertEquals(path.get(j - 1),result.getParent(path.get(j)));
+					dist += graph.findEdge(path.get(j - 1),path.get(j)).getWeight();
+				}
+				// parallel edges may be heavier than the one on the path
+				assertTrue(dist >= expected[i]);
+			}
+			
+			// neither the graph nor the source are modified
+			assertEquals(0.0f,source.getWeight(),0.0f);
+			assertEquals(0,source.getLevel());
+			for(Iterator<Vertex<Integer>> it = graph.vertexIterator(); it.hasNext();)
+			{
+				Vertex<Integer> v = it.next();
+				assertEquals(0.0f,v.getWeight(),0.0f);
+				assertNull(v.getParent());
+				assertEquals(0,v.getLevel());
+			}
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void testConcurrent() throws Exception
+	{
+		Random r = new Random(3);
+		final int n = 300;
+		final List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = randomGraph(r,n,2000,vertices);
+		
+		for(final Graph<Integer,Integer> graph : Arrays.asList(g,new CSRGraph<Integer,Integer>(g)))
+		{
+			final float [][] expected = new float[n][];
+			for(int i = 0; i < n; ++i)
+				expected[i] = distances(g,n,i);
+			
+			final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+			Thread [] threads = new Thread[4];
+			for(int t = 0; t < threads.length; ++t)
+			{
+				final int offset = t;
+				threads[t] = new Thread()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							for(int i = offset; i < n; i += 2)
+							{
+								TraversalResult<Integer> result = 
+									new Djikstra<Integer,Integer>(graph,vertices.get(i)).execute().getResult();
+								for(int j = 0; j < n; ++j)
+									assertEquals(expected[i][j],result.getDistance(vertices.get(j)),0.0f);
+							}
+						}
+						catch(Throwable e)
+						{
+							failure.compareAndSet(null,e);
+						}
+					}
+				};
+				threads[t].start();
+			}
+			for(Thread t : threads)
+				t.join();
+			if(failure.get() != null)
+				throw new AssertionError(failure.get());
+		}
+	}
+}
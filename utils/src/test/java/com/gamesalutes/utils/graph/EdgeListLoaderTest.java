@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.gamesalutes.utils.CSVParser;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class EdgeListLoaderTest
+{
+	private static CSRGraph<String,String> load(String csv,boolean directed) throws IOException
+	{
+		return EdgeListLoader.load(new CSVParser(new StringReader(csv)),directed);
+	}
+	
+	@Test
+	public void testLoad() throws IOException
+	{
+		Random r = new Random(1);
+		for(boolean directed : new boolean[]{true,false})
+		{
+			Graph<String,String> expected = new AdjacencyList<String,String>(directed);
+			StringBuilder csv = new StringBuilder();
+			for(int i = 0; i < 400; ++i)
+			{
+				String from = "v" + r.nextInt(100);
+				String to = "v" + r.nextInt(100);
+				int weight = 1 + r.nextInt(10);
+				String data = "e" + i;
+				csv.append(from).append(',').append(to).append(',').append(weight).append(',').append(data).append('\n');
+				
+				Vertex<String> u = new Vertex<String>(from);
+				Vertex<String> v = new Vertex<String>(to);
+				expected.addVertex(u);
+				expected.addVertex(v);
+				Edge<String,String> e = new Edge<String,String>(u,v,data);
+				e.setWeight(weight);
+				expected.addEdge(e);
+			}
+			
+			CSRGraph<String,String> g = EdgeListLoader.load(new CSVParser(new StringReader(csv.toString())),directed,16,16);
+			assertEquals(directed,g.isDirected());
+			assertEquals(expected,g);
+			assertEquals(expected.numEdges(),g.numEdges());
+			
+			for(Iterator<Edge<String,String>> it = g.edgeIterator(); it.hasNext();)
+			{
+				Edge<String,String> e = it.next();
+				Edge<String,String> original = e.isReversed() ? e.reverse() : e;
+				float weight = findWeight(expected,original);
+				assertEquals(weight,e.getWeight(),0);
+			}
+			for(int a = 0; a < g.numEdges(); ++a)
+				assertEquals(g.getEdge(a).getWeight(),g.getWeight(a),0);
+		}
+	}
+	
+	private static float findWeight(Graph<String,String> g,Edge<String,String> e)
+	{
+		for(Iterator<Edge<String,String>> it = g.edgeIterator(e.getFrom()); it.hasNext();)
+		{
+			Edge<String,String> f = it.next();
+			if(f.equals(e))
+				return f.getWeight();
+		}
+		throw new AssertionError(e + " not in graph");
+	}
+	
+	@Test
+	public void testOptionalFields() throws IOException
+	{
+		CSRGraph<String,String> g = load("a,b\nb,c,\nc,a,2.5\n\na,a,,loop\n",true);
+		assertEquals(3,g.numVerts());
+		assertEquals(4,g.numEdges());
+		
+		Vertex<String> a = new Vertex<String>("a");
+		Vertex<String> b = new Vertex<String>("b");
+		Vertex<String> c = new Vertex<String>("c");
+		assertEquals(0,g.indexOf(a));
+		assertEquals(1,g.indexOf(b));
+		assertEquals(2,g.indexOf(c));
+		
+		assertEquals(new Edge<String,String>(a,b),g.getEdge(0));
+		assertEquals(new Edge<String,String>(a,a,"loop"),g.getEdge(1));
+		assertEquals(0,g.getWeight(0),0);
+		assertEquals(2.5f,g.findEdge(c,a).getWeight(),0);
+		assertNull(g.findEdge(b,c).getData());
+		
+		// record order and a single arc for self loops
+		g = load("a,b,1\na,c,2\na,a,3\n",false);
+		assertEquals(5,g.numEdges());
+		assertEquals(1,g.getTarget(0));
+		assertEquals(2,g.getTarget(1));
+		assertEquals(0,g.getTarget(2));
+		assertEquals(1,g.findEdge(b,a).getWeight(),0);
+		assertTrue(g.findEdge(b,a).isReversed());
+	}
+	
+	@Test
+	public void testInvalid()
+	{
+		for(String csv : new String[]{"a,b\nc\n","a,b,x\n"})
+		{
+			try
+			{
+				load(csv,true);
+				fail("Expected IOException for " + csv);
+			}
+			catch(IOException e) {}
+		}
+	}
+}
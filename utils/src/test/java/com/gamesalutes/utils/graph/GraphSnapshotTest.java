@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.gamesalutes.utils.Codecs;
+import com.gamesalutes.utils.UtilsTestSuite;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class GraphSnapshotTest
+{
+	private static Graph<String,Integer> randomGraph(long seed,boolean directed)
+	{
+		Random r = new Random(seed);
+		int n = 80;
+		Graph<String,Integer> g = new AdjacencyList<String,Integer>(directed);
+		List<Vertex<String>> vertices = new ArrayList<Vertex<String>>();
+		for(int i = 0; i < n; ++i)
+		{
+			Vertex<String> v = new Vertex<String>("v" + i);
+			v.setWeight(r.nextFloat());
+			vertices.add(v);
+			g.addVertex(v);
+		}
+		for(int i = 0; i < 300; ++i)
+		{
+			// some edges without data
+			Edge<String,Integer> e = new Edge<String,Integer>(
+					vertices.get(r.nextInt(n)),vertices.get(r.nextInt(n)),i % 7 != 0 ? i : null);
+			e.setWeight(1 + r.nextInt(5));
+			g.addEdge(e);
+		}
+		return g;
+	}
+	
+	private static void assertSameArcs(CSRGraph<String,Integer> expected,CSRGraph<String,Integer> actual)
+	{
+		assertEquals(expected,actual);
+		assertEquals(expected.isDirected(),actual.isDirected());
+		assertEquals(expected.numVerts(),actual.numVerts());
+		assertEquals(expected.numEdges(),actual.numEdges());
+		for(int i = 0; i < expected.numVerts(); ++i)
+		{
+			assertEquals(expected.getVertex(i),actual.getVertex(i));
+			assertEquals(expected.getVertex(i).getWeight(),actual.getVertex(i).getWeight(),0);
+			assertEquals(expected.getFirstArc(i),actual.getFirstArc(i));
+			assertEquals(expected.numEdges(i),actual.numEdges(i));
+		}
+		for(int a = 0; a < expected.numEdges(); ++a)
+		{
+			Edge<String,Integer> e = expected.getEdge(a);
+			Edge<String,Integer> f = actual.getEdge(a);
+			assertEquals(e,f);
+			assertEquals(e.getWeight(),f.getWeight(),0);
+			assertEquals(e.isReversed(),f.isReversed());
+			assertSame(actual.getVertex(actual.indexOf(f.getFrom())),f.getFrom());
+			assertEquals(expected.getTarget(a),actual.getTarget(a));
+			assertEquals(expected.getWeight(a),actual.getWeight(a),0);
+		}
+	}
+	
+	@Test
+	public void testWriteRead() throws IOException
+	{
+		for(boolean directed : new boolean[]{true,false})
+		{
+			Graph<String,Integer> g = randomGraph(1,directed);
+			CSRGraph<String,Integer> csr = new CSRGraph<String,Integer>(g);
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GraphSnapshot.write(g,out,Codecs.STRING,Codecs.INTEGER);
+			ByteBuffer buf = ByteBuffer.wrap(out.toByteArray());
+			CSRGraph<String,Integer> copy = GraphSnapshot.read(buf,Codecs.STRING,Codecs.INTEGER);
+			assertFalse(buf.hasRemaining());
+			assertEquals(g,copy);
+			assertSameArcs(csr,copy);
+			
+			// searches over the loaded arrays
+			ShortestPaths<String,Integer> expected = new ShortestPaths<String,Integer>(csr);
+			ShortestPaths<String,Integer> actual = new ShortestPaths<String,Integer>(copy);
+			Vertex<String> source = csr.getVertex(0);
+			for(int i = 0; i < csr.numVerts(); ++i)
+			{
+				Vertex<String> target = csr.getVertex(i);
+				assertEquals(expected.getDistance(source,target),actual.getDistance(source,target),0);
+			}
+		}
+	}
+	
+	@Test
+	public void testFile() throws IOException
+	{
+		CSRGraph<String,Integer> csr = new CSRGraph<String,Integer>(randomGraph(2,true));
+		File file = UtilsTestSuite.createTempFile();
+		try
+		{
+			GraphSnapshot.write(csr,file,Codecs.STRING,Codecs.INTEGER);
+			assertSameArcs(csr,GraphSnapshot.<String,Integer>read(file,Codecs.STRING,Codecs.INTEGER));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void testEmpty() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GraphSnapshot.write(new AdjacencyList<String,Integer>(false),out,Codecs.STRING,Codecs.INTEGER);
+		CSRGraph<String,Integer> g = GraphSnapshot.read(ByteBuffer.wrap(out.toByteArray()),Codecs.STRING,Codecs.INTEGER);
+		assertEquals(0,g.numVerts());
+		assertEquals(0,g.numEdges());
+		assertFalse(g.isDirected());
+	}
+	
+	@Test
+	public void testInvalid() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GraphSnapshot.write(randomGraph(3,true),out,Codecs.STRING,Codecs.INTEGER);
+		byte [] bytes = out.toByteArray();
+		
+		byte [] bad = bytes.clone();
+		bad[0] = 0;
+		try
+		{
+			GraphSnapshot.read(ByteBuffer.wrap(bad),Codecs.STRING,Codecs.INTEGER);
+			fail("Expected IOException for bad magic");
+		}
+		catch(IOException e) {}
+		
+		try
+		{
+			GraphSnapshot.read(ByteBuffer.wrap(bytes,0,bytes.length - 1),Codecs.STRING,Codecs.INTEGER);
+			fail("Expected IOException for truncated snapshot");
+		}
+		catch(IOException e) {}
+	}
+}
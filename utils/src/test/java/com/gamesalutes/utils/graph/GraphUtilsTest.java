@@ -30,6 +30,7 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 /**
  * Test case for {@link GraphUtils}.
  * 
@@ -407,6 +408,56 @@ public class GraphUtilsTest
 		
 	}
 	
+	/**
+	 * Tests that the <code>ForkJoinPool</code> versions of {@link GraphUtils#isConnected(Graph)},
+	 * {@link GraphUtils#getConnectedComponents(Graph)} and {@link GraphUtils#getLargestConnectedSubgraph(Graph)}
+	 * match the sequential ones.
+	 */
+	@Test(timeout=60000)
+	public void testParallelConnectivity()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			Random r = new Random(14);
+			int [][] sizes = { {0,0}, {1,0}, {50,20}, {3000,1500}, {3000,2600}, {3000,12000} };
+			for(int [] size : sizes)
+			{
+				for(boolean directed : new boolean [] { false,true })
+				{
+					// the sequential directed components repeat a search per source
+					if(directed && size[1] > 3000) continue;
+					
+					Graph<Integer,Integer> g = new AdjacencyList<Integer,Integer>(directed);
+					for(int i = 0; i < size[0]; ++i)
+						g.addVertex(new Vertex<Integer>(i));
+					for(int i = 0; i < size[1]; ++i)
+					{
+						Vertex<Integer> from = new Vertex<Integer>(r.nextInt(size[0]));
+						Vertex<Integer> to = new Vertex<Integer>(r.nextInt(size[0]));
+						g.addEdge(new Edge<Integer,Integer>(from,to,i));
+						// some arcs back to the search parent
+						if(r.nextInt(4) == 0)
+							g.addEdge(new Edge<Integer,Integer>(to,from,-i - 1));
+					}
+					
+					for(Graph<Integer,Integer> h : Arrays.asList(g,new CSRGraph<Integer,Integer>(g)))
+					{
+						String msg = size[0] + "," + size[1] + ",directed=" + directed + "," + h.getClass().getSimpleName();
+						assertEquals(msg,GraphUtils.isConnected(h),GraphUtils.isConnected(h,pool));
+						assertEquals(msg,GraphUtils.getConnectedComponents(h),GraphUtils.getConnectedComponents(h,pool));
+						assertEquals(msg,GraphUtils.getLargestConnectedSubgraph(h),
+								GraphUtils.getLargestConnectedSubgraph(h,pool));
+					}
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
 	@Test(timeout=1000)
 	public void testMakeDirectional()
 	{
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link AdjacencyList} with its destination index.
+ * 
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class IndexedAdjacencyListTest extends GraphTest
+{
+
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.graph.GraphTest#getDirectedGraph()
+	 */
+	@Override
+	protected Graph<Integer, Integer> getDirectedGraph() 
+	{
+		return new AdjacencyList<Integer,Integer>(true,true);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gamesalutes.utils.graph.GraphTest#getUndirectedGraph()
+	 */
+	@Override
+	protected Graph<Integer, Integer> getUndirectedGraph()
+	{
+		return new AdjacencyList<Integer,Integer>(false,true);
+	}
+	
+	@Test(timeout = 30000)
+	public void testFindEdge()
+	{
+		testFindEdge(true);
+		testFindEdge(false);
+	}
+	
+	/**
+	 * Applies random changes, including parallel edges, self loops and vertex removals, to an indexed and an 
+	 * unindexed graph and checks that <code>findEdge</code> returns the same edge.
+	 */
+	private void testFindEdge(boolean directed)
+	{
+		Random r = new Random(18);
+		final int n = 20;
+		AdjacencyList<Integer,Integer> expected = new AdjacencyList<Integer,Integer>(directed);
+		AdjacencyList<Integer,Integer> actual = new AdjacencyList<Integer,Integer>(directed,true);
+		for(int i = 0; i < n; ++i)
+		{
+			expected.addVertex(new Vertex<Integer>(i));
+			actual.addVertex(new Vertex<Integer>(i));
+		}
+		
+		for(int k = 0; k < 5000; ++k)
+		{
+			Vertex<Integer> from = new Vertex<Integer>(r.nextInt(n));
+			Vertex<Integer> to = new Vertex<Integer>(r.nextInt(n));
+			// few edge data values so that parallel edges are added and removed
+			Edge<Integer,Integer> e = new Edge<Integer,Integer>(from,to,r.nextInt(3));
+			int op = r.nextInt(20);
+			if(op < 10)
+				assertEquals(expected.addEdge(e),actual.addEdge(e));
+			else if(op < 19)
+				assertEquals(expected.removeEdge(e),actual.removeEdge(e));
+			else
+			{
+				assertEquals(expected.removeVertex(from),actual.removeVertex(from));
+				expected.addVertex(from);
+				actual.addVertex(from);
+			}
+			if(k % 1000 == 999)
+				actual = actual.clone();
+			
+			for(int i = 0; i < n; ++i)
+			{
+				for(int j = 0; j < n; ++j)
+				{
+					Vertex<Integer> v = new Vertex<Integer>(i), w = new Vertex<Integer>(j);
+					Edge<Integer,Integer> found = actual.findEdge(v,w);
+					assertEquals(expected.findEdge(v,w),found);
+					if(found != null)
+						assertTrue(actual.containsEdge(found));
+				}
+			}
+		}
+		assertEquals(expected,actual);
+	}
+}
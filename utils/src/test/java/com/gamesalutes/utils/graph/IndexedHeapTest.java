@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class IndexedHeapTest
+{
+	@Test
+	public void testPollOrder()
+	{
+		for(int arity = 2; arity <= 5; ++arity)
+		{
+			Random r = new Random(arity);
+			int n = 1000;
+			float [] keys = new float[n];
+			// small initial capacity to exercise growth
+			IndexedHeap heap = new IndexedHeap(arity,1);
+			for(int i = 0; i < n; ++i)
+			{
+				keys[i] = r.nextFloat() * 100;
+				heap.insert(i,keys[i]);
+			}
+			// lower half of the keys
+			for(int i = 0; i < n; i += 2)
+			{
+				float k = keys[i] - r.nextFloat() * 50;
+				assertTrue(heap.decreaseKey(i,k));
+				keys[i] = k;
+			}
+			assertFalse(heap.decreaseKey(1,keys[1] + 1));
+			assertEquals(keys[1],heap.getKey(1),0.0f);
+			assertEquals(n,heap.size());
+			
+			float [] sorted = keys.clone();
+			Arrays.sort(sorted);
+			for(int i = 0; i < n; ++i)
+			{
+				assertEquals(sorted[i],heap.peekKey(),0.0f);
+				int id = heap.poll();
+				assertEquals(sorted[i],keys[id],0.0f);
+				assertFalse(heap.contains(id));
+			}
+			assertTrue(heap.isEmpty());
+		}
+	}
+	
+	@Test
+	public void testInsertOrDecrease()
+	{
+		IndexedHeap heap = new IndexedHeap(0);
+		assertTrue(heap.insertOrDecrease(10,5.0f));
+		assertTrue(heap.insertOrDecrease(3,7.0f));
+		assertFalse(heap.insertOrDecrease(10,6.0f));
+		assertTrue(heap.insertOrDecrease(3,1.0f));
+		assertEquals(3,heap.poll());
+		// reinsert after removal
+		assertTrue(heap.insertOrDecrease(3,9.0f));
+		assertEquals(10,heap.poll());
+		assertEquals(3,heap.poll());
+		
+		heap.insert(0,1.0f);
+		heap.clear();
+		assertFalse(heap.contains(0));
+		try
+		{
+			heap.poll();
+			fail("poll on empty heap");
+		}
+		catch(NoSuchElementException e) {}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateInsert()
+	{
+		IndexedHeap heap = new IndexedHeap(4);
+		heap.insert(1,1.0f);
+		heap.insert(1,2.0f);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class LandmarksTest
+{
+	@Test(timeout = 10000)
+	public void testLowerBound()
+	{
+		Random r = new Random(16);
+		int n = 200;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(r,n,800,vertices);
+		Landmarks<Integer> landmarks = new Landmarks<Integer>(g,8);
+		assertEquals(8,landmarks.numLandmarks());
+		assertEquals(8,landmarks.getLandmarks().size());
+		// the unreachable vertex is chosen once every other vertex is reached
+		assertTrue(landmarks.getLandmarks().contains(vertices.get(n - 1)));
+		
+		for(int s = 0; s < n; s += 7)
+		{
+			float [] dist = DjikstraTest.distances(g,n,s);
+			for(int t = 0; t < n; ++t)
+			{
+				float bound = landmarks.heuristicDistance(vertices.get(s),vertices.get(t));
+				assertTrue(bound >= 0);
+				assertTrue(bound <= dist[t]);
+				if(s == t)
+					assertEquals(0.0f,bound,0.0f);
+			}
+		}
+		
+		// consistent: h(u,t) <= w(u,v) + h(v,t)
+		int t = r.nextInt(n);
+		for(Iterator<Edge<Integer,Integer>> it = g.edgeIterator(); it.hasNext();)
+		{
+			Edge<Integer,Integer> e = it.next();
+			assertTrue(landmarks.heuristicDistance(e.getFrom(),vertices.get(t)) <= 
+				e.getWeight() + landmarks.heuristicDistance(e.getTo(),vertices.get(t)));
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void testQueries() throws Exception
+	{
+		Random r = new Random(16);
+		int n = 300;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(r,n,1500,vertices);
+		CSRGraph<Integer,Integer> csr = new CSRGraph<Integer,Integer>(g);
+		Landmarks<Integer> landmarks = new Landmarks<Integer>(csr);
+		Landmarks<Integer> copy = copy(landmarks);
+		assertEquals(landmarks.getLandmarks(),copy.getLandmarks());
+		
+		ShortestPaths<Integer,Integer> byId = new ShortestPaths<Integer,Integer>(csr,landmarks);
+		ShortestPaths<Integer,Integer> byVertex = new ShortestPaths<Integer,Integer>(csr,copy);
+		for(int k = 0; k < 50; ++k)
+		{
+			Vertex<Integer> source = vertices.get(r.nextInt(n));
+			Vertex<Integer> target = vertices.get(k == 0 ? n - 1 : r.nextInt(n));
+			float expected = DjikstraTest.distances(g,n,source.getData())[target.getData()];
+			
+			assertEquals(landmarks.heuristicDistance(source,target),copy.heuristicDistance(source,target),0.0f);
+			assertEquals(expected,byId.getDistance(source,target),0.0f);
+			assertEquals(expected,byVertex.getDistance(source,target),0.0f);
+			
+			if(expected != Float.POSITIVE_INFINITY)
+			{
+				AStar<Integer,Integer> astar = new AStar<Integer,Integer>(g,source,target,landmarks);
+				astar.execute();
+				assertEquals(expected,astar.getResult().getDistance(target),0.0f);
+			}
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotInGraph()
+	{
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(new Random(16),10,20,vertices);
+		new Landmarks<Integer>(g).heuristicDistance(vertices.get(0),new Vertex<Integer>(10));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(T obj) throws Exception
+	{
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bout);
+		out.writeObject(obj);
+		out.close();
+		return (T)new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray())).readObject();
+	}
+}
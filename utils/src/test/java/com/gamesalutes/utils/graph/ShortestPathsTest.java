@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2013 Game Salutes.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v3
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl.html
+ * 
+ * Contributors:
+ *     Game Salutes - Repackaging and modifications of original work under University of Chicago and Apache License 2.0 shown below
+ * 
+ * Repackaging from edu.uchicago.nsit.iteco.utils to com.gamesalutes.utils
+ * 
+ * Copyright 2008 - 2011 University of Chicago
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.gamesalutes.utils.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * @author Justin Montgomery
+ * @version $Id:$
+ */
+public class ShortestPathsTest
+{
+	private static final int SIZE = 30;
+	
+	@Test(timeout = 10000)
+	public void testGetDistance()
+	{
+		Random r = new Random(15);
+		int n = 200;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(r,n,1000,vertices);
+		ShortestPaths<Integer,Integer> paths = new ShortestPaths<Integer,Integer>(g);
+		
+		for(int k = 0; k < 50; ++k)
+		{
+			int s = r.nextInt(n), t = k == 0 ? n - 1 : r.nextInt(n);
+			float expected = DjikstraTest.distances(g,n,s)[t];
+			Vertex<Integer> source = vertices.get(s), target = vertices.get(t);
+			assertEquals(expected,paths.getDistance(source,target),0.0f);
+			
+			List<Vertex<Integer>> path = paths.getPath(source,target);
+			if(expected == Float.POSITIVE_INFINITY)
+			{
+				assertTrue(path.isEmpty());
+				continue;
+			}
+			assertEquals(source,path.get(0));
+			assertEquals(target,path.get(path.size() - 1));
+			assertEquals(expected,cost(paths.getGraph(),path),0.0f);
+		}
+		
+		assertEquals(0.0f,paths.getDistance(vertices.get(3),vertices.get(3)),0.0f);
+		assertEquals(Arrays.asList(vertices.get(3)),paths.getPath(vertices.get(3),vertices.get(3)));
+	}
+	
+	@Test(timeout = 10000)
+	public void testAStar()
+	{
+		// grid with random weights of at least one so that the manhattan distance is consistent
+		Random r = new Random(15);
+		Graph<Integer,Integer> g = new AdjacencyList<Integer,Integer>(true);
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		for(int i = 0; i < SIZE * SIZE; ++i)
+		{
+			vertices.add(new Vertex<Integer>(i));
+			g.addVertex(vertices.get(i));
+		}
+		int edge = 0;
+		for(int x = 0; x < SIZE; ++x)
+		{
+			for(int y = 0; y < SIZE; ++y)
+			{
+				int [][] dirs = {{1,0},{-1,0},{0,1},{0,-1}};
+				for(int [] d : dirs)
+				{
+					int nx = x + d[0], ny = y + d[1];
+					if(nx < 0 || ny < 0 || nx >= SIZE || ny >= SIZE) continue;
+					Edge<Integer,Integer> e = new Edge<Integer,Integer>(
+							vertices.get(x * SIZE + y),vertices.get(nx * SIZE + ny),edge++);
+					e.setWeight(1 + r.nextInt(4));
+					g.addEdge(e);
+				}
+			}
+		}
+		
+		ShortestPaths<Integer,Integer> djikstra = new ShortestPaths<Integer,Integer>(g);
+		ShortestPaths<Integer,Integer> astar = new ShortestPaths<Integer,Integer>(g,
+			new AStar.AStarCallback<Integer>()
+			{
+				public float heuristicDistance(Vertex<Integer> s,Vertex<Integer> t)
+				{
+					int a = s.getData(), b = t.getData();
+					return Math.abs(a / SIZE - b / SIZE) + Math.abs(a % SIZE - b % SIZE);
+				}
+			});
+		
+		for(int k = 0; k < 50; ++k)
+		{
+			Vertex<Integer> source = vertices.get(r.nextInt(vertices.size()));
+			Vertex<Integer> target = vertices.get(r.nextInt(vertices.size()));
+			Djikstra<Integer,Integer> alg = new Djikstra<Integer,Integer>(g,source);
+			alg.execute();
+			float expected = alg.getResult().getDistance(target);
+			
+			assertEquals(expected,djikstra.getDistance(source,target),0.0f);
+			assertEquals(expected,astar.getDistance(source,target),0.0f);
+			List<Vertex<Integer>> path = astar.getPath(source,target);
+			assertEquals(source,path.get(0));
+			assertEquals(target,path.get(path.size() - 1));
+			assertEquals(expected,cost(astar.getGraph(),path),0.0f);
+		}
+	}
+	
+	@Test(timeout = 30000)
+	public void testGetDistances()
+	{
+		Random r = new Random(15);
+		int n = 300;
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(r,n,1500,vertices);
+		ShortestPaths<Integer,Integer> paths = new ShortestPaths<Integer,Integer>(g);
+		
+		List<Vertex<Integer>> sources = new ArrayList<Vertex<Integer>>();
+		for(int i = 0; i < 40; ++i)
+			sources.add(vertices.get(r.nextInt(n)));
+		// includes a repeated and an unreachable target
+		List<Vertex<Integer>> targets = new ArrayList<Vertex<Integer>>();
+		for(int i = 0; i < 10; ++i)
+			targets.add(vertices.get(r.nextInt(n)));
+		targets.add(targets.get(0));
+		targets.add(vertices.get(n - 1));
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			float [][] sequential = paths.getDistances(sources,targets);
+			float [][] parallel = paths.getDistances(sources,targets,pool);
+			assertEquals(sources.size(),sequential.length);
+			for(int i = 0; i < sources.size(); ++i)
+			{
+				float [] expected = DjikstraTest.distances(g,n,sources.get(i).getData());
+				assertEquals(targets.size(),sequential[i].length);
+				for(int j = 0; j < targets.size(); ++j)
+				{
+					float d = expected[targets.get(j).getData()];
+					assertEquals(d,sequential[i][j],0.0f);
+					assertEquals(d,parallel[i][j],0.0f);
+				}
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		
+		assertEquals(0,paths.getDistances(new ArrayList<Vertex<Integer>>(),targets).length);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotInGraph()
+	{
+		List<Vertex<Integer>> vertices = new ArrayList<Vertex<Integer>>();
+		Graph<Integer,Integer> g = DjikstraTest.randomGraph(new Random(15),10,20,vertices);
+		new ShortestPaths<Integer,Integer>(g).getDistance(vertices.get(0),new Vertex<Integer>(10));
+	}
+	
+	// there may be parallel edges
+	private static float cost(CSRGraph<Integer,Integer> csr,List<Vertex<Integer>> path)
+	{
+		float cost = 0;
+		for(int i = 1; i < path.size(); ++i)
+		{
+			int id = csr.indexOf(path.get(i - 1));
+			float min = Float.MAX_VALUE;
+			for(int a = csr.getFirstArc(id); a < csr.getFirstArc(id + 1); ++a)
+			{
+				if(csr.getTarget(a) == csr.indexOf(path.get(i)))
+					min = Math.min(min,csr.getWeight(a));
+			}
+			cost += min;
+		}
+		return cost;
+	}
+}
@@ -40,9 +40,20 @@ import org.junit.runners.Suite;
 @SuiteClasses({VertexTest.class,
 	           EdgeTest.class,
 	           AdjacencyListTest.class,
+	           IndexedAdjacencyListTest.class,
 	           SynchronizedGraphTest.class,
+	           ReadWriteLockedGraphTest.class,
+	           CopyOnWriteGraphTest.class,
 	           TreeNodeTest.class,
 	           BFSTest.class,
 			   DFSTest.class,
-			   GraphUtilsTest.class})
+			   GraphUtilsTest.class,
+			   IndexedHeapTest.class,
+			   DjikstraTest.class,
+			   AStarTest.class,
+			   CSRGraphTest.class,
+			   ShortestPathsTest.class,
+			   LandmarksTest.class,
+			   GraphSnapshotTest.class,
+			   EdgeListLoaderTest.class})
 public class TestSuite {}
@@ -42,11 +42,16 @@ package com.gamesalutes.utils.graph;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.After;
 import org.junit.Before;
@@ -407,6 +412,222 @@ public class TreeNodeTest {
 		
 	}
 	
+	private static TreeNode<Integer> randomTree(long seed,int n)
+	{
+		Random r = new Random(seed);
+		List<TreeNode<Integer>> nodes = new ArrayList<TreeNode<Integer>>();
+		TreeNode<Integer> root = new TreeNode<Integer>(0);
+		nodes.add(root);
+		for(int i = 1; i < n; ++i)
+		{
+			TreeNode<Integer> node = new TreeNode<Integer>(i);
+			// favor recent nodes for some depth
+			int parent = r.nextBoolean() ? r.nextInt(nodes.size()) : nodes.size() - 1 - r.nextInt(Math.min(3,nodes.size()));
+			nodes.get(parent).addChild(node);
+			nodes.add(node);
+		}
+		return root;
+	}
+	
+	private static TreeNode<Integer> chain(int n)
+	{
+		TreeNode<Integer> root = new TreeNode<Integer>(0);
+		TreeNode<Integer> node = root;
+		for(int i = 1; i < n; ++i)
+		{
+			TreeNode<Integer> child = new TreeNode<Integer>(i);
+			node.addChild(child);
+			// a leaf at each level
+			node.addChild(new TreeNode<Integer>(-i));
+			node = child;
+		}
+		return root;
+	}
+	
+	private static void preOrder(TreeNode<Integer> node,int level,List<TreeNode<Integer>> out,List<Integer> levels)
+	{
+		out.add(node);
+		levels.add(level);
+		for(Iterator<TreeNode<Integer>> it = node.iterator(); it.hasNext();)
+			preOrder(it.next(),level + 1,out,levels);
+	}
+	
+	private static void postOrder(TreeNode<Integer> node,List<TreeNode<Integer>> out)
+	{
+		for(Iterator<TreeNode<Integer>> it = node.iterator(); it.hasNext();)
+			postOrder(it.next(),out);
+		out.add(node);
+	}
+	
+	private static List<TreeNode<Integer>> toList(Iterator<TreeNode<Integer>> it,List<Integer> levels)
+	{
+		List<TreeNode<Integer>> list = new ArrayList<TreeNode<Integer>>();
+		while(it.hasNext())
+		{
+			TreeNode<Integer> node = it.next();
+			list.add(node);
+			if(levels != null)
+				levels.add(node.getLevel());
+		}
+		return list;
+	}
+	
+	@Test
+	public void testOrderIterators()
+	{
+		for(long seed = 1; seed <= 5; ++seed)
+		{
+			TreeNode<Integer> root = randomTree(seed,500);
+			List<TreeNode<Integer>> expected = new ArrayList<TreeNode<Integer>>();
+			List<Integer> expectedLevels = new ArrayList<Integer>();
+			preOrder(root,0,expected,expectedLevels);
+			List<Integer> levels = new ArrayList<Integer>();
+			assertEquals(expected,toList(root.preOrderIterator(),levels));
+			assertEquals(expectedLevels,levels);
+			assertEquals(expected,new PreOrderTraversal<Integer>(root).execute().getTraversal());
+			
+			expected.clear();
+			postOrder(root,expected);
+			assertEquals(expected,toList(root.postOrderIterator(),null));
+			assertEquals(expected,new PostOrderTraversal<Integer>(root).execute().getTraversal());
+			
+			List<TreeNode<Integer>> levelOrder = toList(root.levelOrderIterator(),levels = new ArrayList<Integer>());
+			assertEquals(levelOrder,new LevelOrderTraversal<Integer>(root).execute().getTraversal());
+			assertEquals(new HashSet<TreeNode<Integer>>(expected),new HashSet<TreeNode<Integer>>(levelOrder));
+			for(int i = 1; i < levels.size(); ++i)
+				assertTrue(levels.get(i - 1) <= levels.get(i));
+		}
+		
+		// single node
+		TreeNode<Integer> leaf = new TreeNode<Integer>(1);
+		assertEquals(Collections.singletonList(leaf),toList(leaf.preOrderIterator(),null));
+		assertEquals(Collections.singletonList(leaf),toList(leaf.postOrderIterator(),null));
+		assertEquals(Collections.singletonList(leaf),toList(leaf.levelOrderIterator(),null));
+	}
+	
+	@Test
+	public void testPrunedTraversals()
+	{
+		TreeNode<Integer> root = randomTree(7,500);
+		// odd nodes are rejected along with their subtrees
+		Listener<Integer> even = new Listener<Integer>()
+		{
+			public boolean onTraverse(TreeNode<Integer> node)
+			{
+				return node.getData() % 2 == 0;
+			}
+		};
+		List<TreeNode<Integer>> expected = new ArrayList<TreeNode<Integer>>();
+		for(Iterator<TreeNode<Integer>> it = root.preOrderIterator(); it.hasNext();)
+		{
+			TreeNode<Integer> node = it.next();
+			boolean accepted = true;
+			for(TreeNode<Integer> n : node.getPathFromRoot())
+				accepted &= n.getData() % 2 == 0;
+			if(accepted)
+				expected.add(node);
+		}
+		assertEquals(expected,new PreOrderTraversal<Integer>(root,even).execute().getTraversal());
+		assertEquals(new HashSet<TreeNode<Integer>>(expected),
+				new HashSet<TreeNode<Integer>>(new LevelOrderTraversal<Integer>(root,even).execute().getTraversal()));
+		
+		final Map<TreeNode<Integer>,Boolean> visited = new ConcurrentHashMap<TreeNode<Integer>,Boolean>();
+		int count = new ParallelTreeTraversal<Integer>(root,new Listener<Integer>()
+		{
+			public boolean onTraverse(TreeNode<Integer> node)
+			{
+				if(node.getData() % 2 != 0)
+					return false;
+				assertNull(visited.put(node,Boolean.TRUE));
+				return true;
+			}
+		}).execute(new ForkJoinPool(4));
+		assertEquals(expected.size(),count);
+		assertEquals(new HashSet<TreeNode<Integer>>(expected),visited.keySet());
+	}
+	
+	@Test
+	public void testParallelTraversal()
+	{
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			// wide, random and deep trees
+			TreeNode<Integer> wide = new TreeNode<Integer>(-1);
+			for(int i = 0; i < 10000; ++i)
+				wide.addChild(new TreeNode<Integer>(i));
+			for(TreeNode<Integer> root : Arrays.asList(wide,randomTree(3,20000),chain(20000)))
+			{
+				List<Integer> expectedLevels = new ArrayList<Integer>();
+				List<TreeNode<Integer>> expected = toList(root.preOrderIterator(),expectedLevels);
+				final Map<TreeNode<Integer>,Integer> levels = new ConcurrentHashMap<TreeNode<Integer>,Integer>();
+				int count = new ParallelTreeTraversal<Integer>(root,new Listener<Integer>()
+				{
+					public boolean onTraverse(TreeNode<Integer> node)
+					{
+						// parent visited first
+						assertTrue(node.isRoot() || levels.containsKey(node.getParent()));
+						assertNull(levels.put(node,node.getLevel()));
+						return true;
+					}
+				}).execute(pool);
+				assertEquals(expected.size(),count);
+				assertEquals(expected.size(),levels.size());
+				for(int i = 0; i < expected.size(); ++i)
+					assertEquals(expectedLevels.get(i),levels.get(expected.get(i)));
+			}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testDeepTree()
+	{
+		// recursion would overflow the stack
+		final int n = 200000;
+		TreeNode<Integer> root = chain(n);
+		assertEquals(2 * n - 1,new PreOrderTraversal<Integer>(root).execute().getTraversal().size());
+		assertEquals(2 * n - 1,new PostOrderTraversal<Integer>(root).execute().getTraversal().size());
+		assertEquals(2 * n - 1,new LevelOrderTraversal<Integer>(root).execute().getTraversal().size());
+		
+		TreeNode<Integer> copy = root.clone();
+		Iterator<TreeNode<Integer>> cit = copy.preOrderIterator();
+		for(Iterator<TreeNode<Integer>> it = root.preOrderIterator(); it.hasNext();)
+		{
+			TreeNode<Integer> node = it.next();
+			TreeNode<Integer> nodeCopy = cit.next();
+			assertEquals(node,nodeCopy);
+			assertNotSame(node,nodeCopy);
+			assertEquals(node.getChildCount(),nodeCopy.getChildCount());
+			if(!node.isRoot())
+				assertEquals(node.getParent(),nodeCopy.getParent());
+		}
+		assertFalse(cit.hasNext());
+		assertNull(copy.getParent());
+	}
+	
+	@Test
+	public void testCloneLevels()
+	{
+		TreeNode<Integer> root = randomTree(7,200);
+		// leave stale levels from a traversal of the whole tree
+		new PreOrderTraversal<Integer>(root).execute();
+		TreeNode<Integer> subtree = root.getChildAt(0);
+		assertEquals(1,subtree.getLevel());
+		
+		TreeNode<Integer> copy = subtree.clone();
+		// walk the copy without the iterators, which would set the levels themselves
+		List<TreeNode<Integer>> nodes = new ArrayList<TreeNode<Integer>>();
+		List<Integer> levels = new ArrayList<Integer>();
+		preOrder(copy,0,nodes,levels);
+		assertTrue(nodes.size() > 1);
+		for(int i = 0; i < nodes.size(); ++i)
+			assertEquals(levels.get(i).intValue(),nodes.get(i).getLevel());
+	}
+	
 	@Test
 	public void testRemoveChildAt()
 	{